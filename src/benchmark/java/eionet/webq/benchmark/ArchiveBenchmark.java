@@ -0,0 +1,108 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.benchmark;
+
+import eionet.webq.service.impl.project.export.ArchiveFile;
+import eionet.webq.service.impl.project.export.ArchiveReadAdapter;
+import eionet.webq.service.impl.project.export.ArchiveWriteAdapter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Project export and import archive writing and reading.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class ArchiveBenchmark {
+    /**
+     * Count of archived files.
+     */
+    @Param({"10", "100"})
+    int files;
+    /**
+     * Rows in each archived file.
+     */
+    @Param({"100", "1000"})
+    int rows;
+    /**
+     * Archived files.
+     */
+    private List<ArchiveFile> archiveFiles;
+    /**
+     * Archive content.
+     */
+    private byte[] archive;
+
+    /**
+     * Generates archived files and archive.
+     *
+     * @throws IOException if archive could not be written
+     */
+    @Setup
+    public void setUp() throws IOException {
+        archiveFiles = new ArrayList<ArchiveFile>();
+        for (int i = 0; i < files; i++) {
+            archiveFiles.add(new ArchiveFile("files/file" + i + ".xml", ReportingXml.generate(rows, i)));
+        }
+        archive = write();
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        ArchiveWriteAdapter writer = new ArchiveWriteAdapter();
+        for (ArchiveFile file : archiveFiles) {
+            writer.addEntry(file);
+        }
+        writer.close();
+        return writer.getArchiveContent();
+    }
+
+    @Benchmark
+    public long read() throws IOException {
+        ArchiveReadAdapter reader = new ArchiveReadAdapter(archive);
+        long bytes = 0;
+        try {
+            for (ArchiveFile file = reader.next(); file != null; file = reader.next()) {
+                bytes += file.getContent().length;
+            }
+        } finally {
+            reader.close();
+        }
+        return bytes;
+    }
+}
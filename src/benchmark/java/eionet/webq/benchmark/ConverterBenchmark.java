@@ -0,0 +1,93 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.benchmark;
+
+import eionet.webq.converter.JsonXMLBidirectionalConverter;
+import eionet.webq.converter.XmlSchemaExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * XML to JSON conversion in both directions and schema extraction of uploaded files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class ConverterBenchmark {
+    /**
+     * Rows in converted file.
+     */
+    @Param({"10", "1000", "10000"})
+    int rows;
+    /**
+     * XML to JSON converter.
+     */
+    private final JsonXMLBidirectionalConverter converter = new JsonXMLBidirectionalConverter();
+    /**
+     * Schema extractor.
+     */
+    private final XmlSchemaExtractor schemaExtractor = new XmlSchemaExtractor();
+    /**
+     * Reporting XML.
+     */
+    private byte[] xml;
+    /**
+     * Reporting XML converted to JSON.
+     */
+    private byte[] json;
+
+    /**
+     * Generates converted files.
+     */
+    @Setup
+    public void setUp() {
+        xml = ReportingXml.generate(rows, 1);
+        json = converter.convertXmlToJson(xml);
+    }
+
+    @Benchmark
+    public byte[] xmlToJson() {
+        return converter.convertXmlToJson(xml);
+    }
+
+    @Benchmark
+    public byte[] jsonToXml() {
+        return converter.convertJsonToXml(json);
+    }
+
+    @Benchmark
+    public String extractXmlSchema() {
+        return schemaExtractor.extractXmlSchema(xml);
+    }
+}
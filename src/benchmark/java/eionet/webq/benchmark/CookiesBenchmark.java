@@ -0,0 +1,87 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.benchmark;
+
+import eionet.webq.converter.CookiesToStringBidirectionalConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.servlet.http.Cookie;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cookie serialization used when forwarding user session to remote hosts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class CookiesBenchmark {
+    /**
+     * Cookies count.
+     */
+    @Param({"3", "20"})
+    int count;
+    /**
+     * Cookies converter.
+     */
+    private final CookiesToStringBidirectionalConverter converter = new CookiesToStringBidirectionalConverter();
+    /**
+     * Cookies.
+     */
+    private Cookie[] cookies;
+    /**
+     * Cookies as string.
+     */
+    private String cookiesString;
+
+    /**
+     * Creates cookies resembling session and single sign-on cookies.
+     */
+    @Setup
+    public void setUp() {
+        cookies = new Cookie[count];
+        for (int i = 0; i < count; i++) {
+            cookies[i] = new Cookie("cookie" + i, "ST-" + i + "-a8Fj3kLmQp0zXc7VbN2sD4gH6jK9lM1nB5vC8xZ0" + i);
+        }
+        cookiesString = converter.convertCookiesToString(cookies);
+    }
+
+    @Benchmark
+    public String cookiesToString() {
+        return converter.convertCookiesToString(cookies);
+    }
+
+    @Benchmark
+    public Cookie[] stringToCookies() {
+        return converter.convertStringToCookies(cookiesString);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.benchmark;
+
+import eionet.webq.dao.orm.MergeModule;
+import eionet.webq.dao.orm.UploadedFile;
+import eionet.webq.dao.orm.UserFile;
+import eionet.webq.service.UserFileMergeServiceImpl;
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.transform.TransformerException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merge of user files with XSLT merge module.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class MergeBenchmark {
+    /**
+     * Count of merged files.
+     */
+    @Param({"2", "10"})
+    int files;
+    /**
+     * Rows in each merged file.
+     */
+    @Param({"100", "1000"})
+    int rows;
+    /**
+     * Merge service.
+     */
+    private final UserFileMergeServiceImpl mergeService = new UserFileMergeServiceImpl();
+    /**
+     * Merged files.
+     */
+    private List<UserFile> userFiles;
+    /**
+     * Merge module.
+     */
+    private MergeModule mergeModule;
+
+    /**
+     * Generates merged files and loads merge module.
+     *
+     * @throws IOException if merge stylesheet is not available
+     */
+    @Setup
+    public void setUp() throws IOException {
+        userFiles = new ArrayList<UserFile>();
+        for (int i = 0; i < files; i++) {
+            UserFile userFile = new UserFile(new UploadedFile("file" + i + ".xml", ReportingXml.generate(rows, i)),
+                    ReportingXml.SCHEMA);
+            userFile.setId(i + 1);
+            userFiles.add(userFile);
+        }
+        InputStream xsl = getClass().getClassLoader().getResourceAsStream("habides_simple_merge_module.xsl");
+        try {
+            mergeModule = new MergeModule();
+            mergeModule.setXslFile(new UploadedFile("merge.xsl", IOUtils.toByteArray(xsl)));
+        } finally {
+            IOUtils.closeQuietly(xsl);
+        }
+    }
+
+    @Benchmark
+    public byte[] mergeFiles() throws TransformerException {
+        return mergeService.mergeFiles(userFiles, mergeModule);
+    }
+}
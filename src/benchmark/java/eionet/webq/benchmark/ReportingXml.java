@@ -0,0 +1,102 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.benchmark;
+
+import java.nio.charset.Charset;
+import java.util.Random;
+
+/**
+ * Generates reporting XML files similar to the ones submitted through web questionnaires: a root element with schema
+ * location and country attributes, containing rows of nested reporting elements with numeric, code list and free text
+ * values. Generation is seeded, so the same arguments always produce the same document.
+ */
+public final class ReportingXml {
+    /**
+     * Schema location of generated files.
+     */
+    public static final String SCHEMA = "http://biodiversity.eionet.europa.eu/schemas/bernconvention/derogations.xsd";
+    /**
+     * UTF-8 charset.
+     */
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    /**
+     * Species used in generated rows.
+     */
+    private static final String[] SPECIES = {"Canis lupus", "Ursus arctos", "Lynx lynx", "Castor fiber",
+            "Phalacrocorax carbo", "Lutra lutra"};
+    /**
+     * Free text values, including non ASCII characters.
+     */
+    private static final String[] DESCRIPTIONS = {"Damage to livestock in the northern region",
+            "Schäden an Fischteichen & Gewässern", "Protection of public health and safety",
+            "Prévention de dommages importants aux cultures", "Ochrona fauny i flory <niegatunkowej>"};
+
+    /**
+     * Utility class.
+     */
+    private ReportingXml() {
+    }
+
+    /**
+     * Generates reporting XML.
+     *
+     * @param rows count of derogation rows
+     * @param seed random seed
+     * @return XML content
+     */
+    public static byte[] generate(int rows, long seed) {
+        Random random = new Random(seed);
+        StringBuilder xml = new StringBuilder(rows * 700 + 300);
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<derogations xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"")
+                .append(" xsi:noNamespaceSchemaLocation=\"").append(SCHEMA).append("\"")
+                .append(" country=\"").append(seed % 2 == 0 ? "EE" : "FI").append("\" lang=\"en\">\n");
+        for (int i = 0; i < rows; i++) {
+            xml.append("  <derogation>\n")
+                    .append("    <derogation_id>").append(seed).append('-').append(i).append("</derogation_id>\n")
+                    .append("    <species>").append(SPECIES[random.nextInt(SPECIES.length)]).append("</species>\n")
+                    .append("    <licence_valid_from>2017-0").append(1 + random.nextInt(9)).append("-1")
+                    .append(random.nextInt(10)).append("</licence_valid_from>\n")
+                    .append("    <reasons>\n");
+            int reasons = 1 + random.nextInt(3);
+            for (int r = 0; r < reasons; r++) {
+                xml.append("      <reason code=\"").append((char) ('a' + random.nextInt(5))).append("\"/>\n");
+            }
+            xml.append("    </reasons>\n")
+                    .append("    <individuals>").append(random.nextInt(500)).append("</individuals>\n")
+                    .append("    <area_km2>").append(random.nextInt(100000) / 100.0).append("</area_km2>\n")
+                    .append("    <description>").append(escape(DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)]))
+                    .append("</description>\n")
+                    .append("  </derogation>\n");
+        }
+        xml.append("</derogations>\n");
+        return xml.toString().getBytes(UTF_8);
+    }
+
+    /**
+     * Escapes XML special characters.
+     *
+     * @param text text
+     * @return escaped text
+     */
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
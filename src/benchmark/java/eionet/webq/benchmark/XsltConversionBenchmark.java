@@ -0,0 +1,121 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.benchmark;
+
+import eionet.webq.converter.JsonXMLBidirectionalConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * XSLT conversion of proxied XML, as done by proxyXmlWithConversion endpoint of
+ * {@link eionet.webq.web.controller.WebQProxyDelegation}: stylesheet is compiled for every request, request parameters
+ * are passed to the transformer and the result is optionally converted to JSON.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class XsltConversionBenchmark {
+    /**
+     * Stylesheet summarizing derogations by species.
+     */
+    private static final String XSLT = "<xsl:stylesheet version=\"1.0\" "
+            + "xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">\n"
+            + "  <xsl:output method=\"xml\" indent=\"yes\"/>\n"
+            + "  <xsl:param name=\"lang\" select=\"'en'\"/>\n"
+            + "  <xsl:key name=\"bySpecies\" match=\"derogation\" use=\"species\"/>\n"
+            + "  <xsl:template match=\"/derogations\">\n"
+            + "    <summary country=\"{@country}\" lang=\"{$lang}\">\n"
+            + "      <xsl:for-each select=\"derogation[count(. | key('bySpecies', species)[1]) = 1]\">\n"
+            + "        <species name=\"{species}\">\n"
+            + "          <derogations><xsl:value-of select=\"count(key('bySpecies', species))\"/></derogations>\n"
+            + "          <individuals><xsl:value-of select=\"sum(key('bySpecies', species)/individuals)\"/>"
+            + "</individuals>\n"
+            + "        </species>\n"
+            + "      </xsl:for-each>\n"
+            + "    </summary>\n"
+            + "  </xsl:template>\n"
+            + "</xsl:stylesheet>\n";
+    /**
+     * Rows in converted file.
+     */
+    @Param({"100", "1000", "10000"})
+    int rows;
+    /**
+     * Result format, as in format request parameter.
+     */
+    @Param({"xml", "json"})
+    String format;
+    /**
+     * XML to JSON converter.
+     */
+    private final JsonXMLBidirectionalConverter jsonConverter = new JsonXMLBidirectionalConverter();
+    /**
+     * Converted XML.
+     */
+    private byte[] xml;
+    /**
+     * Stylesheet.
+     */
+    private byte[] xslt;
+
+    /**
+     * Generates converted file.
+     */
+    @Setup
+    public void setUp() {
+        xml = ReportingXml.generate(rows, 1);
+        xslt = XSLT.getBytes(Charset.forName("UTF-8"));
+    }
+
+    @Benchmark
+    public byte[] convert() throws TransformerException {
+        Transformer transformer =
+                TransformerFactory.newInstance().newTransformer(new StreamSource(new ByteArrayInputStream(xslt)));
+        transformer.setParameter("lang", "en");
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        transformer.transform(new StreamSource(new ByteArrayInputStream(xml)), new StreamResult(result));
+        if ("json".equals(format)) {
+            return jsonConverter.convertXmlToJson(result.toByteArray());
+        }
+        return result.toByteArray();
+    }
+}
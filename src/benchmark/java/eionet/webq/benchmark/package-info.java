@@ -0,0 +1,5 @@
+/**
+ * JMH benchmarks of conversion, merge, parsing and archiving hot paths. Run with
+ * {@code mvn -Pbenchmark -DskipTests verify}.
+ */
+package eionet.webq.benchmark;
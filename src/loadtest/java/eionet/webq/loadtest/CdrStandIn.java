@@ -0,0 +1,121 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+
+/**
+ * Stand-in for CDR. Every path below /envelopes/ is an envelope containing single reporting file. Supports:
+ * <ul>
+ *     <li>basic authorization check ({@code POST /loggedin}),</li>
+ *     <li>envelope properties page used for cookie authorization ({@code GET <envelope>/manage_prop}),</li>
+ *     <li>XML-RPC {@code getXMLFiles} ({@code POST <envelope>}),</li>
+ *     <li>file save ({@code POST <envelope>/saveXML}),</li>
+ *     <li>envelope file download ({@code GET <envelope>/<file>.xml}).</li>
+ * </ul>
+ */
+class CdrStandIn extends StandInServer {
+    /**
+     * Name of the file in every envelope.
+     */
+    static final String FILE_NAME = "reporting.xml";
+    /**
+     * Simulated CDR processing time in milliseconds.
+     */
+    private final long latencyMillis;
+    /**
+     * Envelope file content.
+     */
+    private final byte[] fileContent;
+
+    /**
+     * Creates CDR stand-in.
+     *
+     * @param port          port, 0 for any free port
+     * @param latencyMillis simulated processing time of every request
+     * @param fileContent   content of file in envelopes
+     * @throws IOException if server could not be created
+     */
+    CdrStandIn(int port, long latencyMillis, byte[] fileContent) throws IOException {
+        super(port, 50);
+        this.latencyMillis = latencyMillis;
+        this.fileContent = fileContent;
+    }
+
+    /**
+     * Envelope URL.
+     *
+     * @param name envelope name
+     * @return envelope URL
+     */
+    String envelopeUrl(String name) {
+        return getUrl() + "/envelopes/" + name;
+    }
+
+    @Override
+    void respond(HttpExchange exchange, String method, String path, byte[] body) throws IOException {
+        simulateLatency();
+        if (path.equals("/loggedin")) {
+            send(exchange, 200, "text/plain", "OK");
+        } else if (!path.startsWith("/envelopes/")) {
+            send(exchange, 404, "text/plain", "Not found");
+        } else if (path.endsWith("/manage_prop")) {
+            send(exchange, 200, "text/html", "<html><body>Envelope properties</body></html>");
+        } else if (path.endsWith("/saveXML")) {
+            send(exchange, 200, "text/plain", "1File saved");
+        } else if (path.endsWith(".xml")) {
+            send(exchange, 200, "text/xml", fileContent);
+        } else if (method.equals("POST")) {
+            send(exchange, 200, "text/xml", xmlFilesResponse(getUrl() + path));
+        } else {
+            send(exchange, 200, "text/html", "<html><body>Envelope</body></html>");
+        }
+    }
+
+    /**
+     * XML-RPC getXMLFiles response listing single envelope file.
+     *
+     * @param envelopeUrl envelope URL
+     * @return XML-RPC response
+     */
+    private String xmlFilesResponse(String envelopeUrl) {
+        return "<?xml version=\"1.0\"?>\n<methodResponse><params><param><value><struct><member>"
+                + "<name>" + LoadTest.SCHEMA + "</name><value><array><data><value><array><data>"
+                + "<value><string>" + envelopeUrl + "/" + FILE_NAME + "</string></value>"
+                + "<value><string>" + FILE_NAME + "</string></value>"
+                + "</data></array></value></data></array></value>"
+                + "</member></struct></value></param></params></methodResponse>";
+    }
+
+    /**
+     * Sleeps for simulated processing time.
+     */
+    private void simulateLatency() {
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
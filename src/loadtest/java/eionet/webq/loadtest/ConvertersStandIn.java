@@ -0,0 +1,58 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+
+/**
+ * Stand-in for converters API. Lists single HTML conversion for every schema ({@code GET /listConversions}) and
+ * converts any pushed file to small HTML page ({@code POST /convertPush}).
+ */
+class ConvertersStandIn extends StandInServer {
+    /**
+     * Id of the only conversion.
+     */
+    static final String CONVERSION_ID = "loadtest-html";
+
+    /**
+     * Creates converters stand-in.
+     *
+     * @param port port, 0 for any free port
+     * @throws IOException if server could not be created
+     */
+    ConvertersStandIn(int port) throws IOException {
+        super(port, 20);
+    }
+
+    @Override
+    void respond(HttpExchange exchange, String method, String path, byte[] body) throws IOException {
+        if (path.endsWith("/listConversions")) {
+            send(exchange, 200, "text/xml", "<?xml version=\"1.0\"?>\n<response code=\"200\"><conversion>"
+                    + "<convert_id>" + CONVERSION_ID + "</convert_id><description>HTML table</description>"
+                    + "<result_type>HTML</result_type></conversion></response>");
+        } else if (path.endsWith("/convertPush")) {
+            send(exchange, 200, "text/html", "<html><body><p>Converted " + body.length + " bytes</p></body></html>");
+        } else {
+            send(exchange, 404, "text/plain", "Not found");
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embedded HTTP server standing in for a remote service used by the application.
+ */
+abstract class StandInServer implements HttpHandler {
+    /**
+     * UTF-8 charset.
+     */
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+    /**
+     * HTTP server.
+     */
+    private final HttpServer server;
+    /**
+     * Request handling threads.
+     */
+    private final ExecutorService executor;
+    /**
+     * Server port.
+     */
+    private final int port;
+
+    /**
+     * Creates stand-in listening on localhost.
+     *
+     * @param port    port, 0 for any free port
+     * @param threads request handling threads
+     * @throws IOException if server could not be created
+     */
+    StandInServer(int port, int threads) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 100);
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/", this);
+        this.port = server.getAddress().getPort();
+    }
+
+    /**
+     * Starts serving requests.
+     */
+    void start() {
+        server.start();
+    }
+
+    /**
+     * Stops serving requests.
+     */
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Base URL of stand-in.
+     *
+     * @return base URL without trailing slash
+     */
+    String getUrl() {
+        return "http://localhost:" + port;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            InputStream body = exchange.getRequestBody();
+            byte[] content = IOUtils.toByteArray(body);
+            respond(exchange, exchange.getRequestMethod(), exchange.getRequestURI().getPath(), content);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Responds to request.
+     *
+     * @param exchange request and response
+     * @param method   request method
+     * @param path     request path
+     * @param body     request body
+     * @throws IOException if response could not be written
+     */
+    abstract void respond(HttpExchange exchange, String method, String path, byte[] body) throws IOException;
+
+    /**
+     * Writes response.
+     *
+     * @param exchange    request and response
+     * @param status      status code
+     * @param contentType content type
+     * @param content     response body
+     * @throws IOException if response could not be written
+     */
+    static void send(HttpExchange exchange, int status, String contentType, byte[] content) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, content.length == 0 ? -1 : content.length);
+        if (content.length > 0) {
+            OutputStream out = exchange.getResponseBody();
+            out.write(content);
+            out.close();
+        }
+    }
+
+    /**
+     * Writes text response.
+     *
+     * @param exchange    request and response
+     * @param status      status code
+     * @param contentType content type
+     * @param content     response body
+     * @throws IOException if response could not be written
+     */
+    static void send(HttpExchange exchange, int status, String contentType, String content) throws IOException {
+        send(exchange, status, contentType + ";charset=utf-8", content.getBytes(UTF_8));
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.loadtest;
+
+import eionet.webq.metrics.LatencyHistogram;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency distribution and error count of single scenario step.
+ */
+class StepStatistics {
+    /**
+     * Step name.
+     */
+    private final String name;
+    /**
+     * Step latencies.
+     */
+    private final LatencyHistogram latency = new LatencyHistogram();
+    /**
+     * Failed executions.
+     */
+    private final AtomicLong errors = new AtomicLong();
+
+    /**
+     * Creates step statistics.
+     *
+     * @param name step name
+     */
+    StepStatistics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records step execution.
+     *
+     * @param micros duration in microseconds
+     * @param failed whether step failed
+     */
+    void record(long micros, boolean failed) {
+        latency.record(micros);
+        if (failed) {
+            errors.incrementAndGet();
+        }
+    }
+
+    /**
+     * Formats report header.
+     *
+     * @return header line
+     */
+    static String header() {
+        return String.format(Locale.ROOT, "%-10s %8s %7s %9s %9s %9s %9s %9s", "step", "count", "errors", "req/s",
+                "p50 ms", "p90 ms", "p99 ms", "max ms");
+    }
+
+    /**
+     * Formats report line.
+     *
+     * @param elapsedSeconds test duration in seconds
+     * @return report line
+     */
+    String report(double elapsedSeconds) {
+        return String.format(Locale.ROOT, "%-10s %8d %7d %9.1f %9.1f %9.1f %9.1f %9.1f", name, latency.getCount(),
+                errors.get(), latency.getCount() / elapsedSeconds, millis(latency.getPercentile(50)),
+                millis(latency.getPercentile(90)), millis(latency.getPercentile(99)), millis(latency.getMax()));
+    }
+
+    long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * Converts microseconds to milliseconds.
+     *
+     * @param micros microseconds
+     * @return milliseconds
+     */
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.loadtest;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HTTP client of single virtual user. Keeps cookies of the user session and does not follow redirects.
+ */
+class WebClient {
+    /**
+     * Cookies by name.
+     */
+    private final Map<String, String> cookies = new LinkedHashMap<String, String>();
+
+    /**
+     * Response of single request.
+     */
+    static final class Response {
+        /**
+         * Status code.
+         */
+        final int status;
+        /**
+         * Location header.
+         */
+        final String location;
+        /**
+         * Response body.
+         */
+        final byte[] body;
+
+        /**
+         * Creates response.
+         *
+         * @param status   status code
+         * @param location location header
+         * @param body     response body
+         */
+        Response(int status, String location, byte[] body) {
+            this.status = status;
+            this.location = location;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Performs GET request.
+     *
+     * @param url     URL
+     * @param headers additional headers
+     * @return response
+     * @throws IOException if request failed
+     */
+    Response get(String url, Map<String, String> headers) throws IOException {
+        return execute("GET", url, headers, null, null);
+    }
+
+    /**
+     * Performs POST request.
+     *
+     * @param url         URL
+     * @param contentType body content type
+     * @param body        request body
+     * @return response
+     * @throws IOException if request failed
+     */
+    Response post(String url, String contentType, byte[] body) throws IOException {
+        return execute("POST", url, null, contentType, body);
+    }
+
+    /**
+     * Performs request.
+     *
+     * @param method      request method
+     * @param url         URL
+     * @param headers     additional headers, may be null
+     * @param contentType body content type, may be null
+     * @param body        request body, may be null
+     * @return response
+     * @throws IOException if request failed
+     */
+    private Response execute(String method, String url, Map<String, String> headers, String contentType, byte[] body)
+            throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setInstanceFollowRedirects(false);
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(10000);
+        connection.setReadTimeout(180000);
+        if (!cookies.isEmpty()) {
+            StringBuilder cookieHeader = new StringBuilder();
+            for (Map.Entry<String, String> cookie : cookies.entrySet()) {
+                if (cookieHeader.length() > 0) {
+                    cookieHeader.append("; ");
+                }
+                cookieHeader.append(cookie.getKey()).append('=').append(cookie.getValue());
+            }
+            connection.setRequestProperty("Cookie", cookieHeader.toString());
+        }
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+        }
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", contentType);
+            OutputStream out = connection.getOutputStream();
+            try {
+                out.write(body);
+            } finally {
+                out.close();
+            }
+        }
+        int status = connection.getResponseCode();
+        storeCookies(connection.getHeaderFields().get("Set-Cookie"));
+        InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        byte[] content = new byte[0];
+        if (in != null) {
+            try {
+                content = IOUtils.toByteArray(in);
+            } finally {
+                in.close();
+            }
+        }
+        return new Response(status, connection.getHeaderField("Location"), content);
+    }
+
+    /**
+     * Stores cookies set by response.
+     *
+     * @param setCookieHeaders Set-Cookie headers, may be null
+     */
+    private void storeCookies(List<String> setCookieHeaders) {
+        if (setCookieHeaders == null) {
+            return;
+        }
+        for (String header : setCookieHeaders) {
+            String nameValue = header.split(";", 2)[0];
+            int separator = nameValue.indexOf('=');
+            if (separator > 0) {
+                cookies.put(nameValue.substring(0, separator).trim(), nameValue.substring(separator + 1).trim());
+            }
+        }
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * End-to-end load test of CDR reporting scenarios against stand-ins of CDR and converters. Run with
+ * {@code mvn -Ploadtest -DskipTests verify}.
+ */
+package eionet.webq.loadtest;
@@ -1,13 +1,13 @@
 package eionet.webq.dao;
 
+import eionet.webq.dao.orm.UploadedFile;
 import org.hibernate.Criteria;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
-import org.hibernate.criterion.Criterion;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.util.Map;
 
 /**
  * Common logic for DAO classes.
@@ -16,6 +16,10 @@ import java.util.List;
  */
 @Transactional
 public abstract class AbstractDao<E> {
+    /**
+     * Path to file content id of entities storing file as {@code file} property.
+     */
+    static final String FILE_CONTENT_ID_PROPERTY = "file.fileContent.id";
     /**
      * Session factory.
      */
@@ -42,30 +46,49 @@ public abstract class AbstractDao<E> {
     }
 
     /**
-     * Removes entity with its children.
+     * Removes entities matching HQL condition together with file contents owned by them, see
+     * {@link #fileContentIdProperty()}.
      *
-     * @param criterion criterion to search entities.
+     * @param condition  HQL condition on entity properties, e.g. {@code projectId = :projectId}
+     * @param parameters named condition parameters, collections are bound as parameter lists
+     * @return removed rows
      */
-    protected void removeByCriterion(Criterion criterion) {
-        Session currentSession = getCurrentSession();
-        List files = getCriteria().add(criterion).list();
-        for (Object fileId : files) {
-            currentSession.delete(fileId);
-        }
+    protected RemovedRows removeWhere(String condition, Map<String, ?> parameters) {
+        return removeWhere(getEntityClass(), fileContentIdProperty(), condition, parameters);
     }
 
     /**
-     * Removes the list of entities by given criteria.
+     * Removes entities matching HQL condition with set-based statements, without loading them. Owned file contents are
+     * deleted first, selected by the same condition, then the entities. Entities already loaded to current session are
+     * not affected.
      *
-     * @param entityClass entity class
-     * @param criterion   criterion to search entities
+     * @param entityClass           entity class
+     * @param fileContentIdProperty path to owned file content id, null if entity has no file content
+     * @param condition             HQL condition on entity properties
+     * @param parameters            named condition parameters, collections are bound as parameter lists
+     * @return removed rows
      */
-    protected void removeEntitiesByCriterion(Class<?> entityClass, Criterion criterion) {
+    protected RemovedRows removeWhere(Class<?> entityClass, String fileContentIdProperty, String condition,
+            Map<String, ?> parameters) {
         Session currentSession = getCurrentSession();
-        List files = currentSession.createCriteria(entityClass).add(criterion).list();
-        for (Object fileId : files) {
-            currentSession.delete(fileId);
+        int fileContents = 0;
+        if (fileContentIdProperty != null) {
+            fileContents = currentSession.createQuery("DELETE FROM " + UploadedFile.FileContent.class.getName()
+                    + " WHERE id IN (SELECT " + fileContentIdProperty + " FROM " + entityClass.getName()
+                    + " WHERE " + condition + ")").setProperties(parameters).executeUpdate();
         }
+        int entities = currentSession.createQuery("DELETE FROM " + entityClass.getName() + " WHERE " + condition)
+                .setProperties(parameters).executeUpdate();
+        return new RemovedRows(entities, fileContents);
+    }
+
+    /**
+     * Path to id of file content owned by entity, used by {@link #removeWhere(String, Map)}.
+     *
+     * @return property path or null if entity does not own file content
+     */
+    String fileContentIdProperty() {
+        return null;
     }
 
     /**
@@ -74,4 +97,37 @@ public abstract class AbstractDao<E> {
      * @return dto class
      */
     abstract Class<E> getEntityClass();
+
+    /**
+     * Count of rows removed by bulk delete.
+     */
+    protected static final class RemovedRows {
+        /**
+         * Removed entities.
+         */
+        private final int entities;
+        /**
+         * Removed file contents.
+         */
+        private final int fileContents;
+
+        /**
+         * Creates counts.
+         *
+         * @param entities     removed entities
+         * @param fileContents removed file contents
+         */
+        RemovedRows(int entities, int fileContents) {
+            this.entities = entities;
+            this.fileContents = fileContents;
+        }
+
+        public int getEntities() {
+            return entities;
+        }
+
+        public int getFileContents() {
+            return fileContents;
+        }
+    }
 }
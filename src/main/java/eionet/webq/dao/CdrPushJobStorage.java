@@ -0,0 +1,79 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.dao;
+
+import eionet.webq.dao.orm.CdrPushJob;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * CDR push jobs repository.
+ */
+public interface CdrPushJobStorage {
+    /**
+     * Saves new push job.
+     *
+     * @param job push job
+     * @return job id
+     */
+    int save(CdrPushJob job);
+
+    /**
+     * Finds push job by id.
+     *
+     * @param id job id
+     * @return push job or null if not found
+     */
+    CdrPushJob findJob(int id);
+
+    /**
+     * Updates push job.
+     *
+     * @param job push job
+     */
+    void update(CdrPushJob job);
+
+    /**
+     * Finds push job for user file, which is waiting for push attempt.
+     *
+     * @param userFileId user file id
+     * @return queued job or null if there is no such job
+     */
+    CdrPushJob findQueuedForUserFile(int userFileId);
+
+    /**
+     * Finds all jobs, which are queued or in progress, ordered by creation order.
+     *
+     * @return unfinished jobs
+     */
+    List<CdrPushJob> findUnfinished();
+
+    /**
+     * Marks job as in progress, if it is queued and due or its previous claim is stale. Conditional update lets only
+     * one application node claim the job.
+     *
+     * @param id          job id
+     * @param now         claim time, stored as job update time
+     * @param staleBefore jobs in progress not updated since this time are claimed again
+     * @return true if job was claimed
+     */
+    boolean claim(int id, Date now, Date staleBefore);
+}
@@ -0,0 +1,83 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.dao;
+
+import eionet.webq.dao.orm.CdrPushJob;
+import eionet.webq.dao.orm.CdrPushJobStatus;
+import org.hibernate.criterion.Order;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.hibernate.criterion.Restrictions.and;
+import static org.hibernate.criterion.Restrictions.eq;
+import static org.hibernate.criterion.Restrictions.in;
+
+/**
+ * {@link eionet.webq.dao.CdrPushJobStorage} implementation.
+ */
+@Repository
+public class CdrPushJobStorageImpl extends AbstractDao<CdrPushJob> implements CdrPushJobStorage {
+
+    @Override
+    public int save(CdrPushJob job) {
+        getCurrentSession().save(job);
+        return job.getId();
+    }
+
+    @Override
+    public CdrPushJob findJob(int id) {
+        return (CdrPushJob) getCurrentSession().get(CdrPushJob.class, id);
+    }
+
+    @Override
+    public void update(CdrPushJob job) {
+        getCurrentSession().merge(job);
+    }
+
+    @Override
+    public CdrPushJob findQueuedForUserFile(int userFileId) {
+        return (CdrPushJob) getCriteria().add(and(eq("userFileId", userFileId), eq("status", CdrPushJobStatus.QUEUED)))
+                .addOrder(Order.desc("id")).setMaxResults(1).uniqueResult();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<CdrPushJob> findUnfinished() {
+        return getCriteria().add(in("status", new Object[] {CdrPushJobStatus.QUEUED, CdrPushJobStatus.IN_PROGRESS}))
+                .addOrder(Order.asc("id")).list();
+    }
+
+    @Override
+    public boolean claim(int id, Date now, Date staleBefore) {
+        return getCurrentSession().createQuery("UPDATE CdrPushJob SET status = :inProgress, updated = :now"
+                + " WHERE id = :id AND (status = :queued AND nextAttempt <= :now"
+                + " OR status = :inProgress AND updated < :staleBefore)")
+                .setParameter("inProgress", CdrPushJobStatus.IN_PROGRESS)
+                .setParameter("queued", CdrPushJobStatus.QUEUED).setTimestamp("now", now)
+                .setTimestamp("staleBefore", staleBefore).setInteger("id", id).executeUpdate() == 1;
+    }
+
+    @Override
+    Class<CdrPushJob> getEntityClass() {
+        return CdrPushJob.class;
+    }
+}
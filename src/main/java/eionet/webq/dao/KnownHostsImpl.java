@@ -22,10 +22,10 @@ package eionet.webq.dao;
 
 import eionet.webq.dao.orm.KnownHost;
 import org.hibernate.criterion.Order;
-import org.hibernate.criterion.Restrictions;
 import org.springframework.stereotype.Repository;
 
 import java.util.Collection;
+import java.util.Collections;
 
 /**
  */
@@ -51,7 +51,7 @@ public class KnownHostsImpl extends AbstractDao<KnownHost> implements KnownHosts
 
     @Override
     public void remove(int id) {
-        removeByCriterion(Restrictions.eq("id", id));
+        removeWhere("id = :id", Collections.singletonMap("id", id));
     }
 
     @Override
@@ -21,12 +21,16 @@
 package eionet.webq.dao;
 
 import eionet.webq.dao.orm.MergeModule;
+import eionet.webq.dao.orm.MergeModuleXmlSchema;
 import org.apache.commons.lang3.ArrayUtils;
+import org.apache.log4j.Logger;
 import org.hibernate.criterion.Restrictions;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -38,6 +42,10 @@ import static org.hibernate.criterion.CriteriaSpecification.DISTINCT_ROOT_ENTITY
 @Repository
 @Transactional
 public class MergeModulesImpl extends AbstractDao<MergeModule> implements MergeModules {
+    /**
+     * This class logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(MergeModulesImpl.class);
 
     @SuppressWarnings("unchecked")
     @Override
@@ -48,12 +56,21 @@ public class MergeModulesImpl extends AbstractDao<MergeModule> implements MergeM
     @Override
     public int save(MergeModule module) {
         getCurrentSession().save(module);
+        getCurrentSession().flush();
         return module.getId();
     }
 
     @Override
     public void remove(int... ids) {
-        removeByCriterion(Restrictions.in("id", ArrayUtils.toObject(ids)));
+        if (ArrayUtils.isEmpty(ids)) {
+            return;
+        }
+        List<Integer> moduleIds = Arrays.asList(ArrayUtils.toObject(ids));
+        getCurrentSession().createSQLQuery("DELETE FROM merge_module_xml_schema WHERE merge_module_id IN (:ids)")
+                .addSynchronizedEntityClass(MergeModuleXmlSchema.class).setParameterList("ids", moduleIds).executeUpdate();
+        RemovedRows removed = removeWhere("id IN (:ids)", Collections.singletonMap("ids", moduleIds));
+        LOGGER.info("Removed " + removed.getEntities() + " merge modules and " + removed.getFileContents()
+                + " file contents");
     }
 
     @Override
@@ -79,7 +96,7 @@ public class MergeModulesImpl extends AbstractDao<MergeModule> implements MergeM
         return (List<MergeModule>) getCriteria()
                 .createAlias("xmlSchemas", "xs")
                 .add(Restrictions.in("xs.xmlSchema", xmlSchemas))
-                .setResultTransformer(DISTINCT_ROOT_ENTITY).list();
+                .setResultTransformer(DISTINCT_ROOT_ENTITY).setCacheable(true).list();
     }
 
     /**
@@ -96,4 +113,9 @@ public class MergeModulesImpl extends AbstractDao<MergeModule> implements MergeM
     Class<MergeModule> getEntityClass() {
         return MergeModule.class;
     }
+
+    @Override
+    String fileContentIdProperty() {
+        return "xslFile.fileContent.id";
+    }
 }
@@ -62,6 +62,13 @@ public interface ProjectFileStorage {
     @SuppressWarnings("unchecked")
     Collection<ProjectFile> findAllFilesFor(ProjectEntry project);
 
+    /**
+     * Lists files of all projects having remote file URL.
+     *
+     * @return files collection
+     */
+    Collection<ProjectFile> findAllWithRemoteFileUrl();
+
     /**
      * Removes file(-s) by id(-s).
      *
@@ -87,4 +94,14 @@ public interface ProjectFileStorage {
      * @return project
      */
     ProjectFile findByNameAndProject(String name, ProjectEntry projectEntry);
+
+    /**
+     * Stores content hash and remote location validators without changing file content and last update time.
+     *
+     * @param id file id
+     * @param contentHash file content hash
+     * @param remoteEtag ETag of remote file matching file content
+     * @param remoteLastModified Last-Modified of remote file matching file content
+     */
+    void updateRemoteValidators(int id, String contentHash, String remoteEtag, String remoteLastModified);
 }
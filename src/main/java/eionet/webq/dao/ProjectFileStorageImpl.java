@@ -24,9 +24,14 @@ import static org.hibernate.criterion.Restrictions.and;
 import static org.hibernate.criterion.Restrictions.eq;
 import static org.hibernate.criterion.Restrictions.in;
 import static org.hibernate.criterion.Restrictions.isNotNull;
+import static org.hibernate.criterion.Restrictions.ne;
 
 import java.sql.Timestamp;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.hibernate.Session;
@@ -51,8 +56,8 @@ public class ProjectFileStorageImpl extends AbstractDao<ProjectFile> implements
 
     @Override
     public int save(final ProjectFile projectFile, final ProjectEntry project) {
-        projectFile.setProjectId(project.getId());
-        getCurrentSession().save(projectFile);
+        insert(projectFile, project);
+        getCurrentSession().flush();
         return projectFile.getId();
     }
 
@@ -70,22 +75,34 @@ public class ProjectFileStorageImpl extends AbstractDao<ProjectFile> implements
     @SuppressWarnings("unchecked")
     @Override
     public Collection<ProjectFile> findAllFilesFor(ProjectEntry project) {
-        return getCriteria().add(eq("projectId", project.getId())).addOrder(Order.asc("id")).list();
+        return getCriteria().add(eq("projectId", project.getId())).addOrder(Order.asc("id")).setCacheable(true).list();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Collection<ProjectFile> findAllWithRemoteFileUrl() {
+        return getCriteria().add(and(isNotNull("remoteFileUrl"), ne("remoteFileUrl", ""))).addOrder(Order.asc("id")).list();
     }
 
     @Override
     public void remove(final ProjectEntry projectEntry, final int... fileIds) {
-        removeByCriterion(and(eq("projectId", projectEntry.getId()), in("id", ArrayUtils.toObject(fileIds))));
+        if (ArrayUtils.isEmpty(fileIds)) {
+            return;
+        }
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        parameters.put("projectId", projectEntry.getId());
+        parameters.put("ids", Arrays.asList(ArrayUtils.toObject(fileIds)));
+        removeWhere("projectId = :projectId AND id IN (:ids)", parameters);
     }
 
     @Override
     public void cleanInsert(ProjectEntry projectEntry, Collection<ProjectFile> projectFiles) {
-        this.removeByCriterion(eq("projectId", projectEntry.getId()));
-        this.getCurrentSession().flush();
-        
+        this.removeWhere("projectId = :projectId", Collections.singletonMap("projectId", projectEntry.getId()));
+
         for (ProjectFile projectFile : projectFiles) {
-            this.save(projectFile, projectEntry);
+            insert(projectFile, projectEntry);
         }
+        this.getCurrentSession().flush();
     }
 
     @Override
@@ -94,15 +111,24 @@ public class ProjectFileStorageImpl extends AbstractDao<ProjectFile> implements
                 .add(Restrictions.and(eq("projectId", projectEntry.getId()), eq("file.name", name))).uniqueResult();
     }
 
+    @Override
+    public void updateRemoteValidators(int id, String contentHash, String remoteEtag, String remoteLastModified) {
+        getCurrentSession().createQuery("UPDATE ProjectFile SET contentHash=:contentHash, remoteEtag=:remoteEtag, "
+                + " remoteLastModified=:remoteLastModified WHERE id=:id")
+                .setString("contentHash", contentHash).setString("remoteEtag", remoteEtag)
+                .setString("remoteLastModified", remoteLastModified).setInteger("id", id).executeUpdate();
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public Collection<ProjectFile> getAllActiveWebForms(WebFormType type) {
-        return getCriteria().add(activeWebFormCriterionForType(type)).list();
+        return getCriteria().add(activeWebFormCriterionForType(type)).setCacheable(true).list();
     }
 
     @Override
     public ProjectFile getActiveWebFormById(WebFormType type, int id) {
-        return (ProjectFile) getCriteria().add(and(activeWebFormCriterionForType(type), Restrictions.idEq(id))).uniqueResult();
+        return (ProjectFile) getCriteria().add(and(activeWebFormCriterionForType(type), Restrictions.idEq(id)))
+                .setCacheable(true).uniqueResult();
     }
 
     @Override
@@ -113,7 +139,8 @@ public class ProjectFileStorageImpl extends AbstractDao<ProjectFile> implements
     @SuppressWarnings("unchecked")
     @Override
     public Collection<ProjectFile> findWebFormsForSchemas(WebFormType type, Collection<String> xmlSchemas) {
-        return getCriteria().add(and(activeWebFormCriterionForType(type), in("xmlSchema", xmlSchemas))).list();
+        return getCriteria().add(and(activeWebFormCriterionForType(type), in("xmlSchema", xmlSchemas)))
+                .setCacheable(true).list();
     }
 
     @Override
@@ -121,6 +148,25 @@ public class ProjectFileStorageImpl extends AbstractDao<ProjectFile> implements
         return ProjectFile.class;
     }
 
+    @Override
+    String fileContentIdProperty() {
+        return FILE_CONTENT_ID_PROPERTY;
+    }
+
+    /**
+     * Schedules insert of project file. Inserts are written on session flush, so all files saved before flush
+     * are sent to database in JDBC batches. Creation time is set here instead of reading database default back
+     * after every insert, which would execute the batch row by row.
+     *
+     * @param projectFile project file
+     * @param project     project the file belongs to
+     */
+    private void insert(ProjectFile projectFile, ProjectEntry project) {
+        projectFile.setProjectId(project.getId());
+        projectFile.setCreated(new Timestamp(System.currentTimeMillis()));
+        getCurrentSession().save(projectFile);
+    }
+
     /**
      * Updates all fields.
      *
@@ -134,11 +180,17 @@ public class ProjectFileStorageImpl extends AbstractDao<ProjectFile> implements
     }
 
     /**
-     * Performs update without changing file content data.
+     * Performs update without changing file content data. Remote file validators and content hash are cleared if
+     * remote file URL changes, so the next update check downloads the file from the new URL unconditionally.
      *
      * @param projectFile project file
      */
     private void updateWithoutChangingContent(ProjectFile projectFile) {
+        String remoteFileUrl = projectFile.getRemoteFileUrl();
+        getCurrentSession().createQuery("UPDATE ProjectFile SET contentHash=NULL, remoteEtag=NULL, "
+                + " remoteLastModified=NULL WHERE id=:id"
+                + (remoteFileUrl != null ? " AND (remoteFileUrl IS NULL OR remoteFileUrl<>:remoteFileUrl)" : ""))
+                .setProperties(projectFile).executeUpdate();
         getCurrentSession().createQuery("UPDATE ProjectFile SET title=:title, xmlSchema=:xmlSchema, "
                 + " description=:description, userName=:userName, "
                 + " active=:active, localForm=:localForm, remoteForm=:remoteForm, remoteFileUrl=:remoteFileUrl, "
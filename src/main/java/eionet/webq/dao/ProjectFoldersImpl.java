@@ -22,6 +22,7 @@ package eionet.webq.dao;
 
 import eionet.webq.dao.orm.ProjectEntry;
 import eionet.webq.dao.orm.ProjectFile;
+import org.apache.log4j.Logger;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
@@ -30,9 +31,7 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Collection;
-
-import static org.hibernate.criterion.Restrictions.and;
-import static org.hibernate.criterion.Restrictions.eq;
+import java.util.Collections;
 
 /**
  * Project folders interface implementation.
@@ -40,6 +39,10 @@ import static org.hibernate.criterion.Restrictions.eq;
 @Transactional
 @Repository
 public class ProjectFoldersImpl extends AbstractDao<ProjectEntry> implements ProjectFolders {
+    /**
+     * This class logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(ProjectFoldersImpl.class);
     /**
      * Session factory.
      */
@@ -60,7 +63,10 @@ public class ProjectFoldersImpl extends AbstractDao<ProjectEntry> implements Pro
         getCurrentSession().createQuery(hql).setString("projectId", projectId).executeUpdate();
 
         // delete project files
-        removeEntitiesByCriterion(ProjectFile.class, and(eq("projectId", projectEntry.getId())));
+        RemovedRows removed = removeWhere(ProjectFile.class, FILE_CONTENT_ID_PROPERTY, "projectId = :projectId",
+                Collections.singletonMap("projectId", projectEntry.getId()));
+        LOGGER.info("Removed project " + projectId + " with " + removed.getEntities() + " files and "
+                + removed.getFileContents() + " file contents");
     }
 
     @Override
@@ -75,7 +81,8 @@ public class ProjectFoldersImpl extends AbstractDao<ProjectEntry> implements Pro
 
     @Override
     public ProjectEntry getByProjectId(String projectId) {
-        return (ProjectEntry) getCriteria().add(Restrictions.eq("projectId", projectId)).uniqueResult();
+        return (ProjectEntry) getCriteria().add(Restrictions.eq("projectId", projectId)).setCacheable(true)
+                .uniqueResult();
     }
 
     @Override
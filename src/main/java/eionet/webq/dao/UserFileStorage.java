@@ -21,6 +21,7 @@
 package eionet.webq.dao;
 
 import eionet.webq.dao.orm.UserFile;
+import eionet.webq.dto.UserFileAuthInfo;
 import eionet.webq.dto.UserFileIdUpdate;
 
 import java.util.Collection;
@@ -37,6 +38,14 @@ public interface UserFileStorage {
      */
     int save(UserFile file, String userId);
 
+    /**
+     * Saves user files for userId. Files are inserted with a single session flush, so rows are sent in JDBC batches.
+     *
+     * @param files files
+     * @param userId userId
+     */
+    void save(Collection<UserFile> files, String userId);
+
     /**
      * Get file content by file id and userId.
      *
@@ -46,6 +55,23 @@ public interface UserFileStorage {
      */
     UserFile findFile(int id, String userId);
 
+    /**
+     * Get file content by file id regardless of file owner. Used by background tasks, which act outside of user session.
+     *
+     * @param id file id.
+     * @return file content or null if file not found
+     */
+    UserFile findFile(int id);
+
+    /**
+     * Get CDR authorisation fields of file by file id and userId, without loading file content.
+     *
+     * @param id file id.
+     * @param userId userId.
+     * @return auth info or null if file not found
+     */
+    UserFileAuthInfo findAuthInfo(int id, String userId);
+
     /**
      * Updates user file.
      *
@@ -75,6 +101,26 @@ public interface UserFileStorage {
      */
     Number getUserWebFormFileMaxNum(String userId, String xmlSchema, String fileName, char numDelim, char extensionDelim);
 
+    /**
+     * Allocates number for new file created from web form. Numbers are taken from counter kept per user, schema and
+     * file name, the counter is initialized with {@link #getUserWebFormFileMaxNum} only if it does not exist yet.
+     *
+     * @param userId user id
+     * @param xmlSchema schema name
+     * @param fileName file name
+     * @param numDelim number delimiter
+     * @param extensionDelim file extension delimiter
+     * @return next file number, starting from 1
+     */
+    long nextWebFormFileNum(String userId, String xmlSchema, String fileName, char numDelim, char extensionDelim);
+
+    /**
+     * Removes file number counters of users, who do not have any files left.
+     *
+     * @return removed counters count
+     */
+    int removeUnusedWebFormFileNumCounters();
+
     /**
      * Removes files which belongs to user by file id.
      * @param userId user id
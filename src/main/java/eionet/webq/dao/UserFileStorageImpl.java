@@ -22,22 +22,34 @@ package eionet.webq.dao;
 
 import static org.hibernate.criterion.Restrictions.and;
 import static org.hibernate.criterion.Restrictions.eq;
-import static org.hibernate.criterion.Restrictions.in;
 import static org.hibernate.criterion.Restrictions.like;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.log4j.Logger;
+import org.hibernate.Session;
 import org.hibernate.criterion.Order;
+import org.hibernate.exception.ConstraintViolationException;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 import org.hibernate.type.IntegerType;
 import org.hibernate.type.Type;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import eionet.webq.dao.orm.UserFile;
+import eionet.webq.dto.UserFileAuthInfo;
 import eionet.webq.dto.UserFileIdUpdate;
 
 /**
@@ -49,19 +61,69 @@ public class UserFileStorageImpl extends AbstractDao<UserFile> implements UserFi
      * This class logger.
      */
     private static final Logger LOGGER = Logger.getLogger(UserFileStorageImpl.class);
+    /**
+     * Web form file number counters table.
+     */
+    private static final String FILE_NUM_COUNTER_TABLE = "user_file_number";
+    /**
+     * Increments web form file number counter.
+     */
+    private static final String INCREMENT_FILE_NUM_COUNTER =
+            "UPDATE user_file_number SET last_num = last_num + 1 WHERE counter_key = :counterKey";
+    /**
+     * Reads web form file number counter.
+     */
+    private static final String SELECT_FILE_NUM_COUNTER = "SELECT last_num FROM user_file_number WHERE counter_key = :counterKey";
+    /**
+     * Creates web form file number counter.
+     */
+    private static final String INSERT_FILE_NUM_COUNTER =
+            "INSERT INTO user_file_number (counter_key, user_id, last_num) VALUES (:counterKey, :userId, :lastNum)";
+    /**
+     * Transaction manager for file number allocation.
+     */
+    @Autowired
+    PlatformTransactionManager transactionManager;
 
     @Override
     public int save(final UserFile file, final String userId) {
         file.setUserId(userId);
+        file.setCreated(new Date());
         getCurrentSession().save(file);
+        getCurrentSession().flush();
         return file.getId();
     }
 
+    @Override
+    public void save(Collection<UserFile> files, String userId) {
+        Session currentSession = getCurrentSession();
+        Date created = new Date();
+        for (UserFile file : files) {
+            file.setUserId(userId);
+            file.setCreated(created);
+            currentSession.save(file);
+        }
+        currentSession.flush();
+    }
+
     @Override
     public UserFile findFile(int id, String userId) {
         return (UserFile) getCriteria().add(and(eq("id", id), eq("userId", userId))).uniqueResult();
     }
 
+    @Override
+    public UserFile findFile(int id) {
+        return (UserFile) getCriteria().add(Restrictions.idEq(id)).uniqueResult();
+    }
+
+    @Override
+    public UserFileAuthInfo findAuthInfo(int id, String userId) {
+        return (UserFileAuthInfo) getCurrentSession()
+                .createQuery("SELECT new eionet.webq.dto.UserFileAuthInfo(userId, authorized, authorization, cookies) "
+                        + "FROM UserFile WHERE id=:id AND userId=:userId")
+                .setInteger("id", id).setString("userId", userId).uniqueResult();
+    }
+
     @Override
     public void update(final UserFile file, final String userId) {
         UserFile userFile = (UserFile) getCriteria().add(Restrictions.idEq(file.getId())).uniqueResult();
@@ -83,15 +145,16 @@ public class UserFileStorageImpl extends AbstractDao<UserFile> implements UserFi
         String maxProjection;
 
         int lastIndexOfDot = fileName.lastIndexOf(extensionDelim);
+        String prefix = (lastIndexOfDot > 0 ? fileName.substring(0, lastIndexOfDot) : fileName) + numDelim;
+        int numStart = prefix.length() + 1;
         if (lastIndexOfDot > 0) {
-            fileNameSearchCriteria = fileName.substring(0, lastIndexOfDot) + numDelim + "%" + fileName.substring(lastIndexOfDot);
-            maxProjection =
-                    "MAX(CAST(SUBSTRING(file_name, LOCATE('" + numDelim + "', file_name) + 1, LOCATE('" + extensionDelim
-                            + "', file_name) - LOCATE('" + numDelim + "', file_name) - 1) AS SIGNED)) AS num";
-
+            String extension = fileName.substring(lastIndexOfDot);
+            fileNameSearchCriteria = prefix + "%" + extension;
+            maxProjection = "MAX(CAST(SUBSTRING(file_name, " + numStart + ", CHAR_LENGTH(file_name) - "
+                    + (prefix.length() + extension.length()) + ") AS SIGNED)) AS num";
         } else {
-            fileNameSearchCriteria = fileName + numDelim + "%";
-            maxProjection = "MAX(CAST(SUBSTRING(file_name, LOCATE('" + numDelim + "', file_name) + 1) AS SIGNED)) AS num";
+            fileNameSearchCriteria = prefix + "%";
+            maxProjection = "MAX(CAST(SUBSTRING(file_name, " + numStart + ") AS SIGNED)) AS num";
         }
 
         return (Number) (getCriteria().add(eq("userId", userId)).add(like("xmlSchema", xmlSchema))
@@ -100,9 +163,41 @@ public class UserFileStorageImpl extends AbstractDao<UserFile> implements UserFi
                 .uniqueResult());
     }
 
+    @Override
+    public long nextWebFormFileNum(String userId, String xmlSchema, String fileName, char numDelim, char extensionDelim) {
+        String counterKey = DigestUtils.sha256Hex(userId + '\n' + xmlSchema + '\n' + fileName);
+        Long seed = null;
+        if (getCurrentSession().createSQLQuery(SELECT_FILE_NUM_COUNTER).setString("counterKey", counterKey)
+                .uniqueResult() == null) {
+            Number maxNum = getUserWebFormFileMaxNum(userId, xmlSchema, fileName, numDelim, extensionDelim);
+            seed = maxNum != null ? maxNum.longValue() : 0;
+        }
+        try {
+            return allocateFileNum(counterKey, userId, seed);
+        } catch (ConstraintViolationException e) {
+            LOGGER.info("File number counter created concurrently for user=" + userId + ", file name=" + fileName);
+            return allocateFileNum(counterKey, userId, null);
+        }
+    }
+
+    @Override
+    public int removeUnusedWebFormFileNumCounters() {
+        return getCurrentSession().createSQLQuery("DELETE FROM user_file_number WHERE user_id NOT IN "
+                + "(SELECT DISTINCT user_id FROM user_xml WHERE user_id IS NOT NULL)")
+                .addSynchronizedQuerySpace(FILE_NUM_COUNTER_TABLE).executeUpdate();
+    }
+
     @Override
     public void remove(final String userId, final int... ids) {
-        removeByCriterion(and(eq("userId", userId), in("id", ArrayUtils.toObject(ids))));
+        if (ArrayUtils.isEmpty(ids)) {
+            return;
+        }
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        parameters.put("userId", userId);
+        parameters.put("ids", Arrays.asList(ArrayUtils.toObject(ids)));
+        RemovedRows removed = removeWhere("userId = :userId AND id IN (:ids)", parameters);
+        LOGGER.info("Removed " + removed.getEntities() + " files and " + removed.getFileContents()
+                + " file contents of user=" + userId);
     }
 
     @Override
@@ -127,8 +222,46 @@ public class UserFileStorageImpl extends AbstractDao<UserFile> implements UserFi
                 .setTimestamp("downloaded", new Date()).setInteger("id", userFileId).executeUpdate();
     }
 
+    /**
+     * Allocates file number in separate transaction, so counter row is locked only for the time of increment and
+     * failed counter creation does not affect caller transaction.
+     *
+     * @param counterKey counter key
+     * @param userId     user id
+     * @param seed       last number used by existing files, if counter must be created, or null
+     * @return allocated file number
+     * @throws ConstraintViolationException if counter was created concurrently
+     */
+    private long allocateFileNum(final String counterKey, final String userId, final Long seed) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return transactionTemplate.execute(new TransactionCallback<Long>() {
+            @Override
+            public Long doInTransaction(TransactionStatus status) {
+                Session currentSession = getCurrentSession();
+                if (seed != null) {
+                    currentSession.createSQLQuery(INSERT_FILE_NUM_COUNTER).addSynchronizedQuerySpace(FILE_NUM_COUNTER_TABLE)
+                            .setString("counterKey", counterKey).setString("userId", userId).setLong("lastNum", seed)
+                            .executeUpdate();
+                }
+                if (currentSession.createSQLQuery(INCREMENT_FILE_NUM_COUNTER).addSynchronizedQuerySpace(FILE_NUM_COUNTER_TABLE)
+                        .setString("counterKey", counterKey).executeUpdate() == 0) {
+                    throw new IllegalStateException("File number counter removed concurrently for user=" + userId);
+                }
+                Number lastNum = (Number) currentSession.createSQLQuery(SELECT_FILE_NUM_COUNTER)
+                        .setString("counterKey", counterKey).uniqueResult();
+                return lastNum.longValue();
+            }
+        });
+    }
+
     @Override
     Class<UserFile> getEntityClass() {
         return UserFile.class;
     }
+
+    @Override
+    String fileContentIdProperty() {
+        return FILE_CONTENT_ID_PROPERTY;
+    }
 }
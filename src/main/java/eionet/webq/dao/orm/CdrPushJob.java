@@ -0,0 +1,206 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.dao.orm;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import java.util.Date;
+
+/**
+ * Queued push of saved user file content to CDR envelope.
+ */
+@Entity
+@Table(name = "cdr_push_job")
+public class CdrPushJob {
+    /**
+     * Auto generated id.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private int id;
+    /**
+     * {@link eionet.webq.dao.orm.UserFile#id} to be pushed.
+     */
+    @Column(updatable = false)
+    private int userFileId;
+    /**
+     * Envelope where file will be pushed.
+     */
+    @Column(updatable = false)
+    private String envelope;
+    /**
+     * Conversion to be applied before push.
+     */
+    private String conversionId;
+    /**
+     * Whether restriction must be applied to file in envelope.
+     */
+    private boolean applyRestriction;
+    /**
+     * File restriction in envelope.
+     */
+    private boolean restricted;
+    /**
+     * Job status.
+     */
+    @Enumerated(value = EnumType.STRING)
+    private CdrPushJobStatus status = CdrPushJobStatus.QUEUED;
+    /**
+     * Number of performed push attempts.
+     */
+    private int attempts;
+    /**
+     * Time of next push attempt.
+     */
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date nextAttempt = new Date();
+    /**
+     * Last push result message.
+     */
+    private String message;
+    /**
+     * Job creation time.
+     */
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(updatable = false)
+    private Date created = new Date();
+    /**
+     * Last job status change time.
+     */
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date updated = new Date();
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public int getUserFileId() {
+        return userFileId;
+    }
+
+    public void setUserFileId(int userFileId) {
+        this.userFileId = userFileId;
+    }
+
+    public String getEnvelope() {
+        return envelope;
+    }
+
+    public void setEnvelope(String envelope) {
+        this.envelope = envelope;
+    }
+
+    public String getConversionId() {
+        return conversionId;
+    }
+
+    public void setConversionId(String conversionId) {
+        this.conversionId = conversionId;
+    }
+
+    public boolean isApplyRestriction() {
+        return applyRestriction;
+    }
+
+    public void setApplyRestriction(boolean applyRestriction) {
+        this.applyRestriction = applyRestriction;
+    }
+
+    public boolean isRestricted() {
+        return restricted;
+    }
+
+    public void setRestricted(boolean restricted) {
+        this.restricted = restricted;
+    }
+
+    public CdrPushJobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(CdrPushJobStatus status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public Date getNextAttempt() {
+        return nextAttempt;
+    }
+
+    public void setNextAttempt(Date nextAttempt) {
+        this.nextAttempt = nextAttempt;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public Date getCreated() {
+        return created;
+    }
+
+    public void setCreated(Date created) {
+        this.created = created;
+    }
+
+    public Date getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(Date updated) {
+        this.updated = updated;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("CdrPushJob{");
+        sb.append("id=").append(id);
+        sb.append(", userFileId=").append(userFileId);
+        sb.append(", envelope='").append(envelope).append('\'');
+        sb.append(", status=").append(status);
+        sb.append(", attempts=").append(attempts);
+        sb.append(", nextAttempt=").append(nextAttempt);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -21,6 +21,8 @@
 package eionet.webq.dao.orm;
 
 import eionet.webq.dto.KnownHostAuthenticationMethod;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.validator.constraints.Length;
 import org.hibernate.validator.constraints.NotEmpty;
 
@@ -31,12 +33,14 @@ import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 /**
  * Known host data.
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class KnownHost {
     /**
      * Id.
@@ -75,6 +79,24 @@ public class KnownHost {
     @Length(max = 255)
     @NotEmpty
     private String ticket;
+    /**
+     * Maximum concurrent requests to host, default is used if not set.
+     */
+    @Min(1)
+    @Column(name = "max_concurrent_calls")
+    private Integer maxConcurrentCalls;
+    /**
+     * Consecutive failed requests, after which requests to host are rejected for a while, default is used if not set.
+     */
+    @Min(1)
+    @Column(name = "breaker_failure_threshold")
+    private Integer breakerFailureThreshold;
+    /**
+     * Seconds requests to host are rejected after failures, default is used if not set.
+     */
+    @Min(1)
+    @Column(name = "breaker_open_seconds")
+    private Integer breakerOpenSeconds;
 
     public int getId() {
         return id;
@@ -124,6 +146,30 @@ public class KnownHost {
         this.ticket = ticket;
     }
 
+    public Integer getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public void setMaxConcurrentCalls(Integer maxConcurrentCalls) {
+        this.maxConcurrentCalls = maxConcurrentCalls;
+    }
+
+    public Integer getBreakerFailureThreshold() {
+        return breakerFailureThreshold;
+    }
+
+    public void setBreakerFailureThreshold(Integer breakerFailureThreshold) {
+        this.breakerFailureThreshold = breakerFailureThreshold;
+    }
+
+    public Integer getBreakerOpenSeconds() {
+        return breakerOpenSeconds;
+    }
+
+    public void setBreakerOpenSeconds(Integer breakerOpenSeconds) {
+        this.breakerOpenSeconds = breakerOpenSeconds;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -20,6 +20,8 @@
  */
 package eionet.webq.dao.orm;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.Generated;
 import org.hibernate.validator.constraints.Length;
 import org.hibernate.validator.constraints.NotEmpty;
@@ -43,6 +45,7 @@ import java.util.List;
 /**
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class MergeModule {
     /**
      * Id.
@@ -60,6 +63,7 @@ public class MergeModule {
      */
     @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
     @JoinColumn(name = "merge_module_id")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @Valid
     @NotEmpty
     private List<MergeModuleXmlSchema> xmlSchemas;
@@ -20,9 +20,11 @@
  */
 package eionet.webq.dao.orm;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
@@ -30,12 +32,13 @@ import javax.validation.constraints.Pattern;
 /**
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class MergeModuleXmlSchema {
     /**
      * Id.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(generator = "mergeModuleXmlSchemaId")
     private int id;
     /**
      * Xml schema.
@@ -20,6 +20,8 @@
  */
 package eionet.webq.dao.orm;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.validator.constraints.Length;
 
 import javax.persistence.Column;
@@ -38,6 +40,7 @@ import java.util.Date;
  */
 @Entity
 @Table(name = "project_folder")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class ProjectEntry {
     /**
      * project id in storage.
@@ -28,14 +28,14 @@ import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 import javax.persistence.Transient;
 
-import org.hibernate.annotations.Generated;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.validator.constraints.NotEmpty;
 
 /**
@@ -43,12 +43,13 @@ import org.hibernate.validator.constraints.NotEmpty;
  */
 @Entity
 @Table(name = "project_file")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class ProjectFile {
     /**
      * Auto generated id.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(generator = "projectFileId")
     private int id;
     /**
      * {@link eionet.webq.dao.orm.ProjectEntry#id} connected with this file.
@@ -112,13 +113,24 @@ public class ProjectFile {
      * timestamp of first upload of the file.
      */
     @Temporal(TemporalType.TIMESTAMP)
-    @Generated(org.hibernate.annotations.GenerationTime.INSERT)
     private Date created;
     /**
      * timestamp of last update of the file.
      */
     @Temporal(TemporalType.TIMESTAMP)
     private Date updated;
+    /**
+     * SHA-256 hash of file content.
+     */
+    private String contentHash;
+    /**
+     * ETag returned by remote location when file content was last known to match it.
+     */
+    private String remoteEtag;
+    /**
+     * Last-Modified returned by remote location when file content was last known to match it.
+     */
+    private String remoteLastModified;
 
     /**
      * Link to open webform from UI.
@@ -290,6 +302,30 @@ public class ProjectFile {
         this.updated = updated;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getRemoteEtag() {
+        return remoteEtag;
+    }
+
+    public void setRemoteEtag(String remoteEtag) {
+        this.remoteEtag = remoteEtag;
+    }
+
+    public String getRemoteLastModified() {
+        return remoteLastModified;
+    }
+
+    public void setRemoteLastModified(String remoteLastModified) {
+        this.remoteLastModified = remoteLastModified;
+    }
+
     public String getXmlSchema() {
         return xmlSchema;
     }
@@ -26,7 +26,6 @@ import javax.persistence.Embeddable;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.Lob;
@@ -117,7 +116,7 @@ public class UploadedFile {
     }
 
     /**
-     * FileContent entity.
+     * FileContent entity. Not kept in second-level cache, content is loaded only when needed.
      */
     @Entity
     @Table(name = "file_content")
@@ -126,7 +125,7 @@ public class UploadedFile {
          * Id.
          */
         @Id
-        @GeneratedValue(strategy = GenerationType.AUTO)
+        @GeneratedValue(generator = "fileContentId")
         private int id;
         /**
          * File content.
@@ -37,7 +37,7 @@ public class UserFile {
      * File id in data storage.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(generator = "userFileId")
     private int id;
     /**
      * User id.
@@ -107,8 +107,7 @@ public class UserFile {
      * File upload date.
      */
     @Temporal(TemporalType.TIMESTAMP)
-    @Column(insertable = false, updatable = false)
-    @org.hibernate.annotations.Generated(org.hibernate.annotations.GenerationTime.INSERT)
+    @Column(updatable = false)
     private Date created;
     /**
      * Last change date.
@@ -1,4 +1,33 @@
 /**
  * Object relational mappings.
+ * <p>
+ * Ids of entities inserted in bulk are generated from {@code id_sequence} table with pooled optimizer instead of
+ * database identity columns, so that ids are known before insert and rows can be inserted in JDBC batches.
  */
+@GenericGenerators({
+        @GenericGenerator(name = "userFileId", strategy = "enhanced-table", parameters = {
+                @Parameter(name = "table_name", value = "id_sequence"),
+                @Parameter(name = "segment_value", value = "user_xml"),
+                @Parameter(name = "increment_size", value = "50"),
+                @Parameter(name = "optimizer", value = "pooled")}),
+        @GenericGenerator(name = "projectFileId", strategy = "enhanced-table", parameters = {
+                @Parameter(name = "table_name", value = "id_sequence"),
+                @Parameter(name = "segment_value", value = "project_file"),
+                @Parameter(name = "increment_size", value = "50"),
+                @Parameter(name = "optimizer", value = "pooled")}),
+        @GenericGenerator(name = "fileContentId", strategy = "enhanced-table", parameters = {
+                @Parameter(name = "table_name", value = "id_sequence"),
+                @Parameter(name = "segment_value", value = "file_content"),
+                @Parameter(name = "increment_size", value = "50"),
+                @Parameter(name = "optimizer", value = "pooled")}),
+        @GenericGenerator(name = "mergeModuleXmlSchemaId", strategy = "enhanced-table", parameters = {
+                @Parameter(name = "table_name", value = "id_sequence"),
+                @Parameter(name = "segment_value", value = "merge_module_xml_schema"),
+                @Parameter(name = "increment_size", value = "50"),
+                @Parameter(name = "optimizer", value = "pooled")})
+})
 package eionet.webq.dao.orm;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.GenericGenerators;
+import org.hibernate.annotations.Parameter;
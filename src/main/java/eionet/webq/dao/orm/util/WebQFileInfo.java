@@ -23,6 +23,7 @@ package eionet.webq.dao.orm.util;
 import eionet.webq.dao.orm.MergeModule;
 import eionet.webq.dao.orm.ProjectFile;
 import eionet.webq.dao.orm.UploadedFile;
+import org.apache.commons.codec.digest.DigestUtils;
 
 /**
  * Utility methods for WebQ files, e.g. {@link ProjectFile}.
@@ -63,4 +64,14 @@ public final class WebQFileInfo {
     public static boolean fileIsEmpty(UploadedFile file) {
         return file == null || file.getSizeInBytes() == 0;
     }
+
+    /**
+     * Calculates SHA-256 hash of file content.
+     *
+     * @param content file content
+     * @return hex encoded hash or null if content is null
+     */
+    public static String contentHash(byte[] content) {
+        return content != null ? DigestUtils.sha256Hex(content) : null;
+    }
 }
@@ -0,0 +1,105 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+
+package eionet.webq.dto;
+
+import eionet.webq.dao.orm.CdrPushJob;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.util.Date;
+
+/**
+ * Object for transferring queued CDR push status to XForms. The object is marshaled into XML in HTTP response.
+ */
+@XmlRootElement(name = "pushstatus")
+public class CdrPushStatus {
+
+    /** Push job id. */
+    private int jobId;
+    /** Push job status, one of {@link eionet.webq.dao.orm.CdrPushJobStatus} names. */
+    private String status;
+    /** Number of performed push attempts. */
+    private int attempts;
+    /** Last push result message. */
+    private String message;
+    /** Last status change time. */
+    private Date updated;
+
+    /**
+     * No-arg default constructor required by {@link org.springframework.oxm.jaxb.Jaxb2Marshaller}.
+     */
+    public CdrPushStatus() {
+        super();
+    }
+
+    /**
+     * Creates status from push job.
+     *
+     * @param job push job
+     */
+    public CdrPushStatus(CdrPushJob job) {
+        this.jobId = job.getId();
+        this.status = job.getStatus().name();
+        this.attempts = job.getAttempts();
+        this.message = job.getMessage();
+        this.updated = job.getUpdated();
+    }
+
+    /**
+     * @return the job id
+     */
+    @XmlElement(name = "jobId")
+    public int getJobId() {
+        return jobId;
+    }
+
+    /**
+     * @return the job status
+     */
+    @XmlElement(name = "status")
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the number of push attempts
+     */
+    @XmlElement(name = "attempts")
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @return the last push result message
+     */
+    @XmlElement(name = "message")
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * @return the last status change time
+     */
+    @XmlElement(name = "updated")
+    public Date getUpdated() {
+        return updated;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.dto;
+
+/**
+ * Outcome of checking a single project file against its remote location.
+ */
+public class RemoteFileCheckResult {
+    /**
+     * Possible check outcomes.
+     */
+    public enum Status {
+        /** Local content is the same as remote one. */
+        UP_TO_DATE,
+        /** Remote content differs from local one. */
+        UPDATE_AVAILABLE,
+        /** Remote file could not be fetched. */
+        NOT_AVAILABLE
+    }
+
+    /**
+     * Checked file id.
+     */
+    private int fileId;
+    /**
+     * Checked file name.
+     */
+    private String fileName;
+    /**
+     * Remote file URL.
+     */
+    private String remoteFileUrl;
+    /**
+     * Check outcome.
+     */
+    private Status status;
+
+    /**
+     * Creates check result.
+     *
+     * @param fileId file id
+     * @param fileName file name
+     * @param remoteFileUrl remote file URL
+     * @param status check outcome
+     */
+    public RemoteFileCheckResult(int fileId, String fileName, String remoteFileUrl, Status status) {
+        this.fileId = fileId;
+        this.fileName = fileName;
+        this.remoteFileUrl = remoteFileUrl;
+        this.status = status;
+    }
+
+    public int getFileId() {
+        return fileId;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getRemoteFileUrl() {
+        return remoteFileUrl;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    @Override
+    public String toString() {
+        return "RemoteFileCheckResult{fileId=" + fileId + ", fileName='" + fileName + "', status=" + status + '}';
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.dto;
+
+/**
+ * Result of a conditional remote file fetch. Holds either fetched content together with the validators returned by
+ * remote server or only a not modified flag if server responded with HTTP 304.
+ */
+public class RemoteFileContent {
+    /**
+     * Remote server confirmed that file is not modified since last fetch.
+     */
+    private boolean notModified;
+    /**
+     * Fetched file content, null if not modified.
+     */
+    private byte[] content;
+    /**
+     * SHA-256 hash of fetched content, null if not modified.
+     */
+    private String contentHash;
+    /**
+     * ETag response header value.
+     */
+    private String etag;
+    /**
+     * Last-Modified response header value.
+     */
+    private String lastModified;
+
+    /**
+     * Creates result for not modified remote file.
+     *
+     * @param etag ETag header value
+     * @param lastModified Last-Modified header value
+     * @return result
+     */
+    public static RemoteFileContent notModified(String etag, String lastModified) {
+        RemoteFileContent result = new RemoteFileContent();
+        result.notModified = true;
+        result.etag = etag;
+        result.lastModified = lastModified;
+        return result;
+    }
+
+    /**
+     * Creates result for fetched remote file.
+     *
+     * @param content file content
+     * @param contentHash content hash
+     * @param etag ETag header value
+     * @param lastModified Last-Modified header value
+     * @return result
+     */
+    public static RemoteFileContent modified(byte[] content, String contentHash, String etag, String lastModified) {
+        RemoteFileContent result = new RemoteFileContent();
+        result.content = content;
+        result.contentHash = contentHash;
+        result.etag = etag;
+        result.lastModified = lastModified;
+        return result;
+    }
+
+    public boolean isNotModified() {
+        return notModified;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.dto;
+
+/**
+ * Summary of one remote project files synchronization run.
+ */
+public class RemoteFileSyncReport {
+    /**
+     * Number of checked files.
+     */
+    private int checked;
+    /**
+     * Number of files confirmed unchanged by HTTP 304 response.
+     */
+    private int notModified;
+    /**
+     * Number of files downloaded, but having the same content.
+     */
+    private int unchanged;
+    /**
+     * Number of files updated with new remote content.
+     */
+    private int updated;
+    /**
+     * Number of files which could not be checked or updated.
+     */
+    private int failed;
+    /**
+     * Run duration in milliseconds.
+     */
+    private long durationMillis;
+
+    /**
+     * Increases checked files count.
+     */
+    public void fileChecked() {
+        checked++;
+    }
+
+    /**
+     * Increases not modified files count.
+     */
+    public void fileNotModified() {
+        notModified++;
+    }
+
+    /**
+     * Increases unchanged files count.
+     */
+    public void fileUnchanged() {
+        unchanged++;
+    }
+
+    /**
+     * Increases updated files count.
+     */
+    public void fileUpdated() {
+        updated++;
+    }
+
+    /**
+     * Increases failed files count.
+     */
+    public void fileFailed() {
+        failed++;
+    }
+
+    public int getChecked() {
+        return checked;
+    }
+
+    public int getNotModified() {
+        return notModified;
+    }
+
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+    public int getUpdated() {
+        return updated;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "RemoteFileSyncReport{checked=" + checked + ", notModified=" + notModified + ", unchanged=" + unchanged
+                + ", updated=" + updated + ", failed=" + failed + ", durationMillis=" + durationMillis + '}';
+    }
+}
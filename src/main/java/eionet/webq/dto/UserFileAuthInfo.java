@@ -0,0 +1,73 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.dto;
+
+/**
+ * CDR authorisation fields of user file, loaded without file content.
+ */
+public class UserFileAuthInfo {
+    /**
+     * File owner user id.
+     */
+    private final String userId;
+    /**
+     * Is request authorized in CDR.
+     */
+    private final boolean authorized;
+    /**
+     * Cdr authorization.
+     */
+    private final String authorization;
+    /**
+     * Cdr cookies.
+     */
+    private final String cookies;
+
+    /**
+     * Creates auth info.
+     *
+     * @param userId        file owner user id
+     * @param authorized    is request authorized in CDR
+     * @param authorization cdr authorization
+     * @param cookies       cdr cookies
+     */
+    public UserFileAuthInfo(String userId, boolean authorized, String authorization, String cookies) {
+        this.userId = userId;
+        this.authorized = authorized;
+        this.authorization = authorization;
+        this.cookies = cookies;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public boolean isAuthorized() {
+        return authorized;
+    }
+
+    public String getAuthorization() {
+        return authorization;
+    }
+
+    public String getCookies() {
+        return cookies;
+    }
+}
@@ -45,9 +45,13 @@ public class XmlSaveResult {
     private String message;
     /** Timestamp of action took place. */
     private Date timestamp;
+    /** Id of CDR push job, if content push to CDR was queued. */
+    private Integer pushJobId;
 
     /** Message to be returned in case of successful save action. */
     private static final String SUCCESS_MESSAGE = "Content saved successfully.";
+    /** Message to be returned in case push to CDR was queued. */
+    private static final String QUEUED_MESSAGE = "Content saved successfully. Sending to CDR envelope in background.";
     /** Message to be returned in case of error. */
     private static final String ERROR_MESSAGE = "Error on saving data! ";
     /**
@@ -89,6 +93,18 @@ public class XmlSaveResult {
         return new XmlSaveResult(1, SUCCESS_MESSAGE);
     }
 
+    /**
+     * Generates save result object with success code and id of queued CDR push job.
+     *
+     * @param pushJobId CDR push job id
+     * @return the save result object
+     */
+    public static XmlSaveResult valueOfQueued(int pushJobId) {
+        XmlSaveResult result = new XmlSaveResult(1, QUEUED_MESSAGE);
+        result.pushJobId = pushJobId;
+        return result;
+    }
+
     /**
      * Generates save result object with success code.
      *
@@ -139,4 +155,11 @@ public class XmlSaveResult {
         return timestamp;
     }
 
+    /**
+     * @return the CDR push job id or null if push was not queued
+     */
+    @XmlElement(name = "pushJobId")
+    public Integer getPushJobId() {
+        return pushJobId;
+    }
 }
@@ -0,0 +1,161 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.metrics;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Request count, error count, response size and latency distribution of single endpoint.
+ */
+@ManagedResource(description = "Endpoint request metrics")
+public class EndpointMetrics {
+    /**
+     * Endpoint name.
+     */
+    private final String name;
+    /**
+     * Request latencies.
+     */
+    private final LatencyHistogram latency = new LatencyHistogram();
+    /**
+     * Requests failed with server error.
+     */
+    private final AtomicLong errors = new AtomicLong();
+    /**
+     * Requests failed with client error.
+     */
+    private final AtomicLong clientErrors = new AtomicLong();
+    /**
+     * Bytes written to responses.
+     */
+    private final AtomicLong responseBytes = new AtomicLong();
+    /**
+     * SQL statements executed by requests.
+     */
+    private final AtomicLong sqlStatements = new AtomicLong();
+    /**
+     * Most SQL statements executed by single request.
+     */
+    private final AtomicLong maxSqlStatements = new AtomicLong();
+
+    /**
+     * Creates endpoint metrics.
+     *
+     * @param name endpoint name
+     */
+    public EndpointMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records completed request.
+     *
+     * @param micros        request duration in microseconds
+     * @param status        response status
+     * @param failed        whether request failed with unhandled exception
+     * @param bytes         bytes written to response, negative if unknown
+     * @param sqlStatements SQL statements executed by request
+     */
+    public void record(long micros, int status, boolean failed, long bytes, int sqlStatements) {
+        latency.record(micros);
+        if (failed || status >= 500) {
+            errors.incrementAndGet();
+        } else if (status >= 400) {
+            clientErrors.incrementAndGet();
+        }
+        if (bytes > 0) {
+            responseBytes.addAndGet(bytes);
+        }
+        if (sqlStatements > 0) {
+            this.sqlStatements.addAndGet(sqlStatements);
+            long max = maxSqlStatements.get();
+            while (sqlStatements > max && !maxSqlStatements.compareAndSet(max, sqlStatements)) {
+                max = maxSqlStatements.get();
+            }
+        }
+    }
+
+    @ManagedAttribute
+    public String getName() {
+        return name;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @ManagedAttribute
+    public long getRequestCount() {
+        return latency.getCount();
+    }
+
+    @ManagedAttribute
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    @ManagedAttribute
+    public long getClientErrorCount() {
+        return clientErrors.get();
+    }
+
+    @ManagedAttribute
+    public long getResponseBytes() {
+        return responseBytes.get();
+    }
+
+    @ManagedAttribute
+    public long getSqlStatements() {
+        return sqlStatements.get();
+    }
+
+    @ManagedAttribute
+    public long getMaxSqlStatements() {
+        return maxSqlStatements.get();
+    }
+
+    @ManagedAttribute
+    public long getMeanMicros() {
+        return latency.getMean();
+    }
+
+    @ManagedAttribute
+    public long getMedianMicros() {
+        return latency.getPercentile(50);
+    }
+
+    @ManagedAttribute
+    public long getP90Micros() {
+        return latency.getPercentile(90);
+    }
+
+    @ManagedAttribute
+    public long getP99Micros() {
+        return latency.getPercentile(99);
+    }
+
+    @ManagedAttribute
+    public long getMaxMicros() {
+        return latency.getMax();
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.metrics;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Exposes Hibernate {@link Statistics}. Statistics are collected only if enabled with hibernate.generate_statistics
+ * property or at runtime through JMX.
+ */
+@Component
+@ManagedResource(objectName = "eionet.webq:type=HibernateStatistics", description = "Hibernate statistics")
+public class HibernateStatistics {
+    /**
+     * Session factory.
+     */
+    @Autowired
+    SessionFactory sessionFactory;
+
+    @ManagedAttribute
+    public boolean isStatisticsEnabled() {
+        return statistics().isStatisticsEnabled();
+    }
+
+    @ManagedAttribute
+    public void setStatisticsEnabled(boolean enabled) {
+        statistics().setStatisticsEnabled(enabled);
+    }
+
+    /**
+     * Clears collected statistics.
+     */
+    @ManagedOperation(description = "Clears collected statistics")
+    public void clear() {
+        statistics().clear();
+    }
+
+    @ManagedAttribute
+    public long getQueryExecutionCount() {
+        return statistics().getQueryExecutionCount();
+    }
+
+    @ManagedAttribute
+    public long getQueryExecutionMaxTime() {
+        return statistics().getQueryExecutionMaxTime();
+    }
+
+    @ManagedAttribute
+    public String getQueryExecutionMaxTimeQueryString() {
+        return statistics().getQueryExecutionMaxTimeQueryString();
+    }
+
+    @ManagedAttribute
+    public long getPrepareStatementCount() {
+        return statistics().getPrepareStatementCount();
+    }
+
+    @ManagedAttribute
+    public long getEntityLoadCount() {
+        return statistics().getEntityLoadCount();
+    }
+
+    @ManagedAttribute
+    public long getEntityFetchCount() {
+        return statistics().getEntityFetchCount();
+    }
+
+    @ManagedAttribute
+    public long getCollectionLoadCount() {
+        return statistics().getCollectionLoadCount();
+    }
+
+    @ManagedAttribute
+    public long getCollectionFetchCount() {
+        return statistics().getCollectionFetchCount();
+    }
+
+    @ManagedAttribute
+    public long getSessionOpenCount() {
+        return statistics().getSessionOpenCount();
+    }
+
+    @ManagedAttribute
+    public long getTransactionCount() {
+        return statistics().getTransactionCount();
+    }
+
+    @ManagedAttribute
+    public long getSecondLevelCacheHitCount() {
+        return statistics().getSecondLevelCacheHitCount();
+    }
+
+    @ManagedAttribute
+    public long getSecondLevelCacheMissCount() {
+        return statistics().getSecondLevelCacheMissCount();
+    }
+
+    @ManagedAttribute
+    public long getSecondLevelCachePutCount() {
+        return statistics().getSecondLevelCachePutCount();
+    }
+
+    @ManagedAttribute
+    public long getQueryCacheHitCount() {
+        return statistics().getQueryCacheHitCount();
+    }
+
+    @ManagedAttribute
+    public long getQueryCacheMissCount() {
+        return statistics().getQueryCacheMissCount();
+    }
+
+    @ManagedAttribute
+    public long getQueryCachePutCount() {
+        return statistics().getQueryCachePutCount();
+    }
+
+    /**
+     * Evicts all entities, collections and query results from second-level cache, e.g. after data is changed directly
+     * in database.
+     */
+    @ManagedOperation(description = "Evicts all second-level cache regions")
+    public void evictSecondLevelCache() {
+        sessionFactory.getCache().evictEntityRegions();
+        sessionFactory.getCache().evictCollectionRegions();
+        sessionFactory.getCache().evictQueryRegions();
+    }
+
+    /**
+     * Statistics of second-level cache regions, empty if statistics are disabled.
+     *
+     * @return statistics by region name
+     */
+    public Map<String, SecondLevelCacheStatistics> regionStatistics() {
+        Map<String, SecondLevelCacheStatistics> regions = new TreeMap<String, SecondLevelCacheStatistics>();
+        if (isStatisticsEnabled()) {
+            for (String region : statistics().getSecondLevelCacheRegionNames()) {
+                SecondLevelCacheStatistics regionStatistics = statistics().getSecondLevelCacheStatistics(region);
+                if (regionStatistics != null) {
+                    regions.put(region, regionStatistics);
+                }
+            }
+        }
+        return regions;
+    }
+
+    /**
+     * Statistics summary, empty if statistics are disabled.
+     *
+     * @return statistic values by name
+     */
+    public Map<String, Object> summary() {
+        Map<String, Object> summary = new LinkedHashMap<String, Object>();
+        summary.put("statisticsEnabled", isStatisticsEnabled());
+        if (isStatisticsEnabled()) {
+            summary.put("queryExecutionCount", getQueryExecutionCount());
+            summary.put("queryExecutionMaxTime", getQueryExecutionMaxTime());
+            summary.put("queryExecutionMaxTimeQueryString", getQueryExecutionMaxTimeQueryString());
+            summary.put("prepareStatementCount", getPrepareStatementCount());
+            summary.put("entityLoadCount", getEntityLoadCount());
+            summary.put("entityFetchCount", getEntityFetchCount());
+            summary.put("collectionLoadCount", getCollectionLoadCount());
+            summary.put("collectionFetchCount", getCollectionFetchCount());
+            summary.put("sessionOpenCount", getSessionOpenCount());
+            summary.put("transactionCount", getTransactionCount());
+            summary.put("secondLevelCacheHitCount", getSecondLevelCacheHitCount());
+            summary.put("secondLevelCacheMissCount", getSecondLevelCacheMissCount());
+            summary.put("secondLevelCachePutCount", getSecondLevelCachePutCount());
+            summary.put("queryCacheHitCount", getQueryCacheHitCount());
+            summary.put("queryCacheMissCount", getQueryCacheMissCount());
+            summary.put("queryCachePutCount", getQueryCachePutCount());
+            Map<String, Object> regions = new LinkedHashMap<String, Object>();
+            for (Map.Entry<String, SecondLevelCacheStatistics> region : regionStatistics().entrySet()) {
+                Map<String, Object> values = new LinkedHashMap<String, Object>();
+                values.put("hitCount", region.getValue().getHitCount());
+                values.put("missCount", region.getValue().getMissCount());
+                values.put("putCount", region.getValue().getPutCount());
+                values.put("elementCountInMemory", region.getValue().getElementCountInMemory());
+                regions.put(region.getKey(), values);
+            }
+            summary.put("secondLevelCacheRegions", regions);
+        }
+        return summary;
+    }
+
+    /**
+     * Hibernate statistics.
+     *
+     * @return statistics
+     */
+    private Statistics statistics() {
+        return sessionFactory.getStatistics();
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free histogram of durations in microseconds. Values are recorded into log-linear buckets: each power of 2
+ * range is split into 16 equal buckets, so reported percentiles are within about 6% of actual values. Values up to
+ * about 38 hours are tracked, bigger values are recorded into the last bucket.
+ */
+public class LatencyHistogram {
+    /**
+     * Bits used for sub bucket index.
+     */
+    private static final int SUB_BUCKET_BITS = 4;
+    /**
+     * Buckets per power of 2 range.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /**
+     * Highest tracked power of 2.
+     */
+    private static final int MAX_MAGNITUDE = 36;
+    /**
+     * Buckets count.
+     */
+    private static final int BUCKETS = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+    /**
+     * Recorded values count by bucket.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    /**
+     * Recorded values count.
+     */
+    private final AtomicLong totalCount = new AtomicLong();
+    /**
+     * Sum of recorded values.
+     */
+    private final AtomicLong totalMicros = new AtomicLong();
+    /**
+     * Maximum recorded value.
+     */
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Records duration.
+     *
+     * @param micros duration in microseconds
+     */
+    public void record(long micros) {
+        long value = Math.max(0, micros);
+        counts.incrementAndGet(bucketIndex(value));
+        totalCount.incrementAndGet();
+        totalMicros.addAndGet(value);
+        long max = maxMicros.get();
+        while (value > max && !maxMicros.compareAndSet(max, value)) {
+            max = maxMicros.get();
+        }
+    }
+
+    /**
+     * Returns value below or at which given percentage of recorded values are.
+     *
+     * @param percentile percentile, from 0 to 100
+     * @return highest value of bucket containing percentile, 0 if nothing recorded
+     */
+    public long getPercentile(double percentile) {
+        long total = totalCount.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(percentile, 100) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank && i < BUCKETS - 1) {
+                return Math.min(bucketLowerBound(i + 1) - 1, maxMicros.get());
+            }
+        }
+        return maxMicros.get();
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    public long getMax() {
+        return maxMicros.get();
+    }
+
+    public long getTotal() {
+        return totalMicros.get();
+    }
+
+    /**
+     * Mean of recorded values.
+     *
+     * @return mean in microseconds, 0 if nothing recorded
+     */
+    public long getMean() {
+        long total = totalCount.get();
+        return total == 0 ? 0 : totalMicros.get() / total;
+    }
+
+    /**
+     * Calculates bucket index of value.
+     *
+     * @param value value
+     * @return bucket index
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        if (magnitude > MAX_MAGNITUDE) {
+            return BUCKETS - 1;
+        }
+        int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Calculates lowest value of bucket.
+     *
+     * @param index bucket index
+     * @return lowest value recorded into bucket
+     */
+    static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int magnitude = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        return (SUB_BUCKETS + subBucket) << (magnitude - SUB_BUCKET_BITS);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.metrics;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.MBeanExporter;
+import org.springframework.stereotype.Component;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps {@link EndpointMetrics} of every endpoint, which has received requests. Endpoint metrics are exported to JMX
+ * as eionet.webq:type=RequestMetrics,name=&lt;endpoint&gt;.
+ */
+@Component
+public class RequestMetrics {
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(RequestMetrics.class);
+    /**
+     * JMX exporter.
+     */
+    @Autowired(required = false)
+    MBeanExporter mbeanExporter;
+    /**
+     * Metrics by endpoint name.
+     */
+    private final ConcurrentMap<String, EndpointMetrics> endpoints = new ConcurrentHashMap<String, EndpointMetrics>();
+
+    /**
+     * Records completed request.
+     *
+     * @param endpoint      endpoint name
+     * @param micros        request duration in microseconds
+     * @param status        response status
+     * @param failed        whether request failed with unhandled exception
+     * @param bytes         bytes written to response, negative if unknown
+     * @param sqlStatements SQL statements executed by request
+     */
+    public void record(String endpoint, long micros, int status, boolean failed, long bytes, int sqlStatements) {
+        metricsFor(endpoint).record(micros, status, failed, bytes, sqlStatements);
+    }
+
+    /**
+     * Metrics of all endpoints, sorted by endpoint name.
+     *
+     * @return endpoint metrics
+     */
+    public Collection<EndpointMetrics> getEndpoints() {
+        return new TreeMap<String, EndpointMetrics>(endpoints).values();
+    }
+
+    /**
+     * Returns metrics of endpoint, creates and exports them on first request.
+     *
+     * @param endpoint endpoint name
+     * @return endpoint metrics
+     */
+    private EndpointMetrics metricsFor(String endpoint) {
+        EndpointMetrics metrics = endpoints.get(endpoint);
+        if (metrics == null) {
+            EndpointMetrics created = new EndpointMetrics(endpoint);
+            metrics = endpoints.putIfAbsent(endpoint, created);
+            if (metrics == null) {
+                metrics = created;
+                export(created);
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Exports endpoint metrics to JMX.
+     *
+     * @param metrics endpoint metrics
+     */
+    private void export(EndpointMetrics metrics) {
+        if (mbeanExporter == null) {
+            return;
+        }
+        try {
+            mbeanExporter.registerManagedResource(metrics,
+                    new ObjectName("eionet.webq:type=RequestMetrics,name=" + ObjectName.quote(metrics.getName())));
+        } catch (MalformedObjectNameException e) {
+            LOGGER.warn("Unable to export metrics of " + metrics.getName(), e);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Unable to export metrics of " + metrics.getName(), e);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.metrics;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Collects execution metrics of SQL statements, counts statements executed by current web request and logs slow
+ * statements. Statements are grouped by SQL text with literals replaced by '?', bind parameter values are never
+ * recorded or logged.
+ */
+@Component
+@ManagedResource(objectName = "eionet.webq:type=SqlMetrics", description = "SQL statement metrics")
+public class SqlMetrics {
+    /**
+     * Request attribute holding {@link AtomicInteger} count of statements executed by request.
+     */
+    public static final String REQUEST_STATEMENTS_ATTRIBUTE = SqlMetrics.class.getName() + ".STATEMENTS";
+    /**
+     * Statement name used when count of distinct statements reaches {@link #MAX_STATEMENTS}.
+     */
+    static final String OTHER_STATEMENTS = "(other statements)";
+    /**
+     * Maximum count of distinct statements tracked.
+     */
+    static final int MAX_STATEMENTS = 500;
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(SqlMetrics.class);
+    /**
+     * String literals.
+     */
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    /**
+     * Numeric literals.
+     */
+    private static final Pattern NUMERIC_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    /**
+     * Lists of parameters, e.g. in IN clause.
+     */
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\?(?:\\s*,\\s*\\?)+");
+    /**
+     * Statements running longer are logged.
+     */
+    @Value("${db.slow.query.millis}")
+    long slowQueryMillis;
+    /**
+     * Metrics by redacted SQL.
+     */
+    private final ConcurrentMap<String, StatementMetrics> statements = new ConcurrentHashMap<String, StatementMetrics>();
+    /**
+     * Executed statements count.
+     */
+    private final AtomicLong statementCount = new AtomicLong();
+    /**
+     * Slow statements count.
+     */
+    private final AtomicLong slowStatementCount = new AtomicLong();
+    /**
+     * Failed statements count.
+     */
+    private final AtomicLong errorCount = new AtomicLong();
+    /**
+     * Total execution time of statements in microseconds.
+     */
+    private final AtomicLong totalMicros = new AtomicLong();
+
+    /**
+     * Records statement execution.
+     *
+     * @param sql    executed SQL
+     * @param micros execution duration in microseconds
+     * @param failed whether execution failed
+     */
+    public void record(String sql, long micros, boolean failed) {
+        String redacted = redact(sql);
+        statementsFor(redacted).record(micros, failed);
+        statementCount.incrementAndGet();
+        totalMicros.addAndGet(micros);
+        if (failed) {
+            errorCount.incrementAndGet();
+        }
+        countRequestStatement();
+        long millis = TimeUnit.MICROSECONDS.toMillis(micros);
+        if (millis >= slowQueryMillis) {
+            slowStatementCount.incrementAndGet();
+            LOGGER.warn("Slow SQL statement (" + millis + " ms): " + redacted);
+        }
+    }
+
+    /**
+     * Statement metrics sorted by total execution time, slowest first.
+     *
+     * @return statement metrics
+     */
+    public List<StatementMetrics> getStatements() {
+        List<StatementMetrics> result = new ArrayList<StatementMetrics>(statements.values());
+        Collections.sort(result, new Comparator<StatementMetrics>() {
+            @Override
+            public int compare(StatementMetrics o1, StatementMetrics o2) {
+                return Long.compare(o2.getLatency().getTotal(), o1.getLatency().getTotal());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Clears collected metrics.
+     */
+    @ManagedOperation(description = "Clears collected metrics")
+    public void reset() {
+        statements.clear();
+        statementCount.set(0);
+        slowStatementCount.set(0);
+        errorCount.set(0);
+        totalMicros.set(0);
+    }
+
+    @ManagedAttribute
+    public long getStatementCount() {
+        return statementCount.get();
+    }
+
+    @ManagedAttribute
+    public long getSlowStatementCount() {
+        return slowStatementCount.get();
+    }
+
+    @ManagedAttribute
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    @ManagedAttribute
+    public long getTotalMillis() {
+        return TimeUnit.MICROSECONDS.toMillis(totalMicros.get());
+    }
+
+    @ManagedAttribute
+    public int getDistinctStatementCount() {
+        return statements.size();
+    }
+
+    @ManagedAttribute
+    public long getSlowQueryMillis() {
+        return slowQueryMillis;
+    }
+
+    @ManagedAttribute
+    public void setSlowQueryMillis(long slowQueryMillis) {
+        this.slowQueryMillis = slowQueryMillis;
+    }
+
+    /**
+     * Replaces string and numeric literals with '?' and collapses parameter lists, so statements differing only in
+     * values are grouped together and no values are exposed.
+     *
+     * @param sql SQL
+     * @return redacted SQL
+     */
+    static String redact(String sql) {
+        if (sql == null) {
+            return "(unknown)";
+        }
+        String redacted = STRING_LITERAL.matcher(sql.trim()).replaceAll("?");
+        redacted = NUMERIC_LITERAL.matcher(redacted).replaceAll("?");
+        return PARAMETER_LIST.matcher(redacted).replaceAll("?, ...");
+    }
+
+    /**
+     * Returns metrics of statement, creates them on first execution.
+     *
+     * @param sql redacted SQL
+     * @return statement metrics
+     */
+    private StatementMetrics statementsFor(String sql) {
+        StatementMetrics metrics = statements.get(sql);
+        if (metrics == null) {
+            String key = statements.size() < MAX_STATEMENTS ? sql : OTHER_STATEMENTS;
+            StatementMetrics created = new StatementMetrics(key);
+            metrics = statements.putIfAbsent(key, created);
+            if (metrics == null) {
+                metrics = created;
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Increments statements count of current web request, if any.
+     */
+    private void countRequestStatement() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return;
+        }
+        try {
+            AtomicInteger count = (AtomicInteger) attributes.getAttribute(REQUEST_STATEMENTS_ATTRIBUTE,
+                    RequestAttributes.SCOPE_REQUEST);
+            if (count == null) {
+                count = new AtomicInteger();
+                attributes.setAttribute(REQUEST_STATEMENTS_ATTRIBUTE, count, RequestAttributes.SCOPE_REQUEST);
+            }
+            count.incrementAndGet();
+        } catch (IllegalStateException e) {
+            LOGGER.debug("Request is not active anymore, statement is not counted for request.");
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Execution count, failures and latency distribution of single SQL statement.
+ */
+public class StatementMetrics {
+    /**
+     * Statement SQL with literals redacted.
+     */
+    private final String sql;
+    /**
+     * Execution latencies.
+     */
+    private final LatencyHistogram latency = new LatencyHistogram();
+    /**
+     * Failed executions.
+     */
+    private final AtomicLong errors = new AtomicLong();
+
+    /**
+     * Creates statement metrics.
+     *
+     * @param sql statement SQL
+     */
+    public StatementMetrics(String sql) {
+        this.sql = sql;
+    }
+
+    /**
+     * Records statement execution.
+     *
+     * @param micros execution duration in microseconds
+     * @param failed whether execution failed
+     */
+    public void record(long micros, boolean failed) {
+        latency.record(micros);
+        if (failed) {
+            errors.incrementAndGet();
+        }
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getErrorCount() {
+        return errors.get();
+    }
+}
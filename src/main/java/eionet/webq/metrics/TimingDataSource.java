@@ -0,0 +1,193 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Data source measuring execution time of every statement executed through its connections and reporting it to
+ * {@link SqlMetrics}. Covers Hibernate criteria and HQL queries as well as plain JDBC access.
+ */
+public class TimingDataSource extends DelegatingDataSource {
+    /**
+     * SQL metrics.
+     */
+    private SqlMetrics sqlMetrics;
+    /**
+     * Whether statements are measured.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Creates timing data source.
+     *
+     * @param targetDataSource measured data source
+     */
+    public TimingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return timed(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return timed(super.getConnection(username, password));
+    }
+
+    public void setSqlMetrics(SqlMetrics sqlMetrics) {
+        this.sqlMetrics = sqlMetrics;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Wraps connection, so created statements are measured.
+     *
+     * @param connection connection
+     * @return measured connection
+     */
+    private Connection timed(Connection connection) {
+        if (!enabled || sqlMetrics == null) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+                new ConnectionHandler(connection));
+    }
+
+    /**
+     * Invokes method on target, unwrapping thrown exception.
+     *
+     * @param target target
+     * @param method method
+     * @param args   arguments
+     * @return method result
+     * @throws Throwable exception thrown by method
+     */
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * Connection handler wrapping created statements.
+     */
+    private class ConnectionHandler implements InvocationHandler {
+        /**
+         * Target connection.
+         */
+        private final Connection connection;
+
+        /**
+         * Creates handler.
+         *
+         * @param connection target connection
+         */
+        ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("equals")) {
+                return proxy == args[0];
+            }
+            if (method.getName().equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            Object result = TimingDataSource.invoke(connection, method, args);
+            if (result instanceof Statement) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                Class<?> type = result instanceof CallableStatement ? CallableStatement.class
+                        : result instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+                return Proxy.newProxyInstance(TimingDataSource.class.getClassLoader(), new Class<?>[] {type},
+                        new StatementHandler((Statement) result, sql));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Statement handler measuring executions.
+     */
+    private class StatementHandler implements InvocationHandler {
+        /**
+         * Target statement.
+         */
+        private final Statement statement;
+        /**
+         * Prepared SQL, null for plain statements.
+         */
+        private final String preparedSql;
+
+        /**
+         * Creates handler.
+         *
+         * @param statement   target statement
+         * @param preparedSql prepared SQL
+         */
+        StatementHandler(Statement statement, String preparedSql) {
+            this.statement = statement;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("equals")) {
+                return proxy == args[0];
+            }
+            if (method.getName().equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            if (!method.getName().startsWith("execute")) {
+                return TimingDataSource.invoke(statement, method, args);
+            }
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                Object result = TimingDataSource.invoke(statement, method, args);
+                failed = false;
+                return result;
+            } finally {
+                sqlMetrics.record(sql, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start), failed);
+            }
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Application metrics collected at runtime.
+ */
+package eionet.webq.metrics;
@@ -20,11 +20,14 @@
  */
 package eionet.webq.service;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import eionet.webq.converter.CookiesToStringBidirectionalConverter;
 import eionet.webq.dao.orm.KnownHost;
 import eionet.webq.dao.orm.UserFile;
 import eionet.webq.dto.CdrRequest;
 import eionet.webq.dto.XmlSaveResult;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.client.utils.URIUtils;
 import org.apache.log4j.Logger;
@@ -48,12 +51,14 @@ import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import javax.annotation.PostConstruct;
 import javax.servlet.http.Cookie;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static java.util.Collections.emptyList;
 import org.springframework.web.client.RestOperations;
@@ -81,6 +86,11 @@ public class CDREnvelopeServiceImpl implements CDREnvelopeService {
      */
     @Autowired
     private XmlRpcClient xmlRpcClient;
+    /**
+     * Limits calls to failing or overloaded envelope hosts.
+     */
+    @Autowired
+    private UpstreamGuards upstreamGuards;
     /**
      * Rest client.
      */
@@ -102,15 +112,62 @@ public class CDREnvelopeServiceImpl implements CDREnvelopeService {
      */
     @Autowired
     private KnownHostsService knownHostsService;
+    /**
+     * Time in seconds envelope xml files listing is cached, 0 disables caching.
+     */
+    @Value("${cdr.envelope.xml.files.cache.ttl.seconds}")
+    long xmlFilesCacheTtlSeconds;
+    /**
+     * Maximum number of cached envelope xml files listings.
+     */
+    @Value("${cdr.envelope.xml.files.cache.max.size}")
+    long xmlFilesCacheMaxSize;
+    /**
+     * Envelope xml files listings by envelope and identity used for listing.
+     */
+    private Cache<XmlFilesCacheKey, LinkedMultiValueMap<String, XmlFile>> xmlFilesCache;
+
+    /**
+     * Creates envelope xml files listings cache.
+     */
+    @PostConstruct
+    public void init() {
+        xmlFilesCache = CacheBuilder.newBuilder().maximumSize(xmlFilesCacheMaxSize)
+                .expireAfterWrite(xmlFilesCacheTtlSeconds, TimeUnit.SECONDS).build();
+    }
+
+    /**
+     * Removes all cached envelope xml files listings.
+     */
+    public void clearXmlFilesCache() {
+        xmlFilesCache.invalidateAll();
+    }
 
     @Override
     public MultiValueMap<String, XmlFile> getXmlFiles(CdrRequest parameters) {
-        try {
-            Object xmlFilesMappedBySchema = xmlRpcClient.execute(buildConfig(parameters), getEnvelopeXmlFilesMethod, emptyList());
-            return transformGetXmlFilesResponse(xmlFilesMappedBySchema);
-        } catch (XmlRpcException e) {
-            throw new CDREnvelopeException("Unable to call envelope XML-RPC service", e);
+        XmlFilesCacheKey cacheKey = new XmlFilesCacheKey(parameters);
+        LinkedMultiValueMap<String, XmlFile> xmlFiles = xmlFilesCache.getIfPresent(cacheKey);
+        if (xmlFiles == null) {
+            UpstreamGuard guard = upstreamGuards.guardFor(parameters.getEnvelopeUrl());
+            UpstreamGuard.Permit permit = guard != null ? guard.acquire() : null;
+            boolean success = false;
+            try {
+                Object xmlFilesMappedBySchema =
+                        xmlRpcClient.execute(buildConfig(parameters), getEnvelopeXmlFilesMethod, emptyList());
+                success = true;
+                xmlFiles = transformGetXmlFilesResponse(xmlFilesMappedBySchema);
+            } catch (XmlRpcException e) {
+                throw new CDREnvelopeException("Unable to call envelope XML-RPC service", e);
+            } finally {
+                if (permit != null) {
+                    permit.release(success);
+                }
+            }
+            if (xmlFilesCacheTtlSeconds > 0) {
+                xmlFilesCache.put(cacheKey, xmlFiles);
+            }
         }
+        return xmlFiles.deepCopy();
     }
 
     @Override
@@ -124,6 +181,7 @@ public class CDREnvelopeServiceImpl implements CDREnvelopeService {
         HttpEntity<MultiValueMap<String, Object>> requestParameters = prepareXmlSaveRequestParameters(file);
 
         ResponseEntity<String> entity = restOperations.postForEntity(saveXmlUrl, requestParameters, String.class);
+        evictXmlFilesListings(file.getEnvelope());
 
         String responseBody = entity.getBody();
         if (entity.getStatusCode() != HttpStatus.OK) {
@@ -227,7 +285,7 @@ public class CDREnvelopeServiceImpl implements CDREnvelopeService {
      * @return {@link XmlFile} grouped by xml schema.
      */
     @SuppressWarnings("unchecked")
-    private MultiValueMap<String, XmlFile> transformGetXmlFilesResponse(Object response) {
+    private LinkedMultiValueMap<String, XmlFile> transformGetXmlFilesResponse(Object response) {
         LinkedMultiValueMap<String, XmlFile> result = new LinkedMultiValueMap<String, XmlFile>();
         if (response != null) {
             try {
@@ -249,6 +307,20 @@ public class CDREnvelopeServiceImpl implements CDREnvelopeService {
         return result;
     }
 
+    /**
+     * Removes cached xml files listings of envelope for all identities.
+     *
+     * @param envelopeUrl envelope URL
+     */
+    private void evictXmlFilesListings(String envelopeUrl) {
+        String envelope = XmlFilesCacheKey.normalizeEnvelopeUrl(envelopeUrl);
+        for (XmlFilesCacheKey key : xmlFilesCache.asMap().keySet()) {
+            if (key.envelopeUrl.equals(envelope)) {
+                xmlFilesCache.invalidate(key);
+            }
+        }
+    }
+
     /**
      * Builds XmlRpcClientConfig from {@link eionet.webq.dto.CdrRequest}.
      *
@@ -286,4 +358,58 @@ public class CDREnvelopeServiceImpl implements CDREnvelopeService {
             throw new CDREnvelopeException("Envelope URL is malformed", e);
         }
     }
+
+    /**
+     * Envelope xml files listing cache key. Listing depends on envelope and credentials used for XML-RPC call,
+     * so credentials are part of the key in hashed form.
+     */
+    private static final class XmlFilesCacheKey {
+        /** Normalized envelope URL. */
+        private final String envelopeUrl;
+        /** Hashed identity used for listing. */
+        private final String identity;
+
+        /**
+         * Creates key from request parameters.
+         *
+         * @param parameters cdr request parameters
+         */
+        XmlFilesCacheKey(CdrRequest parameters) {
+            this.envelopeUrl = normalizeEnvelopeUrl(parameters.getEnvelopeUrl());
+            if (!parameters.isAuthorizationSet()) {
+                this.identity = "anonymous";
+            } else if (StringUtils.isNotEmpty(parameters.getUserName())) {
+                this.identity = DigestUtils.sha256Hex(parameters.getUserName() + ':' + parameters.getPassword());
+            } else {
+                this.identity = "known-host";
+            }
+        }
+
+        /**
+         * Normalizes envelope URL, so the same envelope is matched with or without trailing slash.
+         *
+         * @param envelopeUrl envelope URL
+         * @return normalized URL
+         */
+        static String normalizeEnvelopeUrl(String envelopeUrl) {
+            return StringUtils.removeEnd(StringUtils.defaultString(envelopeUrl), "/");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof XmlFilesCacheKey)) {
+                return false;
+            }
+            XmlFilesCacheKey that = (XmlFilesCacheKey) o;
+            return envelopeUrl.equals(that.envelopeUrl) && identity.equals(that.identity);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * envelopeUrl.hashCode() + identity.hashCode();
+        }
+    }
 }
@@ -0,0 +1,61 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.service;
+
+import eionet.webq.dao.orm.UserFile;
+import eionet.webq.dto.CdrPushStatus;
+import eionet.webq.dto.XmlSaveResult;
+
+/**
+ * Queue for pushing saved user files to CDR envelopes in background.
+ * Jobs are stored in database, so they survive application restarts.
+ */
+public interface CdrPushQueueService {
+    /**
+     * Whether files should be pushed to CDR through the queue instead of pushing them within user request.
+     *
+     * @return true if asynchronous push is enabled
+     */
+    boolean isEnabled();
+
+    /**
+     * Stores file content locally and queues push of the file to CDR envelope.
+     * If the file already has a job waiting for push, the job is reused.
+     *
+     * @param file CDR file with new content and push parameters set
+     * @return save result with push job id
+     */
+    XmlSaveResult enqueue(UserFile file);
+
+    /**
+     * Push job status. Only status of current user files is available.
+     *
+     * @param jobId push job id
+     * @return push status or null if job is not found
+     */
+    CdrPushStatus getStatus(int jobId);
+
+    /**
+     * Hands due jobs over to push workers. Jobs for the same envelope are pushed one at a time in creation order.
+     *
+     * @return number of jobs handed over to workers
+     */
+    int dispatchDueJobs();
+}
@@ -0,0 +1,385 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import eionet.webq.dao.CdrPushJobStorage;
+import eionet.webq.dao.UserFileStorage;
+import eionet.webq.dao.orm.CdrPushJob;
+import eionet.webq.dao.orm.CdrPushJobStatus;
+import eionet.webq.dao.orm.UserFile;
+import eionet.webq.dto.CdrPushStatus;
+import eionet.webq.dto.XmlSaveResult;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link eionet.webq.service.CdrPushQueueService} implementation.
+ * Pushes are performed by fixed size worker pool outside of database transaction. Failed pushes are retried with
+ * exponentially growing delay until maximum number of attempts is reached. Jobs are claimed with conditional update
+ * before push, so a job is pushed by one application node only; job left in progress by stopped node is claimed again
+ * after claim timeout.
+ */
+@Service
+public class CdrPushQueueServiceImpl implements CdrPushQueueService {
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(CdrPushQueueServiceImpl.class);
+    /**
+     * Maximum length of stored push result message.
+     */
+    private static final int MAX_MESSAGE_LENGTH = 2000;
+    /**
+     * Push jobs storage.
+     */
+    @Autowired
+    CdrPushJobStorage jobStorage;
+    /**
+     * User files storage, used by workers for loading files regardless of user session.
+     */
+    @Autowired
+    UserFileStorage userFileStorage;
+    /**
+     * User files service.
+     */
+    @Autowired
+    UserFileService userFileService;
+    /**
+     * CDR envelope service.
+     */
+    @Autowired
+    CDREnvelopeService envelopeService;
+    /**
+     * Transaction manager for workers, which must not keep transaction open during push.
+     */
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    /**
+     * Whether asynchronous push is enabled.
+     */
+    @Value("${cdr.push.async.enabled}")
+    boolean enabled;
+    /**
+     * Number of push workers.
+     */
+    @Value("${cdr.push.worker.pool.size}")
+    int poolSize;
+    /**
+     * Maximum number of push attempts.
+     */
+    @Value("${cdr.push.max.attempts}")
+    int maxAttempts;
+    /**
+     * Delay before second attempt. Delay is doubled for every next attempt.
+     */
+    @Value("${cdr.push.retry.delay.seconds}")
+    long retryDelaySeconds;
+    /**
+     * Maximum delay between attempts.
+     */
+    @Value("${cdr.push.max.retry.delay.seconds}")
+    long maxRetryDelaySeconds;
+    /**
+     * Time after which job in progress is considered abandoned by its node and is claimed again.
+     */
+    @Value("${cdr.push.claim.timeout.seconds}")
+    long claimTimeoutSeconds;
+    /**
+     * Executes pushes.
+     */
+    ExecutorService executor;
+    /**
+     * Envelopes having push in progress.
+     */
+    private final Set<String> envelopesInProgress = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Creates push workers pool.
+     */
+    @PostConstruct
+    public void init() {
+        executor = Executors.newFixedThreadPool(poolSize,
+                new ThreadFactoryBuilder().setNameFormat("cdr-push-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Stops push workers. Interrupted jobs are continued after restart.
+     */
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    @Transactional
+    public XmlSaveResult enqueue(UserFile file) {
+        userFileService.updateContent(file);
+        CdrPushJob job = jobStorage.findQueuedForUserFile(file.getId());
+        boolean newJob = job == null;
+        if (newJob) {
+            job = new CdrPushJob();
+            job.setUserFileId(file.getId());
+            job.setEnvelope(file.getEnvelope());
+        }
+        job.setConversionId(file.getConversionId());
+        job.setApplyRestriction(file.isApplyRestriction());
+        job.setRestricted(file.isRestricted());
+        job.setAttempts(0);
+        job.setMessage(null);
+        job.setNextAttempt(new Date());
+        job.setUpdated(new Date());
+        if (newJob) {
+            jobStorage.save(job);
+        } else {
+            jobStorage.update(job);
+        }
+        LOGGER.info("Queued push to CDR " + job);
+        return XmlSaveResult.valueOfQueued(job.getId());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CdrPushStatus getStatus(int jobId) {
+        CdrPushJob job = jobStorage.findJob(jobId);
+        if (job == null || userFileService.getById(job.getUserFileId()) == null) {
+            return null;
+        }
+        return new CdrPushStatus(job);
+    }
+
+    @Override
+    public int dispatchDueJobs() {
+        List<CdrPushJob> jobs = new TransactionTemplate(transactionManager).execute(
+                new TransactionCallback<List<CdrPushJob>>() {
+                    @Override
+                    public List<CdrPushJob> doInTransaction(TransactionStatus status) {
+                        return jobStorage.findUnfinished();
+                    }
+                });
+        final Date now = new Date();
+        final Date staleBefore = new Date(now.getTime() - TimeUnit.SECONDS.toMillis(claimTimeoutSeconds));
+        Set<String> visitedEnvelopes = new HashSet<String>();
+        int dispatched = 0;
+        for (final CdrPushJob job : jobs) {
+            String envelope = job.getEnvelope();
+            // only the oldest unfinished job of envelope may be pushed
+            if (!visitedEnvelopes.add(envelope) || envelopesInProgress.contains(envelope)) {
+                continue;
+            }
+            if (job.getStatus() == CdrPushJobStatus.QUEUED && job.getNextAttempt().after(now)) {
+                continue;
+            }
+            // job in progress is pushed by this or other node, unless the node stopped before finishing it
+            if (job.getStatus() == CdrPushJobStatus.IN_PROGRESS && !job.getUpdated().before(staleBefore)) {
+                continue;
+            }
+            if (envelopesInProgress.add(envelope)) {
+                boolean claimed = new TransactionTemplate(transactionManager).execute(
+                        new TransactionCallback<Boolean>() {
+                            @Override
+                            public Boolean doInTransaction(TransactionStatus status) {
+                                return jobStorage.claim(job.getId(), now, staleBefore);
+                            }
+                        });
+                if (!claimed) {
+                    envelopesInProgress.remove(envelope);
+                    continue;
+                }
+                try {
+                    executor.execute(new PushWorker(job.getId(), envelope));
+                    dispatched++;
+                } catch (RejectedExecutionException e) {
+                    envelopesInProgress.remove(envelope);
+                    LOGGER.warn("Push workers are not available for " + job);
+                }
+            }
+        }
+        return dispatched;
+    }
+
+    /**
+     * Pushes file of the job to CDR and stores push outcome.
+     *
+     * @param jobId push job id
+     */
+    void push(final int jobId) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        final UserFile file = transactionTemplate.execute(new TransactionCallback<UserFile>() {
+            @Override
+            public UserFile doInTransaction(TransactionStatus status) {
+                return startAttempt(jobId);
+            }
+        });
+        if (file == null) {
+            return;
+        }
+        String failure = null;
+        XmlSaveResult result = null;
+        try {
+            result = envelopeService.pushXmlFile(file);
+            if (result.getCode() != 1) {
+                failure = result.getMessage();
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Unable to push file to CDR, job id=" + jobId, e);
+            failure = e.toString();
+        }
+        final String failureMessage = failure;
+        final String resultMessage = result != null ? result.getMessage() : null;
+        transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                finishAttempt(jobId, failureMessage, resultMessage);
+            }
+        });
+    }
+
+    /**
+     * Counts attempt of claimed job and loads file to be pushed.
+     *
+     * @param jobId push job id
+     * @return file with content and push parameters set or null if there is nothing to push
+     */
+    private UserFile startAttempt(int jobId) {
+        CdrPushJob job = jobStorage.findJob(jobId);
+        if (job == null || job.getStatus() != CdrPushJobStatus.IN_PROGRESS) {
+            return null;
+        }
+        job.setUpdated(new Date());
+        UserFile file = userFileStorage.findFile(job.getUserFileId());
+        if (file == null) {
+            job.setStatus(CdrPushJobStatus.FAILED);
+            job.setMessage("File is not available.");
+            jobStorage.update(job);
+            return null;
+        }
+        // initialize content while session is open
+        file.getContent();
+        file.setConversionId(job.getConversionId());
+        file.setApplyRestriction(job.isApplyRestriction());
+        file.setRestricted(job.isRestricted());
+
+        job.setAttempts(job.getAttempts() + 1);
+        jobStorage.update(job);
+        return file;
+    }
+
+    /**
+     * Stores push outcome. Failed job is queued for retry, unless maximum number of attempts is reached.
+     *
+     * @param jobId push job id
+     * @param failure failure message or null if push succeeded
+     * @param resultMessage CDR response message
+     */
+    private void finishAttempt(int jobId, String failure, String resultMessage) {
+        CdrPushJob job = jobStorage.findJob(jobId);
+        if (job == null) {
+            return;
+        }
+        Date now = new Date();
+        job.setUpdated(now);
+        if (failure == null) {
+            job.setStatus(CdrPushJobStatus.DONE);
+            job.setMessage(StringUtils.abbreviate(resultMessage, MAX_MESSAGE_LENGTH));
+            LOGGER.info("File pushed to CDR " + job);
+        } else if (job.getAttempts() >= maxAttempts) {
+            job.setStatus(CdrPushJobStatus.FAILED);
+            job.setMessage(StringUtils.abbreviate(failure, MAX_MESSAGE_LENGTH));
+            LOGGER.error("Giving up pushing file to CDR " + job);
+        } else {
+            job.setStatus(CdrPushJobStatus.QUEUED);
+            job.setMessage(StringUtils.abbreviate(failure, MAX_MESSAGE_LENGTH));
+            job.setNextAttempt(new Date(now.getTime() + TimeUnit.SECONDS.toMillis(retryDelay(job.getAttempts()))));
+            LOGGER.warn("Push to CDR failed, will retry " + job);
+        }
+        jobStorage.update(job);
+    }
+
+    /**
+     * Calculates delay before next attempt.
+     *
+     * @param attempts number of performed attempts
+     * @return delay in seconds
+     */
+    long retryDelay(int attempts) {
+        int exponent = Math.min(Math.max(attempts - 1, 0), 30);
+        return Math.min(retryDelaySeconds * (1L << exponent), maxRetryDelaySeconds);
+    }
+
+    /**
+     * Pushes single job and releases envelope for next jobs.
+     */
+    private final class PushWorker implements Runnable {
+        /** Push job id. */
+        private final int jobId;
+        /** Envelope of the job. */
+        private final String envelope;
+
+        /**
+         * Creates worker for job.
+         *
+         * @param jobId job id
+         * @param envelope job envelope
+         */
+        PushWorker(int jobId, String envelope) {
+            this.jobId = jobId;
+            this.envelope = envelope;
+        }
+
+        @Override
+        public void run() {
+            try {
+                push(jobId);
+            } catch (RuntimeException e) {
+                LOGGER.error("Push job " + jobId + " failed unexpectedly", e);
+            } finally {
+                envelopesInProgress.remove(envelope);
+            }
+        }
+    }
+}
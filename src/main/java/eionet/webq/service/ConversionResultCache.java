@@ -0,0 +1,483 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of converters API conversion results. Results are kept in memory up to configured total size in bytes.
+ * If disk directory is configured, results evicted from memory because of size limit are spilled to disk by background
+ * thread and read back on next request. Spill files are replaced atomically by renaming temporary file, so reads do not
+ * wait for writes. Only Content-Type and Content-Disposition response headers are preserved.
+ */
+@Component
+public class ConversionResultCache {
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(ConversionResultCache.class);
+    /**
+     * Spilled result file extension.
+     */
+    private static final String SPILL_FILE_EXTENSION = ".conversion";
+    /**
+     * Approximate memory overhead of one cache entry.
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 512;
+    /**
+     * Maximum count of results waiting to be spilled. Results evicted while queue is full are dropped.
+     */
+    private static final int SPILL_QUEUE_CAPACITY = 16;
+    /**
+     * Maximum total size of cached results in memory. 0 disables cache.
+     */
+    @Value("${conversion.result.cache.max.size.mb}")
+    long maxSizeMb;
+    /**
+     * Time to keep conversion result.
+     */
+    @Value("${conversion.result.cache.ttl.minutes}")
+    long ttlMinutes;
+    /**
+     * Directory for results evicted from memory. Empty value disables spilling to disk.
+     */
+    @Value("${conversion.result.cache.disk.dir}")
+    String diskDir;
+    /**
+     * Maximum total size of results spilled to disk.
+     */
+    @Value("${conversion.result.cache.disk.max.size.mb}")
+    long diskMaxSizeMb;
+    /**
+     * Results in memory.
+     */
+    private Cache<String, CachedConversion> memory;
+    /**
+     * Spill directory or null if spilling is disabled.
+     */
+    private File spillDirectory;
+    /**
+     * Writes evicted results to disk.
+     */
+    private ThreadPoolExecutor spillExecutor;
+    /**
+     * Results evicted from memory and not yet written to disk.
+     */
+    private final ConcurrentMap<String, CachedConversion> pendingSpills = new ConcurrentHashMap<String, CachedConversion>();
+    /**
+     * Guards spill file writes, disk limit enforcement and removal of spilled files. Not used for reads.
+     */
+    private final Object spillLock = new Object();
+
+    /**
+     * Creates cache.
+     */
+    @PostConstruct
+    public void init() {
+        destroy();
+        spillDirectory = null;
+        if (StringUtils.isNotBlank(diskDir)) {
+            File directory = new File(diskDir);
+            if (directory.isDirectory() || directory.mkdirs()) {
+                spillDirectory = directory;
+            } else {
+                LOGGER.warn("Conversion results will not be spilled to disk, unable to create directory " + diskDir);
+            }
+        }
+        if (spillDirectory != null) {
+            spillExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<Runnable>(SPILL_QUEUE_CAPACITY),
+                    new ThreadFactoryBuilder().setNameFormat("conversion-spill-%d").setDaemon(true).build());
+        }
+        // single segment, so the whole size limit is available for large results
+        memory = CacheBuilder.newBuilder().concurrencyLevel(1).maximumWeight(Math.max(maxSizeMb, 0) * FileUtils.ONE_MB)
+                .weigher(new Weigher<String, CachedConversion>() {
+                    @Override
+                    public int weigh(String key, CachedConversion value) {
+                        return value.body.length + ENTRY_OVERHEAD_BYTES;
+                    }
+                })
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .removalListener(new RemovalListener<String, CachedConversion>() {
+                    @Override
+                    public void onRemoval(RemovalNotification<String, CachedConversion> notification) {
+                        if (notification.getCause() == RemovalCause.SIZE) {
+                            spill(notification.getKey(), notification.getValue());
+                        }
+                    }
+                }).build();
+    }
+
+    /**
+     * Stops spilling results to disk. Results waiting to be spilled are dropped.
+     */
+    @PreDestroy
+    public void destroy() {
+        if (spillExecutor != null) {
+            spillExecutor.shutdownNow();
+            spillExecutor = null;
+        }
+        pendingSpills.clear();
+    }
+
+    /**
+     * Creates cache key for conversion.
+     * File name is part of the key, because converters may use it in Content-Disposition header.
+     *
+     * @param content file content
+     * @param fileName file name
+     * @param conversionId conversion id
+     * @return cache key
+     */
+    public static String keyFor(byte[] content, String fileName, String conversionId) {
+        return DigestUtils.sha256Hex(content) + '/' + conversionId + '/' + StringUtils.defaultString(fileName);
+    }
+
+    /**
+     * Finds cached conversion result.
+     *
+     * @param key cache key
+     * @return conversion result or null if not cached
+     */
+    public ResponseEntity<byte[]> get(String key) {
+        if (!isEnabled()) {
+            return null;
+        }
+        CachedConversion conversion = memory.getIfPresent(key);
+        if (conversion == null && spillDirectory != null) {
+            conversion = pendingSpills.get(key);
+        }
+        if (conversion == null && spillDirectory != null) {
+            conversion = readSpilled(key);
+            if (conversion != null) {
+                memory.put(key, conversion);
+            }
+        }
+        return conversion != null ? conversion.toResponseEntity() : null;
+    }
+
+    /**
+     * Caches successful conversion result.
+     *
+     * @param key cache key
+     * @param result conversion result
+     */
+    public void put(String key, ResponseEntity<byte[]> result) {
+        if (isEnabled() && result.getStatusCode().is2xxSuccessful() && result.hasBody()) {
+            HttpHeaders headers = result.getHeaders();
+            MediaType contentType = headers.getContentType();
+            memory.put(key, new CachedConversion(result.getBody(), contentType != null ? contentType.toString() : null,
+                    headers.getFirst("Content-Disposition"), System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Removes all cached results, including spilled ones.
+     */
+    public void clear() {
+        if (memory != null) {
+            memory.invalidateAll();
+        }
+        pendingSpills.clear();
+        if (spillDirectory != null) {
+            synchronized (spillLock) {
+                for (File file : spilledFiles()) {
+                    FileUtils.deleteQuietly(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits until results evicted so far are written to disk.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     * @throws ExecutionException if waiting fails
+     */
+    void awaitSpills() throws InterruptedException, ExecutionException {
+        if (spillExecutor != null) {
+            spillExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).get();
+        }
+    }
+
+    /**
+     * Whether results are cached.
+     *
+     * @return true if cache is enabled
+     */
+    private boolean isEnabled() {
+        return maxSizeMb > 0;
+    }
+
+    /**
+     * Queues result evicted from memory to be written to disk, so thread which caused eviction does not wait for disk.
+     *
+     * @param key cache key
+     * @param conversion conversion result
+     */
+    private void spill(final String key, final CachedConversion conversion) {
+        ThreadPoolExecutor executor = spillExecutor;
+        if (executor == null) {
+            return;
+        }
+        pendingSpills.put(key, conversion);
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    writeSpilled(key, conversion);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingSpills.remove(key, conversion);
+            LOGGER.debug("Conversion result not spilled to disk, spill queue is full");
+        }
+    }
+
+    /**
+     * Writes result to disk and removes oldest spilled results if disk limit is exceeded. Result is written to
+     * temporary file, which then replaces spill file, so readers see either previous or new complete file.
+     *
+     * @param key cache key
+     * @param conversion conversion result
+     */
+    private void writeSpilled(String key, CachedConversion conversion) {
+        synchronized (spillLock) {
+            if (pendingSpills.get(key) != conversion) {
+                return;
+            }
+            writeSpillFile(key, conversion);
+            trimSpilledFiles();
+        }
+        pendingSpills.remove(key, conversion);
+    }
+
+    /**
+     * Writes spill file.
+     *
+     * @param key cache key
+     * @param conversion conversion result
+     */
+    private void writeSpillFile(String key, CachedConversion conversion) {
+        File target = spillFile(key);
+        File temp = new File(spillDirectory, target.getName() + ".tmp");
+        DataOutputStream output = null;
+        try {
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            output.writeUTF(key);
+            output.writeLong(conversion.created);
+            output.writeUTF(StringUtils.defaultString(conversion.contentType));
+            output.writeUTF(StringUtils.defaultString(conversion.contentDisposition));
+            output.writeInt(conversion.body.length);
+            output.write(conversion.body);
+            output.close();
+            if (!temp.renameTo(target)) {
+                // platforms not replacing existing file on rename
+                FileUtils.deleteQuietly(target);
+                if (!temp.renameTo(target)) {
+                    throw new IOException("Unable to rename " + temp + " to " + target);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Unable to spill conversion result to disk", e);
+            FileUtils.deleteQuietly(temp);
+        } finally {
+            IOUtils.closeQuietly(output);
+        }
+    }
+
+    /**
+     * Reads spilled result without locking. Expired or broken results are removed from disk.
+     *
+     * @param key cache key
+     * @return conversion result or null if not found
+     */
+    private CachedConversion readSpilled(String key) {
+        File file = spillFile(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (!key.equals(input.readUTF())) {
+                return null;
+            }
+            long created = input.readLong();
+            if (System.currentTimeMillis() - created > TimeUnit.MINUTES.toMillis(ttlMinutes)) {
+                input.close();
+                FileUtils.deleteQuietly(file);
+                return null;
+            }
+            String contentType = StringUtils.defaultIfEmpty(input.readUTF(), null);
+            String contentDisposition = StringUtils.defaultIfEmpty(input.readUTF(), null);
+            byte[] body = new byte[input.readInt()];
+            input.readFully(body);
+            return new CachedConversion(body, contentType, contentDisposition, created);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to read spilled conversion result " + file, e);
+            IOUtils.closeQuietly(input);
+            FileUtils.deleteQuietly(file);
+            return null;
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    /**
+     * Removes oldest spilled results until disk limit is satisfied. Called holding {@link #spillLock}.
+     */
+    private void trimSpilledFiles() {
+        File[] files = spilledFiles();
+        long totalSize = 0;
+        for (File file : files) {
+            totalSize += file.length();
+        }
+        long limit = diskMaxSizeMb * FileUtils.ONE_MB;
+        if (totalSize <= limit) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File first, File second) {
+                return Long.compare(first.lastModified(), second.lastModified());
+            }
+        });
+        for (int i = 0; i < files.length && totalSize > limit; i++) {
+            totalSize -= files[i].length();
+            FileUtils.deleteQuietly(files[i]);
+        }
+    }
+
+    /**
+     * Lists spilled result files.
+     *
+     * @return spilled files
+     */
+    private File[] spilledFiles() {
+        File[] files = spillDirectory.listFiles();
+        if (files == null) {
+            return new File[0];
+        }
+        int count = 0;
+        for (File file : files) {
+            if (file.getName().endsWith(SPILL_FILE_EXTENSION)) {
+                files[count++] = file;
+            }
+        }
+        return Arrays.copyOf(files, count);
+    }
+
+    /**
+     * Spill file for cache key.
+     *
+     * @param key cache key
+     * @return spill file
+     */
+    private File spillFile(String key) {
+        return new File(spillDirectory, DigestUtils.sha256Hex(key) + SPILL_FILE_EXTENSION);
+    }
+
+    /**
+     * Cached conversion result.
+     */
+    private static final class CachedConversion {
+        /** Converted content. */
+        private final byte[] body;
+        /** Content-Type header value. */
+        private final String contentType;
+        /** Content-Disposition header value. */
+        private final String contentDisposition;
+        /** Time when result was received from converters. */
+        private final long created;
+
+        /**
+         * Creates cached result.
+         *
+         * @param body converted content
+         * @param contentType Content-Type header value
+         * @param contentDisposition Content-Disposition header value
+         * @param created time when result was received
+         */
+        CachedConversion(byte[] body, String contentType, String contentDisposition, long created) {
+            this.body = body;
+            this.contentType = contentType;
+            this.contentDisposition = contentDisposition;
+            this.created = created;
+        }
+
+        /**
+         * Creates response entity from cached result.
+         *
+         * @return response entity with preserved headers
+         */
+        ResponseEntity<byte[]> toResponseEntity() {
+            HttpHeaders headers = new HttpHeaders();
+            if (contentType != null) {
+                headers.set(HttpHeaders.CONTENT_TYPE, contentType);
+            }
+            if (contentDisposition != null) {
+                headers.set("Content-Disposition", contentDisposition);
+            }
+            return new ResponseEntity<byte[]>(body, headers, HttpStatus.OK);
+        }
+    }
+}
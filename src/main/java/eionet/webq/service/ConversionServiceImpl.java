@@ -52,6 +52,16 @@ public class ConversionServiceImpl implements ConversionService {
      */
     @Autowired
     RestOperations restOperations;
+    /**
+     * Conversion results cache.
+     */
+    @Autowired
+    ConversionResultCache conversionResultCache;
+    /**
+     * Collapses concurrent conversion list requests for the same schema.
+     */
+    @Autowired
+    SingleFlight singleFlight;
     /**
      * Url to converters api.
      */
@@ -80,6 +90,15 @@ public class ConversionServiceImpl implements ConversionService {
 
     @Override
     public ResponseEntity<byte[]> convert(UserFile fileContent, String conversionId) {
+        byte[] content = fileContent.getContent();
+        String cacheKey = content != null
+                ? ConversionResultCache.keyFor(content, fileContent.getName(), conversionId) : null;
+        ResponseEntity<byte[]> cached = cacheKey != null ? conversionResultCache.get(cacheKey) : null;
+        if (cached != null) {
+            LOGGER.info("Conversion result taken from cache for file=" + fileContent.getName() + ", conversionId="
+                    + conversionId);
+            return cached;
+        }
         MultiValueMap<String, Object> request = new LinkedMultiValueMap<String, Object>();
         request.add(convertPushFileParameter, createFileHttpEntity(fileContent));
         request.add(convertPushIdParameter, new HttpEntity<String>(conversionId));
@@ -87,13 +106,22 @@ public class ConversionServiceImpl implements ConversionService {
         ResponseEntity<byte[]> entity = restOperations.postForEntity(apiCallTo(convertPush), request, byte[].class);
         LOGGER.info("Response from conversion service for file=" + fileContent.getName() + ", conversionId=" + conversionId
                 + "\n Status:" + entity.getStatusCode() + ", response headers=" + entity.getHeaders());
+        if (cacheKey != null) {
+            conversionResultCache.put(cacheKey, entity);
+        }
         return entity;
     }
 
     @Cacheable(value = "conversions")
     @Override
-    public List<Conversion> conversionsFor(String schema) {
-        return restOperations.getForObject(apiCallTo(listConversions), ListConversionResponse.class, schema).getConversions();
+    public List<Conversion> conversionsFor(final String schema) {
+        return singleFlight.execute("conversions:" + schema, new SingleFlight.Call<List<Conversion>, RuntimeException>() {
+            @Override
+            public List<Conversion> call() {
+                return restOperations.getForObject(apiCallTo(listConversions), ListConversionResponse.class, schema)
+                        .getConversions();
+            }
+        }, RuntimeException.class);
     }
 
     /**
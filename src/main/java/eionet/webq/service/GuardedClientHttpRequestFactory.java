@@ -0,0 +1,272 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.service;
+
+import org.apache.log4j.Logger;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+
+/**
+ * Request factory, which executes requests under {@link UpstreamGuard} of target host. Upstream permit is held until
+ * response is closed. I/O errors, including errors while reading response body, and 5xx responses are counted as
+ * upstream failures.
+ */
+public class GuardedClientHttpRequestFactory implements ClientHttpRequestFactory {
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(GuardedClientHttpRequestFactory.class);
+    /**
+     * Upstream guards.
+     */
+    private final UpstreamGuards upstreamGuards;
+    /**
+     * Actual request factory.
+     */
+    private final ClientHttpRequestFactory delegate;
+
+    /**
+     * Creates factory.
+     *
+     * @param upstreamGuards upstream guards
+     * @param delegate       actual request factory
+     */
+    public GuardedClientHttpRequestFactory(UpstreamGuards upstreamGuards, ClientHttpRequestFactory delegate) {
+        this.upstreamGuards = upstreamGuards;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        ClientHttpRequest request = delegate.createRequest(uri, httpMethod);
+        UpstreamGuard guard = upstreamGuards.guardFor(uri);
+        return guard != null ? new GuardedClientHttpRequest(request, guard) : request;
+    }
+
+    /**
+     * Request executed under upstream guard.
+     */
+    private static final class GuardedClientHttpRequest implements ClientHttpRequest {
+        /**
+         * Actual request.
+         */
+        private final ClientHttpRequest request;
+        /**
+         * Guard of target host.
+         */
+        private final UpstreamGuard guard;
+
+        /**
+         * Creates request.
+         *
+         * @param request actual request
+         * @param guard   guard of target host
+         */
+        private GuardedClientHttpRequest(ClientHttpRequest request, UpstreamGuard guard) {
+            this.request = request;
+            this.guard = guard;
+        }
+
+        @Override
+        public ClientHttpResponse execute() throws IOException {
+            UpstreamGuard.Permit permit = guard.acquire();
+            ClientHttpResponse response = null;
+            try {
+                response = request.execute();
+                return new GuardedClientHttpResponse(response, permit, response.getRawStatusCode() < 500);
+            } catch (IOException e) {
+                closeQuietly(response);
+                permit.release(false);
+                throw e;
+            } catch (RuntimeException e) {
+                closeQuietly(response);
+                permit.release(false);
+                throw e;
+            }
+        }
+
+        @Override
+        public OutputStream getBody() throws IOException {
+            return request.getBody();
+        }
+
+        @Override
+        public HttpMethod getMethod() {
+            return request.getMethod();
+        }
+
+        @Override
+        public URI getURI() {
+            return request.getURI();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return request.getHeaders();
+        }
+    }
+
+    /**
+     * Closes response ignoring errors.
+     *
+     * @param response response, may be null
+     */
+    private static void closeQuietly(ClientHttpResponse response) {
+        if (response != null) {
+            try {
+                response.close();
+            } catch (RuntimeException e) {
+                LOGGER.debug("Unable to close upstream response", e);
+            }
+        }
+    }
+
+    /**
+     * Response, which holds upstream permit until it is closed, so streaming of response body is also limited by
+     * bulkhead. Errors while reading body are counted as upstream failures.
+     */
+    private static final class GuardedClientHttpResponse implements ClientHttpResponse {
+        /**
+         * Actual response.
+         */
+        private final ClientHttpResponse response;
+        /**
+         * Permit released on close.
+         */
+        private final UpstreamGuard.Permit permit;
+        /**
+         * Whether call is successful so far.
+         */
+        private volatile boolean success;
+        /**
+         * Response body.
+         */
+        private InputStream body;
+
+        /**
+         * Creates response.
+         *
+         * @param response actual response
+         * @param permit   permit released on close
+         * @param success  whether upstream responded successfully
+         */
+        private GuardedClientHttpResponse(ClientHttpResponse response, UpstreamGuard.Permit permit, boolean success) {
+            this.response = response;
+            this.permit = permit;
+            this.success = success;
+        }
+
+        @Override
+        public HttpStatus getStatusCode() throws IOException {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public int getRawStatusCode() throws IOException {
+            return response.getRawStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return response.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return response.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                try {
+                    body = new FailureRecordingInputStream(response.getBody());
+                } catch (IOException e) {
+                    success = false;
+                    throw e;
+                }
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            try {
+                response.close();
+            } finally {
+                permit.release(success);
+            }
+        }
+
+        /**
+         * Body stream, which marks call as failed if reading fails.
+         */
+        private final class FailureRecordingInputStream extends FilterInputStream {
+            /**
+             * Creates stream.
+             *
+             * @param in actual body stream
+             */
+            private FailureRecordingInputStream(InputStream in) {
+                super(in);
+            }
+
+            @Override
+            public int read() throws IOException {
+                try {
+                    return super.read();
+                } catch (IOException e) {
+                    success = false;
+                    throw e;
+                }
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                try {
+                    return super.read(b, off, len);
+                } catch (IOException e) {
+                    success = false;
+                    throw e;
+                }
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                try {
+                    return super.skip(n);
+                } catch (IOException e) {
+                    success = false;
+                    throw e;
+                }
+            }
+        }
+    }
+}
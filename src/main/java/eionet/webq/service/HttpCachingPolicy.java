@@ -0,0 +1,175 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.service;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.HttpHeaders;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP caching rules for responses stored in shared caches. Responses marked with no-store or private, setting cookies
+ * or varying on request headers other than Accept-Encoding are not stored. Freshness is taken from s-maxage, max-age or
+ * Expires, or estimated from Last-Modified.
+ */
+public final class HttpCachingPolicy {
+    /**
+     * Part of time since last modification used as heuristic freshness lifetime.
+     */
+    private static final int HEURISTIC_FRESHNESS_DIVISOR = 10;
+
+    /**
+     * Utility class.
+     */
+    private HttpCachingPolicy() {
+    }
+
+    /**
+     * Checks whether response may be stored in shared cache.
+     *
+     * @param headers response headers
+     * @return true if response may be stored
+     */
+    public static boolean isStorable(HttpHeaders headers) {
+        String cacheControl = cacheControl(headers);
+        String vary = StringUtils.trimToNull(StringUtils.join(headers.get("Vary"), ','));
+        return !directive(cacheControl, "no-store") && !directive(cacheControl, "private")
+                && !headers.containsKey("Set-Cookie") && (vary == null || "accept-encoding".equalsIgnoreCase(vary));
+    }
+
+    /**
+     * Calculates freshness lifetime of response.
+     *
+     * @param headers response headers
+     * @param lastModified Last-Modified header value, may be taken from previously cached response
+     * @param now response time
+     * @param maxHeuristicFreshnessSeconds maximum freshness lifetime estimated from Last-Modified header
+     * @return freshness lifetime in milliseconds
+     */
+    public static long freshnessLifetime(HttpHeaders headers, String lastModified, long now,
+            long maxHeuristicFreshnessSeconds) {
+        String cacheControl = cacheControl(headers);
+        if (directive(cacheControl, "no-cache")) {
+            return 0;
+        }
+        long sharedMaxAge = directiveValue(cacheControl, "s-maxage");
+        if (sharedMaxAge >= 0) {
+            return TimeUnit.SECONDS.toMillis(sharedMaxAge);
+        }
+        long maxAge = directiveValue(cacheControl, "max-age");
+        if (maxAge >= 0) {
+            return TimeUnit.SECONDS.toMillis(maxAge);
+        }
+        long date = dateHeader(headers, HttpHeaders.DATE);
+        long responseDate = date > 0 ? date : now;
+        if (headers.containsKey(HttpHeaders.EXPIRES)) {
+            long expires = dateHeader(headers, HttpHeaders.EXPIRES);
+            return Math.max(expires - responseDate, 0);
+        }
+        long modified = lastModified != null ? date(lastModified) : -1;
+        if (modified > 0 && modified < responseDate) {
+            return Math.min((responseDate - modified) / HEURISTIC_FRESHNESS_DIVISOR,
+                    TimeUnit.SECONDS.toMillis(maxHeuristicFreshnessSeconds));
+        }
+        return 0;
+    }
+
+    /**
+     * Returns Cache-Control header value in lower case.
+     *
+     * @param headers response headers
+     * @return header value or null
+     */
+    private static String cacheControl(HttpHeaders headers) {
+        return StringUtils.lowerCase(StringUtils.join(headers.get(HttpHeaders.CACHE_CONTROL), ','), Locale.ENGLISH);
+    }
+
+    /**
+     * Checks whether Cache-Control header contains directive.
+     *
+     * @param cacheControl Cache-Control header value in lower case
+     * @param name directive name
+     * @return true if directive is present
+     */
+    private static boolean directive(String cacheControl, String name) {
+        if (cacheControl == null) {
+            return false;
+        }
+        for (String directive : cacheControl.split(",")) {
+            String trimmed = directive.trim();
+            if (trimmed.equals(name) || trimmed.startsWith(name + "=")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns numeric value of Cache-Control directive.
+     *
+     * @param cacheControl Cache-Control header value in lower case
+     * @param name directive name
+     * @return directive value or -1 if directive is not present or not valid
+     */
+    private static long directiveValue(String cacheControl, String name) {
+        if (cacheControl == null) {
+            return -1;
+        }
+        for (String directive : cacheControl.split(",")) {
+            String trimmed = directive.trim();
+            if (trimmed.startsWith(name + "=")) {
+                try {
+                    return Long.parseLong(StringUtils.remove(trimmed.substring(name.length() + 1), '"'));
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parses HTTP date value.
+     *
+     * @param value date in one of HTTP date formats
+     * @return date in milliseconds or -1 if value is not valid
+     */
+    private static long date(String value) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.LAST_MODIFIED, value);
+        return dateHeader(headers, HttpHeaders.LAST_MODIFIED);
+    }
+
+    /**
+     * Parses date header.
+     *
+     * @param headers response headers
+     * @param name header name
+     * @return date in milliseconds or -1 if header is not present or not valid
+     */
+    private static long dateHeader(HttpHeaders headers, String name) {
+        try {
+            return headers.getFirstDate(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+}
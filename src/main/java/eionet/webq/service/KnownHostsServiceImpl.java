@@ -36,10 +36,16 @@ public class KnownHostsServiceImpl implements KnownHostsService {
      */
     @Autowired
     private KnownHosts knownHosts;
+    /**
+     * Upstream guards configured by known hosts.
+     */
+    @Autowired
+    private UpstreamGuards upstreamGuards;
 
     @Override
     public void save(KnownHost host) {
         knownHosts.save(host);
+        upstreamGuards.knownHostsChanged();
     }
 
     @Override
@@ -55,25 +61,24 @@ public class KnownHostsServiceImpl implements KnownHostsService {
     @Override
     public void update(KnownHost host) {
         knownHosts.update(host);
+        upstreamGuards.knownHostsChanged();
     }
 
     @Override
     public void remove(int id) {
         knownHosts.remove(id);
+        upstreamGuards.knownHostsChanged();
     }
 
     @Override
     public KnownHost getKnownHost(String uri) {
-
-        KnownHost knownHost = null;
-        Collection<KnownHost> hosts = findAll();
-        for (KnownHost host : hosts) {
+        // read from storage on every call, so changes made in other application contexts or nodes apply at once
+        for (KnownHost host : knownHosts.findAll()) {
             if (uri.startsWith(host.getHostURL())) {
-                knownHost = host;
-                break;
+                return host;
             }
         }
-        return knownHost;
+        return null;
     }
 
 }
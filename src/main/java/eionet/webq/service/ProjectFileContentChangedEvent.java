@@ -0,0 +1,72 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.service;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published when project file content is replaced, so caches holding data derived from file content could be
+ * invalidated.
+ */
+public class ProjectFileContentChangedEvent extends ApplicationEvent {
+    /**
+     * Serial version UID.
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * Changed file id.
+     */
+    private final int fileId;
+    /**
+     * Changed file name.
+     */
+    private final String fileName;
+    /**
+     * Id of project where file belongs.
+     */
+    private final int projectId;
+
+    /**
+     * Creates event.
+     *
+     * @param source event source
+     * @param fileId changed file id
+     * @param fileName changed file name
+     * @param projectId id of project where file belongs
+     */
+    public ProjectFileContentChangedEvent(Object source, int fileId, String fileName, int projectId) {
+        super(source);
+        this.fileId = fileId;
+        this.fileName = fileName;
+        this.projectId = projectId;
+    }
+
+    public int getFileId() {
+        return fileId;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public int getProjectId() {
+        return projectId;
+    }
+}
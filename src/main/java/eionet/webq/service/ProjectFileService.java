@@ -23,6 +23,7 @@ package eionet.webq.service;
 import eionet.webq.dao.orm.ProjectEntry;
 import eionet.webq.dao.orm.ProjectFile;
 import eionet.webq.dao.orm.ProjectFileType;
+import eionet.webq.dto.RemoteFileContent;
 import eionet.webq.service.impl.project.export.ImportProjectResult;
 import java.io.IOException;
 import org.springframework.util.MultiValueMap;
@@ -50,6 +51,16 @@ public interface ProjectFileService {
      */
     void updateContent(int id, byte[] content, ProjectEntry project);
 
+    /**
+     * Updates file content with content fetched from remote location and remembers remote validators,
+     * so later update checks can use conditional requests.
+     *
+     * @param id file id in storage
+     * @param remoteContent content fetched from remote location
+     * @param project project this file belongs
+     */
+    void updateContent(int id, RemoteFileContent remoteContent, ProjectEntry project);
+
     /**
      * Retrieve file data by id in storage without file content.
      * To get content consider usage of {@link ProjectFileService#fileContentBy(String, ProjectEntry)}
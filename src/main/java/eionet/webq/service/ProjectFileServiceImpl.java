@@ -26,6 +26,7 @@ import eionet.webq.dao.orm.ProjectEntry;
 import eionet.webq.dao.orm.ProjectFile;
 import eionet.webq.dao.orm.ProjectFileType;
 import eionet.webq.dao.orm.util.WebQFileInfo;
+import eionet.webq.dto.RemoteFileContent;
 import eionet.webq.service.impl.project.export.ArchiveConstants;
 import eionet.webq.service.impl.project.export.ArchiveFile;
 import eionet.webq.service.impl.project.export.ArchiveReadAdapter;
@@ -41,6 +42,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.LinkedMultiValueMap;
@@ -66,11 +68,22 @@ public class ProjectFileServiceImpl implements ProjectFileService {
 
     @Autowired
     ProjectMetadataSerializer projectMedatadataSerializer;
+    /**
+     * Publishes file content change events.
+     */
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
     
     @Override
     public void saveOrUpdate(ProjectFile file, ProjectEntry project) {
+        if (!WebQFileInfo.fileIsEmpty(file.getFile())) {
+            file.setContentHash(WebQFileInfo.contentHash(file.getFileContent()));
+        }
         if (!WebQFileInfo.isNew(file)) {
             projectFileStorage.update(file, project);
+            if (!WebQFileInfo.fileIsEmpty(file.getFile())) {
+                publishContentChanged(file);
+            }
             return;
         }
         if (file.getFileType() == null) {
@@ -113,7 +126,22 @@ public class ProjectFileServiceImpl implements ProjectFileService {
     public void updateContent(int id, byte[] content, ProjectEntry project) {
         ProjectFile file = projectFileStorage.findById(id);
         file.setFileContent(content);
+        file.setContentHash(WebQFileInfo.contentHash(content));
+        file.setRemoteEtag(null);
+        file.setRemoteLastModified(null);
         projectFileStorage.update(file, project);
+        publishContentChanged(file);
+    }
+
+    @Override
+    public void updateContent(int id, RemoteFileContent remoteContent, ProjectEntry project) {
+        ProjectFile file = projectFileStorage.findById(id);
+        file.setFileContent(remoteContent.getContent());
+        file.setContentHash(remoteContent.getContentHash());
+        file.setRemoteEtag(remoteContent.getEtag());
+        file.setRemoteLastModified(remoteContent.getLastModified());
+        projectFileStorage.update(file, project);
+        publishContentChanged(file);
     }
 
     @Transactional
@@ -168,6 +196,7 @@ public class ProjectFileServiceImpl implements ProjectFileService {
         
         for (ProjectFile projectFile : projectFiles) {
             projectFile.setUserName(userName);
+            projectFile.setContentHash(WebQFileInfo.contentHash(projectFile.getFileContent()));
         }
         
         this.projectFileStorage.cleanInsert(project, projectFiles);
@@ -237,6 +266,16 @@ public class ProjectFileServiceImpl implements ProjectFileService {
         return null;
     }
     
+    /**
+     * Notifies listeners that file content was replaced.
+     *
+     * @param file changed file
+     */
+    private void publishContentChanged(ProjectFile file) {
+        eventPublisher.publishEvent(new ProjectFileContentChangedEvent(this, file.getId(), file.getFileName(),
+                file.getProjectId()));
+    }
+
     /**
      * Try to extract xml schema from file content if required.
      *
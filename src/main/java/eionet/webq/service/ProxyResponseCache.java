@@ -0,0 +1,232 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestOperations;
+
+import javax.annotation.PostConstruct;
+import java.net.URI;
+
+/**
+ * Shared cache for anonymous proxied GET requests. Follows HTTP caching rules of upstream responses, see
+ * {@link HttpCachingPolicy}, and stale responses are revalidated with conditional requests using ETag and Last-Modified.
+ * Only requests made without user credentials may go through this cache.
+ */
+@Component
+public class ProxyResponseCache {
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(ProxyResponseCache.class);
+    /**
+     * Approximate memory overhead of one cache entry.
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 512;
+    /**
+     * Template for proxy requests.
+     */
+    @Autowired
+    @Qualifier("restTemplate")
+    RestOperations restTemplate;
+    /**
+     * Collapses concurrent requests for the same URI.
+     */
+    @Autowired
+    SingleFlight singleFlight;
+    /**
+     * Maximum total size of cached responses. 0 disables cache.
+     */
+    @Value("${proxy.cache.max.size.mb}")
+    long maxSizeMb;
+    /**
+     * Maximum freshness lifetime estimated from Last-Modified header.
+     */
+    @Value("${proxy.cache.max.heuristic.freshness.seconds}")
+    long maxHeuristicFreshnessSeconds;
+    /**
+     * Cached responses by URI.
+     */
+    private Cache<URI, CachedResponse> responses;
+
+    /**
+     * Creates cache.
+     */
+    @PostConstruct
+    public void init() {
+        responses = CacheBuilder.newBuilder().maximumWeight(Math.max(maxSizeMb, 0) * FileUtils.ONE_MB)
+                .weigher(new Weigher<URI, CachedResponse>() {
+                    @Override
+                    public int weigh(URI key, CachedResponse value) {
+                        return value.body.length() * 2 + ENTRY_OVERHEAD_BYTES;
+                    }
+                }).build();
+    }
+
+    /**
+     * Performs anonymous GET request, using cached response if it is fresh or still valid.
+     * Concurrent requests for the same URI are sent to upstream once.
+     *
+     * @param uri request URI
+     * @return response body
+     */
+    public String get(final URI uri) {
+        if (maxSizeMb > 0) {
+            CachedResponse cached = responses.getIfPresent(uri);
+            if (cached != null && cached.isFresh(System.currentTimeMillis())) {
+                return cached.body;
+            }
+        }
+        return singleFlight.execute("proxy:" + uri, new SingleFlight.Call<String, RuntimeException>() {
+            @Override
+            public String call() {
+                return fetch(uri);
+            }
+        }, RuntimeException.class);
+    }
+
+    /**
+     * Fetches response from upstream, revalidating cached response if it is available.
+     *
+     * @param uri request URI
+     * @return response body
+     */
+    private String fetch(URI uri) {
+        if (maxSizeMb <= 0) {
+            return restTemplate.getForObject(uri, String.class);
+        }
+        CachedResponse cached = responses.getIfPresent(uri);
+        long now = System.currentTimeMillis();
+        if (cached != null && cached.isFresh(now)) {
+            return cached.body;
+        }
+        HttpHeaders requestHeaders = new HttpHeaders();
+        if (cached != null) {
+            if (cached.etag != null) {
+                requestHeaders.set(HttpHeaders.IF_NONE_MATCH, cached.etag);
+            }
+            if (cached.lastModified != null) {
+                requestHeaders.set(HttpHeaders.IF_MODIFIED_SINCE, cached.lastModified);
+            }
+        }
+        ResponseEntity<String> response =
+                restTemplate.exchange(uri, HttpMethod.GET, new HttpEntity<Object>(requestHeaders), String.class);
+        if (response.getStatusCode() == HttpStatus.NOT_MODIFIED && cached != null) {
+            LOGGER.debug("Proxy cache revalidated " + uri);
+            store(uri, cached.body, response.getHeaders(), cached, now);
+            return cached.body;
+        }
+        if (response.getStatusCode() == HttpStatus.OK) {
+            store(uri, response.getBody(), response.getHeaders(), null, now);
+        } else {
+            responses.invalidate(uri);
+        }
+        return response.getBody();
+    }
+
+    /**
+     * Removes all cached responses.
+     */
+    public void clear() {
+        responses.invalidateAll();
+    }
+
+    /**
+     * Stores response if it is allowed by response headers.
+     *
+     * @param uri request URI
+     * @param body response body
+     * @param headers response headers
+     * @param revalidated previously cached response, if response is revalidation result
+     * @param now response time
+     */
+    private void store(URI uri, String body, HttpHeaders headers, CachedResponse revalidated, long now) {
+        if (body == null || !HttpCachingPolicy.isStorable(headers)) {
+            responses.invalidate(uri);
+            return;
+        }
+        String etag = headers.getETag();
+        String lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+        if (revalidated != null) {
+            etag = StringUtils.defaultIfEmpty(etag, revalidated.etag);
+            lastModified = StringUtils.defaultIfEmpty(lastModified, revalidated.lastModified);
+        }
+        long freshUntil =
+                now + HttpCachingPolicy.freshnessLifetime(headers, lastModified, now, maxHeuristicFreshnessSeconds);
+        if (freshUntil <= now && etag == null && lastModified == null) {
+            responses.invalidate(uri);
+            return;
+        }
+        responses.put(uri, new CachedResponse(body, etag, lastModified, freshUntil));
+    }
+
+    /**
+     * Cached response with validators.
+     */
+    private static final class CachedResponse {
+        /** Response body. */
+        private final String body;
+        /** ETag header value. */
+        private final String etag;
+        /** Last-Modified header value. */
+        private final String lastModified;
+        /** Time until response may be used without revalidation. */
+        private final long freshUntil;
+
+        /**
+         * Creates cached response.
+         *
+         * @param body response body
+         * @param etag ETag header value
+         * @param lastModified Last-Modified header value
+         * @param freshUntil time until response is fresh
+         */
+        CachedResponse(String body, String etag, String lastModified, long freshUntil) {
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.freshUntil = freshUntil;
+        }
+
+        /**
+         * Whether response may be used without revalidation.
+         *
+         * @param now current time
+         * @return true if response is fresh
+         */
+        boolean isFresh(long now) {
+            return now < freshUntil;
+        }
+    }
+}
@@ -20,6 +20,8 @@
  */
 package eionet.webq.service;
 
+import eionet.webq.dto.RemoteFileContent;
+
 /**
  * Remote files service through {@link java.net.URL}.
  */
@@ -43,4 +45,18 @@ public interface RemoteFileService {
      */
     boolean isChecksumMatches(byte[] localFile, String remoteFileUrl) throws FileNotAvailableException;
 
+    /**
+     * Fetches file content using conditional GET request. If validators are provided they are sent as
+     * If-None-Match and If-Modified-Since headers, so unchanged remote file costs HTTP 304 response without body.
+     * Files from local file system ("file://") are always fetched.
+     *
+     * @param remoteFileUrl url
+     * @param etag ETag from previous fetch, may be null
+     * @param lastModified Last-Modified from previous fetch, may be null
+     * @return fetch result
+     * @throws FileNotAvailableException if response is not OK or Not Modified
+     */
+    RemoteFileContent fetchIfModified(String remoteFileUrl, String etag, String lastModified)
+            throws FileNotAvailableException;
+
 }
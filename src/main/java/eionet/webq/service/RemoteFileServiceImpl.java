@@ -20,9 +20,16 @@
  */
 package eionet.webq.service;
 
+import eionet.webq.dao.orm.util.WebQFileInfo;
+import eionet.webq.dto.RemoteFileContent;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClientException;
@@ -79,6 +86,49 @@ public class RemoteFileServiceImpl implements RemoteFileService {
         return crc32Checksum(localFile) == crc32Checksum(remoteFile);
     }
 
+    @Override
+    public RemoteFileContent fetchIfModified(String remoteFileUrl, String etag, String lastModified)
+            throws FileNotAvailableException {
+        if (remoteFileUrl == null || remoteFileUrl.startsWith("file://")) {
+            byte[] content = fileContent(remoteFileUrl);
+            return RemoteFileContent.modified(content, WebQFileInfo.contentHash(content), null, null);
+        }
+        HttpHeaders headers = new HttpHeaders();
+        if (StringUtils.isNotEmpty(etag)) {
+            headers.set(HttpHeaders.IF_NONE_MATCH, etag);
+        }
+        if (StringUtils.isNotEmpty(lastModified)) {
+            headers.set(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+        }
+        ResponseEntity<byte[]> download = null;
+        try {
+            URI uri = new URI(remoteFileUrl);
+            if (headers.isEmpty()) {
+                download = downloader.getForEntity(uri, byte[].class);
+            } else {
+                download = downloader.exchange(uri, HttpMethod.GET, new HttpEntity<Void>(headers), byte[].class);
+            }
+        } catch (RestClientException e) {
+            LOGGER.error("Unable to download remote file.", e);
+        } catch (URISyntaxException e) {
+            LOGGER.error("Remote file URI is invalid: " + remoteFileUrl, e);
+        }
+        if (download == null) {
+            throw new FileNotAvailableException("No response received for " + remoteFileUrl);
+        }
+        String responseEtag = download.getHeaders().getFirst(HttpHeaders.ETAG);
+        String responseLastModified = download.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED);
+        if (download.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+            return RemoteFileContent.notModified(StringUtils.defaultIfEmpty(responseEtag, etag),
+                    StringUtils.defaultIfEmpty(responseLastModified, lastModified));
+        }
+        if (!download.hasBody()) {
+            throw new FileNotAvailableException("Response is not OK or body not attached for " + remoteFileUrl);
+        }
+        byte[] content = download.getBody();
+        return RemoteFileContent.modified(content, WebQFileInfo.contentHash(content), responseEtag, responseLastModified);
+    }
+
     /**
      * Calculates crc32 checksum.
      *
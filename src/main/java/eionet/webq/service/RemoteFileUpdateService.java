@@ -0,0 +1,56 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.service;
+
+import eionet.webq.dao.orm.ProjectEntry;
+import eionet.webq.dao.orm.ProjectFile;
+import eionet.webq.dto.RemoteFileCheckResult;
+import eionet.webq.dto.RemoteFileSyncReport;
+
+import java.util.List;
+
+/**
+ * Checks whether project files differ from their remote locations.
+ */
+public interface RemoteFileUpdateService {
+    /**
+     * Checks whether remote file content differs from project file content.
+     *
+     * @param file project file with remote file URL
+     * @return check result
+     */
+    RemoteFileCheckResult checkForUpdates(ProjectFile file);
+
+    /**
+     * Checks all project files having remote file URL. Checks are performed concurrently.
+     *
+     * @param project project
+     * @return check results in project files order
+     */
+    List<RemoteFileCheckResult> checkAllForUpdates(ProjectEntry project);
+
+    /**
+     * Checks files of all projects having remote file URL and updates content of changed files.
+     * Remote requests are performed outside of database transaction.
+     *
+     * @return synchronization summary
+     */
+    RemoteFileSyncReport synchronizeAll();
+}
@@ -0,0 +1,501 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import eionet.webq.dao.ProjectFileStorage;
+import eionet.webq.dao.orm.ProjectEntry;
+import eionet.webq.dao.orm.ProjectFile;
+import eionet.webq.dao.orm.util.WebQFileInfo;
+import eionet.webq.dto.RemoteFileCheckResult;
+import eionet.webq.dto.RemoteFileCheckResult.Status;
+import eionet.webq.dto.RemoteFileContent;
+import eionet.webq.dto.RemoteFileSyncReport;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link eionet.webq.service.RemoteFileUpdateService} implementation.
+ * Remote files are fetched with conditional requests using validators stored with project file, so unchanged
+ * files do not need to be downloaded. If remote server does not support validators, fetched content hash is
+ * compared to stored content hash. Number of concurrent requests to the same host is limited.
+ */
+@Service
+public class RemoteFileUpdateServiceImpl implements RemoteFileUpdateService {
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(RemoteFileUpdateServiceImpl.class);
+    /**
+     * Remote files access.
+     */
+    @Autowired
+    RemoteFileService remoteFileService;
+    /**
+     * Project files storage.
+     */
+    @Autowired
+    ProjectFileStorage projectFileStorage;
+    /**
+     * Project files service, used for content updates.
+     */
+    @Autowired
+    ProjectFileService projectFileService;
+    /**
+     * Projects service.
+     */
+    @Autowired
+    ProjectService projectService;
+    /**
+     * Transaction manager for synchronization, which must not keep transaction open during remote requests.
+     */
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    /**
+     * Maximum number of concurrent remote file checks.
+     */
+    @Value("${remote.file.check.pool.size}")
+    int poolSize;
+    /**
+     * Maximum number of concurrent remote file checks for one host.
+     */
+    @Value("${remote.file.check.max.per.host}")
+    int maxRequestsPerHost;
+    /**
+     * Maximum time for checking all files.
+     */
+    @Value("${remote.file.check.timeout.seconds}")
+    long timeoutSeconds;
+    /**
+     * Executes remote file checks.
+     */
+    private ExecutorService executor;
+    /**
+     * Concurrent requests permits by host.
+     */
+    private final ConcurrentMap<String, Semaphore> hostPermits = new ConcurrentHashMap<String, Semaphore>();
+
+    /**
+     * Creates bounded pool for remote file checks.
+     */
+    @PostConstruct
+    public void init() {
+        executor = Executors.newFixedThreadPool(poolSize,
+                new ThreadFactoryBuilder().setNameFormat("remote-file-check-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Stops remote file checks.
+     */
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public RemoteFileCheckResult checkForUpdates(ProjectFile file) {
+        final CheckOutcome outcome = new RemoteFileCheck(file).call();
+        new TransactionTemplate(transactionManager).execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                resolveContentHash(outcome);
+                storeValidators(outcome);
+            }
+        });
+        return outcome.result;
+    }
+
+    @Override
+    public List<RemoteFileCheckResult> checkAllForUpdates(final ProjectEntry project) {
+        TransactionTemplate readTemplate = new TransactionTemplate(transactionManager);
+        readTemplate.setReadOnly(true);
+        List<RemoteFileCheck> checks = readTemplate.execute(new TransactionCallback<List<RemoteFileCheck>>() {
+            @Override
+            public List<RemoteFileCheck> doInTransaction(TransactionStatus status) {
+                List<RemoteFileCheck> checks = new ArrayList<RemoteFileCheck>();
+                for (ProjectFile file : projectFileStorage.findAllFilesFor(project)) {
+                    if (StringUtils.isNotEmpty(file.getRemoteFileUrl())) {
+                        checks.add(new RemoteFileCheck(file));
+                    }
+                }
+                return checks;
+            }
+        });
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<RemoteFileCheckResult> results = new ArrayList<RemoteFileCheckResult>();
+        for (final CheckOutcome outcome : runChecks(checks)) {
+            try {
+                transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+                    @Override
+                    protected void doInTransactionWithoutResult(TransactionStatus status) {
+                        resolveContentHash(outcome);
+                        storeValidators(outcome);
+                    }
+                });
+            } catch (RuntimeException e) {
+                LOGGER.error("Unable to store remote file check result for " + outcome.result.getRemoteFileUrl(), e);
+            }
+            results.add(outcome.result);
+        }
+        return results;
+    }
+
+    @Override
+    public RemoteFileSyncReport synchronizeAll() {
+        long start = System.currentTimeMillis();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<RemoteFileCheck> checks = transactionTemplate.execute(new TransactionCallback<List<RemoteFileCheck>>() {
+            @Override
+            public List<RemoteFileCheck> doInTransaction(TransactionStatus status) {
+                List<RemoteFileCheck> checks = new ArrayList<RemoteFileCheck>();
+                for (ProjectFile file : projectFileStorage.findAllWithRemoteFileUrl()) {
+                    checks.add(new RemoteFileCheck(file));
+                }
+                return checks;
+            }
+        });
+        final RemoteFileSyncReport report = new RemoteFileSyncReport();
+        for (final CheckOutcome outcome : runChecks(checks)) {
+            report.fileChecked();
+            try {
+                transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+                    @Override
+                    protected void doInTransactionWithoutResult(TransactionStatus status) {
+                        applyOutcome(outcome, report);
+                    }
+                });
+            } catch (RuntimeException e) {
+                LOGGER.error("Unable to synchronize remote file " + outcome.result.getRemoteFileUrl(), e);
+                report.fileFailed();
+            }
+        }
+        report.setDurationMillis(System.currentTimeMillis() - start);
+        return report;
+    }
+
+    /**
+     * Stores check outcome and updates file content if remote file changed.
+     *
+     * @param outcome check outcome
+     * @param report report to be updated
+     */
+    private void applyOutcome(CheckOutcome outcome, RemoteFileSyncReport report) {
+        resolveContentHash(outcome);
+        switch (outcome.result.getStatus()) {
+            case UPDATE_AVAILABLE:
+                ProjectEntry project = projectService.getById(outcome.projectId);
+                projectFileService.updateContent(outcome.result.getFileId(), outcome.remoteContent, project);
+                LOGGER.info("Project file " + outcome.result.getFileName() + " updated from "
+                        + outcome.result.getRemoteFileUrl());
+                report.fileUpdated();
+                break;
+            case UP_TO_DATE:
+                storeValidators(outcome);
+                if (outcome.notModified) {
+                    report.fileNotModified();
+                } else {
+                    report.fileUnchanged();
+                }
+                break;
+            default:
+                report.fileFailed();
+        }
+    }
+
+    /**
+     * Runs checks concurrently and waits for results.
+     *
+     * @param checks checks to run
+     * @return check outcomes in checks order
+     */
+    private List<CheckOutcome> runChecks(List<RemoteFileCheck> checks) {
+        List<CheckOutcome> outcomes = new ArrayList<CheckOutcome>();
+        if (checks.isEmpty()) {
+            return outcomes;
+        }
+        List<Future<CheckOutcome>> futures;
+        try {
+            futures = executor.invokeAll(checks, timeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Remote files check interrupted");
+            for (RemoteFileCheck check : checks) {
+                outcomes.add(check.outcomeOf(Status.NOT_AVAILABLE));
+            }
+            return outcomes;
+        }
+        for (int i = 0; i < checks.size(); i++) {
+            RemoteFileCheck check = checks.get(i);
+            try {
+                outcomes.add(futures.get(i).get());
+            } catch (CancellationException e) {
+                LOGGER.warn("Remote file check timed out for " + check.remoteFileUrl);
+                outcomes.add(check.outcomeOf(Status.NOT_AVAILABLE));
+            } catch (ExecutionException e) {
+                LOGGER.error("Remote file check failed for " + check.remoteFileUrl, e.getCause());
+                outcomes.add(check.outcomeOf(Status.NOT_AVAILABLE));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                outcomes.add(check.outcomeOf(Status.NOT_AVAILABLE));
+            }
+        }
+        return outcomes;
+    }
+
+    /**
+     * Calculates content hash of file stored before content hashes were introduced and compares it to fetched
+     * remote content. Loads file content, so it must be called in a short transaction after remote check.
+     *
+     * @param outcome check outcome
+     */
+    private void resolveContentHash(CheckOutcome outcome) {
+        if (!outcome.contentHashUnknown) {
+            return;
+        }
+        ProjectFile file = projectFileStorage.findById(outcome.result.getFileId());
+        if (file == null) {
+            return;
+        }
+        outcome.contentHash = WebQFileInfo.contentHash(file.getFileContent());
+        if (outcome.remoteContent != null
+                && StringUtils.equals(outcome.contentHash, outcome.remoteContent.getContentHash())) {
+            outcome.upToDate();
+        }
+    }
+
+    /**
+     * Stores content hash and validators if check discovered new ones.
+     *
+     * @param outcome check outcome
+     */
+    private void storeValidators(CheckOutcome outcome) {
+        if (outcome.storeValidators) {
+            projectFileStorage.updateRemoteValidators(outcome.result.getFileId(), outcome.contentHash, outcome.etag,
+                    outcome.lastModified);
+        }
+    }
+
+    /**
+     * Returns concurrent requests permits for remote file host.
+     *
+     * @param remoteFileUrl remote file URL
+     * @return host permits
+     */
+    private Semaphore permitsFor(String remoteFileUrl) {
+        String host;
+        try {
+            host = StringUtils.defaultString(new URI(remoteFileUrl).getHost()).toLowerCase();
+        } catch (URISyntaxException e) {
+            host = remoteFileUrl;
+        }
+        Semaphore permits = hostPermits.get(host);
+        if (permits == null) {
+            Semaphore newPermits = new Semaphore(maxRequestsPerHost);
+            permits = hostPermits.putIfAbsent(host, newPermits);
+            if (permits == null) {
+                permits = newPermits;
+            }
+        }
+        return permits;
+    }
+
+    /**
+     * Single file check. File data required for check is copied on creation, so check could be performed
+     * outside of Hibernate session. File content is not loaded, stored content hash is used instead.
+     */
+    private final class RemoteFileCheck implements Callable<CheckOutcome> {
+        /** File id. */
+        private final int fileId;
+        /** Id of project where file belongs. */
+        private final int projectId;
+        /** File name. */
+        private final String fileName;
+        /** Remote file URL. */
+        private final String remoteFileUrl;
+        /** Stored ETag. */
+        private final String etag;
+        /** Stored Last-Modified. */
+        private final String lastModified;
+        /** Stored content hash, null if file was stored before content hashes were introduced. */
+        private final String contentHash;
+
+        /**
+         * Copies required file data.
+         *
+         * @param file project file
+         */
+        RemoteFileCheck(ProjectFile file) {
+            this.fileId = file.getId();
+            this.projectId = file.getProjectId();
+            this.fileName = file.getFileName();
+            this.remoteFileUrl = file.getRemoteFileUrl();
+            this.etag = file.getRemoteEtag();
+            this.lastModified = file.getRemoteLastModified();
+            this.contentHash = file.getContentHash();
+        }
+
+        @Override
+        public CheckOutcome call() {
+            Semaphore permits = permitsFor(remoteFileUrl);
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return outcomeOf(Status.NOT_AVAILABLE);
+            }
+            try {
+                return check();
+            } finally {
+                permits.release();
+            }
+        }
+
+        /**
+         * Fetches remote file and compares it to local one.
+         *
+         * @return check outcome
+         */
+        private CheckOutcome check() {
+            RemoteFileContent remote;
+            try {
+                remote = remoteFileService.fetchIfModified(remoteFileUrl, etag, lastModified);
+            } catch (FileNotAvailableException e) {
+                return outcomeOf(Status.NOT_AVAILABLE);
+            }
+            boolean contentHashUnknown = contentHash == null;
+            if (remote.isNotModified()) {
+                CheckOutcome outcome = outcomeOf(Status.UP_TO_DATE);
+                outcome.notModified = true;
+                outcome.contentHashUnknown = contentHashUnknown;
+                if (contentHashUnknown || !StringUtils.equals(etag, remote.getEtag())
+                        || !StringUtils.equals(lastModified, remote.getLastModified())) {
+                    outcome.withValidators(contentHash, remote.getEtag(), remote.getLastModified());
+                }
+                return outcome;
+            }
+            if (!contentHashUnknown && StringUtils.equals(contentHash, remote.getContentHash())) {
+                return outcomeOf(Status.UP_TO_DATE).withValidators(contentHash, remote.getEtag(), remote.getLastModified());
+            }
+            CheckOutcome outcome = outcomeOf(Status.UPDATE_AVAILABLE);
+            outcome.remoteContent = remote;
+            outcome.contentHashUnknown = contentHashUnknown;
+            if (contentHashUnknown) {
+                outcome.withValidators(null, etag, lastModified);
+            }
+            return outcome;
+        }
+
+        /**
+         * Creates check outcome for this file.
+         *
+         * @param status check status
+         * @return check outcome
+         */
+        CheckOutcome outcomeOf(Status status) {
+            return new CheckOutcome(new RemoteFileCheckResult(fileId, fileName, remoteFileUrl, status), projectId);
+        }
+    }
+
+    /**
+     * Check result with validators to be stored.
+     */
+    private static final class CheckOutcome {
+        /** Check result. */
+        private RemoteFileCheckResult result;
+        /** Id of project where file belongs. */
+        private final int projectId;
+        /** Whether remote server responded with HTTP 304. */
+        private boolean notModified;
+        /** Fetched remote content if it differs from local one. */
+        private RemoteFileContent remoteContent;
+        /** Whether local content hash is not stored and must be calculated before outcome is applied. */
+        private boolean contentHashUnknown;
+        /** Whether validators must be stored. */
+        private boolean storeValidators;
+        /** Content hash to store. */
+        private String contentHash;
+        /** ETag to store. */
+        private String etag;
+        /** Last-Modified to store. */
+        private String lastModified;
+
+        /**
+         * Creates outcome without validators to store.
+         *
+         * @param result check result
+         * @param projectId id of project where file belongs
+         */
+        CheckOutcome(RemoteFileCheckResult result, int projectId) {
+            this.result = result;
+            this.projectId = projectId;
+        }
+
+        /**
+         * Marks validators to be stored.
+         *
+         * @param contentHash content hash
+         * @param etag ETag
+         * @param lastModified Last-Modified
+         * @return this outcome
+         */
+        CheckOutcome withValidators(String contentHash, String etag, String lastModified) {
+            this.storeValidators = true;
+            this.contentHash = contentHash;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            return this;
+        }
+
+        /**
+         * Marks file up to date, because fetched remote content matches local one.
+         */
+        void upToDate() {
+            this.result = new RemoteFileCheckResult(result.getFileId(), result.getFileName(), result.getRemoteFileUrl(),
+                    Status.UP_TO_DATE);
+            withValidators(contentHash, remoteContent.getEtag(), remoteContent.getLastModified());
+            this.remoteContent = null;
+        }
+    }
+}
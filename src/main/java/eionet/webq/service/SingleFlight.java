@@ -0,0 +1,166 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.service;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collapses concurrent identical requests into one call. The first caller performs the call, callers arriving with
+ * the same key while the call is in flight wait for its result. Failure of the call is propagated to all waiting
+ * callers. Results are not kept after the call completes.
+ */
+@Component
+public class SingleFlight {
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(SingleFlight.class);
+    /**
+     * Maximum time to wait for result of in-flight call.
+     */
+    @Value("${single.flight.timeout.seconds}")
+    long timeoutSeconds;
+    /**
+     * Calls in flight by key.
+     */
+    private final ConcurrentMap<String, FutureTask<Object>> inFlight = new ConcurrentHashMap<String, FutureTask<Object>>();
+    /**
+     * Number of performed calls.
+     */
+    private final AtomicLong executedCalls = new AtomicLong();
+    /**
+     * Number of calls served by result of another in-flight call.
+     */
+    private final AtomicLong coalescedCalls = new AtomicLong();
+
+    /**
+     * Call, which may throw checked exception of specific type.
+     *
+     * @param <T> result type
+     * @param <E> exception type
+     */
+    public interface Call<T, E extends Exception> {
+        /**
+         * Performs call.
+         *
+         * @return call result
+         * @throws E on failure
+         */
+        T call() throws E;
+    }
+
+    /**
+     * Performs call or waits for result of identical call in flight.
+     *
+     * @param key key identifying call
+     * @param call call to perform
+     * @param exceptionType type of checked exception thrown by call
+     * @param <T> result type
+     * @param <E> exception type
+     * @return call result
+     * @throws E if call failed
+     * @throws SingleFlightTimeoutException if in-flight call result was not received in time
+     */
+    @SuppressWarnings("unchecked")
+    public <T, E extends Exception> T execute(String key, final Call<T, E> call, Class<E> exceptionType) throws E {
+        FutureTask<Object> task = new FutureTask<Object>(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return call.call();
+            }
+        });
+        FutureTask<Object> existing = inFlight.putIfAbsent(key, task);
+        if (existing == null) {
+            executedCalls.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                inFlight.remove(key, task);
+            }
+            return (T) resultOf(task, key, exceptionType);
+        }
+        coalescedCalls.incrementAndGet();
+        LOGGER.debug("Waiting for in-flight call " + key);
+        return (T) resultOf(existing, key, exceptionType);
+    }
+
+    /**
+     * Number of performed calls.
+     *
+     * @return performed calls
+     */
+    public long getExecutedCalls() {
+        return executedCalls.get();
+    }
+
+    /**
+     * Number of calls served by result of another in-flight call.
+     *
+     * @return coalesced calls
+     */
+    public long getCoalescedCalls() {
+        return coalescedCalls.get();
+    }
+
+    /**
+     * Waits for call result.
+     *
+     * @param task call task
+     * @param key key identifying call
+     * @param exceptionType type of checked exception thrown by call
+     * @param <E> exception type
+     * @return call result
+     * @throws E if call failed
+     */
+    private <E extends Exception> Object resultOf(FutureTask<Object> task, String key, Class<E> exceptionType) throws E {
+        try {
+            return task.get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (exceptionType.isInstance(cause)) {
+                throw exceptionType.cast(cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (TimeoutException e) {
+            throw new SingleFlightTimeoutException("Result of in-flight call " + key + " was not received in "
+                    + timeoutSeconds + " seconds");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SingleFlightTimeoutException("Interrupted while waiting for in-flight call " + key);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Indicates that result of identical in-flight request was not received in time.
+ */
+@ResponseStatus(value = HttpStatus.GATEWAY_TIMEOUT)
+public class SingleFlightTimeoutException extends RuntimeException {
+    /**
+     * Constructs SingleFlightTimeoutException.
+     *
+     * @param message message
+     */
+    public SingleFlightTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.service;
+
+import com.google.common.base.Ticker;
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Protects application from single slow or failing upstream host. Limits concurrent calls to the host (bulkhead) and
+ * rejects calls without waiting for the host after sustained failures (circuit breaker). Open breaker lets single
+ * probe call through after open period, successful probe closes the breaker.
+ */
+public class UpstreamGuard {
+    /**
+     * Circuit breaker states.
+     */
+    public enum State {
+        /**
+         * Calls are allowed.
+         */
+        CLOSED,
+        /**
+         * Calls are rejected.
+         */
+        OPEN,
+        /**
+         * Single probe call is allowed.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(UpstreamGuard.class);
+    /**
+     * Upstream name, used in messages and metrics.
+     */
+    private final String name;
+    /**
+     * Maximum concurrent calls to upstream.
+     */
+    private final int maxConcurrentCalls;
+    /**
+     * Maximum time to wait for free call slot.
+     */
+    private final long maxWaitMillis;
+    /**
+     * Consecutive failures opening the breaker.
+     */
+    private final int failureThreshold;
+    /**
+     * Time in nanoseconds breaker stays open before probe call is allowed.
+     */
+    private final long openNanos;
+    /**
+     * Time source.
+     */
+    private final Ticker ticker;
+    /**
+     * Call slots.
+     */
+    private final Semaphore permits;
+    /**
+     * Calls rejected because all call slots were taken.
+     */
+    private final AtomicLong rejectedByBulkhead = new AtomicLong();
+    /**
+     * Calls rejected by open breaker.
+     */
+    private final AtomicLong rejectedByBreaker = new AtomicLong();
+    /**
+     * Successful calls.
+     */
+    private final AtomicLong successCount = new AtomicLong();
+    /**
+     * Failed calls.
+     */
+    private final AtomicLong failureCount = new AtomicLong();
+    /**
+     * Current breaker state.
+     */
+    private State state = State.CLOSED;
+    /**
+     * Failures since last success.
+     */
+    private int consecutiveFailures;
+    /**
+     * Time when breaker was opened.
+     */
+    private long openedAt;
+    /**
+     * Whether probe call is in progress in half open state.
+     */
+    private boolean probeInProgress;
+
+    /**
+     * Creates upstream guard.
+     *
+     * @param name               upstream name
+     * @param maxConcurrentCalls maximum concurrent calls
+     * @param maxWaitMillis      maximum time to wait for free call slot
+     * @param failureThreshold   consecutive failures opening the breaker
+     * @param openSeconds        time breaker stays open before probe call
+     * @param ticker             time source
+     */
+    public UpstreamGuard(String name, int maxConcurrentCalls, long maxWaitMillis, int failureThreshold, long openSeconds,
+            Ticker ticker) {
+        this.name = name;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.maxWaitMillis = maxWaitMillis;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.SECONDS.toNanos(openSeconds);
+        this.ticker = ticker;
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+    }
+
+    /**
+     * Acquires permission to call upstream. Returned permit must be released after call.
+     *
+     * @return call permit
+     * @throws UpstreamUnavailableException if breaker is open or all call slots are taken
+     */
+    public Permit acquire() {
+        boolean probe = allowCall();
+        boolean acquired = false;
+        try {
+            acquired = permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!acquired) {
+            if (probe) {
+                endProbe();
+            }
+            rejectedByBulkhead.incrementAndGet();
+            throw new UpstreamUnavailableException("Too many concurrent requests to " + name);
+        }
+        return new Permit(probe);
+    }
+
+    /**
+     * Checks breaker state and marks probe call, if breaker is half open.
+     *
+     * @return true if call is probe call
+     * @throws UpstreamUnavailableException if breaker is open
+     */
+    private synchronized boolean allowCall() {
+        if (state == State.OPEN && ticker.read() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+        }
+        if (state == State.CLOSED) {
+            return false;
+        }
+        if (state == State.HALF_OPEN && !probeInProgress) {
+            probeInProgress = true;
+            LOGGER.info("Probing upstream " + name);
+            return true;
+        }
+        rejectedByBreaker.incrementAndGet();
+        throw new UpstreamUnavailableException("Upstream " + name + " is temporarily unavailable");
+    }
+
+    /**
+     * Ends probe call without result.
+     */
+    private synchronized void endProbe() {
+        probeInProgress = false;
+    }
+
+    /**
+     * Records call result.
+     *
+     * @param probe   whether call was probe call
+     * @param success whether call succeeded
+     */
+    private synchronized void onResult(boolean probe, boolean success) {
+        if (success) {
+            successCount.incrementAndGet();
+            consecutiveFailures = 0;
+            if (probe) {
+                probeInProgress = false;
+                state = State.CLOSED;
+                LOGGER.info("Upstream " + name + " is available again, circuit breaker closed");
+            }
+            return;
+        }
+        failureCount.incrementAndGet();
+        consecutiveFailures++;
+        if (probe || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            probeInProgress = false;
+            state = State.OPEN;
+            openedAt = ticker.read();
+            LOGGER.warn("Circuit breaker opened for upstream " + name + " after " + consecutiveFailures
+                    + " consecutive failures");
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Current breaker state. Open breaker, which open period has passed, is reported as half open.
+     *
+     * @return breaker state
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && ticker.read() - openedAt >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public long getOpenSeconds() {
+        return TimeUnit.NANOSECONDS.toSeconds(openNanos);
+    }
+
+    /**
+     * Number of calls in progress.
+     *
+     * @return active calls count
+     */
+    public int getActiveCalls() {
+        return maxConcurrentCalls - permits.availablePermits();
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public long getRejectedByBulkhead() {
+        return rejectedByBulkhead.get();
+    }
+
+    public long getRejectedByBreaker() {
+        return rejectedByBreaker.get();
+    }
+
+    public long getSuccessCount() {
+        return successCount.get();
+    }
+
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    /**
+     * Permission to call upstream. Released once, further releases are ignored.
+     */
+    public final class Permit {
+        /**
+         * Whether call is probe call.
+         */
+        private final boolean probe;
+        /**
+         * Whether permit was released.
+         */
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        /**
+         * Creates permit.
+         *
+         * @param probe whether call is probe call
+         */
+        private Permit(boolean probe) {
+            this.probe = probe;
+        }
+
+        /**
+         * Releases call slot and records call result.
+         *
+         * @param success whether upstream responded successfully
+         */
+        public void release(boolean success) {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+                onResult(probe, success);
+            }
+        }
+    }
+}
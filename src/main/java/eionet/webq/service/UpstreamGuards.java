@@ -0,0 +1,245 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.service;
+
+import com.google.common.base.Ticker;
+import eionet.webq.dao.KnownHosts;
+import eionet.webq.dao.orm.KnownHost;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps {@link UpstreamGuard} for every upstream host called by application. Guard limits are taken from matching
+ * {@link KnownHost}, defaults are used for other hosts and for limits not set in known host. Known hosts are reloaded
+ * periodically, because they can be changed by other application contexts and nodes, and guards are recreated when
+ * their limits change.
+ */
+@Component
+public class UpstreamGuards {
+    /**
+     * Time known hosts snapshot is used before it is reloaded.
+     */
+    static final long KNOWN_HOSTS_RELOAD_NANOS = TimeUnit.MINUTES.toNanos(1);
+    /**
+     * Known hosts storage.
+     */
+    @Autowired
+    KnownHosts knownHosts;
+    /**
+     * Default maximum concurrent calls to single upstream.
+     */
+    @Value("${upstream.max.concurrent.calls}")
+    int maxConcurrentCalls;
+    /**
+     * Maximum time to wait for free call slot.
+     */
+    @Value("${upstream.max.wait.millis}")
+    long maxWaitMillis;
+    /**
+     * Default consecutive failures opening the breaker.
+     */
+    @Value("${upstream.breaker.failure.threshold}")
+    int failureThreshold;
+    /**
+     * Default time breaker stays open before probe call.
+     */
+    @Value("${upstream.breaker.open.seconds}")
+    int openSeconds;
+    /**
+     * Time source.
+     */
+    Ticker ticker = Ticker.systemTicker();
+    /**
+     * Guards by upstream key.
+     */
+    private final ConcurrentMap<String, UpstreamGuard> guards = new ConcurrentHashMap<String, UpstreamGuard>();
+    /**
+     * Known hosts snapshot, loaded on first use.
+     */
+    private volatile List<KnownHost> hosts;
+    /**
+     * Time when known hosts snapshot was loaded.
+     */
+    private volatile long hostsLoadedAt;
+
+    /**
+     * Returns guard for host of given URL.
+     *
+     * @param url upstream URL
+     * @return guard or null if URL is not valid or has no host
+     */
+    public UpstreamGuard guardFor(String url) {
+        if (StringUtils.isEmpty(url)) {
+            return null;
+        }
+        try {
+            return guardFor(new URI(url));
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns guard for host of given URI.
+     *
+     * @param uri upstream URI
+     * @return guard or null if URI has no host
+     */
+    public UpstreamGuard guardFor(URI uri) {
+        if (!uri.isAbsolute() || StringUtils.isEmpty(uri.getHost())) {
+            return null;
+        }
+        KnownHost knownHost = findKnownHost(uri.toString());
+        String key = knownHost != null ? knownHost.getHostURL()
+                : uri.getScheme().toLowerCase() + "://" + uri.getRawAuthority().toLowerCase();
+        UpstreamGuard guard = guards.get(key);
+        if (guard == null) {
+            guard = createGuard(key, knownHost);
+            UpstreamGuard existing = guards.putIfAbsent(key, guard);
+            if (existing != null) {
+                guard = existing;
+            }
+        } else if (!hasLimits(guard, knownHost)) {
+            guard = createGuard(key, knownHost);
+            guards.put(key, guard);
+        }
+        return guard;
+    }
+
+    /**
+     * All guards created so far.
+     *
+     * @return guards
+     */
+    public Collection<UpstreamGuard> getGuards() {
+        return Collections.unmodifiableCollection(guards.values());
+    }
+
+    /**
+     * Discards guards and known hosts snapshot, so changed known host limits are applied.
+     */
+    public void knownHostsChanged() {
+        hosts = null;
+        guards.clear();
+    }
+
+    /**
+     * Creates guard with known host limits or defaults.
+     *
+     * @param key       upstream key
+     * @param knownHost matching known host or null
+     * @return guard
+     */
+    private UpstreamGuard createGuard(String key, KnownHost knownHost) {
+        return new UpstreamGuard(key, concurrentCallsOf(knownHost), maxWaitMillis, failureThresholdOf(knownHost),
+                openSecondsOf(knownHost), ticker);
+    }
+
+    /**
+     * Checks whether guard has limits of known host.
+     *
+     * @param guard     guard
+     * @param knownHost matching known host or null
+     * @return true if limits are the same
+     */
+    private boolean hasLimits(UpstreamGuard guard, KnownHost knownHost) {
+        return guard.getMaxConcurrentCalls() == concurrentCallsOf(knownHost)
+                && guard.getFailureThreshold() == failureThresholdOf(knownHost)
+                && guard.getOpenSeconds() == openSecondsOf(knownHost);
+    }
+
+    /**
+     * Maximum concurrent calls of known host or default.
+     *
+     * @param knownHost known host or null
+     * @return maximum concurrent calls
+     */
+    private int concurrentCallsOf(KnownHost knownHost) {
+        return knownHost != null ? valueOrDefault(knownHost.getMaxConcurrentCalls(), maxConcurrentCalls)
+                : maxConcurrentCalls;
+    }
+
+    /**
+     * Breaker failure threshold of known host or default.
+     *
+     * @param knownHost known host or null
+     * @return failure threshold
+     */
+    private int failureThresholdOf(KnownHost knownHost) {
+        return knownHost != null ? valueOrDefault(knownHost.getBreakerFailureThreshold(), failureThreshold)
+                : failureThreshold;
+    }
+
+    /**
+     * Breaker open time of known host or default.
+     *
+     * @param knownHost known host or null
+     * @return open time in seconds
+     */
+    private int openSecondsOf(KnownHost knownHost) {
+        return knownHost != null ? valueOrDefault(knownHost.getBreakerOpenSeconds(), openSeconds) : openSeconds;
+    }
+
+    /**
+     * Finds known host, which URL is prefix of given URL. Known hosts are read from snapshot, which is reloaded after
+     * {@link #knownHostsChanged()} and after {@link #KNOWN_HOSTS_RELOAD_NANOS}.
+     *
+     * @param url upstream URL
+     * @return known host or null
+     */
+    KnownHost findKnownHost(String url) {
+        List<KnownHost> snapshot = hosts;
+        long now = ticker.read();
+        if (snapshot == null || now - hostsLoadedAt >= KNOWN_HOSTS_RELOAD_NANOS) {
+            snapshot = new ArrayList<KnownHost>(knownHosts.findAll());
+            hostsLoadedAt = now;
+            hosts = snapshot;
+        }
+        for (KnownHost host : snapshot) {
+            if (url.startsWith(host.getHostURL())) {
+                return host;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns value if it is set and positive.
+     *
+     * @param value        configured value
+     * @param defaultValue default value
+     * @return value or default value
+     */
+    private int valueOrDefault(Integer value, int defaultValue) {
+        return value != null && value > 0 ? value : defaultValue;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import eionet.webq.dao.UserFileStorage;
+import eionet.webq.dto.UserFileAuthInfo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of user file CDR authorisation fields by file id. XForms engine reads them for every external resource
+ * request of a form. Entries are invalidated when file is updated or removed through {@link UserFileService}.
+ */
+@Component
+public class UserFileAuthCache {
+    /**
+     * User files storage.
+     */
+    @Autowired
+    UserFileStorage storage;
+    /**
+     * Maximum number of cached files. 0 disables cache.
+     */
+    @Value("${user.file.auth.cache.max.size}")
+    long maxSize;
+    /**
+     * Time to keep auth info, limits staleness for files changed outside of this application instance.
+     */
+    @Value("${user.file.auth.cache.ttl.seconds}")
+    long ttlSeconds;
+    /**
+     * Auth info by file id.
+     */
+    private Cache<Integer, UserFileAuthInfo> cache;
+
+    /**
+     * Creates cache.
+     */
+    @PostConstruct
+    public void init() {
+        cache = CacheBuilder.newBuilder().maximumSize(Math.max(maxSize, 0)).expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Returns auth info of file owned by user. Cached info is used only if it belongs to the same user.
+     *
+     * @param fileId file id
+     * @param userId user id
+     * @return auth info or null if file not found for user
+     */
+    public UserFileAuthInfo get(int fileId, String userId) {
+        UserFileAuthInfo authInfo = cache.getIfPresent(fileId);
+        if (authInfo != null && authInfo.getUserId().equals(userId)) {
+            return authInfo;
+        }
+        authInfo = storage.findAuthInfo(fileId, userId);
+        if (authInfo != null) {
+            cache.put(fileId, authInfo);
+        }
+        return authInfo;
+    }
+
+    /**
+     * Discards cached auth info of files.
+     *
+     * @param fileIds file ids
+     */
+    public void invalidate(int... fileIds) {
+        for (int fileId : fileIds) {
+            cache.invalidate(fileId);
+        }
+    }
+}
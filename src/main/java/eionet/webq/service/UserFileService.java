@@ -22,6 +22,7 @@ package eionet.webq.service;
 
 import eionet.webq.dao.orm.ProjectFile;
 import eionet.webq.dao.orm.UserFile;
+import eionet.webq.dto.UserFileAuthInfo;
 
 import java.util.Collection;
 
@@ -37,6 +38,13 @@ public interface UserFileService {
      */
     int save(UserFile file);
 
+    /**
+     * Save data from several uploaded files to storage in one batch.
+     *
+     * @param files uploaded files to be saved to storage, ids are set to saved files
+     */
+    void save(Collection<UserFile> files);
+
     /**
      * Save data from uploaded file to storage.
      *
@@ -66,6 +74,15 @@ public interface UserFileService {
      */
     UserFile getByIdAndUser(int id, String userId);
 
+    /**
+     * Fetches CDR authorisation fields of file by specified id for current user. File content is not loaded and result may
+     * be served from cache.
+     *
+     * @param id file id
+     * @return auth info or null if file not found for current user
+     */
+    UserFileAuthInfo getAuthInfo(int id);
+
     /**
      * Keeps track on file download by user.
      *
@@ -38,6 +38,7 @@ import eionet.webq.dao.UserFileDownload;
 import eionet.webq.dao.UserFileStorage;
 import eionet.webq.dao.orm.ProjectFile;
 import eionet.webq.dao.orm.UserFile;
+import eionet.webq.dto.UserFileAuthInfo;
 import eionet.webq.dto.UserFileIdUpdate;
 
 /**
@@ -75,6 +76,16 @@ public class UserFileServiceImpl implements UserFileService {
      */
     @Autowired
     RemoteFileService remoteFileService;
+    /**
+     * Collapses concurrent downloads of the same empty instance.
+     */
+    @Autowired
+    SingleFlight singleFlight;
+    /**
+     * Cache of file CDR authorisation fields.
+     */
+    @Autowired
+    UserFileAuthCache authCache;
 
     /**
      * Static logger for this class.
@@ -91,6 +102,18 @@ public class UserFileServiceImpl implements UserFileService {
         return storage.save(file, userId);
     }
 
+    @Override
+    public void save(Collection<UserFile> files) {
+        String userAgent = getUserAgent();
+        for (UserFile file : files) {
+            file.setUserAgent(userAgent);
+        }
+        String userId = userId();
+
+        LOGGER.info("Saving " + files.size() + " uploaded files; user id=" + userId + "; user agent=" + userAgent);
+        storage.save(files, userId);
+    }
+
     @Override
     public int saveBasedOnWebForm(UserFile file, ProjectFile webForm) throws FileNotAvailableException {
         String emptyInstanceUrl = webForm.getEmptyInstanceUrl();
@@ -99,11 +122,9 @@ public class UserFileServiceImpl implements UserFileService {
             String fn = defaultIfEmpty(webForm.getNewXmlFileName(), "new_form.xml");
             char numDelim = '_';
             char extensionDelim = '.';
-            Number userWebFormFileCount =
-                    storage.getUserWebFormFileMaxNum(userId(), webForm.getXmlSchema(), fn, numDelim, extensionDelim);
+            long fileNum = storage.nextWebFormFileNum(userId(), webForm.getXmlSchema(), fn, numDelim, extensionDelim);
 
             int lastIndexOfDot = fn.lastIndexOf(extensionDelim);
-            long fileNum = (userWebFormFileCount != null) ? userWebFormFileCount.longValue() + 1 : 1;
             if (lastIndexOfDot > 0) {
                 fn = fn.substring(0, lastIndexOfDot) + numDelim +fileNum + fn.substring(lastIndexOfDot);
             } else {
@@ -138,6 +159,11 @@ public class UserFileServiceImpl implements UserFileService {
         return userFile;
     }
 
+    @Override
+    public UserFileAuthInfo getAuthInfo(int id) {
+        return authCache.get(id, userId());
+    }
+
     @Override
     public UserFile download(int id) {
         userFileDownload.updateDownloadTime(id);
@@ -158,6 +184,7 @@ public class UserFileServiceImpl implements UserFileService {
         LOGGER.info("Updating file content id=" + file.getId() + " for user=" + userId);
         file.setUpdated(new Timestamp(System.currentTimeMillis()));
         storage.update(file, userId);
+        authCache.invalidate(file.getId());
     }
 
     @Override
@@ -165,6 +192,7 @@ public class UserFileServiceImpl implements UserFileService {
         String userId = userId();
         LOGGER.info("Updating file id=" + file.getId() + " for user=" + userId);
         storage.update(file, userId);
+        authCache.invalidate(file.getId());
     }
 
     @Override
@@ -172,6 +200,7 @@ public class UserFileServiceImpl implements UserFileService {
         String userId = userId();
         LOGGER.info("Removing files:" + Arrays.toString(fileIds) + " for user=" + userId);
         storage.remove(userId, fileIds);
+        authCache.invalidate(fileIds);
     }
 
     @Override
@@ -196,8 +225,16 @@ public class UserFileServiceImpl implements UserFileService {
      * @throws FileNotAvailableException
      *             if file not available from remote location
      */
-    private int saveWithContentFromRemoteLocation(UserFile file, String url) throws FileNotAvailableException {
-        file.setContent(remoteFileService.fileContent(url));
+    private int saveWithContentFromRemoteLocation(UserFile file, final String url) throws FileNotAvailableException {
+        byte[] content = singleFlight.execute("remote-file:" + url,
+                new SingleFlight.Call<byte[], FileNotAvailableException>() {
+                    @Override
+                    public byte[] call() throws FileNotAvailableException {
+                        return remoteFileService.fileContent(url);
+                    }
+                }, FileNotAvailableException.class);
+        // content may be shared by concurrent callers
+        file.setContent(content.clone());
         return save(file);
     }
 
@@ -0,0 +1,57 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.task;
+
+import eionet.webq.xforms.XFormsSessionGovernor;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Removes idle XForms sessions and measures size of live ones periodically.
+ */
+@Component
+public class EvictIdleXFormsSessionsTask {
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(EvictIdleXFormsSessionsTask.class);
+    /**
+     * XForms session governor.
+     */
+    @Autowired
+    XFormsSessionGovernor sessionGovernor;
+
+    /**
+     * Perform eviction and measuring task.
+     */
+    @Scheduled(fixedDelayString = "${xforms.sessions.maintenance.interval.millis}")
+    public void evictIdleSessions() {
+        long evicted = sessionGovernor.evictIdleSessions();
+        if (evicted > 0) {
+            LOGGER.info(evicted + " idle XForms sessions removed.");
+        }
+        XFormsSessionGovernor.SessionSizes sizes = sessionGovernor.measureSessionSizes();
+        LOGGER.debug("XForms sessions in memory: " + sessionGovernor.getSessionsInMemory() + ", measured: "
+                + sizes.getCount() + ", mean size: " + sizes.getMeanBytes() + " bytes, max size: " + sizes.getMaxBytes()
+                + " bytes.");
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.task;
+
+import eionet.webq.service.CdrPushQueueService;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands queued CDR pushes over to push workers periodically.
+ */
+@Component
+public class ProcessCdrPushJobsTask {
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(ProcessCdrPushJobsTask.class);
+    /**
+     * CDR push queue.
+     */
+    @Autowired
+    CdrPushQueueService cdrPushQueueService;
+
+    /**
+     * Perform dispatching task.
+     */
+    @Scheduled(fixedDelayString = "${cdr.push.poll.interval.millis}")
+    public void processCdrPushJobs() {
+        if (!cdrPushQueueService.isEnabled()) {
+            return;
+        }
+        int dispatched = cdrPushQueueService.dispatchDueJobs();
+        if (dispatched > 0) {
+            LOGGER.info(dispatched + " CDR push jobs handed over to workers.");
+        }
+    }
+}
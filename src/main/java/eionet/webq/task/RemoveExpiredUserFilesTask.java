@@ -20,6 +20,7 @@
  */
 package eionet.webq.task;
 
+import eionet.webq.dao.UserFileStorage;
 import eionet.webq.dao.orm.UserFile;
 import org.apache.commons.lang3.time.DateUtils;
 import org.apache.log4j.Logger;
@@ -52,6 +53,11 @@ public class RemoveExpiredUserFilesTask {
      */
     @Autowired
     SessionFactory factory;
+    /**
+     * User files storage.
+     */
+    @Autowired
+    UserFileStorage userFileStorage;
     /**
      * Task properties.
      */
@@ -86,6 +92,9 @@ public class RemoveExpiredUserFilesTask {
         }
 
         LOGGER.info("Removal successful. Removed " + rowsAffected + " files.");
+        currentSession.flush();
+        int countersRemoved = userFileStorage.removeUnusedWebFormFileNumCounters();
+        LOGGER.info("Removed " + countersRemoved + " file number counters of users without files.");
     }
 
     int getExpirationHours() {
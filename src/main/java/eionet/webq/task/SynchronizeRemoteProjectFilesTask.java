@@ -0,0 +1,155 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.task;
+
+import eionet.webq.dto.RemoteFileSyncReport;
+import eionet.webq.service.RemoteFileUpdateService;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Synchronizes project files having remote file URL with their remote locations periodically, based on cron
+ * statement, if enabled with remote.file.sync.enabled property. Keeps cumulative synchronization metrics, which are
+ * exposed by {@link eionet.webq.web.controller.MetricsController} and JMX.
+ */
+@Component
+@ManagedResource(objectName = "eionet.webq:type=RemoteFileSynchronization",
+        description = "Synchronization of project files with remote locations")
+public class SynchronizeRemoteProjectFilesTask {
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(SynchronizeRemoteProjectFilesTask.class);
+    /**
+     * Performs synchronization.
+     */
+    @Autowired
+    RemoteFileUpdateService remoteFileUpdateService;
+    /**
+     * Whether synchronization is enabled.
+     */
+    @Value("${remote.file.sync.enabled}")
+    boolean enabled;
+    /**
+     * Number of synchronization runs.
+     */
+    private final AtomicLong runs = new AtomicLong();
+    /**
+     * Number of checked files.
+     */
+    private final AtomicLong checkedFiles = new AtomicLong();
+    /**
+     * Number of files confirmed unchanged by HTTP 304 response.
+     */
+    private final AtomicLong notModifiedFiles = new AtomicLong();
+    /**
+     * Number of downloaded files having unchanged content.
+     */
+    private final AtomicLong unchangedFiles = new AtomicLong();
+    /**
+     * Number of updated files.
+     */
+    private final AtomicLong updatedFiles = new AtomicLong();
+    /**
+     * Number of files failed to synchronize.
+     */
+    private final AtomicLong failedFiles = new AtomicLong();
+    /**
+     * Last run summary.
+     */
+    private volatile RemoteFileSyncReport lastReport;
+
+    /**
+     * Perform synchronization task.
+     */
+    @Scheduled(cron = "${remote.file.sync.cron}")
+    public void synchronizeRemoteFiles() {
+        if (!enabled) {
+            return;
+        }
+        LOGGER.info("Synchronizing project files with remote locations.");
+        RemoteFileSyncReport report = remoteFileUpdateService.synchronizeAll();
+        runs.incrementAndGet();
+        checkedFiles.addAndGet(report.getChecked());
+        notModifiedFiles.addAndGet(report.getNotModified());
+        unchangedFiles.addAndGet(report.getUnchanged());
+        updatedFiles.addAndGet(report.getUpdated());
+        failedFiles.addAndGet(report.getFailed());
+        lastReport = report;
+        LOGGER.info("Synchronization finished. " + report);
+    }
+
+    @ManagedAttribute
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @ManagedAttribute
+    public long getRuns() {
+        return runs.get();
+    }
+
+    @ManagedAttribute
+    public long getCheckedFiles() {
+        return checkedFiles.get();
+    }
+
+    @ManagedAttribute
+    public long getNotModifiedFiles() {
+        return notModifiedFiles.get();
+    }
+
+    @ManagedAttribute
+    public long getUnchangedFiles() {
+        return unchangedFiles.get();
+    }
+
+    @ManagedAttribute
+    public long getUpdatedFiles() {
+        return updatedFiles.get();
+    }
+
+    @ManagedAttribute
+    public long getFailedFiles() {
+        return failedFiles.get();
+    }
+
+    /**
+     * Duration of last synchronization run.
+     *
+     * @return duration in milliseconds, 0 if synchronization has not run
+     */
+    @ManagedAttribute
+    public long getLastDurationMillis() {
+        RemoteFileSyncReport report = lastReport;
+        return report != null ? report.getDurationMillis() : 0;
+    }
+
+    public RemoteFileSyncReport getLastReport() {
+        return lastReport;
+    }
+}
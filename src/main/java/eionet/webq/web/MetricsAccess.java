@@ -0,0 +1,73 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.web;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decides whether metrics endpoints may be read without admin rights. Addresses are matched against the direct client
+ * address, so when application runs behind a reverse proxy, allowing the proxy address allows everyone.
+ */
+@Component("metricsAccess")
+public class MetricsAccess {
+    /**
+     * Comma separated IP addresses or subnets (e.g. 10.0.0.0/8) allowed to read metrics, empty to allow admins only.
+     */
+    @Value("${metrics.allowed.addresses}")
+    String allowedAddresses;
+    /**
+     * Matchers of allowed addresses.
+     */
+    private final List<IpAddressMatcher> allowed = new ArrayList<IpAddressMatcher>();
+
+    /**
+     * Parses allowed addresses.
+     */
+    @PostConstruct
+    void init() {
+        allowed.clear();
+        for (String address : StringUtils.split(StringUtils.defaultString(allowedAddresses), ", ")) {
+            allowed.add(new IpAddressMatcher(address));
+        }
+    }
+
+    /**
+     * Whether request comes from allowed address.
+     *
+     * @param request http request
+     * @return is allowed
+     */
+    public boolean isAllowed(HttpServletRequest request) {
+        for (IpAddressMatcher matcher : allowed) {
+            if (matcher.matches(request)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
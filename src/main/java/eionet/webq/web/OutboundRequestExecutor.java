@@ -0,0 +1,114 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.web;
+
+import org.apache.log4j.Logger;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded executor for asynchronously processed requests, which are blocked on remote HTTP or XML-RPC calls.
+ * Keeps container threads free while remote hosts respond slowly. Tasks exceeding pool and queue capacity are rejected.
+ */
+public class OutboundRequestExecutor extends ThreadPoolTaskExecutor {
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(OutboundRequestExecutor.class);
+    /**
+     * Rejected tasks count.
+     */
+    private final AtomicLong rejectedTaskCount = new AtomicLong();
+    /**
+     * Queue capacity, not exposed by parent class.
+     */
+    private int queueCapacity = Integer.MAX_VALUE;
+
+    /**
+     * Creates executor, which counts rejected tasks.
+     */
+    public OutboundRequestExecutor() {
+        setThreadNamePrefix("outbound-request-");
+        setRejectedExecutionHandler(new CountingAbortPolicy());
+    }
+
+    @Override
+    public void setQueueCapacity(int queueCapacity) {
+        super.setQueueCapacity(queueCapacity);
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Number of tasks waiting for free thread.
+     *
+     * @return queued tasks count
+     */
+    public int getQueueSize() {
+        return getThreadPoolExecutor().getQueue().size();
+    }
+
+    /**
+     * Configured queue capacity.
+     *
+     * @return queue capacity
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Number of completed tasks since start.
+     *
+     * @return completed tasks count
+     */
+    public long getCompletedTaskCount() {
+        return getThreadPoolExecutor().getCompletedTaskCount();
+    }
+
+    /**
+     * Number of tasks rejected because pool and queue were full.
+     *
+     * @return rejected tasks count
+     */
+    public long getRejectedTaskCount() {
+        return rejectedTaskCount.get();
+    }
+
+    /**
+     * Counts rejected tasks and aborts them.
+     */
+    private final class CountingAbortPolicy implements RejectedExecutionHandler {
+        /**
+         * Actual rejection policy.
+         */
+        private final RejectedExecutionHandler abortPolicy = new ThreadPoolExecutor.AbortPolicy();
+
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            long rejected = rejectedTaskCount.incrementAndGet();
+            LOGGER.warn("Outbound request rejected, active=" + executor.getActiveCount() + ", queued="
+                    + executor.getQueue().size() + ", rejected total=" + rejected);
+            abortPolicy.rejectedExecution(task, executor);
+        }
+    }
+}
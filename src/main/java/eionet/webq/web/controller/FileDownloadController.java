@@ -42,6 +42,7 @@ import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mail.javamail.ConfigurableMimeFileTypeMap;
@@ -64,9 +65,11 @@ import java.net.URISyntaxException;
 import java.net.URLEncoder;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 /**
  * Spring controller for WebQ file download.
@@ -307,20 +310,42 @@ public class FileDownloadController {
 
     /**
      * Performs conversion of specified {@link eionet.webq.dao.orm.UserFile} to specific format. Format is defined by conversionId.
+     * Conversion is performed asynchronously, so the container thread is not held while converters respond.
      *
      * @param fileId       file id or xsl name, which will be used to convert file
      * @param conversionId id of conversion to be used
-     * @param response     object where conversion result will be written
+     * @return conversion result with content type and content disposition set
      */
     @RequestMapping("/convert")
     @Transactional
-    public void convertXmlFile(@RequestParam int fileId, @RequestParam String conversionId, HttpServletResponse response) {
-        UserFile fileContent = userFileService.getById(fileId);
-        ResponseEntity<byte[]> convert = conversionService.convert(fileContent, conversionId);
-        HttpHeaders headers = convert.getHeaders();
-        setContentType(response, headers.getContentType());
-        setContentDisposition(response, headers.getFirst("Content-Disposition"));
-        writeToResponse(response, convert.getBody());
+    public Callable<ResponseEntity<byte[]>> convertXmlFile(@RequestParam int fileId, @RequestParam final String conversionId) {
+        final UserFile fileContent = userFileService.getById(fileId);
+        if (fileContent != null) {
+            // content is loaded in this transaction, conversion runs outside of it
+            fileContent.getContent();
+        }
+        return new Callable<ResponseEntity<byte[]>>() {
+            @Override
+            public ResponseEntity<byte[]> call() {
+                ResponseEntity<byte[]> convert = conversionService.convert(fileContent, conversionId);
+                HttpHeaders conversionHeaders = convert.getHeaders();
+                HttpHeaders headers = new HttpHeaders();
+                MediaType contentType = conversionHeaders.getContentType();
+                if (contentType != null) {
+                    Map<String, String> parameters = new LinkedHashMap<String, String>(contentType.getParameters());
+                    parameters.put("charset", "utf-8");
+                    headers.setContentType(new MediaType(contentType.getType(), contentType.getSubtype(), parameters));
+                }
+                String contentDisposition = conversionHeaders.getFirst("Content-Disposition");
+                if (contentDisposition != null) {
+                    headers.set("Content-Disposition", contentDisposition);
+                }
+                if (contentType == null || !"image".equals(contentType.getType())) {
+                    headers.add("Cache-control", "no-cache");
+                }
+                return new ResponseEntity<byte[]>(convert.getBody(), headers, HttpStatus.OK);
+            }
+        };
     }
 
     /**
@@ -0,0 +1,339 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.web.controller;
+
+import eionet.webq.metrics.EndpointMetrics;
+import eionet.webq.metrics.HibernateStatistics;
+import eionet.webq.metrics.LatencyHistogram;
+import eionet.webq.metrics.RequestMetrics;
+import eionet.webq.metrics.SqlMetrics;
+import eionet.webq.metrics.StatementMetrics;
+import eionet.webq.service.SingleFlight;
+import eionet.webq.service.UpstreamGuard;
+import eionet.webq.service.UpstreamGuards;
+import eionet.webq.task.SynchronizeRemoteProjectFilesTask;
+import eionet.webq.web.OutboundRequestExecutor;
+import eionet.webq.xforms.XFormsResourceCache;
+import eionet.webq.xforms.XFormsSessionGovernor;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Exposes runtime metrics in plain text exposition format, one sample per line, suitable for scraping, and SQL
+ * statement metrics in JSON.
+ */
+@Controller
+@RequestMapping("/metrics")
+public class MetricsController {
+    /**
+     * Reported latency percentiles.
+     */
+    private static final double[] PERCENTILES = {50, 90, 99};
+    /**
+     * Request metrics.
+     */
+    @Autowired
+    RequestMetrics requestMetrics;
+    /**
+     * Executor of asynchronously processed requests.
+     */
+    @Autowired
+    OutboundRequestExecutor outboundRequestExecutor;
+    /**
+     * Upstream bulkheads and circuit breakers.
+     */
+    @Autowired
+    UpstreamGuards upstreamGuards;
+    /**
+     * Outbound call coalescing.
+     */
+    @Autowired
+    SingleFlight singleFlight;
+    /**
+     * SQL statement metrics.
+     */
+    @Autowired
+    SqlMetrics sqlMetrics;
+    /**
+     * Hibernate statistics.
+     */
+    @Autowired
+    HibernateStatistics hibernateStatistics;
+    /**
+     * Shared cache of XForms external resources.
+     */
+    @Autowired
+    XFormsResourceCache xformsResourceCache;
+    /**
+     * Live XForms sessions.
+     */
+    @Autowired
+    XFormsSessionGovernor xformsSessionGovernor;
+    /**
+     * Synchronization of project files with remote locations.
+     */
+    @Autowired
+    SynchronizeRemoteProjectFilesTask remoteFileSyncTask;
+
+    /**
+     * Renders all metrics.
+     *
+     * @return metrics in text format
+     */
+    @RequestMapping(value = {"", "/"}, method = RequestMethod.GET, produces = "text/plain;charset=utf-8")
+    @ResponseBody
+    public String metrics() {
+        StringBuilder out = new StringBuilder();
+        appendRequestMetrics(out);
+        appendExecutorMetrics(out);
+        appendUpstreamMetrics(out);
+        appendXFormsResourceMetrics(out);
+        appendXFormsSessionMetrics(out);
+        appendRemoteFileSyncMetrics(out);
+        appendSecondLevelCacheMetrics(out);
+        sample(out, "webq_single_flight_executed_total", "", singleFlight.getExecutedCalls());
+        sample(out, "webq_single_flight_coalesced_total", "", singleFlight.getCoalescedCalls());
+        sample(out, "webq_sql_statements_total", "", sqlMetrics.getStatementCount());
+        sample(out, "webq_sql_slow_statements_total", "", sqlMetrics.getSlowStatementCount());
+        sample(out, "webq_sql_errors_total", "", sqlMetrics.getErrorCount());
+        sample(out, "webq_sql_duration_seconds_total", "", seconds(sqlMetrics.getTotalMillis() * 1000));
+        return out.toString();
+    }
+
+    /**
+     * Renders SQL statement metrics, statements with highest total execution time first, and Hibernate statistics.
+     *
+     * @param limit max count of statements rendered
+     * @return SQL metrics
+     */
+    @RequestMapping(value = "/sql", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public Map<String, Object> sqlMetrics(@RequestParam(value = "limit", defaultValue = "50") int limit) {
+        Map<String, Object> result = new LinkedHashMap<String, Object>();
+        result.put("statementCount", sqlMetrics.getStatementCount());
+        result.put("slowStatementCount", sqlMetrics.getSlowStatementCount());
+        result.put("errorCount", sqlMetrics.getErrorCount());
+        result.put("totalMillis", sqlMetrics.getTotalMillis());
+        result.put("slowQueryMillis", sqlMetrics.getSlowQueryMillis());
+        List<Map<String, Object>> statements = new ArrayList<Map<String, Object>>();
+        for (StatementMetrics statement : sqlMetrics.getStatements()) {
+            if (statements.size() >= limit) {
+                break;
+            }
+            LatencyHistogram latency = statement.getLatency();
+            Map<String, Object> values = new LinkedHashMap<String, Object>();
+            values.put("sql", statement.getSql());
+            values.put("count", latency.getCount());
+            values.put("errors", statement.getErrorCount());
+            values.put("totalMicros", latency.getTotal());
+            values.put("meanMicros", latency.getMean());
+            values.put("p99Micros", latency.getPercentile(99));
+            values.put("maxMicros", latency.getMax());
+            statements.add(values);
+        }
+        result.put("statements", statements);
+        result.put("hibernate", hibernateStatistics.summary());
+        return result;
+    }
+
+    /**
+     * Appends per endpoint request metrics.
+     *
+     * @param out output
+     */
+    private void appendRequestMetrics(StringBuilder out) {
+        for (EndpointMetrics endpoint : requestMetrics.getEndpoints()) {
+            String labels = label("endpoint", endpoint.getName());
+            LatencyHistogram latency = endpoint.getLatency();
+            sample(out, "webq_http_requests_total", labels, endpoint.getRequestCount());
+            sample(out, "webq_http_server_errors_total", labels, endpoint.getErrorCount());
+            sample(out, "webq_http_client_errors_total", labels, endpoint.getClientErrorCount());
+            sample(out, "webq_http_response_bytes_total", labels, endpoint.getResponseBytes());
+            sample(out, "webq_http_sql_statements_total", labels, endpoint.getSqlStatements());
+            sample(out, "webq_http_sql_statements_max", labels, endpoint.getMaxSqlStatements());
+            for (double percentile : PERCENTILES) {
+                sample(out, "webq_http_request_duration_seconds",
+                        labels + "," + label("quantile", String.valueOf(percentile / 100)),
+                        seconds(latency.getPercentile(percentile)));
+            }
+            sample(out, "webq_http_request_duration_seconds_max", labels, seconds(latency.getMax()));
+            sample(out, "webq_http_request_duration_seconds_mean", labels, seconds(latency.getMean()));
+        }
+    }
+
+    /**
+     * Appends metrics of asynchronous request executor.
+     *
+     * @param out output
+     */
+    private void appendExecutorMetrics(StringBuilder out) {
+        sample(out, "webq_async_executor_active_threads", "", outboundRequestExecutor.getActiveCount());
+        sample(out, "webq_async_executor_pool_size", "", outboundRequestExecutor.getPoolSize());
+        sample(out, "webq_async_executor_queue_size", "", outboundRequestExecutor.getQueueSize());
+        sample(out, "webq_async_executor_queue_capacity", "", outboundRequestExecutor.getQueueCapacity());
+        sample(out, "webq_async_executor_completed_total", "", outboundRequestExecutor.getCompletedTaskCount());
+        sample(out, "webq_async_executor_rejected_total", "", outboundRequestExecutor.getRejectedTaskCount());
+    }
+
+    /**
+     * Appends per upstream bulkhead and circuit breaker metrics.
+     *
+     * @param out output
+     */
+    private void appendUpstreamMetrics(StringBuilder out) {
+        for (UpstreamGuard guard : upstreamGuards.getGuards()) {
+            String labels = label("upstream", guard.getName());
+            sample(out, "webq_upstream_breaker_open", labels + "," + label("state", guard.getState().name()),
+                    guard.getState() == UpstreamGuard.State.CLOSED ? 0 : 1);
+            sample(out, "webq_upstream_active_calls", labels, guard.getActiveCalls());
+            sample(out, "webq_upstream_max_concurrent_calls", labels, guard.getMaxConcurrentCalls());
+            sample(out, "webq_upstream_calls_total", labels + "," + label("result", "success"), guard.getSuccessCount());
+            sample(out, "webq_upstream_calls_total", labels + "," + label("result", "failure"), guard.getFailureCount());
+            sample(out, "webq_upstream_rejected_total", labels + "," + label("reason", "bulkhead"),
+                    guard.getRejectedByBulkhead());
+            sample(out, "webq_upstream_rejected_total", labels + "," + label("reason", "breaker"),
+                    guard.getRejectedByBreaker());
+        }
+    }
+
+    /**
+     * Appends per URL metrics of XForms resource cache.
+     *
+     * @param out output
+     */
+    private void appendXFormsResourceMetrics(StringBuilder out) {
+        for (XFormsResourceCache.ResourceStatistics resource : xformsResourceCache.getStatistics()) {
+            String labels = label("url", resource.getUrl());
+            sample(out, "webq_xforms_resource_requests_total", labels + "," + label("result", "hit"), resource.getHits());
+            sample(out, "webq_xforms_resource_requests_total", labels + "," + label("result", "miss"),
+                    resource.getMisses());
+            sample(out, "webq_xforms_resource_requests_total", labels + "," + label("result", "revalidated"),
+                    resource.getRevalidations());
+        }
+    }
+
+    /**
+     * Appends live XForms session counts and sizes measured in last sample.
+     *
+     * @param out output
+     */
+    private void appendXFormsSessionMetrics(StringBuilder out) {
+        sample(out, "webq_xforms_sessions", label("store", "memory"), xformsSessionGovernor.getSessionsInMemory());
+        sample(out, "webq_xforms_sessions", label("store", "disk"), xformsSessionGovernor.getSessionsOnDisk());
+        sample(out, "webq_xforms_session_users", "", xformsSessionGovernor.getUserCount());
+        sample(out, "webq_xforms_sessions_created_total", "", xformsSessionGovernor.getCreatedSessions());
+        sample(out, "webq_xforms_sessions_removed_total", label("reason", "idle"),
+                xformsSessionGovernor.getRemovedIdleSessions());
+        sample(out, "webq_xforms_sessions_removed_total", label("reason", "capacity"),
+                xformsSessionGovernor.getRemovedCapacitySessions());
+        sample(out, "webq_xforms_sessions_refused_total", label("reason", "user_limit"),
+                xformsSessionGovernor.getRefusedUserLimitSessions());
+        XFormsSessionGovernor.SessionSizes sizes = xformsSessionGovernor.getSessionSizes();
+        sample(out, "webq_xforms_session_size_sampled", "", sizes.getCount());
+        sample(out, "webq_xforms_session_size_not_serializable", "", sizes.getNotSerializable());
+        sample(out, "webq_xforms_session_size_bytes", label("stat", "mean"), sizes.getMeanBytes());
+        sample(out, "webq_xforms_session_size_bytes", label("stat", "max"), sizes.getMaxBytes());
+    }
+
+    /**
+     * Appends cumulative metrics of project files synchronization with remote locations.
+     *
+     * @param out output
+     */
+    private void appendRemoteFileSyncMetrics(StringBuilder out) {
+        sample(out, "webq_remote_file_sync_enabled", "", remoteFileSyncTask.isEnabled() ? 1 : 0);
+        sample(out, "webq_remote_file_sync_runs_total", "", remoteFileSyncTask.getRuns());
+        sample(out, "webq_remote_file_sync_files_total", label("result", "not_modified"),
+                remoteFileSyncTask.getNotModifiedFiles());
+        sample(out, "webq_remote_file_sync_files_total", label("result", "unchanged"),
+                remoteFileSyncTask.getUnchangedFiles());
+        sample(out, "webq_remote_file_sync_files_total", label("result", "updated"), remoteFileSyncTask.getUpdatedFiles());
+        sample(out, "webq_remote_file_sync_files_total", label("result", "failed"), remoteFileSyncTask.getFailedFiles());
+        sample(out, "webq_remote_file_sync_checked_files_total", "", remoteFileSyncTask.getCheckedFiles());
+        sample(out, "webq_remote_file_sync_last_duration_seconds", "",
+                seconds(remoteFileSyncTask.getLastDurationMillis() * 1000));
+    }
+
+    /**
+     * Appends per region metrics of Hibernate second-level cache, if Hibernate statistics are enabled.
+     *
+     * @param out output
+     */
+    private void appendSecondLevelCacheMetrics(StringBuilder out) {
+        for (Map.Entry<String, SecondLevelCacheStatistics> region : hibernateStatistics.regionStatistics().entrySet()) {
+            String labels = label("region", region.getKey());
+            sample(out, "webq_hibernate_cache_requests_total", labels + "," + label("result", "hit"),
+                    region.getValue().getHitCount());
+            sample(out, "webq_hibernate_cache_requests_total", labels + "," + label("result", "miss"),
+                    region.getValue().getMissCount());
+            sample(out, "webq_hibernate_cache_puts_total", labels, region.getValue().getPutCount());
+            sample(out, "webq_hibernate_cache_elements", labels, region.getValue().getElementCountInMemory());
+        }
+    }
+
+    /**
+     * Appends single sample line.
+     *
+     * @param out    output
+     * @param name   metric name
+     * @param labels metric labels, may be empty
+     * @param value  sample value
+     */
+    private void sample(StringBuilder out, String name, String labels, Object value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Formats label.
+     *
+     * @param name  label name
+     * @param value label value
+     * @return formatted label
+     */
+    private String label(String name, String value) {
+        return name + "=\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+    }
+
+    /**
+     * Converts microseconds to seconds.
+     *
+     * @param micros microseconds
+     * @return seconds
+     */
+    private String seconds(long micros) {
+        return String.format(Locale.ROOT, "%.6f", micros / 1e6);
+    }
+}
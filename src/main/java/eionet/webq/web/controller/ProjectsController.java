@@ -24,10 +24,12 @@ import eionet.webq.dao.orm.ProjectEntry;
 import eionet.webq.dao.orm.ProjectFile;
 import eionet.webq.dao.orm.ProjectFileType;
 import eionet.webq.dao.orm.util.WebQFileInfo;
+import eionet.webq.dto.RemoteFileCheckResult;
 import eionet.webq.service.FileNotAvailableException;
 import eionet.webq.service.ProjectFileService;
 import eionet.webq.service.ProjectService;
 import eionet.webq.service.RemoteFileService;
+import eionet.webq.service.RemoteFileUpdateService;
 import eionet.webq.service.impl.project.export.ImportProjectResult;
 import eionet.webq.web.io.HttpFileInfo;
 import eionet.webq.web.io.HttpResponseZipWriter;
@@ -77,6 +79,10 @@ public class ProjectsController {
      * Attribute name for storing import project archive in model.
      */
     static final String IMPORT_ARCHIVE_ATTRIBUTE = "httpFileInfo";
+    /**
+     * Attribute name for storing remote files check results in model.
+     */
+    static final String REMOTE_FILE_CHECK_RESULTS_ATTRIBUTE = "remoteFileCheckResults";
     /**
      * Message source.
      */
@@ -97,6 +103,11 @@ public class ProjectsController {
      */
     @Autowired
     private RemoteFileService remoteFileService;
+    /**
+     * Checks project files against remote locations.
+     */
+    @Autowired
+    private RemoteFileUpdateService remoteFileUpdateService;
 
     /**
      * All projects handler.
@@ -356,24 +367,39 @@ public class ProjectsController {
      * @return view name
      */
     @RequestMapping(value = "/remote/check/updates/{projectFolderId}/file/{fileId}")
-    @Transactional
     public String checkForUpdates(@PathVariable String projectFolderId, @PathVariable int fileId, Model model) {
         ProjectEntry project = projectService.getByProjectId(projectFolderId);
         ProjectFile file = projectFileService.getById(fileId);
         String fileName = file.getFileName();
-        try {
-            if (remoteFileService.isChecksumMatches(file.getFileContent(), file.getRemoteFileUrl())) {
+        RemoteFileCheckResult result = remoteFileUpdateService.checkForUpdates(file);
+        switch (result.getStatus()) {
+            case UP_TO_DATE:
                 model.addAttribute("message", messages.getMessage("no.updates.for.file", new Object[] {fileName}));
-            } else {
+                break;
+            case UPDATE_AVAILABLE:
                 model.addAttribute("fileToUpdate", fileName);
                 model.addAttribute("fileToUpdateId", file.getId());
-            }
-        } catch (FileNotAvailableException e) {
-            model.addAttribute("message", messages.getMessage("remote.file.not.available", new Object[] {fileName}));
+                break;
+            default:
+                model.addAttribute("message", messages.getMessage("remote.file.not.available", new Object[] {fileName}));
         }
         return viewProject(project, model);
     }
 
+    /**
+     * Checks all project files having remote location for updates and shows results in one page.
+     *
+     * @param projectFolderId project id
+     * @param model model attributes holder
+     * @return view name
+     */
+    @RequestMapping(value = "/remote/check/updates/{projectFolderId}")
+    public String checkAllForUpdates(@PathVariable String projectFolderId, Model model) {
+        ProjectEntry project = projectService.getByProjectId(projectFolderId);
+        model.addAttribute(REMOTE_FILE_CHECK_RESULTS_ATTRIBUTE, remoteFileUpdateService.checkAllForUpdates(project));
+        return viewProject(project, model);
+    }
+
     /**
      * Updates project content.
      *
@@ -388,7 +414,8 @@ public class ProjectsController {
         ProjectEntry project = projectService.getByProjectId(projectFolderId);
         ProjectFile file = projectFileService.getById(fileId);
         try {
-            projectFileService.updateContent(fileId, remoteFileService.fileContent(file.getRemoteFileUrl()), project);
+            projectFileService.updateContent(fileId, remoteFileService.fetchIfModified(file.getRemoteFileUrl(), null, null),
+                    project);
         } catch (FileNotAvailableException e) {
             model.addAttribute("message", messages.getMessage("unable.to.update.file"));
         }
@@ -25,6 +25,7 @@ import eionet.webq.converter.JsonXMLBidirectionalConverter;
 import eionet.webq.converter.UserFileToFileInfoConverter;
 import eionet.webq.dao.orm.ProjectFile;
 import eionet.webq.dao.orm.UserFile;
+import eionet.webq.dto.CdrPushStatus;
 import eionet.webq.dto.FileInfo;
 import eionet.webq.dto.UploadForm;
 import eionet.webq.dto.XmlSaveResult;
@@ -32,6 +33,7 @@ import eionet.webq.service.*;
 import eionet.webq.web.controller.util.UserFileHelper;
 import eionet.webq.web.controller.util.UserFileList;
 import eionet.webq.web.controller.util.WebformUrlProvider;
+import eionet.webq.xforms.XFormsDocumentCache;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
@@ -47,6 +49,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.w3c.dom.Document;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -105,6 +108,11 @@ public class PublicPageController {
      */
     @Autowired
     private CDREnvelopeService envelopeService;
+    /**
+     * Queue for pushing saved files to CDR in background.
+     */
+    @Autowired
+    private CdrPushQueueService cdrPushQueueService;
     
     @Autowired
     private RequestBasedUserIdProvider requestBasedUserIdProvider;
@@ -122,6 +130,11 @@ public class PublicPageController {
 
     @Autowired
     private CookieValueManager cookieValueManager;
+    /**
+     * Parsed web forms shared by XForms sessions.
+     */
+    @Autowired
+    private XFormsDocumentCache xformsDocumentCache;
 
     /**
      * Action to be performed on http GET method and path '/'.
@@ -357,7 +370,8 @@ public class PublicPageController {
     /**
      * This is STEP 2 in generating new WebForm. Form content will be loaded from storage and written to response. After that
      * response must be handled by {@link de.betterform.agent.web.filter.XFormsFilter}. Filter mapping in web.xml should match with
-     * mapping of this method.
+     * mapping of this method. Copy of cached parsed form is passed to XForms processor in request attribute, so the form
+     * does not have to be parsed again for every session.
      *
      * @param formId   webform id
      * @param response current response
@@ -386,6 +400,10 @@ public class PublicPageController {
         }
 
         ProjectFile webForm = webFormService.findWebFormById(formId);
+        Document document = xformsDocumentCache.sessionCopy(webForm);
+        if (document != null) {
+            request.setAttribute(XFormsDocumentCache.DOCUMENT_ATTRIBUTE, document);
+        }
         byte[] fileContent = webForm.getFileContent();
         response.setContentLength(fileContent.length);
         response.setContentType("application/xhtml+xml;charset=utf-8");
@@ -417,6 +435,24 @@ public class PublicPageController {
         return fileInfo;
     }
     
+    /**
+     * Returns status of CDR push queued on file save.
+     *
+     * @param jobId    push job id returned in save result
+     * @param response http response
+     * @return response as application/xml generated by {@link org.springframework.oxm.jaxb.Jaxb2Marshaller}
+     */
+    @RequestMapping(value = "/saveXml/status", method = RequestMethod.GET)
+    @ResponseBody
+    public CdrPushStatus getSaveXmlPushStatus(@RequestParam int jobId, HttpServletResponse response) {
+        CdrPushStatus status = cdrPushQueueService.getStatus(jobId);
+        if (status == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return new CdrPushStatus();
+        }
+        return status;
+    }
+
     /**
      * Updates file content in storage.
      *
@@ -437,6 +473,9 @@ public class PublicPageController {
             file.setApplyRestriction(StringUtils.isNotEmpty(restricted));
             file.setRestricted(Boolean.valueOf(restricted));
             file.setConversionId(request.getParameter("xsl"));
+            if (cdrPushQueueService.isEnabled()) {
+                return cdrPushQueueService.enqueue(file);
+            }
             return envelopeService.pushXmlFile(file);
         }
         userFileService.updateContent(file);
@@ -467,9 +506,7 @@ public class PublicPageController {
      * @param uploadForm upload form
      */
     private void saveFiles(UploadForm uploadForm) {
-        for (UserFile userFile : uploadForm.getUserFiles()) {
-            userFileService.save(userFile);
-        }
+        userFileService.save(uploadForm.getUserFiles());
     }
 
     /**
@@ -27,6 +27,10 @@ import eionet.webq.dto.KnownHostAuthenticationMethod;
 import eionet.webq.service.CDREnvelopeService;
 import eionet.webq.service.FileNotAvailableException;
 import eionet.webq.service.KnownHostsService;
+import eionet.webq.service.ProxyResponseCache;
+import eionet.webq.service.RequestBasedUserIdProvider;
+import eionet.webq.service.SingleFlight;
+import eionet.webq.web.controller.util.LocalFileFetcher;
 import eionet.webq.web.controller.util.ProxyDelegationHelper;
 import eionet.webq.web.controller.util.UserFileHelper;
 import org.apache.commons.lang3.StringUtils;
@@ -39,6 +43,9 @@ import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
 import org.springframework.stereotype.Controller;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
@@ -47,6 +54,8 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.multipart.MultipartHttpServletRequest;
@@ -62,11 +71,14 @@ import javax.xml.transform.stream.StreamSource;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * Base controller for WebQ proxy delegations.
@@ -104,9 +116,34 @@ public class WebQProxyDelegation {
     @Autowired
     @Qualifier("restTemplate")
     private RestTemplate restTemplate;
+    /**
+     * Cache for anonymous GET requests.
+     */
+    @Autowired
+    ProxyResponseCache proxyResponseCache;
+    /**
+     * Collapses concurrent identical anonymous fetches.
+     */
+    @Autowired
+    SingleFlight singleFlight;
+    /**
+     * Reads files served by this application without HTTP request.
+     */
+    @Autowired
+    LocalFileFetcher localFileFetcher;
+    /**
+     * Provides user id of the caller.
+     */
+    @Autowired
+    RequestBasedUserIdProvider requestBasedUserIdProvider;
 
     @Value("${cas.service}")
     String webqUrl;
+    /**
+     * Buffer size used for streaming proxied content.
+     */
+    @Value("${proxy.passthrough.buffer.size}")
+    int passthroughBufferSize;
     
     /**
      * This method delegates GET request to remote host. See:
@@ -117,21 +154,21 @@ public class WebQProxyDelegation {
      * @param fileId  optional user session file ID
      * @param request standard HttpServletRequest
      * @return result request results received from uri
-     * @throws UnsupportedEncodingException unable to convert the remote file to UTF-8
-     * @throws URISyntaxException           wrong uri of remote file
-     * @throws FileNotAvailableException    the remote file is not available
      */
     @RequestMapping(value = "/restProxy", method = RequestMethod.GET, produces = "text/html;charset=utf-8")
     @ResponseBody
-    public String restProxyGet(@RequestParam("uri") String uri, @RequestParam(required = false) Integer fileId,
-            HttpServletRequest request)
-            throws UnsupportedEncodingException, URISyntaxException, FileNotAvailableException {
-
-        if (fileId != null && fileId > 0) {
-            return restProxyGetWithAuth(uri, fileId, request);
-        }
-        LOGGER.info("/restProxy [GET] uri=" + uri);
-        return restTemplate.getForObject(new URI(uri), String.class);
+    public Callable<String> restProxyGet(@RequestParam("uri") final String uri,
+            @RequestParam(required = false) final Integer fileId, final HttpServletRequest request) {
+        return new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                if (fileId != null && fileId > 0) {
+                    return getWithAuth(uri, fileId, request);
+                }
+                LOGGER.info("/restProxy [GET] uri=" + uri);
+                return proxyResponseCache.get(new URI(uri));
+            }
+        };
     } // end of method restProxyGet
 
     /**
@@ -142,19 +179,21 @@ public class WebQProxyDelegation {
      * @param fileId  optional user session file ID
      * @param request standard HttpServletRequest
      * @return result request results received from uri
-     * @throws URISyntaxException        wrong uri of remote file
-     * @throws FileNotAvailableException the remote file is not available
      */
     @RequestMapping(value = "/restProxy", method = RequestMethod.POST, produces = "text/html;charset=utf-8")
     @ResponseBody
-    public String restProxyPost(@RequestParam("uri") String uri, @RequestBody String body,
-            @RequestParam(required = false) Integer fileId, HttpServletRequest request)
-            throws URISyntaxException, FileNotAvailableException {
-        if (fileId != null && fileId > 0) {
-            return restProxyPostWithAuth(uri, body, fileId, request);
-        }
-        LOGGER.info("/restProxy [POST] uri=" + uri);
-        return restTemplate.postForObject(new URI(uri), body, String.class);
+    public Callable<String> restProxyPost(@RequestParam("uri") final String uri, @RequestBody final String body,
+            @RequestParam(required = false) final Integer fileId, final HttpServletRequest request) {
+        return new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                if (fileId != null && fileId > 0) {
+                    return postWithAuth(uri, body, fileId, request);
+                }
+                LOGGER.info("/restProxy [POST] uri=" + uri);
+                return restTemplate.postForObject(new URI(uri), body, String.class);
+            }
+        };
     } // end of method restProxyPost
 
     /**
@@ -165,16 +204,43 @@ public class WebQProxyDelegation {
      * @param fileId  user session file id
      * @param request standard HttpServletRequest
      * @return result request results received from uri
+     */
+    @RequestMapping(value = "/restProxyWithAuth", method = RequestMethod.GET, produces = "text/html;charset=utf-8")
+    @ResponseBody
+    public Callable<String> restProxyGetWithAuth(@RequestParam("uri") final String uri, @RequestParam final int fileId,
+            final HttpServletRequest request) {
+        return new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return getWithAuth(uri, fileId, request);
+            }
+        };
+    }
+
+    /**
+     * Performs GET request to remote host using authorisation stored in UserFile.
+     *
+     * @param uri     the actual uri to make the request
+     * @param fileId  user session file id
+     * @param request standard HttpServletRequest
+     * @return result request results received from uri
      * @throws URISyntaxException           wrong uri of remote file
      * @throws FileNotAvailableException    the remote file is not available
      * @throws UnsupportedEncodingException unable to convert the remote file to UTF-8
      */
-    @RequestMapping(value = "/restProxyWithAuth", method = RequestMethod.GET, produces = "text/html;charset=utf-8")
-    @ResponseBody
-    public String restProxyGetWithAuth(@RequestParam("uri") String uri, @RequestParam int fileId,
-            HttpServletRequest request) throws URISyntaxException, FileNotAvailableException, UnsupportedEncodingException {
+    private String getWithAuth(String uri, int fileId, HttpServletRequest request)
+            throws URISyntaxException, FileNotAvailableException, UnsupportedEncodingException {
+
+        String localPath = localFileFetcher.localPath(new URI(uri), request.getContextPath(), webqUrl);
+        if (localFileFetcher.isSupported(localPath)) {
+            LOGGER.info("/restProxy [GET] local uri=" + uri);
+            byte[] content =
+                    localFileFetcher.fetch(localPath, new URI(uri), requestBasedUserIdProvider.getUserId(request));
+            return content != null ? new String(content, "UTF-8") : null;
+        }
 
         UserFile file = userFileHelper.getUserFile(fileId, request);
+        boolean authenticated = false;
 
         if (file != null && ProxyDelegationHelper.isCompanyIdParameterValidForBdrEnvelope(uri, file.getEnvelope())) {
             if (StringUtils.startsWith(uri, file.getEnvelope())) {
@@ -188,6 +254,7 @@ public class WebQProxyDelegation {
                         LOGGER.info("Add ticket parameter from known hosts to URL: " + uri);
                         uri += (uri.contains("?")) ? "&" : "?";
                         uri += knownHost.getKey() + "=" + knownHost.getTicket();
+                        authenticated = true;
                     } else if (knownHost.getAuthenticationMethod() == KnownHostAuthenticationMethod.BASIC) {
                         // Add basic authorisation if needed
                         HttpHeaders authorization = getHttpHeaderWithBasicAuthentication(knownHost);
@@ -203,9 +270,12 @@ public class WebQProxyDelegation {
 
         LOGGER.info("/restProxy [GET] uri=" + uri);
         if (new URI(uri).isAbsolute()) {
+            // responses to requests with known host ticket are not shared
+            if (!authenticated) {
+                return proxyResponseCache.get(restTemplate.getUriTemplateHandler().expand(uri));
+            }
             return restTemplate.getForObject(uri, String.class);
         } else {
-            // todo fix for local /download/file_id=
             return restTemplate.getForObject(new URI(uri), String.class);
         }
     }
@@ -218,13 +288,32 @@ public class WebQProxyDelegation {
      * @param fileId  user session file id
      * @param request standard HttpServletRequest
      * @return result request results received from uri
-     * @throws URISyntaxException        wrong uri of remote file
-     * @throws FileNotAvailableException the remote file is not available
      */
     @RequestMapping(value = "/restProxyWithAuth", method = RequestMethod.POST, produces = "text/html;charset=utf-8")
     @ResponseBody
-    public String restProxyPostWithAuth(@RequestParam("uri") String uri, @RequestBody String body,
-            @RequestParam int fileId, HttpServletRequest request) throws URISyntaxException, FileNotAvailableException {
+    public Callable<String> restProxyPostWithAuth(@RequestParam("uri") final String uri, @RequestBody final String body,
+            @RequestParam final int fileId, final HttpServletRequest request) {
+        return new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return postWithAuth(uri, body, fileId, request);
+            }
+        };
+    }
+
+    /**
+     * Performs POST request to remote host using authorisation stored in UserFile.
+     *
+     * @param uri     the actual uri to make the request
+     * @param body    body request body to forward to remote host
+     * @param fileId  user session file id
+     * @param request standard HttpServletRequest
+     * @return result request results received from uri
+     * @throws URISyntaxException        wrong uri of remote file
+     * @throws FileNotAvailableException the remote file is not available
+     */
+    private String postWithAuth(String uri, String body, int fileId, HttpServletRequest request)
+            throws URISyntaxException, FileNotAvailableException {
 
         UserFile file = userFileHelper.getUserFile(fileId, request);
 
@@ -245,7 +334,7 @@ public class WebQProxyDelegation {
                         HttpHeaders authorization = getHttpHeaderWithBasicAuthentication(knownHost);
                         LOGGER.info("Add basic auth from known hosts to URL: " + uri);
                         HttpEntity<String> httpEntity = new HttpEntity<String>(body, authorization);
-                        return new RestTemplate().postForObject(new URI(uri), httpEntity, String.class);
+                        return restTemplate.postForObject(new URI(uri), httpEntity, String.class);
                     }
                 }
             }
@@ -261,13 +350,30 @@ public class WebQProxyDelegation {
      * @param fileId           UserFile id stored in session
      * @param multipartRequest file part in multipart request
      * @return response from remote host
-     * @throws URISyntaxException provide URI is incorrect
-     * @throws IOException        could not read file from request
      */
     @RequestMapping(value = "/restProxyFileUpload", method = RequestMethod.POST, produces = "text/html;charset=utf-8")
     @ResponseBody
-    public String restProxyFileUpload(@RequestParam("uri") String uri,
-            @RequestParam int fileId, MultipartHttpServletRequest multipartRequest)
+    public Callable<String> restProxyFileUpload(@RequestParam("uri") final String uri,
+            @RequestParam final int fileId, final MultipartHttpServletRequest multipartRequest) {
+        return new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return postFileUpload(uri, fileId, multipartRequest);
+            }
+        };
+    }
+
+    /**
+     * Forwards multipart POST request to remote host.
+     *
+     * @param uri              the address to forward the request
+     * @param fileId           UserFile id stored in session
+     * @param multipartRequest file part in multipart request
+     * @return response from remote host
+     * @throws URISyntaxException provide URI is incorrect
+     * @throws IOException        could not read file from request
+     */
+    private String postFileUpload(String uri, int fileId, MultipartHttpServletRequest multipartRequest)
             throws URISyntaxException, IOException {
 
         UserFile file = userFileHelper.getUserFile(fileId, multipartRequest);
@@ -308,6 +414,65 @@ public class WebQProxyDelegation {
         return restTemplate.postForObject(uri, requestEntity, String.class);
     }
 
+    /**
+     * Streams GET response of remote host to client without decoding it. Upstream status, Content-Type, Content-Length,
+     * Content-Encoding and Content-Disposition headers are preserved, upstream errors are handled as in other proxy
+     * methods. If fileId is given, authorisation is applied the same way as in
+     * {@link #restProxyGetWithAuth(String, int, HttpServletRequest)}.
+     *
+     * @param uri      the actual uri to make the request
+     * @param fileId   optional user session file ID
+     * @param request  standard HttpServletRequest
+     * @param response standard HttpServletResponse, where remote content is written to
+     * @return task streaming remote content
+     */
+    @RequestMapping(value = {"/restProxy", "/restProxyWithAuth"}, method = RequestMethod.GET,
+            params = "passthrough=true")
+    @ResponseBody
+    public Callable<Void> restProxyGetPassthrough(@RequestParam("uri") final String uri,
+            @RequestParam(required = false) final Integer fileId, final HttpServletRequest request,
+            final HttpServletResponse response) {
+        return new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                ProxyTarget target = resolveProxyTarget(uri, fileId, request);
+                LOGGER.info("/restProxy [GET] passthrough uri=" + uri);
+                return restTemplate.execute(target.uri, HttpMethod.GET,
+                        new PassthroughRequestCallback(target.headers, null),
+                        new PassthroughResponseExtractor(response));
+            }
+        };
+    }
+
+    /**
+     * Streams request body to remote host with POST request and streams response back to client without decoding
+     * it. If fileId is given, authorisation is applied the same way as in
+     * {@link #restProxyPostWithAuth(String, String, int, HttpServletRequest)}.
+     *
+     * @param uri      the actual uri to make the request
+     * @param fileId   optional user session file ID
+     * @param request  standard HttpServletRequest, which body is forwarded
+     * @param response standard HttpServletResponse, where remote content is written to
+     * @return task streaming remote content
+     */
+    @RequestMapping(value = {"/restProxy", "/restProxyWithAuth"}, method = RequestMethod.POST,
+            params = "passthrough=true")
+    @ResponseBody
+    public Callable<Void> restProxyPostPassthrough(@RequestParam("uri") final String uri,
+            @RequestParam(required = false) final Integer fileId, final HttpServletRequest request,
+            final HttpServletResponse response) {
+        return new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                ProxyTarget target = resolveProxyTarget(uri, fileId, request);
+                LOGGER.info("/restProxy [POST] passthrough uri=" + uri);
+                return restTemplate.execute(target.uri, HttpMethod.POST,
+                        new PassthroughRequestCallback(target.headers, new ServletServerHttpRequest(request)),
+                        new PassthroughResponseExtractor(response));
+            }
+        };
+    }
+
     /**
      * Fetches XML file from given xmlUri and applies XSLT conversion with xsltUri.
      * The resulting xml is converted to json, if format parameter equals 'json'.
@@ -320,17 +485,39 @@ public class WebQProxyDelegation {
      * @param request  standard HttpServletRequest
      * @param response standard HttpServletResponse
      * @return converted XML content
+     */
+    @RequestMapping(value = "/proxyXmlWithConversion", method = RequestMethod.GET, produces = "text/html;charset=utf-8")
+    @ResponseBody
+    public Callable<byte[]> proxyXmlWithConversion(@RequestParam("xmlUri") final String xmlUri,
+            @RequestParam(required = false) final Integer fileId,
+            @RequestParam("xsltUri") final String xsltUri, @RequestParam(required = false) final String format,
+            final HttpServletRequest request, final HttpServletResponse response) {
+        return new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws Exception {
+                return convertXml(xmlUri, fileId, xsltUri, format, request, response);
+            }
+        };
+    } // end of method proxyXmlWithConversion
+
+    /**
+     * Fetches XML file and applies XSLT conversion. See
+     * {@link #proxyXmlWithConversion(String, Integer, String, String, HttpServletRequest, HttpServletResponse)}.
+     *
+     * @param xmlUri   remote xml file URI
+     * @param fileId   WebQ session file ID to be used for applying authorisation info
+     * @param xsltUri  remote xslt file URI
+     * @param format   optional response format. Only json is supported, default is xml
+     * @param request  standard HttpServletRequest
+     * @param response standard HttpServletResponse
+     * @return converted XML content
      * @throws UnsupportedEncodingException Cannot convert xml to UTF-8
      * @throws URISyntaxException           xmlUri or xsltUri is incorrect
      * @throws FileNotAvailableException    xml or xslt file is not available
      * @throws TransformerException         error when applying xslt transformation on xml
      */
-    @RequestMapping(value = "/proxyXmlWithConversion", method = RequestMethod.GET, produces = "text/html;charset=utf-8")
-    @ResponseBody
-    public byte[] proxyXmlWithConversion(@RequestParam("xmlUri") String xmlUri,
-            @RequestParam(required = false) Integer fileId,
-            @RequestParam("xsltUri") String xsltUri, @RequestParam(required = false) String format, HttpServletRequest request
-            , HttpServletResponse response)
+    private byte[] convertXml(String xmlUri, Integer fileId, String xsltUri, String format, HttpServletRequest request,
+            HttpServletResponse response)
             throws UnsupportedEncodingException, URISyntaxException, FileNotAvailableException, TransformerException {
 
         byte[] xml = null;
@@ -339,11 +526,11 @@ public class WebQProxyDelegation {
 
         if (file != null && ProxyDelegationHelper
                 .isCompanyIdParameterValidForBdrEnvelope(request.getRequestURI(), file.getEnvelope())) {
-            xml = restProxyGetWithAuth(xmlUri, fileId, request).getBytes("UTF-8");
+            xml = getWithAuth(xmlUri, fileId, request).getBytes("UTF-8");
         } else {
-            xml = new RestTemplate().getForObject(new URI(xmlUri), byte[].class);
+            xml = fetchAnonymously(new URI(xmlUri));
         }
-        byte[] xslt = new RestTemplate().getForObject(new URI(xsltUri), byte[].class);
+        byte[] xslt = fetchAnonymously(new URI(xsltUri));
         Source xslSource = new StreamSource(new ByteArrayInputStream(xslt));
         ByteArrayOutputStream xmlResultOutputStream = new ByteArrayOutputStream();
 
@@ -373,8 +560,57 @@ public class WebQProxyDelegation {
         LOGGER.info("Converted xml uri=" + xmlUri + " with stylesheet=" + xsltUri);
         response.setCharacterEncoding("utf-8");
         return result;
+    }
 
-    } // end of method proxyXmlWithConversion
+    /**
+     * Fetches resource without authorisation. Concurrent requests for the same URI are sent to remote host once.
+     *
+     * @param uri resource URI
+     * @return resource content
+     */
+    private byte[] fetchAnonymously(final URI uri) {
+        return singleFlight.execute("proxy-bytes:" + uri, new SingleFlight.Call<byte[], RuntimeException>() {
+            @Override
+            public byte[] call() {
+                return restTemplate.getForObject(uri, byte[].class);
+            }
+        }, RuntimeException.class);
+    }
+
+    /**
+     * Resolves target URI and authorisation headers for proxied request. CDR envelope authorisation is used for
+     * envelope URLs, known host authorisation is used for other hosts, if user file is authorized.
+     *
+     * @param uri     the actual uri to make the request
+     * @param fileId  optional user session file ID
+     * @param request standard HttpServletRequest
+     * @return proxy target
+     * @throws URISyntaxException wrong uri
+     */
+    private ProxyTarget resolveProxyTarget(String uri, Integer fileId, HttpServletRequest request)
+            throws URISyntaxException {
+        HttpHeaders headers = new HttpHeaders();
+        UserFile file = fileId != null && fileId > 0 ? userFileHelper.getUserFile(fileId, request) : null;
+
+        if (file != null && ProxyDelegationHelper.isCompanyIdParameterValidForBdrEnvelope(uri, file.getEnvelope())) {
+            if (StringUtils.startsWith(uri, file.getEnvelope())) {
+                headers = envelopeService.getAuthorizationHeader(file);
+            } else if (file.isAuthorized()) {
+                KnownHost knownHost = knownHostsService.getKnownHost(uri);
+                if (knownHost != null) {
+                    if (knownHost.getAuthenticationMethod() == KnownHostAuthenticationMethod.REQUEST_PARAMETER) {
+                        LOGGER.info("Add ticket parameter from known hosts to URL: " + uri);
+                        uri += (uri.contains("?")) ? "&" : "?";
+                        uri += knownHost.getKey() + "=" + knownHost.getTicket();
+                    } else if (knownHost.getAuthenticationMethod() == KnownHostAuthenticationMethod.BASIC) {
+                        LOGGER.info("Add basic auth from known hosts to URL: " + uri);
+                        headers = getHttpHeaderWithBasicAuthentication(knownHost);
+                    }
+                }
+            }
+        }
+        return new ProxyTarget(new URI(uri), headers);
+    }
 
     /**
      * Create HttpHeader with basic authentication info.
@@ -393,4 +629,112 @@ public class WebQProxyDelegation {
         }
         return authorization;
     }
+
+    /**
+     * Copies stream content using buffer of configured size.
+     *
+     * @param input  stream to read from
+     * @param output stream to write to
+     * @throws IOException if reading or writing fails
+     */
+    private void copy(InputStream input, OutputStream output) throws IOException {
+        byte[] buffer = new byte[passthroughBufferSize];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+        }
+    }
+
+    /**
+     * Proxied request target with authorisation headers.
+     */
+    private static final class ProxyTarget {
+        /** Target URI. */
+        private final URI uri;
+        /** Authorisation headers. */
+        private final HttpHeaders headers;
+
+        /**
+         * Creates proxy target.
+         *
+         * @param uri target URI
+         * @param headers authorisation headers
+         */
+        ProxyTarget(URI uri, HttpHeaders headers) {
+            this.uri = uri;
+            this.headers = headers;
+        }
+    }
+
+    /**
+     * Adds authorisation headers to upstream request and streams incoming request body, if it is given.
+     */
+    private final class PassthroughRequestCallback implements RequestCallback {
+        /** Authorisation headers. */
+        private final HttpHeaders headers;
+        /** Incoming request to be forwarded or null if request has no body. */
+        private final ServletServerHttpRequest incoming;
+
+        /**
+         * Creates callback.
+         *
+         * @param headers authorisation headers
+         * @param incoming incoming request to be forwarded or null
+         */
+        PassthroughRequestCallback(HttpHeaders headers, ServletServerHttpRequest incoming) {
+            this.headers = headers;
+            this.incoming = incoming;
+        }
+
+        @Override
+        public void doWithRequest(ClientHttpRequest upstreamRequest) throws IOException {
+            upstreamRequest.getHeaders().putAll(headers);
+            if (incoming != null) {
+                MediaType contentType = incoming.getHeaders().getContentType();
+                if (contentType != null) {
+                    upstreamRequest.getHeaders().setContentType(contentType);
+                }
+                copy(incoming.getBody(), upstreamRequest.getBody());
+            }
+        }
+    }
+
+    /**
+     * Streams upstream response to servlet response.
+     */
+    private final class PassthroughResponseExtractor implements ResponseExtractor<Void> {
+        /** Response headers copied from upstream response. */
+        private final String[] passedHeaders = {HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_LENGTH,
+                HttpHeaders.CONTENT_ENCODING, "Content-Disposition"};
+        /** Servlet response. */
+        private final HttpServletResponse response;
+
+        /**
+         * Creates extractor.
+         *
+         * @param response servlet response
+         */
+        PassthroughResponseExtractor(HttpServletResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public Void extractData(ClientHttpResponse upstreamResponse) throws IOException {
+            response.setStatus(upstreamResponse.getRawStatusCode());
+            HttpHeaders upstreamHeaders = upstreamResponse.getHeaders();
+            for (String header : passedHeaders) {
+                String value = upstreamHeaders.getFirst(header);
+                if (value != null) {
+                    response.setHeader(header, value);
+                }
+            }
+            InputStream body = upstreamResponse.getBody();
+            if (body != null) {
+                OutputStream output = response.getOutputStream();
+                copy(body, output);
+                output.flush();
+            }
+            return null;
+        }
+    }
 } // end of class WebQProxyDelegation
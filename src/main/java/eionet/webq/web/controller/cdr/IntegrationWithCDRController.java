@@ -50,6 +50,7 @@ import javax.servlet.http.HttpServletResponse;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * Provides integration options with CDR.
@@ -95,18 +96,35 @@ public class IntegrationWithCDRController {
     /**
      * Deliver with WebForms.
      *
+     * Envelope files are listed asynchronously, so the container thread is not held while CDR responds.
+     *
      * @param request parameters of this action
      * @param model   model
      * @return view name
-     * @throws eionet.webq.service.FileNotAvailableException if one redirect to xform remote file not found.
      */
     @RequestMapping("/WebQMenu")
-    public String webQMenu(HttpServletRequest request, Model model)
-            throws FileNotAvailableException {
-        CdrRequest parameters = convertAndPutResultIntoSession(request);
+    public Callable<String> webQMenu(HttpServletRequest request, final Model model) {
+        final CdrRequest parameters = convertAndPutResultIntoSession(request);
 
         LOGGER.info("Received WebQMenu request with parameters:" + parameters.toString());
 
+        return new Callable<String>() {
+            @Override
+            public String call() throws FileNotAvailableException {
+                return webQMenu(parameters, model);
+            }
+        };
+    }
+
+    /**
+     * Chooses WebQMenu response based on envelope files and available web forms.
+     *
+     * @param parameters cdr parameters
+     * @param model      model
+     * @return view name
+     * @throws FileNotAvailableException if one redirect to xform remote file not found.
+     */
+    private String webQMenu(CdrRequest parameters, Model model) throws FileNotAvailableException {
         // For local tests
         //MultiValueMap<String, XmlFile> xmlFiles = new LinkedMultiValueMap<>();
         MultiValueMap<String, XmlFile> xmlFiles = envelopeService.getXmlFiles(parameters);
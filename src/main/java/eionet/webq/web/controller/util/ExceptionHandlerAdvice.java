@@ -2,10 +2,12 @@ package eionet.webq.web.controller.util;
 
 import org.apache.log4j.Logger;
 import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
 import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.servlet.ModelAndView;
 
@@ -39,4 +41,14 @@ public class ExceptionHandlerAdvice {
         modelAndView.addObject(EXCEPTION_MESSAGE, exceptionMessage);
         return modelAndView;
     }
+
+    @ExceptionHandler({TaskRejectedException.class, AsyncRequestTimeoutException.class})
+    public ModelAndView asyncRequestNotProcessedHandler(Exception exception) {
+        LOGGER.warn("Asynchronous request not processed: " + exception);
+        ModelAndView modelAndView = new ModelAndView(ERROR_VIEW);
+        modelAndView.setStatus(HttpStatus.SERVICE_UNAVAILABLE);
+        modelAndView.addObject(EXCEPTION_STATUS, HttpStatus.SERVICE_UNAVAILABLE.value());
+        modelAndView.addObject(EXCEPTION_MESSAGE, "Service is busy, please try again later.");
+        return modelAndView;
+    }
 }
@@ -0,0 +1,203 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.web.controller.util;
+
+import eionet.webq.converter.JsonXMLBidirectionalConverter;
+import eionet.webq.dao.orm.ProjectEntry;
+import eionet.webq.dao.orm.ProjectFile;
+import eionet.webq.dao.orm.UserFile;
+import eionet.webq.service.CDREnvelopeService;
+import eionet.webq.service.FileNotAvailableException;
+import eionet.webq.service.ProjectFileService;
+import eionet.webq.service.ProjectService;
+import eionet.webq.service.UserFileService;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads files served by own {@code /download/...} and {@code /webform/project/...} endpoints directly from services,
+ * so proxied requests to these endpoints do not make an HTTP request back to this application.
+ */
+@Component
+public class LocalFileFetcher {
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(LocalFileFetcher.class);
+    /**
+     * User file download path.
+     */
+    private static final String USER_FILE_PATH = "/download/user_file";
+    /**
+     * Project file download path, groups are project id and file name.
+     */
+    private static final Pattern PROJECT_FILE_PATH = Pattern.compile("/(?:download|webform)/project/([^/]+)/file/(.+)");
+    /**
+     * Service for getting user file content from storage.
+     */
+    @Autowired
+    private UserFileService userFileService;
+    /**
+     * Service for getting projects.
+     */
+    @Autowired
+    private ProjectService projectService;
+    /**
+     * Service for getting project file content from storage.
+     */
+    @Autowired
+    private ProjectFileService projectFileService;
+    /**
+     * Cdr envelope service.
+     */
+    @Autowired
+    private CDREnvelopeService envelopeService;
+    /**
+     * Json to XML converter.
+     */
+    @Autowired
+    private JsonXMLBidirectionalConverter jsonXMLConverter;
+
+    /**
+     * Application relative path of uri, if it points to this application.
+     * Relative uris are resolved against application root, absolute uris must start with application url.
+     *
+     * @param uri         requested uri
+     * @param contextPath servlet context path
+     * @param webqUrl     absolute application url
+     * @return path inside application or null if uri is not local
+     */
+    public String localPath(URI uri, String contextPath, String webqUrl) {
+        if (uri.isAbsolute()) {
+            String path = StringUtils.removeEnd(webqUrl, "/");
+            if (StringUtils.isEmpty(path) || !StringUtils.startsWith(uri.toString(), path + "/")) {
+                return null;
+            }
+            try {
+                return StringUtils.removeStart(uri.getPath(), new URI(path).getPath());
+            } catch (URISyntaxException e) {
+                LOGGER.warn("Application url is not valid URI: " + webqUrl);
+                return null;
+            }
+        }
+        if (uri.getRawAuthority() != null || uri.getPath() == null) {
+            return null;
+        }
+        String path = uri.getPath().startsWith("/") ? uri.getPath() : "/" + uri.getPath();
+        if (StringUtils.isNotEmpty(contextPath) && path.startsWith(contextPath + "/")) {
+            path = path.substring(contextPath.length());
+        }
+        return path;
+    }
+
+    /**
+     * Whether application path is served by this fetcher.
+     *
+     * @param path application relative path
+     * @return is served locally
+     */
+    public boolean isSupported(String path) {
+        return path != null && (USER_FILE_PATH.equals(path) || PROJECT_FILE_PATH.matcher(path).matches());
+    }
+
+    /**
+     * Fetches content of user or project file with the same access rules as download endpoints.
+     *
+     * @param path   application relative path, see {@link #isSupported(String)}
+     * @param uri    requested uri, used to read query parameters
+     * @param userId id of the user on whose behalf the file is read
+     * @return file content
+     * @throws FileNotAvailableException if file is not available for given path
+     */
+    @Transactional
+    public byte[] fetch(String path, URI uri, String userId) throws FileNotAvailableException {
+        MultiValueMap<String, String> parameters = UriComponentsBuilder.fromUri(uri).build().getQueryParams();
+        if (USER_FILE_PATH.equals(path)) {
+            return userFileContent(NumberUtils.toInt(parameters.getFirst("fileId"), -1), parameters.getFirst("sessionid"),
+                    userId);
+        }
+        Matcher matcher = PROJECT_FILE_PATH.matcher(path);
+        if (!matcher.matches()) {
+            throw new FileNotAvailableException("Path is not served locally: " + path);
+        }
+        return projectFileContent(matcher.group(1), matcher.group(2), parameters.getFirst("format"));
+    }
+
+    /**
+     * Loads user file content, fetching it from CDR if file is stored there.
+     *
+     * @param fileId    user file id
+     * @param sessionId optional user id given as request parameter
+     * @param userId    current user id
+     * @return file content
+     * @throws FileNotAvailableException if file is not available for given user
+     */
+    private byte[] userFileContent(int fileId, String sessionId, String userId) throws FileNotAvailableException {
+        UserFile file = userFileService.getByIdAndUser(fileId, userId);
+        if (file == null && sessionId != null) {
+            LOGGER.info("Could not find file by user id. Let's try by sessionid parameter.");
+            file = userFileService.getByIdAndUser(fileId, sessionId);
+        }
+        if (file == null) {
+            throw new FileNotAvailableException("The requested user file is not available with fileId: " + fileId);
+        }
+        if (file.isFromCdr() && file.getContent() == null) {
+            try {
+                return envelopeService.fetchFileFromCdr(file, file.getEnvelope() + "/" + file.getName()).getBody();
+            } catch (URISyntaxException e) {
+                throw new FileNotAvailableException("Incorrect CDR file URI for fileId: " + fileId + "." + e.toString());
+            }
+        }
+        return file.getContent();
+    }
+
+    /**
+     * Loads project file content.
+     *
+     * @param projectId project id
+     * @param fileName  file name
+     * @param format    if format=json, then XML file is converted to json format
+     * @return file content
+     * @throws FileNotAvailableException if project file is not available
+     */
+    private byte[] projectFileContent(String projectId, String fileName, String format) throws FileNotAvailableException {
+        ProjectEntry project = projectService.getByProjectId(projectId);
+        ProjectFile projectFile = project != null ? projectFileService.fileContentBy(fileName, project) : null;
+        if (projectFile == null) {
+            throw new FileNotAvailableException("The requested project file is not available with path: /project/"
+                    + projectId + "/file/" + fileName);
+        }
+        if ("json".equals(format)) {
+            return jsonXMLConverter.convertXmlToJson(projectFile.getFileContent());
+        }
+        return projectFile.getFileContent();
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.web.filter;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts bytes written to response body. Counter is stored as {@link AtomicLong} in request attribute
+ * {@link #BYTES_ATTRIBUTE}, so it can be read once request processing is completed. Async dispatches of the same request
+ * keep counting into the same counter.
+ */
+public class ByteCountingFilter extends OncePerRequestFilter {
+    /**
+     * Request attribute holding response byte counter.
+     */
+    public static final String BYTES_ATTRIBUTE = ByteCountingFilter.class.getName() + ".BYTES";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        AtomicLong bytes = (AtomicLong) request.getAttribute(BYTES_ATTRIBUTE);
+        if (bytes == null) {
+            bytes = new AtomicLong();
+            request.setAttribute(BYTES_ATTRIBUTE, bytes);
+        }
+        filterChain.doFilter(request, new CountingResponse(response, bytes));
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    /**
+     * Response wrapper counting bytes written to output stream or writer.
+     */
+    static class CountingResponse extends HttpServletResponseWrapper {
+        /**
+         * Bytes counter.
+         */
+        private final AtomicLong bytes;
+        /**
+         * Counting output stream.
+         */
+        private ServletOutputStream outputStream;
+        /**
+         * Counting writer.
+         */
+        private PrintWriter writer;
+
+        /**
+         * Creates counting response.
+         *
+         * @param response original response
+         * @param bytes    bytes counter
+         */
+        CountingResponse(HttpServletResponse response, AtomicLong bytes) {
+            super(response);
+            this.bytes = bytes;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new CountingOutputStream(super.getOutputStream(), bytes);
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new CountingWriter(super.getWriter(), bytes, getCharacterEncoding());
+            }
+            return writer;
+        }
+    }
+
+    /**
+     * Output stream counting written bytes.
+     */
+    static class CountingOutputStream extends ServletOutputStream {
+        /**
+         * Original output stream.
+         */
+        private final ServletOutputStream delegate;
+        /**
+         * Bytes counter.
+         */
+        private final AtomicLong bytes;
+
+        /**
+         * Creates counting stream.
+         *
+         * @param delegate original stream
+         * @param bytes    bytes counter
+         */
+        CountingOutputStream(ServletOutputStream delegate, AtomicLong bytes) {
+            this.delegate = delegate;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            bytes.incrementAndGet();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            bytes.addAndGet(len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+
+    /**
+     * Writer counting encoded length of written characters. Characters are passed to original writer as is, so
+     * buffering and encoding stay with the container.
+     */
+    static class CountingWriter extends PrintWriter {
+        /**
+         * Bytes counter.
+         */
+        private final AtomicLong bytes;
+        /**
+         * Response character encoding.
+         */
+        private final String encoding;
+
+        /**
+         * Creates counting writer.
+         *
+         * @param delegate original writer
+         * @param bytes    bytes counter
+         * @param encoding response character encoding
+         */
+        CountingWriter(PrintWriter delegate, AtomicLong bytes, String encoding) {
+            super(delegate);
+            this.bytes = bytes;
+            this.encoding = encoding != null ? encoding : "ISO-8859-1";
+        }
+
+        @Override
+        public void write(int c) {
+            super.write(c);
+            bytes.addAndGet(encodedLength(String.valueOf((char) c)));
+        }
+
+        @Override
+        public void write(char[] buf, int off, int len) {
+            super.write(buf, off, len);
+            bytes.addAndGet(encodedLength(new String(buf, off, len)));
+        }
+
+        @Override
+        public void write(String s, int off, int len) {
+            super.write(s, off, len);
+            bytes.addAndGet(encodedLength(s.substring(off, off + len)));
+        }
+
+        /**
+         * Calculates length of text in response encoding.
+         *
+         * @param text text
+         * @return length in bytes
+         */
+        private long encodedLength(String text) {
+            try {
+                return text.getBytes(encoding).length;
+            } catch (UnsupportedEncodingException e) {
+                return text.length();
+            }
+        }
+    }
+}
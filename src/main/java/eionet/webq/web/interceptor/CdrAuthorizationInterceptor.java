@@ -41,6 +41,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
 
+import javax.servlet.DispatcherType;
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -124,6 +125,10 @@ public class CdrAuthorizationInterceptor extends HandlerInterceptorAdapter {
 
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            // request was already authorized before asynchronous processing started
+            return PROCEED;
+        }
         String authorization = request.getHeader(AUTHORIZATION_HEADER);
 //        if (true) return PROCEED;
         if (StringUtils.isNotEmpty(authorization) || request.getParameter("auth") != null) {
@@ -0,0 +1,97 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.web.interceptor;
+
+import eionet.webq.metrics.RequestMetrics;
+import eionet.webq.metrics.SqlMetrics;
+import eionet.webq.web.filter.ByteCountingFilter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records latency, status, response size and SQL statements count of every handled request in {@link RequestMetrics}.
+ * Asynchronously processed requests are measured from the first dispatch until completion of the async dispatch.
+ */
+@Component(value = "requestMetricsInterceptor")
+public class RequestMetricsInterceptor extends HandlerInterceptorAdapter {
+    /**
+     * Request attribute holding request start time in nanoseconds.
+     */
+    static final String START_ATTRIBUTE = RequestMetricsInterceptor.class.getName() + ".START";
+    /**
+     * Endpoint name used for static resources.
+     */
+    static final String STATIC_RESOURCES = "static";
+    /**
+     * Request metrics registry.
+     */
+    @Autowired
+    RequestMetrics requestMetrics;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (request.getAttribute(START_ATTRIBUTE) == null) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex)
+            throws Exception {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start == null) {
+            return;
+        }
+        request.removeAttribute(START_ATTRIBUTE);
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - (Long) start);
+        Object bytes = request.getAttribute(ByteCountingFilter.BYTES_ATTRIBUTE);
+        Object statements = request.getAttribute(SqlMetrics.REQUEST_STATEMENTS_ATTRIBUTE);
+        requestMetrics.record(endpointName(handler), micros, response.getStatus(), ex != null,
+                bytes instanceof AtomicLong ? ((AtomicLong) bytes).get() : -1,
+                statements instanceof AtomicInteger ? ((AtomicInteger) statements).get() : 0);
+    }
+
+    /**
+     * Endpoint name of handler: controller class and method name for handler methods.
+     *
+     * @param handler request handler
+     * @return endpoint name
+     */
+    static String endpointName(Object handler) {
+        if (handler instanceof HandlerMethod) {
+            HandlerMethod method = (HandlerMethod) handler;
+            return method.getBeanType().getSimpleName() + "." + method.getMethod().getName();
+        }
+        if (handler instanceof ResourceHttpRequestHandler) {
+            return STATIC_RESOURCES;
+        }
+        return handler.getClass().getSimpleName();
+    }
+}
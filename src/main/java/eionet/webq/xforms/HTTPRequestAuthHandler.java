@@ -38,7 +38,8 @@ public interface HTTPRequestAuthHandler {
      *
      * @param httpRequestBase Get, post, delete or put HTTP request method.
      * @param context Map of context parameters.
+     * @return scope of credentials added to request.
      */
-    void addAuthToHttpRequest(HttpRequestBase httpRequestBase, Map<Object, Object> context);
+    RequestAuthScope addAuthToHttpRequest(HttpRequestBase httpRequestBase, Map<Object, Object> context);
 
 }
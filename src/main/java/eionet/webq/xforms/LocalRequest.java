@@ -0,0 +1,428 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.xforms;
+
+import org.apache.http.client.utils.DateUtils;
+import org.springframework.util.LinkedCaseInsensitiveMap;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Request to the application made from XForms engine and dispatched in the same process. User session and cookies
+ * are taken from the request being processed, everything else is defined by the XForms request. Attributes are kept
+ * separately, so the dispatched request does not see or change attributes of the original request, except attributes
+ * reserved for the servlet container, which are read from the wrapped request: Tomcat keeps the state of a dispatch,
+ * e.g. its dispatcher type, in attributes of the request wrapper it inserts under this one, and skips invoking the
+ * target servlet if it does not find them.
+ */
+class LocalRequest extends HttpServletRequestWrapper {
+    /**
+     * Name prefixes of attributes reserved for the servlet container.
+     */
+    private static final String[] CONTAINER_ATTRIBUTE_PREFIXES =
+            {"javax.", "org.apache.catalina.", "org.apache.tomcat."};
+    /**
+     * Request method.
+     */
+    private final String method;
+    /**
+     * Request URI as sent, including context path.
+     */
+    private final String requestUri;
+    /**
+     * Decoded path within application.
+     */
+    private final String path;
+    /**
+     * Query string, may be null.
+     */
+    private final String queryString;
+    /**
+     * Request body.
+     */
+    private final byte[] body;
+    /**
+     * Request body content type, may be null.
+     */
+    private final String contentType;
+    /**
+     * Request body encoding.
+     */
+    private String characterEncoding;
+    /**
+     * Request parameters from query string.
+     */
+    private final Map<String, String[]> parameters = new LinkedHashMap<String, String[]>();
+    /**
+     * Request headers.
+     */
+    private final Map<String, List<String>> headers = new LinkedCaseInsensitiveMap<List<String>>();
+    /**
+     * Request attributes.
+     */
+    private final Map<String, Object> attributes = new HashMap<String, Object>();
+
+    /**
+     * Creates request.
+     *
+     * @param request           request being processed
+     * @param method            request method
+     * @param requestUri        request URI as sent, including context path
+     * @param path              decoded path within application
+     * @param queryString       query string, may be null
+     * @param body              request body, may be null
+     * @param contentType       request body content type, may be null
+     * @param characterEncoding request body encoding, may be null
+     */
+    LocalRequest(HttpServletRequest request, String method, String requestUri, String path, String queryString,
+            byte[] body, String contentType, String characterEncoding) {
+        super(request);
+        this.method = method;
+        this.requestUri = requestUri;
+        this.path = path;
+        this.queryString = queryString;
+        this.body = body != null ? body : new byte[0];
+        this.contentType = contentType;
+        this.characterEncoding = characterEncoding;
+        parseQueryString();
+        String cookie = request.getHeader("Cookie");
+        if (cookie != null) {
+            addHeader("Cookie", cookie);
+        }
+        if (contentType != null) {
+            addHeader("Content-Type", contentType);
+        }
+    }
+
+    /**
+     * Adds request header.
+     *
+     * @param name  header name
+     * @param value header value
+     */
+    void addHeader(String name, String value) {
+        List<String> values = headers.get(name);
+        if (values == null) {
+            values = new ArrayList<String>();
+            headers.put(name, values);
+        }
+        values.add(value);
+    }
+
+    @Override
+    public String getMethod() {
+        return method;
+    }
+
+    @Override
+    public String getRequestURI() {
+        return requestUri;
+    }
+
+    @Override
+    public StringBuffer getRequestURL() {
+        HttpServletRequest request = (HttpServletRequest) getRequest();
+        return new StringBuffer(request.getScheme()).append("://").append(request.getServerName()).append(':')
+                .append(request.getServerPort()).append(getRequestURI());
+    }
+
+    @Override
+    public String getServletPath() {
+        return path;
+    }
+
+    @Override
+    public String getPathInfo() {
+        return null;
+    }
+
+    @Override
+    public String getPathTranslated() {
+        return null;
+    }
+
+    @Override
+    public String getQueryString() {
+        return queryString;
+    }
+
+    @Override
+    public String getParameter(String name) {
+        String[] values = parameters.get(name);
+        return values != null ? values[0] : null;
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        return Collections.unmodifiableMap(parameters);
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(parameters.keySet());
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        return parameters.get(name);
+    }
+
+    @Override
+    public String getHeader(String name) {
+        List<String> values = headers.get(name);
+        return values != null ? values.get(0) : null;
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+        List<String> values = headers.get(name);
+        return Collections.enumeration(values != null ? values : Collections.<String>emptyList());
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+        return Collections.enumeration(headers.keySet());
+    }
+
+    @Override
+    public int getIntHeader(String name) {
+        String value = getHeader(name);
+        return value != null ? Integer.parseInt(value) : -1;
+    }
+
+    @Override
+    public long getDateHeader(String name) {
+        String value = getHeader(name);
+        if (value == null) {
+            return -1;
+        }
+        Date date = DateUtils.parseDate(value);
+        if (date == null) {
+            throw new IllegalArgumentException("Invalid date header " + name + ": " + value);
+        }
+        return date.getTime();
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public int getContentLength() {
+        return body.length;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        return body.length;
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return characterEncoding;
+    }
+
+    @Override
+    public void setCharacterEncoding(String characterEncoding) {
+        this.characterEncoding = characterEncoding;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        return new BodyInputStream(body);
+    }
+
+    @Override
+    public BufferedReader getReader() throws UnsupportedEncodingException {
+        return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body),
+                characterEncoding != null ? characterEncoding : "ISO-8859-1"));
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        Object value = attributes.get(name);
+        if (value == null && isContainerAttribute(name)) {
+            value = super.getAttribute(name);
+        }
+        return value;
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        Set<String> names = new LinkedHashSet<String>(attributes.keySet());
+        for (String name : Collections.list(super.getAttributeNames())) {
+            if (isContainerAttribute(name)) {
+                names.add(name);
+            }
+        }
+        return Collections.enumeration(names);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+
+    /**
+     * Checks whether attribute is reserved for the servlet container.
+     *
+     * @param name attribute name
+     * @return true if attribute is read from wrapped request
+     */
+    private static boolean isContainerAttribute(String name) {
+        for (String prefix : CONTAINER_ATTRIBUTE_PREFIXES) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isAsyncSupported() {
+        return false;
+    }
+
+    @Override
+    public AsyncContext startAsync() {
+        throw new IllegalStateException("Asynchronous processing is not supported for in-process requests");
+    }
+
+    @Override
+    public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) {
+        throw new IllegalStateException("Asynchronous processing is not supported for in-process requests");
+    }
+
+    /**
+     * Parses parameters from query string.
+     */
+    private void parseQueryString() {
+        if (queryString == null) {
+            return;
+        }
+        for (String pair : queryString.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int separator = pair.indexOf('=');
+            String name = decode(separator >= 0 ? pair.substring(0, separator) : pair);
+            String value = separator >= 0 ? decode(pair.substring(separator + 1)) : "";
+            String[] values = parameters.get(name);
+            if (values == null) {
+                parameters.put(name, new String[] {value});
+            } else {
+                String[] extended = new String[values.length + 1];
+                System.arraycopy(values, 0, extended, 0, values.length);
+                extended[values.length] = value;
+                parameters.put(name, extended);
+            }
+        }
+    }
+
+    /**
+     * Decodes query string part.
+     *
+     * @param value encoded value
+     * @return decoded value
+     */
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Input stream reading request body.
+     */
+    static class BodyInputStream extends ServletInputStream {
+        /**
+         * Request body.
+         */
+        private final ByteArrayInputStream body;
+
+        /**
+         * Creates stream.
+         *
+         * @param body request body
+         */
+        BodyInputStream(byte[] body) {
+            this.body = new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public int read() {
+            return body.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            return body.read(b, off, len);
+        }
+
+        @Override
+        public boolean isFinished() {
+            return body.available() == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new IllegalStateException("Non-blocking read is not supported for in-process requests");
+        }
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.xforms;
+
+import de.betterform.connector.http.AbstractHTTPConnector;
+import de.betterform.xml.xforms.exception.XFormsException;
+import de.betterform.xml.xforms.exception.XFormsInternalSubmitException;
+import de.betterform.xml.xforms.model.submission.RequestHeader;
+import de.betterform.xml.xforms.model.submission.RequestHeaders;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.ServletContextAware;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Dispatches requests made by XForms engine to this application in the same process instead of sending them over HTTP.
+ * Only user file downloads, project file downloads and saveXml are dispatched, and only when the request is made while
+ * processing request of the same user session, so the dispatched request is authenticated the same way as the
+ * original one. Dispatched request and response wrap the ones being processed, as servlet specification requires, so
+ * nothing is dispatched if the response being processed is not known. Other requests are left to HTTP connectors.
+ */
+@Component
+public class LocalRequestDispatcher implements ServletContextAware {
+    /**
+     * Name of servlet handling application requests.
+     */
+    static final String DISPATCHER_SERVLET_NAME = "spring-mvc-dispatcher";
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(LocalRequestDispatcher.class);
+    /**
+     * Paths within application dispatched for GET requests.
+     */
+    private static final Pattern GET_PATHS =
+            Pattern.compile("/download/user_file|/(download|webform)/project/[^/]+/file/[^/]+");
+    /**
+     * Paths within application dispatched for POST requests.
+     */
+    private static final Pattern POST_PATHS = Pattern.compile("/saveXml");
+    /**
+     * XForms request headers not passed to dispatched request.
+     */
+    private static final Set<String> SKIPPED_HEADERS = new HashSet<String>(Arrays.asList("cookie", "content-type",
+            "content-length", "content-encoding", "transfer-encoding", "host", "connection", "accept-encoding"));
+    /**
+     * Whether requests are dispatched in process.
+     */
+    @Value("${xforms.local.dispatch.enabled}")
+    boolean enabled;
+    /**
+     * Servlet context of the application.
+     */
+    private ServletContext servletContext;
+
+    @Override
+    public void setServletContext(ServletContext servletContext) {
+        this.servletContext = servletContext;
+    }
+
+    /**
+     * Dispatches request in process if it is addressed to this application and can be served without HTTP.
+     *
+     * @param method      request method
+     * @param uri         request URI
+     * @param body        request body, may be null
+     * @param type        request body content type, may be null
+     * @param encoding    request body encoding, may be null
+     * @param context     XForms connector context
+     * @return response or null if request must be sent over HTTP
+     * @throws XFormsException if dispatch failed or response status is an error
+     */
+    public HttpResponse dispatch(String method, String uri, String body, String type, String encoding,
+            Map<?, ?> context) throws XFormsException {
+        ServletRequestAttributes attributes = currentRequestAttributes();
+        HttpServletRequest current = attributes != null ? attributes.getRequest() : null;
+        HttpServletResponse currentResponse = attributes != null ? attributes.getResponse() : null;
+        if (!enabled || servletContext == null || current == null || currentResponse == null
+                || !isSameSession(current, context)) {
+            return null;
+        }
+        URI target = sameApplicationUri(uri, context, current.getContextPath());
+        if (target == null) {
+            return null;
+        }
+        String path = target.getPath().substring(current.getContextPath().length());
+        Pattern paths = "GET".equals(method) ? GET_PATHS : "POST".equals(method) ? POST_PATHS : null;
+        RequestDispatcher dispatcher = servletContext.getNamedDispatcher(DISPATCHER_SERVLET_NAME);
+        if (paths == null || !paths.matcher(path).matches() || dispatcher == null) {
+            return null;
+        }
+        String charset = StringUtils.defaultIfEmpty(encoding, "ISO-8859-1");
+        byte[] content = body != null ? body.getBytes(Charset.forName(charset)) : null;
+        String contentType = type != null ? type + "; charset=" + charset : null;
+        LocalRequest request = new LocalRequest(current, method, target.getRawPath(), path, target.getRawQuery(),
+                content, contentType, type != null ? charset : null);
+        addContextHeaders(request, context);
+        LocalResponse response = new LocalResponse(currentResponse);
+        try {
+            dispatcher.forward(request, response);
+        } catch (ServletException e) {
+            throw new XFormsException(e);
+        } catch (IOException e) {
+            throw new XFormsException(e);
+        }
+        LOGGER.debug("Dispatched " + method + " " + uri + " in process with status " + response.getStatus());
+        return toHttpResponse(response);
+    }
+
+    /**
+     * Converts response of dispatched request to HTTP client response, failing for error statuses the same way as
+     * XForms HTTP connectors do.
+     *
+     * @param response dispatched request response
+     * @return HTTP client response
+     * @throws XFormsInternalSubmitException if response status is an error
+     */
+    private HttpResponse toHttpResponse(LocalResponse response) throws XFormsInternalSubmitException {
+        int status = response.getStatus();
+        String reason = StringUtils.defaultIfEmpty(response.getErrorMessage(), reasonPhrase(status));
+        byte[] content = response.getContent();
+        if (status >= 300 && status != 302) {
+            throw new XFormsInternalSubmitException(status, reason,
+                    new String(content, Charset.forName(response.getCharacterEncoding())), "resource-error");
+        }
+        BasicHttpResponse httpResponse = new BasicHttpResponse(HttpVersion.HTTP_1_1, status, reason);
+        for (String name : response.getHeaderNames()) {
+            for (String value : response.getHeaders(name)) {
+                httpResponse.addHeader(name, value);
+            }
+        }
+        ByteArrayEntity entity = new ByteArrayEntity(content);
+        entity.setContentType(response.getContentType());
+        httpResponse.setEntity(entity);
+        return httpResponse;
+    }
+
+    /**
+     * Standard reason phrase of status code.
+     *
+     * @param status status code
+     * @return reason phrase or empty string for unknown status
+     */
+    private static String reasonPhrase(int status) {
+        try {
+            return HttpStatus.valueOf(status).getReasonPhrase();
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+
+    /**
+     * Request and response being processed by current thread.
+     *
+     * @return current request attributes or null if thread does not process a request
+     */
+    private ServletRequestAttributes currentRequestAttributes() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes ? (ServletRequestAttributes) attributes : null;
+    }
+
+    /**
+     * Checks whether XForms session belongs to the same HTTP session as current request.
+     *
+     * @param current current request
+     * @param context XForms connector context
+     * @return true if sessions match
+     */
+    private boolean isSameSession(HttpServletRequest current, Map<?, ?> context) {
+        Object sessionId = context.get(XFormsHTTPRequestAuthHandlerImpl.BF_HTTP_SESSION_ATTRIBUTE);
+        HttpSession session = current.getSession(false);
+        return sessionId != null && session != null && sessionId.equals(session.getId());
+    }
+
+    /**
+     * Parses URI and checks that it points to this application, i.e. it has the same scheme, host and port as the
+     * web form and path under application context path.
+     *
+     * @param uri         request URI
+     * @param context     XForms connector context
+     * @param contextPath application context path
+     * @return parsed URI or null if it does not point to this application
+     */
+    private URI sameApplicationUri(String uri, Map<?, ?> context, String contextPath) {
+        Object formUrl = context.get(XFormsHTTPRequestAuthHandlerImpl.BF_REQUEST_URL_ATTRIBUTE);
+        if (uri == null || formUrl == null) {
+            return null;
+        }
+        try {
+            URI target = new URI(uri);
+            URI form = new URI(formUrl.toString());
+            if (target.getScheme() == null || !target.getScheme().equalsIgnoreCase(form.getScheme())
+                    || target.getHost() == null || !target.getHost().equalsIgnoreCase(form.getHost())
+                    || port(target) != port(form) || target.getPath() == null
+                    || !target.getPath().startsWith(contextPath + "/")) {
+                return null;
+            }
+            return target;
+        } catch (URISyntaxException e) {
+            LOGGER.debug("Not dispatching invalid URI in process: " + uri);
+            return null;
+        }
+    }
+
+    /**
+     * Port of URI, using default port of scheme if it is not given.
+     *
+     * @param uri URI
+     * @return port
+     */
+    private static int port(URI uri) {
+        if (uri.getPort() >= 0) {
+            return uri.getPort();
+        }
+        return "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+    }
+
+    /**
+     * Adds headers of XForms request to dispatched request.
+     *
+     * @param request dispatched request
+     * @param context XForms connector context
+     */
+    private void addContextHeaders(LocalRequest request, Map<?, ?> context) {
+        Object headers = context.get(AbstractHTTPConnector.HTTP_REQUEST_HEADERS);
+        if (!(headers instanceof RequestHeaders)) {
+            return;
+        }
+        List<RequestHeader> requestHeaders = ((RequestHeaders) headers).getAllHeaders();
+        for (RequestHeader header : requestHeaders) {
+            if (header.getName() != null && header.getValue() != null
+                    && !SKIPPED_HEADERS.contains(header.getName().toLowerCase(Locale.ENGLISH))) {
+                request.addHeader(header.getName(), header.getValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,386 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.xforms;
+
+import org.apache.http.client.utils.DateUtils;
+import org.springframework.http.MediaType;
+import org.springframework.util.LinkedCaseInsensitiveMap;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Response of request dispatched in the same process. Wraps the response being processed, as servlet specification
+ * requires for dispatched responses, but keeps status, headers and body in memory to be read by the XForms connector
+ * that made the request, so nothing is written to the wrapped response.
+ */
+class LocalResponse extends HttpServletResponseWrapper {
+    /**
+     * Response status.
+     */
+    private int status = SC_OK;
+    /**
+     * Error message given with error status, may be null.
+     */
+    private String errorMessage;
+    /**
+     * Response headers.
+     */
+    private final Map<String, List<String>> headers = new LinkedCaseInsensitiveMap<List<String>>();
+    /**
+     * Response body.
+     */
+    private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+    /**
+     * Response body encoding.
+     */
+    private String characterEncoding = "ISO-8859-1";
+    /**
+     * Response content type, may be null.
+     */
+    private String contentType;
+    /**
+     * Response locale.
+     */
+    private Locale locale = Locale.getDefault();
+    /**
+     * Stream writing to response body.
+     */
+    private ServletOutputStream outputStream;
+    /**
+     * Writer writing to response body.
+     */
+    private PrintWriter writer;
+
+    /**
+     * Creates response wrapping the response being processed.
+     *
+     * @param response response being processed
+     */
+    LocalResponse(HttpServletResponse response) {
+        super(response);
+    }
+
+    /**
+     * Response body.
+     *
+     * @return body content
+     */
+    byte[] getContent() {
+        if (writer != null) {
+            writer.flush();
+        }
+        return content.toByteArray();
+    }
+
+    /**
+     * Error message given with error status.
+     *
+     * @return error message or null
+     */
+    String getErrorMessage() {
+        return errorMessage;
+    }
+
+    @Override
+    public int getStatus() {
+        return status;
+    }
+
+    @Override
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void setStatus(int status, String message) {
+        this.status = status;
+        this.errorMessage = message;
+    }
+
+    @Override
+    public void sendError(int status) {
+        sendError(status, null);
+    }
+
+    @Override
+    public void sendError(int status, String message) {
+        this.status = status;
+        this.errorMessage = message;
+    }
+
+    @Override
+    public void sendRedirect(String location) {
+        status = SC_FOUND;
+        setHeader("Location", location);
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+        return headers.containsKey(name);
+    }
+
+    @Override
+    public String getHeader(String name) {
+        List<String> values = headers.get(name);
+        return values != null ? values.get(0) : null;
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+        List<String> values = headers.get(name);
+        return values != null ? new ArrayList<String>(values) : Collections.<String>emptyList();
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+        return new ArrayList<String>(headers.keySet());
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        headers.remove(name);
+        addHeader(name, value);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if ("Content-Type".equalsIgnoreCase(name)) {
+            setContentType(value);
+            return;
+        }
+        List<String> values = headers.get(name);
+        if (values == null) {
+            values = new ArrayList<String>();
+            headers.put(name, values);
+        }
+        values.add(value);
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        setHeader(name, String.valueOf(value));
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        addHeader(name, String.valueOf(value));
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        setHeader(name, DateUtils.formatDate(new Date(date)));
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+        addHeader(name, DateUtils.formatDate(new Date(date)));
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+        // cookies belong to the response being processed, dispatched request uses its cookies as is
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public void setContentType(String type) {
+        if (type == null) {
+            contentType = null;
+            headers.remove("Content-Type");
+            return;
+        }
+        MediaType mediaType = MediaType.parseMediaType(type);
+        if (mediaType.getCharset() != null) {
+            characterEncoding = mediaType.getCharset().name();
+            contentType = type;
+        } else {
+            contentType = type + ";charset=" + characterEncoding;
+        }
+        headers.put("Content-Type", new ArrayList<String>(Collections.singletonList(contentType)));
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return characterEncoding;
+    }
+
+    @Override
+    public void setCharacterEncoding(String characterEncoding) {
+        this.characterEncoding = characterEncoding;
+        if (contentType != null) {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            setContentType(mediaType.getType() + "/" + mediaType.getSubtype() + ";charset=" + characterEncoding);
+        }
+    }
+
+    @Override
+    public void setContentLength(int length) {
+        setIntHeader("Content-Length", length);
+    }
+
+    @Override
+    public void setContentLengthLong(long length) {
+        setHeader("Content-Length", String.valueOf(length));
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        if (outputStream == null) {
+            outputStream = new ContentOutputStream(content);
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(content, characterEncoding));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        flushBuffer();
+        content.reset();
+    }
+
+    @Override
+    public void reset() {
+        resetBuffer();
+        status = SC_OK;
+        errorMessage = null;
+        headers.clear();
+        contentType = null;
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return false;
+    }
+
+    @Override
+    public int getBufferSize() {
+        return content.size();
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+        // body is kept in memory
+    }
+
+    @Override
+    public String encodeURL(String url) {
+        return url;
+    }
+
+    @Override
+    public String encodeRedirectURL(String url) {
+        return url;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public String encodeUrl(String url) {
+        return url;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public String encodeRedirectUrl(String url) {
+        return url;
+    }
+
+    @Override
+    public Locale getLocale() {
+        return locale;
+    }
+
+    @Override
+    public void setLocale(Locale locale) {
+        this.locale = locale;
+    }
+
+    /**
+     * Output stream writing to response body.
+     */
+    static class ContentOutputStream extends ServletOutputStream {
+        /**
+         * Response body.
+         */
+        private final ByteArrayOutputStream content;
+
+        /**
+         * Creates stream.
+         *
+         * @param content response body
+         */
+        ContentOutputStream(ByteArrayOutputStream content) {
+            this.content = content;
+        }
+
+        @Override
+        public void write(int b) {
+            content.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            content.write(b, off, len);
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new IllegalStateException("Non-blocking write is not supported for in-process requests");
+        }
+    }
+}
@@ -21,8 +21,13 @@
 
 package eionet.webq.xforms;
 
+import java.io.InputStream;
 import java.net.URISyntaxException;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Configurable;
+import org.w3c.dom.Document;
+
 import de.betterform.agent.web.flux.FluxProcessor;
 import de.betterform.generator.UIGenerator;
 import de.betterform.xml.xforms.exception.XFormsException;
@@ -32,12 +37,33 @@ import de.betterform.xml.xforms.exception.XFormsException;
  *
  * @author Enriko Käsper
  */
+@Configurable
 public class WebQFluxProcessor extends FluxProcessor {
+    /**
+     * Limits live XForms sessions per user.
+     */
+    @Autowired
+    XFormsSessionGovernor sessionGovernor;
 
     public WebQFluxProcessor() {
         super();
     }
 
+    /**
+     * Refuses to open new form if user already has maximum allowed count of forms open. Open forms are kept, because
+     * they may contain unsaved data.
+     *
+     * @throws XFormsException if user may not open more forms or form could not be initialized
+     */
+    @Override
+    public void init() throws XFormsException {
+        if (sessionGovernor != null && request != null && !sessionGovernor.mayOpenSession(request)) {
+            throw new XFormsException("You already have " + sessionGovernor.getMaxSessionsPerUser()
+                    + " forms open, which is the maximum allowed. Close or save some of them and try again.");
+        }
+        super.init();
+    }
+
     @Override
     protected UIGenerator createUIGenerator() throws URISyntaxException, XFormsException {
         UIGenerator uiGenerator = super.createUIGenerator();
@@ -50,4 +76,22 @@ public class WebQFluxProcessor extends FluxProcessor {
         return uiGenerator;
     }
 
+    /**
+     * Uses copy of cached parsed web form prepared by {@link eionet.webq.web.controller.PublicPageController} instead of
+     * parsing form again, if it is available.
+     *
+     * @param stream web form content
+     * @throws XFormsException if form could not be read
+     */
+    @Override
+    public void setXForms(InputStream stream) throws XFormsException {
+        Object document = request != null ? request.getAttribute(XFormsDocumentCache.DOCUMENT_ATTRIBUTE) : null;
+        if (document instanceof Document) {
+            request.removeAttribute(XFormsDocumentCache.DOCUMENT_ATTRIBUTE);
+            super.setXForms((Document) document);
+        } else {
+            super.setXForms(stream);
+        }
+    }
+
 }
@@ -0,0 +1,179 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.xforms;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import eionet.webq.dao.orm.ProjectFile;
+import eionet.webq.service.ProjectFileContentChangedEvent;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+import org.w3c.dom.Document;
+
+import javax.annotation.PostConstruct;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Cache of parsed web form documents shared by XForms sessions. Documents are keyed by web form id and last update
+ * time, cached documents are never modified and every XForms session gets its own copy, so only instance data is
+ * built per user.
+ */
+@Component
+public class XFormsDocumentCache implements ApplicationListener<ProjectFileContentChangedEvent> {
+    /**
+     * Request attribute holding web form document copy for XForms processor.
+     */
+    public static final String DOCUMENT_ATTRIBUTE = XFormsDocumentCache.class.getName() + ".DOCUMENT";
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(XFormsDocumentCache.class);
+    /**
+     * Maximum number of cached documents. 0 disables cache.
+     */
+    @Value("${xforms.document.cache.max.size}")
+    int maxSize;
+    /**
+     * Parsed documents by web form.
+     */
+    private Cache<FormKey, Document> documents;
+
+    /**
+     * Creates cache.
+     */
+    @PostConstruct
+    public void init() {
+        documents = CacheBuilder.newBuilder().maximumSize(Math.max(maxSize, 0)).build();
+    }
+
+    /**
+     * Returns copy of parsed web form document, which can be modified by single XForms session.
+     *
+     * @param webForm web form with content
+     * @return document copy or null if web form content is not well-formed XML
+     */
+    public Document sessionCopy(final ProjectFile webForm) {
+        if (maxSize <= 0) {
+            return parse(webForm);
+        }
+        Document document;
+        try {
+            document = documents.get(new FormKey(webForm), new Callable<Document>() {
+                @Override
+                public Document call() throws Exception {
+                    Document parsed = parse(webForm);
+                    if (parsed == null) {
+                        throw new IllegalArgumentException("Web form is not well-formed XML");
+                    }
+                    return parsed;
+                }
+            });
+        } catch (ExecutionException e) {
+            return null;
+        } catch (UncheckedExecutionException e) {
+            return null;
+        }
+        // DOM implementations do not guarantee thread safety even for reads.
+        synchronized (document) {
+            return (Document) document.cloneNode(true);
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(ProjectFileContentChangedEvent event) {
+        for (FormKey key : documents.asMap().keySet()) {
+            if (key.formId == event.getFileId()) {
+                documents.invalidate(key);
+            }
+        }
+    }
+
+    /**
+     * Removes all cached documents.
+     */
+    public void clear() {
+        documents.invalidateAll();
+    }
+
+    /**
+     * Parses web form content the same way as XForms processor does.
+     *
+     * @param webForm web form
+     * @return parsed document or null if content is not well-formed XML
+     */
+    private Document parse(ProjectFile webForm) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setValidating(false);
+            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+            factory.setFeature("http://apache.org/xml/features/dom/defer-node-expansion", false);
+            return factory.newDocumentBuilder().parse(new ByteArrayInputStream(webForm.getFileContent()));
+        } catch (Exception e) {
+            LOGGER.warn("Unable to parse web form " + webForm.getId() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Web form version.
+     */
+    private static final class FormKey {
+        /** Web form id. */
+        private final int formId;
+        /** Web form last update time. */
+        private final long updated;
+
+        /**
+         * Creates key for current web form version.
+         *
+         * @param webForm web form
+         */
+        FormKey(ProjectFile webForm) {
+            Date version = webForm.getUpdated() != null ? webForm.getUpdated() : webForm.getCreated();
+            this.formId = webForm.getId();
+            this.updated = version != null ? version.getTime() : 0;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FormKey)) {
+                return false;
+            }
+            FormKey other = (FormKey) o;
+            return formId == other.formId && updated == other.updated;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * formId + (int) (updated ^ (updated >>> 32));
+        }
+    }
+}
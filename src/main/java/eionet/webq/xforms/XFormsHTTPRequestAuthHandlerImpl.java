@@ -25,8 +25,8 @@ import de.betterform.connector.http.AbstractHTTPConnector;
 import de.betterform.xml.xforms.model.submission.RequestHeader;
 import de.betterform.xml.xforms.model.submission.RequestHeaders;
 import eionet.webq.dao.orm.KnownHost;
-import eionet.webq.dao.orm.UserFile;
 import eionet.webq.dto.KnownHostAuthenticationMethod;
+import eionet.webq.dto.UserFileAuthInfo;
 import eionet.webq.service.KnownHostsService;
 import eionet.webq.service.UserFileService;
 import org.apache.commons.codec.digest.DigestUtils;
@@ -140,7 +140,7 @@ public class XFormsHTTPRequestAuthHandlerImpl implements HTTPRequestAuthHandler
     }
 
     @Override
-    public void addAuthToHttpRequest(HttpRequestBase httpRequestBase, Map<Object, Object> context) {
+    public RequestAuthScope addAuthToHttpRequest(HttpRequestBase httpRequestBase, Map<Object, Object> context) {
 
         String uri = httpRequestBase.getURI().toString();
 
@@ -150,9 +150,10 @@ public class XFormsHTTPRequestAuthHandlerImpl implements HTTPRequestAuthHandler
         Integer fileId = null;
         String authentication = null;
         String sessionId = null;
+        RequestAuthScope scope = RequestAuthScope.NONE;
 
         if (uri == null) {
-            return;
+            return scope;
         }
 
         // load bf context attributes
@@ -183,6 +184,8 @@ public class XFormsHTTPRequestAuthHandlerImpl implements HTTPRequestAuthHandler
         LOGGER.info("Get resource from XForm: " + uri);
 
         if (uri.startsWith(requestURLHost)) {
+            // browser cookies are forwarded to the same (webq) host
+            scope = RequestAuthScope.USER;
             // check if the request on the same (webq) host is done in the same session. Fix session id if required.
             if (sessionId != null) {
                 validateSessionIdInRequestHeader(context, sessionId);
@@ -194,10 +197,10 @@ public class XFormsHTTPRequestAuthHandlerImpl implements HTTPRequestAuthHandler
                 LOGGER.debug("Check if user is logged in to get resource for fileId=" + fileId);
                 if (!context.containsKey(WEBQ_AUTH_ATTRIBUTE)) {
                     // check if user is logged in - ask auth info from user_xml file table
-                    UserFile userFile = userFileService.getById(fileId);
-                    if (userFile.isAuthorized()) {
-                        String authorizationInfo = userFile.getAuthorization();
-                        String cookiesInfo = userFile.getCookies();
+                    UserFileAuthInfo authInfo = userFileService.getAuthInfo(fileId);
+                    if (authInfo != null && authInfo.isAuthorized()) {
+                        String authorizationInfo = authInfo.getAuthorization();
+                        String cookiesInfo = authInfo.getCookies();
                         if (StringUtils.isNotEmpty(authorizationInfo)) {
                             authentication = "Authorization=" + authorizationInfo;
                         } else if (StringUtils.isNotEmpty(cookiesInfo)) {
@@ -231,6 +234,7 @@ public class XFormsHTTPRequestAuthHandlerImpl implements HTTPRequestAuthHandler
                         }
                         */
                         httpRequestBase.addHeader(authAttribute, authAttributeValues);
+                        scope = RequestAuthScope.USER;
                         LOGGER.info("Add " + authAttribute + " from session to URL: " + uri);
                     } else {
                         // check if we have known host in db
@@ -240,6 +244,7 @@ public class XFormsHTTPRequestAuthHandlerImpl implements HTTPRequestAuthHandler
                             if (knownHost.getAuthenticationMethod() == KnownHostAuthenticationMethod.REQUEST_PARAMETER) {
                                 LOGGER.info("Add ticket parameter from known hosts to URL: " + uri);
                                 uri = getUrlWithAuthParam(uri, knownHost);
+                                scope = RequestAuthScope.HOST;
                                 if (!uri.equals(httpRequestBase.getURI().toString())) {
                                     try {
                                         httpRequestBase.setURI(new URI(uri));
@@ -255,6 +260,7 @@ public class XFormsHTTPRequestAuthHandlerImpl implements HTTPRequestAuthHandler
                                     httpRequestBase.addHeader(
                                             "Authorization", "Basic " + Base64.encodeBase64String((knownHost.getKey() + ":"
                                                     + knownHost.getTicket()).getBytes("utf-8")).replaceAll("\n", ""));
+                                    scope = RequestAuthScope.HOST;
                                 } catch (UnsupportedEncodingException e) {
                                     LOGGER.warn("UnsupportedEncodingException: utf-8");
                                 }
@@ -264,5 +270,6 @@ public class XFormsHTTPRequestAuthHandlerImpl implements HTTPRequestAuthHandler
                 }
             }
         }
+        return scope;
     }
 }
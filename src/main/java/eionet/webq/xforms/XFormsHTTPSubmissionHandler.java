@@ -25,6 +25,7 @@ import java.io.UnsupportedEncodingException;
 import java.util.Map;
 
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpGet;
@@ -53,6 +54,11 @@ public class XFormsHTTPSubmissionHandler extends HTTPSubmissionHandler implement
      */
     @Autowired
     HTTPRequestAuthHandler httpRequestAuthHandler;
+    /**
+     * Dispatches requests to this application in process.
+     */
+    @Autowired
+    LocalRequestDispatcher localRequestDispatcher;
 
     @SuppressWarnings("rawtypes")
     @Override
@@ -63,6 +69,9 @@ public class XFormsHTTPSubmissionHandler extends HTTPSubmissionHandler implement
     @SuppressWarnings("unchecked")
     @Override
     protected void get(String uri) throws XFormsException {
+        if (dispatchLocally(HttpGet.METHOD_NAME, uri, null, null, null)) {
+            return;
+        }
         HttpRequestBase httpRequestBase = new HttpGet(uri);
         httpRequestAuthHandler.addAuthToHttpRequest(httpRequestBase, getContext());
         try {
@@ -77,6 +86,9 @@ public class XFormsHTTPSubmissionHandler extends HTTPSubmissionHandler implement
     @SuppressWarnings("unchecked")
     @Override
     protected void post(String uri, String body, String type, String encoding) throws XFormsException {
+        if (dispatchLocally(HttpPost.METHOD_NAME, uri, body, type, encoding)) {
+            return;
+        }
         HttpEntityEnclosingRequestBase httpMethod = new HttpPost(uri);
         httpRequestAuthHandler.addAuthToHttpRequest(httpMethod, getContext());
 
@@ -123,6 +135,35 @@ public class XFormsHTTPSubmissionHandler extends HTTPSubmissionHandler implement
         }
     }
 
+    /**
+     * Dispatches request in process if it is addressed to this application and handles response the same way as HTTP
+     * response.
+     *
+     * @param method request method
+     * @param uri request URI
+     * @param body request body
+     * @param type request body type
+     * @param encoding request encoding
+     * @return true if request was dispatched in process
+     * @throws XFormsException if request failed
+     */
+    @SuppressWarnings("unchecked")
+    private boolean dispatchLocally(String method, String uri, String body, String type, String encoding)
+            throws XFormsException {
+        HttpResponse response = localRequestDispatcher.dispatch(method, uri, body, type, encoding, getContext());
+        if (response == null) {
+            return false;
+        }
+        statusCode = response.getStatusLine().getStatusCode();
+        reasonPhrase = response.getStatusLine().getReasonPhrase();
+        try {
+            handleHttpMethod(response);
+        } catch (Exception e) {
+            throw new XFormsException(e);
+        }
+        return true;
+    }
+
     /**
      * Create encoded HttpEntity with request body.
      *
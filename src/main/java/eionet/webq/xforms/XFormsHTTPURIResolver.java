@@ -21,6 +21,7 @@
 
 package eionet.webq.xforms;
 
+import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,6 +33,7 @@ import de.betterform.xml.xforms.exception.XFormsException;
 
 /**
  * Resolve URIs called from XForms. Add authentication info if available in context or in known hosts table.
+ * Resources requested without user credentials are shared by all sessions through {@link XFormsResourceCache}.
  *
  * @author Enriko Käsper
  */
@@ -42,12 +44,32 @@ public class XFormsHTTPURIResolver extends HTTPURIResolver implements URIResolve
      */
     @Autowired
     HTTPRequestAuthHandler httpRequestAuthHandler;
+    /**
+     * Dispatches requests to this application in process.
+     */
+    @Autowired
+    LocalRequestDispatcher localRequestDispatcher;
+    /**
+     * Resources shared by all sessions.
+     */
+    @Autowired
+    XFormsResourceCache xformsResourceCache;
 
     @SuppressWarnings("unchecked")
     @Override
     protected void get(String uri) throws XFormsException {
+        HttpResponse localResponse =
+                localRequestDispatcher.dispatch(HttpGet.METHOD_NAME, uri, null, null, null, getContext());
+        if (localResponse != null) {
+            handleResponse(localResponse);
+            return;
+        }
         HttpRequestBase httpRequestBase = new HttpGet(uri);
-        httpRequestAuthHandler.addAuthToHttpRequest(httpRequestBase, getContext());
+        RequestAuthScope scope = httpRequestAuthHandler.addAuthToHttpRequest(httpRequestBase, getContext());
+        if (xformsResourceCache.isCacheable(httpRequestBase, scope)) {
+            handleResponse(xformsResourceCache.get(httpRequestBase, scope));
+            return;
+        }
         try {
             execute(httpRequestBase);
         } catch (XFormsException e) {
@@ -57,4 +79,19 @@ public class XFormsHTTPURIResolver extends HTTPURIResolver implements URIResolve
         }
     }
 
+    /**
+     * Handles response of request dispatched in process or served from cache the same way as HTTP response.
+     *
+     * @param response response
+     * @throws XFormsException if response could not be read
+     */
+    private void handleResponse(HttpResponse response) throws XFormsException {
+        statusCode = response.getStatusLine().getStatusCode();
+        reasonPhrase = response.getStatusLine().getReasonPhrase();
+        try {
+            handleHttpMethod(response);
+        } catch (Exception e) {
+            throw new XFormsException(e);
+        }
+    }
 }
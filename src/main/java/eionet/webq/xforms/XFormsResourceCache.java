@@ -0,0 +1,384 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.xforms;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import de.betterform.xml.xforms.exception.XFormsException;
+import de.betterform.xml.xforms.exception.XFormsInternalSubmitException;
+import eionet.webq.service.HttpCachingPolicy;
+import eionet.webq.service.SingleFlight;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestOperations;
+
+import javax.annotation.PostConstruct;
+import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of external resources loaded by XForms engine, shared by all sessions. Only GET requests made without user
+ * credentials (anonymous or with known host credentials) are cached; these are sent without browser headers, so
+ * responses never depend on the user. Upstream caching headers are followed, see {@link HttpCachingPolicy}, and stale
+ * resources are revalidated with conditional requests. Hits, misses and revalidations are counted per URL.
+ */
+@Component
+public class XFormsResourceCache {
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(XFormsResourceCache.class);
+    /**
+     * Approximate memory overhead of one cache entry.
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 512;
+    /**
+     * Template for resource requests.
+     */
+    @Autowired
+    @Qualifier("defaultRestTemplate")
+    RestOperations restOperations;
+    /**
+     * Collapses concurrent requests for the same resource.
+     */
+    @Autowired
+    SingleFlight singleFlight;
+    /**
+     * Maximum total size of cached resources. 0 disables cache.
+     */
+    @Value("${xforms.resource.cache.max.size.mb}")
+    long maxSizeMb;
+    /**
+     * Maximum freshness lifetime estimated from Last-Modified header.
+     */
+    @Value("${xforms.resource.cache.max.heuristic.freshness.seconds}")
+    long maxHeuristicFreshnessSeconds;
+    /**
+     * Maximum number of URLs with collected statistics.
+     */
+    @Value("${xforms.resource.cache.statistics.max.size}")
+    long statisticsMaxSize;
+    /**
+     * Cached resources by auth scope and URI.
+     */
+    private Cache<String, CachedResource> resources;
+    /**
+     * Statistics by URL without query.
+     */
+    private Cache<String, ResourceStatistics> statistics;
+
+    /**
+     * Creates cache.
+     */
+    @PostConstruct
+    public void init() {
+        resources = CacheBuilder.newBuilder().maximumWeight(Math.max(maxSizeMb, 0) * FileUtils.ONE_MB)
+                .weigher(new Weigher<String, CachedResource>() {
+                    @Override
+                    public int weigh(String key, CachedResource value) {
+                        return value.body.length + ENTRY_OVERHEAD_BYTES;
+                    }
+                }).build();
+        statistics = CacheBuilder.newBuilder().maximumSize(Math.max(statisticsMaxSize, 0)).build();
+    }
+
+    /**
+     * Checks whether request may be served from shared cache.
+     *
+     * @param request request with credentials added
+     * @param scope   scope of added credentials
+     * @return true if request is cacheable
+     */
+    public boolean isCacheable(HttpRequestBase request, RequestAuthScope scope) {
+        if (maxSizeMb <= 0 || scope == null || scope == RequestAuthScope.USER
+                || !HttpGet.METHOD_NAME.equals(request.getMethod())) {
+            return false;
+        }
+        String scheme = request.getURI().getScheme();
+        return "http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme);
+    }
+
+    /**
+     * Returns resource, using cached one if it is fresh or still valid. Concurrent requests for the same resource are
+     * sent to upstream once. Error responses are reported the same way as by XForms HTTP connectors.
+     *
+     * @param request request with credentials added, see {@link #isCacheable(HttpRequestBase, RequestAuthScope)}
+     * @param scope   scope of added credentials
+     * @return resource response
+     * @throws XFormsException if resource is not available
+     */
+    public HttpResponse get(HttpRequestBase request, RequestAuthScope scope) throws XFormsException {
+        final URI uri = request.getURI();
+        final String key = scope + " " + uri;
+        final HttpHeaders headers = new HttpHeaders();
+        for (Header header : request.getAllHeaders()) {
+            headers.add(header.getName(), header.getValue());
+        }
+        CachedResource cached = resources.getIfPresent(key);
+        if (cached != null && cached.isFresh(System.currentTimeMillis())) {
+            statisticsFor(uri).hits.incrementAndGet();
+            return cached.toHttpResponse();
+        }
+        CachedResource resource = singleFlight.execute("xforms-resource:" + key,
+                new SingleFlight.Call<CachedResource, XFormsException>() {
+                    @Override
+                    public CachedResource call() throws XFormsException {
+                        return fetch(key, uri, headers);
+                    }
+                }, XFormsException.class);
+        return resource.toHttpResponse();
+    }
+
+    /**
+     * Statistics of requested URLs.
+     *
+     * @return statistics
+     */
+    public Collection<ResourceStatistics> getStatistics() {
+        return Collections.unmodifiableCollection(statistics.asMap().values());
+    }
+
+    /**
+     * Removes all cached resources.
+     */
+    public void clear() {
+        resources.invalidateAll();
+    }
+
+    /**
+     * Fetches resource from upstream, revalidating cached resource if it is available.
+     *
+     * @param key     cache key
+     * @param uri     resource URI
+     * @param headers request headers with credentials
+     * @return resource
+     * @throws XFormsException if resource is not available
+     */
+    private CachedResource fetch(String key, URI uri, HttpHeaders headers) throws XFormsException {
+        CachedResource cached = resources.getIfPresent(key);
+        long now = System.currentTimeMillis();
+        if (cached != null && cached.isFresh(now)) {
+            statisticsFor(uri).hits.incrementAndGet();
+            return cached;
+        }
+        if (cached != null) {
+            if (cached.etag != null) {
+                headers.set(HttpHeaders.IF_NONE_MATCH, cached.etag);
+            }
+            if (cached.lastModified != null) {
+                headers.set(HttpHeaders.IF_MODIFIED_SINCE, cached.lastModified);
+            }
+        }
+        ResponseEntity<byte[]> response;
+        try {
+            response = restOperations.exchange(uri, HttpMethod.GET, new HttpEntity<Object>(headers), byte[].class);
+        } catch (HttpStatusCodeException e) {
+            resources.invalidate(key);
+            throw new XFormsInternalSubmitException(e.getRawStatusCode(), e.getStatusText(),
+                    e.getResponseBodyAsString(), "resource-error");
+        } catch (RestClientException e) {
+            throw new XFormsException(e);
+        }
+        HttpHeaders responseHeaders = response.getHeaders();
+        if (response.getStatusCode() == HttpStatus.NOT_MODIFIED && cached != null) {
+            LOGGER.debug("XForms resource revalidated " + uri);
+            statisticsFor(uri).revalidations.incrementAndGet();
+            return store(key, cached.body, cached.contentType, responseHeaders, cached, now);
+        }
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            resources.invalidate(key);
+            throw new XFormsInternalSubmitException(response.getStatusCode().value(),
+                    response.getStatusCode().getReasonPhrase(), "", "resource-error");
+        }
+        statisticsFor(uri).misses.incrementAndGet();
+        byte[] body = response.getBody() != null ? response.getBody() : new byte[0];
+        return store(key, body, responseHeaders.getFirst(HttpHeaders.CONTENT_TYPE), responseHeaders, null, now);
+    }
+
+    /**
+     * Stores resource if it is allowed by response headers.
+     *
+     * @param key         cache key
+     * @param body        resource body
+     * @param contentType resource content type
+     * @param headers     response headers
+     * @param revalidated previously cached resource, if response is revalidation result
+     * @param now         response time
+     * @return resource
+     */
+    private CachedResource store(String key, byte[] body, String contentType, HttpHeaders headers,
+            CachedResource revalidated, long now) {
+        String etag = headers.getETag();
+        String lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+        if (revalidated != null) {
+            etag = StringUtils.defaultIfEmpty(etag, revalidated.etag);
+            lastModified = StringUtils.defaultIfEmpty(lastModified, revalidated.lastModified);
+        }
+        long freshUntil =
+                now + HttpCachingPolicy.freshnessLifetime(headers, lastModified, now, maxHeuristicFreshnessSeconds);
+        CachedResource resource = new CachedResource(body, contentType, etag, lastModified, freshUntil);
+        if (!HttpCachingPolicy.isStorable(headers) || (freshUntil <= now && etag == null && lastModified == null)) {
+            resources.invalidate(key);
+        } else {
+            resources.put(key, resource);
+        }
+        return resource;
+    }
+
+    /**
+     * Returns statistics of URL. Query is not part of URL, so known host tickets are not exposed.
+     *
+     * @param uri resource URI
+     * @return statistics
+     */
+    private ResourceStatistics statisticsFor(URI uri) {
+        String url = uri.getScheme() + "://" + uri.getRawAuthority() + StringUtils.defaultString(uri.getRawPath());
+        ResourceStatistics resourceStatistics = statistics.getIfPresent(url);
+        if (resourceStatistics == null) {
+            resourceStatistics = new ResourceStatistics(url);
+            ResourceStatistics existing = statistics.asMap().putIfAbsent(url, resourceStatistics);
+            if (existing != null) {
+                resourceStatistics = existing;
+            }
+        }
+        return resourceStatistics;
+    }
+
+    /**
+     * Hit, miss and revalidation counts of URL.
+     */
+    public static final class ResourceStatistics {
+        /** Resource URL without query. */
+        private final String url;
+        /** Requests served from cache without upstream request. */
+        private final AtomicLong hits = new AtomicLong();
+        /** Requests served by upstream response. */
+        private final AtomicLong misses = new AtomicLong();
+        /** Requests served from cache after upstream confirmed resource is not modified. */
+        private final AtomicLong revalidations = new AtomicLong();
+
+        /**
+         * Creates statistics.
+         *
+         * @param url resource URL
+         */
+        ResourceStatistics(String url) {
+            this.url = url;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public long getHits() {
+            return hits.get();
+        }
+
+        public long getMisses() {
+            return misses.get();
+        }
+
+        public long getRevalidations() {
+            return revalidations.get();
+        }
+    }
+
+    /**
+     * Cached resource with validators.
+     */
+    private static final class CachedResource {
+        /** Resource body. */
+        private final byte[] body;
+        /** Content-Type header value. */
+        private final String contentType;
+        /** ETag header value. */
+        private final String etag;
+        /** Last-Modified header value. */
+        private final String lastModified;
+        /** Time until resource may be used without revalidation. */
+        private final long freshUntil;
+
+        /**
+         * Creates cached resource.
+         *
+         * @param body         resource body
+         * @param contentType  Content-Type header value
+         * @param etag         ETag header value
+         * @param lastModified Last-Modified header value
+         * @param freshUntil   time until resource is fresh
+         */
+        CachedResource(byte[] body, String contentType, String etag, String lastModified, long freshUntil) {
+            this.body = body;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.freshUntil = freshUntil;
+        }
+
+        /**
+         * Whether resource may be used without revalidation.
+         *
+         * @param now current time
+         * @return true if resource is fresh
+         */
+        boolean isFresh(long now) {
+            return now < freshUntil;
+        }
+
+        /**
+         * Creates HTTP client response with resource body.
+         *
+         * @return response
+         */
+        HttpResponse toHttpResponse() {
+            BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.OK.value(),
+                    HttpStatus.OK.getReasonPhrase());
+            ByteArrayEntity entity = new ByteArrayEntity(body);
+            if (contentType != null) {
+                response.addHeader(HttpHeaders.CONTENT_TYPE, contentType);
+                entity.setContentType(contentType);
+            }
+            response.setEntity(entity);
+            return response;
+        }
+    }
+}
@@ -0,0 +1,538 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.xforms;
+
+import eionet.webq.service.RequestBasedUserIdProvider;
+import net.sf.ehcache.CacheException;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.Status;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.event.CacheEventListener;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Governs memory used by live XForms sessions. Every open form keeps a betterForm processor with its documents in
+ * {@value #SESSION_CACHE} cache; this component applies configured global limit and idle time to that cache, counts
+ * live sessions per user, so {@link WebQFluxProcessor} could refuse opening more forms than allowed, and, if enabled,
+ * samples serialized size of live sessions, so heap can be sized from measured data.
+ * <p>
+ * betterForm keeps the cache in ehcache singleton cache manager and removes sessions only through cache operations,
+ * so sessions are counted by listening to cache events, which also report sessions expired or evicted by ehcache.
+ * <p>
+ * Sessions evicted from memory are serialized to disk, if {@code overflowToDisk} is enabled for the cache in
+ * {@code ehcache.xml}; ehcache does not allow enabling disk store for already created cache.
+ * <p>
+ * Measuring size serializes whole betterForm processor of every sampled session into a temporary copy, which costs CPU
+ * and as much heap as the sampled sessions take. Processors are not thread safe, so only sessions not accessed for
+ * configured idle time are measured, as sessions used by form requests could change during serialization.
+ */
+@Component
+public class XFormsSessionGovernor implements CacheEventListener {
+    /**
+     * Name of betterForm session cache.
+     */
+    public static final String SESSION_CACHE = "xfSessionCache";
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(XFormsSessionGovernor.class);
+    /**
+     * Provides id of the user who opened the session.
+     */
+    @Autowired
+    RequestBasedUserIdProvider userIdProvider;
+    /**
+     * Maximum count of live sessions kept in memory. 0 keeps value from ehcache.xml.
+     */
+    @Value("${xforms.sessions.max.total}")
+    int maxTotal;
+    /**
+     * Maximum count of live sessions per user. 0 disables limit.
+     */
+    @Value("${xforms.sessions.max.per.user}")
+    int maxPerUser;
+    /**
+     * Time after which session not accessed is removed. 0 keeps value from ehcache.xml.
+     */
+    @Value("${xforms.sessions.idle.seconds}")
+    long idleSeconds;
+    /**
+     * Maximum count of sessions measured in one size sample. 0 disables measuring.
+     */
+    @Value("${xforms.sessions.size.sample.max}")
+    int sizeSampleMax;
+    /**
+     * Time session must not be accessed before its size is measured.
+     */
+    @Value("${xforms.sessions.size.sample.min.idle.seconds}")
+    long sizeSampleMinIdleSeconds;
+    /**
+     * Session cache.
+     */
+    private Ehcache cache;
+    /**
+     * Session keys by user id, in order of creation.
+     */
+    private final Map<String, Set<Object>> sessionsByUser = new HashMap<String, Set<Object>>();
+    /**
+     * User id by session key.
+     */
+    private final Map<Object, String> users = new HashMap<Object, String>();
+    /**
+     * Count of created sessions.
+     */
+    private final AtomicLong created = new AtomicLong();
+    /**
+     * Count of sessions removed after idle time.
+     */
+    private final AtomicLong removedIdle = new AtomicLong();
+    /**
+     * Count of sessions evicted from memory because of global limit.
+     */
+    private final AtomicLong removedCapacity = new AtomicLong();
+    /**
+     * Count of new sessions refused because of per user limit.
+     */
+    private final AtomicLong refusedUserLimit = new AtomicLong();
+    /**
+     * Last measured sessions size.
+     */
+    private volatile SessionSizes sizes = new SessionSizes(0, 0, 0, 0);
+
+    /**
+     * Configures betterForm session cache.
+     */
+    @PostConstruct
+    public void init() {
+        init(CacheManager.create());
+    }
+
+    /**
+     * Configures session cache of given cache manager and starts listening to its events.
+     *
+     * @param cacheManager cache manager containing {@value #SESSION_CACHE} cache
+     */
+    void init(CacheManager cacheManager) {
+        cache = cacheManager.getEhcache(SESSION_CACHE);
+        if (cache == null) {
+            LOGGER.warn("XForms session cache " + SESSION_CACHE + " is not configured, sessions are not governed.");
+            return;
+        }
+        CacheConfiguration configuration = cache.getCacheConfiguration();
+        if (maxTotal > 0) {
+            configuration.setMaxElementsInMemory(maxTotal);
+        }
+        if (idleSeconds > 0) {
+            configuration.setTimeToIdleSeconds(idleSeconds);
+        }
+        cache.getCacheEventNotificationService().registerListener(this);
+        LOGGER.info("XForms sessions limited to " + configuration.getMaxElementsInMemory() + " in memory, "
+                + (maxPerUser > 0 ? maxPerUser : "unlimited") + " per user, idle time "
+                + configuration.getTimeToIdleSeconds() + "s, overflow to disk "
+                + (configuration.isOverflowToDisk() ? "up to " + configuration.getMaxElementsOnDisk() : "disabled") + ".");
+    }
+
+    /**
+     * Stops listening to session cache events.
+     */
+    @PreDestroy
+    public void destroy() {
+        if (cache != null && cache.getStatus() == Status.STATUS_ALIVE) {
+            cache.getCacheEventNotificationService().unregisterListener(this);
+        }
+    }
+
+    /**
+     * Removes sessions which are idle longer than allowed. Ehcache checks expiry only when session is accessed, so
+     * memory of abandoned forms is freed by this method.
+     *
+     * @return count of removed sessions
+     */
+    public long evictIdleSessions() {
+        if (cache == null) {
+            return 0;
+        }
+        long before = removedIdle.get();
+        cache.evictExpiredElements();
+        return removedIdle.get() - before;
+    }
+
+    /**
+     * Measures serialized size of idle live sessions in memory, up to configured count of sessions. Sessions are read
+     * without updating their access time, sessions accessed recently are skipped.
+     *
+     * @return measured sizes
+     */
+    public SessionSizes measureSessionSizes() {
+        if (cache == null || sizeSampleMax <= 0) {
+            return sizes;
+        }
+        int count = 0;
+        int notSerializable = 0;
+        long total = 0;
+        long max = 0;
+        long idleSince = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(sizeSampleMinIdleSeconds);
+        for (Object key : cache.getKeysNoDuplicateCheck()) {
+            if (count + notSerializable >= sizeSampleMax) {
+                break;
+            }
+            Element element = cache.isElementInMemory(key) ? cache.getQuiet(key) : null;
+            if (element == null || lastUsed(element) > idleSince) {
+                continue;
+            }
+            long size = element.isSerializable() ? serializedSize(key, element) : 0;
+            if (size <= 0) {
+                notSerializable++;
+                continue;
+            }
+            total += size;
+            max = Math.max(max, size);
+            count++;
+        }
+        sizes = new SessionSizes(count, notSerializable, total, max);
+        return sizes;
+    }
+
+    /**
+     * Time when session was last accessed or updated.
+     *
+     * @param element session cache element
+     * @return time in milliseconds
+     */
+    private static long lastUsed(Element element) {
+        return Math.max(element.getLastAccessTime(), element.getLatestOfCreationAndUpdateTime());
+    }
+
+    /**
+     * Serialized size of session.
+     *
+     * @param key     session key
+     * @param element session cache element
+     * @return size in bytes, 0 if session could not be serialized
+     */
+    private static long serializedSize(Object key, Element element) {
+        try {
+            return element.getSerializedSize();
+        } catch (RuntimeException e) {
+            LOGGER.debug("Could not measure size of XForms session " + key, e);
+            return 0;
+        }
+    }
+
+    /**
+     * Last measured session sizes.
+     *
+     * @return session sizes
+     */
+    public SessionSizes getSessionSizes() {
+        return sizes;
+    }
+
+    /**
+     * Count of live sessions in memory.
+     *
+     * @return session count
+     */
+    public long getSessionsInMemory() {
+        return cache != null ? cache.getMemoryStoreSize() : 0;
+    }
+
+    /**
+     * Count of sessions serialized to disk.
+     *
+     * @return session count
+     */
+    public long getSessionsOnDisk() {
+        return cache != null ? cache.getDiskStoreSize() : 0;
+    }
+
+    /**
+     * Count of users having live sessions.
+     *
+     * @return user count
+     */
+    public synchronized int getUserCount() {
+        return sessionsByUser.size();
+    }
+
+    /**
+     * Count of live sessions of user.
+     *
+     * @param userId user id
+     * @return session count
+     */
+    public synchronized int getSessionCount(String userId) {
+        Set<Object> keys = sessionsByUser.get(userId);
+        return keys != null ? keys.size() : 0;
+    }
+
+    /**
+     * Count of created sessions.
+     *
+     * @return created sessions
+     */
+    public long getCreatedSessions() {
+        return created.get();
+    }
+
+    /**
+     * Count of sessions removed after idle time.
+     *
+     * @return removed sessions
+     */
+    public long getRemovedIdleSessions() {
+        return removedIdle.get();
+    }
+
+    /**
+     * Count of sessions evicted from memory because of global limit.
+     *
+     * @return removed sessions
+     */
+    public long getRemovedCapacitySessions() {
+        return removedCapacity.get();
+    }
+
+    /**
+     * Count of new sessions refused because of per user limit.
+     *
+     * @return refused sessions
+     */
+    public long getRefusedUserLimitSessions() {
+        return refusedUserLimit.get();
+    }
+
+    /**
+     * Maximum count of live sessions per user.
+     *
+     * @return session limit, 0 if not limited
+     */
+    public int getMaxSessionsPerUser() {
+        return maxPerUser;
+    }
+
+    /**
+     * Checks whether user of the request may open one more form. Existing sessions of the user are never removed to
+     * make room for new one, because they may contain unsaved data.
+     *
+     * @param request request opening the form
+     * @return true if new session is allowed
+     */
+    public boolean mayOpenSession(HttpServletRequest request) {
+        if (maxPerUser <= 0) {
+            return true;
+        }
+        String userId = userId(request);
+        if (userId == null || getSessionCount(userId) < maxPerUser) {
+            return true;
+        }
+        refusedUserLimit.incrementAndGet();
+        LOGGER.info("XForms session refused, user already has " + maxPerUser + " live sessions.");
+        return false;
+    }
+
+    @Override
+    public void notifyElementPut(Ehcache ehcache, Element element) throws CacheException {
+        created.incrementAndGet();
+        String userId = currentUserId();
+        if (userId != null) {
+            register(element.getObjectKey(), userId);
+        }
+    }
+
+    @Override
+    public void notifyElementUpdated(Ehcache ehcache, Element element) throws CacheException {
+    }
+
+    @Override
+    public void notifyElementRemoved(Ehcache ehcache, Element element) throws CacheException {
+        unregister(element.getObjectKey());
+    }
+
+    @Override
+    public void notifyElementExpired(Ehcache ehcache, Element element) {
+        removedIdle.incrementAndGet();
+        unregister(element.getObjectKey());
+    }
+
+    @Override
+    public void notifyElementEvicted(Ehcache ehcache, Element element) {
+        removedCapacity.incrementAndGet();
+        unregister(element.getObjectKey());
+    }
+
+    @Override
+    public synchronized void notifyRemoveAll(Ehcache ehcache) {
+        sessionsByUser.clear();
+        users.clear();
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        throw new CloneNotSupportedException("XForms session governor is a singleton.");
+    }
+
+    /**
+     * Registers session of user.
+     *
+     * @param key    session key
+     * @param userId user id
+     */
+    private synchronized void register(Object key, String userId) {
+        users.put(key, userId);
+        Set<Object> keys = sessionsByUser.get(userId);
+        if (keys == null) {
+            keys = new LinkedHashSet<Object>();
+            sessionsByUser.put(userId, keys);
+        }
+        keys.add(key);
+    }
+
+    /**
+     * Forgets removed session.
+     *
+     * @param key session key
+     */
+    private synchronized void unregister(Object key) {
+        String userId = users.remove(key);
+        if (userId == null) {
+            return;
+        }
+        Set<Object> keys = sessionsByUser.get(userId);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                sessionsByUser.remove(userId);
+            }
+        }
+    }
+
+    /**
+     * Id of the user of current request, if session is created while serving request.
+     *
+     * @return user id or null
+     */
+    private String currentUserId() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes)) {
+            return null;
+        }
+        return userId(((ServletRequestAttributes) attributes).getRequest());
+    }
+
+    /**
+     * Id of the user of request.
+     *
+     * @param request request
+     * @return user id or null
+     */
+    private String userId(HttpServletRequest request) {
+        try {
+            return userIdProvider.getUserId(request);
+        } catch (IllegalStateException e) {
+            LOGGER.warn("Unable to resolve user of XForms session: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Serialized sizes of sampled sessions.
+     */
+    public static final class SessionSizes {
+        /**
+         * Count of measured sessions.
+         */
+        private final int count;
+        /**
+         * Count of sampled sessions which could not be serialized.
+         */
+        private final int notSerializable;
+        /**
+         * Total size of measured sessions in bytes.
+         */
+        private final long totalBytes;
+        /**
+         * Size of the largest measured session in bytes.
+         */
+        private final long maxBytes;
+
+        /**
+         * Creates sizes.
+         *
+         * @param count           count of measured sessions
+         * @param notSerializable count of sessions which could not be serialized
+         * @param totalBytes      total size in bytes
+         * @param maxBytes        largest size in bytes
+         */
+        public SessionSizes(int count, int notSerializable, long totalBytes, long maxBytes) {
+            this.count = count;
+            this.notSerializable = notSerializable;
+            this.totalBytes = totalBytes;
+            this.maxBytes = maxBytes;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public int getNotSerializable() {
+            return notSerializable;
+        }
+
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        /**
+         * Average size of measured sessions.
+         *
+         * @return average size in bytes
+         */
+        public long getMeanBytes() {
+            return count > 0 ? totalBytes / count : 0;
+        }
+    }
+}
@@ -32,6 +32,18 @@
             <th scope="row"><label for="ticket">Ticket/Password</label></th>
             <td><form:input path="ticket" style="width:200px"/></td>
         </tr>
+        <tr>
+            <th scope="row"><label for="maxConcurrentCalls">Max. concurrent requests</label></th>
+            <td><form:input path="maxConcurrentCalls" style="width:60px"/> (empty for default)</td>
+        </tr>
+        <tr>
+            <th scope="row"><label for="breakerFailureThreshold">Failures before pause</label></th>
+            <td><form:input path="breakerFailureThreshold" style="width:60px"/> (empty for default)</td>
+        </tr>
+        <tr>
+            <th scope="row"><label for="breakerOpenSeconds">Pause after failures (s)</label></th>
+            <td><form:input path="breakerOpenSeconds" style="width:60px"/> (empty for default)</td>
+        </tr>
     </table>
     <form:hidden path="id"/>
     <input type="submit" value="Save"/>
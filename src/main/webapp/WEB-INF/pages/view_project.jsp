@@ -11,6 +11,7 @@
         <li><span><a href="#" onclick="removeProject();">Delete project</a></span></li>
         <li><span><a href="<c:url value="/projects/${projectEntry.projectId}/export" />">Export project</a></span></li>
         <li><span><a title="Import" href="<c:url value="/projects/import?projectId=${projectEntry.projectId}"/>">Import project</a></span></li>
+        <li><span><a title="Check all remote files for updates" href="<c:url value="/projects/remote/check/updates/${projectEntry.projectId}"/>">Check remote files</a></span></li>
     </ul>
 </div>
 <h1>Project: ${projectEntry.projectId}</h1>
@@ -19,6 +20,36 @@
     <div class="system-msg">File ${fileToUpdate} could be updated from remote storage.
         <a href="<c:url value="/projects/remote/update/${projectEntry.projectId}/file/${fileToUpdateId}"/>">Click here to update it</a></div>
 </c:if>
+<c:if test="${not empty remoteFileCheckResults}">
+    <h2>Remote files check</h2>
+    <table class="datatable">
+        <thead>
+            <tr>
+                <th>File</th>
+                <th>Remote location</th>
+                <th>Status</th>
+            </tr>
+        </thead>
+        <tbody>
+        <c:forEach var="checkResult" items="${remoteFileCheckResults}">
+            <tr>
+                <td>${checkResult.fileName}</td>
+                <td><c:out value="${checkResult.remoteFileUrl}"/></td>
+                <td>
+                    <c:choose>
+                        <c:when test="${checkResult.status == 'UPDATE_AVAILABLE'}">
+                            Update available.
+                            <a href="<c:url value="/projects/remote/update/${projectEntry.projectId}/file/${checkResult.fileId}"/>">Update</a>
+                        </c:when>
+                        <c:when test="${checkResult.status == 'UP_TO_DATE'}">No updates</c:when>
+                        <c:otherwise>Remote file NOT available</c:otherwise>
+                    </c:choose>
+                </td>
+            </tr>
+        </c:forEach>
+        </tbody>
+    </table>
+</c:if>
 <c:if test="${empty allProjectFiles}">
     <h2>Project files</h2>
     <div>No project files yet.</div>
@@ -20,15 +20,19 @@
  */
 package configuration;
 
+import com.google.common.util.concurrent.MoreExecutors;
 import org.apache.xmlrpc.client.XmlRpcClient;
 import org.mockito.Mockito;
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.ImportResource;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
 import org.springframework.web.client.RestOperations;
 import org.springframework.web.multipart.commons.CommonsMultipartResolver;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
 import util.CacheCleaner;
 
 @Configuration
@@ -58,4 +62,26 @@ public class ApplicationTestContext {
     public CacheCleaner cacheCleaner() {
         return new CacheCleaner();
     }
+
+    /**
+     * Asynchronous requests are processed in test thread, so they share test transaction.
+     */
+    @Bean
+    public static BeanPostProcessor synchronousAsyncRequestProcessing() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RequestMappingHandlerAdapter) {
+                    ((RequestMappingHandlerAdapter) bean)
+                            .setTaskExecutor(new ConcurrentTaskExecutor(MoreExecutors.sameThreadExecutor()));
+                }
+                return bean;
+            }
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean;
+            }
+        };
+    }
 }
@@ -0,0 +1,145 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.dao;
+
+import configuration.ApplicationTestContextWithMockSession;
+import eionet.webq.dao.orm.CdrPushJob;
+import eionet.webq.dao.orm.CdrPushJobStatus;
+import org.hibernate.FlushMode;
+import org.hibernate.SessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {ApplicationTestContextWithMockSession.class})
+@Transactional
+public class CdrPushJobStorageImplTest {
+
+    @Autowired
+    private CdrPushJobStorage storage;
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    @Before
+    public void before() throws Exception {
+        sessionFactory.getCurrentSession().setFlushMode(FlushMode.ALWAYS);
+    }
+
+    @Test
+    public void findsUnfinishedJobsInCreationOrder() throws Exception {
+        int first = storage.save(job(1, "http://cdr/envelope1", CdrPushJobStatus.IN_PROGRESS));
+        storage.save(job(2, "http://cdr/envelope1", CdrPushJobStatus.DONE));
+        int third = storage.save(job(3, "http://cdr/envelope2", CdrPushJobStatus.QUEUED));
+        storage.save(job(4, "http://cdr/envelope2", CdrPushJobStatus.FAILED));
+
+        List<CdrPushJob> unfinished = storage.findUnfinished();
+
+        assertThat(unfinished.size(), equalTo(2));
+        assertThat(unfinished.get(0).getId(), equalTo(first));
+        assertThat(unfinished.get(1).getId(), equalTo(third));
+    }
+
+    @Test
+    public void findsOnlyQueuedJobOfUserFile() throws Exception {
+        storage.save(job(1, "http://cdr/envelope", CdrPushJobStatus.IN_PROGRESS));
+        assertNull(storage.findQueuedForUserFile(1));
+
+        int queued = storage.save(job(1, "http://cdr/envelope", CdrPushJobStatus.QUEUED));
+        assertThat(storage.findQueuedForUserFile(1).getId(), equalTo(queued));
+    }
+
+    @Test
+    public void updatesJobStatus() throws Exception {
+        int id = storage.save(job(1, "http://cdr/envelope", CdrPushJobStatus.QUEUED));
+        sessionFactory.getCurrentSession().clear();
+
+        CdrPushJob job = storage.findJob(id);
+        job.setStatus(CdrPushJobStatus.DONE);
+        job.setAttempts(2);
+        storage.update(job);
+        sessionFactory.getCurrentSession().flush();
+        sessionFactory.getCurrentSession().clear();
+
+        CdrPushJob fromStorage = storage.findJob(id);
+        assertThat(fromStorage.getStatus(), equalTo(CdrPushJobStatus.DONE));
+        assertThat(fromStorage.getAttempts(), equalTo(2));
+    }
+
+    @Test
+    public void claimsDueQueuedJobOnlyOnce() throws Exception {
+        Date now = new Date();
+        Date staleBefore = new Date(now.getTime() - 60000);
+        CdrPushJob due = job(1, "http://cdr/envelope", CdrPushJobStatus.QUEUED);
+        due.setNextAttempt(new Date(now.getTime() - 1000));
+        int dueId = storage.save(due);
+        CdrPushJob delayed = job(2, "http://cdr/envelope", CdrPushJobStatus.QUEUED);
+        delayed.setNextAttempt(new Date(now.getTime() + 60000));
+        int delayedId = storage.save(delayed);
+
+        assertTrue(storage.claim(dueId, now, staleBefore));
+        assertFalse(storage.claim(dueId, now, staleBefore));
+        assertFalse(storage.claim(delayedId, now, staleBefore));
+        sessionFactory.getCurrentSession().clear();
+        assertThat(storage.findJob(dueId).getStatus(), equalTo(CdrPushJobStatus.IN_PROGRESS));
+    }
+
+    @Test
+    public void claimsJobInProgressAgainOnlyIfClaimIsStale() throws Exception {
+        Date now = new Date();
+        CdrPushJob job = job(1, "http://cdr/envelope", CdrPushJobStatus.IN_PROGRESS);
+        job.setUpdated(new Date(now.getTime() - 30000));
+        int id = storage.save(job);
+
+        assertFalse(storage.claim(id, now, new Date(now.getTime() - 60000)));
+        assertTrue(storage.claim(id, now, new Date(now.getTime() - 10000)));
+    }
+
+    @Test
+    public void finishedJobIsNotClaimed() throws Exception {
+        Date now = new Date();
+        int id = storage.save(job(1, "http://cdr/envelope", CdrPushJobStatus.DONE));
+
+        assertFalse(storage.claim(id, now, now));
+    }
+
+    private CdrPushJob job(int userFileId, String envelope, CdrPushJobStatus status) {
+        CdrPushJob job = new CdrPushJob();
+        job.setUserFileId(userFileId);
+        job.setEnvelope(envelope);
+        job.setStatus(status);
+        return job;
+    }
+}
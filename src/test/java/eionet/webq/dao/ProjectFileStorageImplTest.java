@@ -27,6 +27,7 @@ import static org.hamcrest.core.IsEqual.equalTo;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
@@ -39,6 +40,7 @@ import org.hibernate.FlushMode;
 import org.hibernate.LazyInitializationException;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -56,7 +58,9 @@ import eionet.webq.dao.orm.util.WebQFileInfo;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import util.CollectionUtil;
 
 @RunWith(SpringJUnit4ClassRunner.class)
@@ -94,6 +98,72 @@ public class ProjectFileStorageImplTest {
         assertThat(projectFileStorage.findAllFilesFor(projectEntry).size(), equalTo(0));
     }
 
+    @Test
+    public void findsOnlyFilesWithRemoteFileUrl() throws Exception {
+        ProjectFile withoutUrl = projectFileWithoutTypeSet();
+        withoutUrl.setFileName("withoutUrl");
+        withoutUrl.setRemoteFileUrl(null);
+        projectFileStorage.save(withoutUrl, projectEntry);
+        ProjectFile withEmptyUrl = projectFileWithoutTypeSet();
+        withEmptyUrl.setFileName("withEmptyUrl");
+        withEmptyUrl.setRemoteFileUrl("");
+        projectFileStorage.save(withEmptyUrl, projectEntry);
+
+        Collection<ProjectFile> files = projectFileStorage.findAllWithRemoteFileUrl();
+
+        assertThat(files.size(), equalTo(1));
+        assertThat(files.iterator().next().getId(), equalTo(defaultProjectFile.getId()));
+    }
+
+    @Test
+    public void updatesRemoteValidatorsWithoutChangingContent() throws Exception {
+        projectFileStorage.updateRemoteValidators(defaultProjectFile.getId(), "hash", "\"etag\"", "last-modified");
+        currentSession.clear();
+
+        ProjectFile file = projectFileStorage.findById(defaultProjectFile.getId());
+        assertThat(file.getContentHash(), equalTo("hash"));
+        assertThat(file.getRemoteEtag(), equalTo("\"etag\""));
+        assertThat(file.getRemoteLastModified(), equalTo("last-modified"));
+        assertThat(file.getFileContent(), equalTo(defaultProjectFile.getFileContent()));
+    }
+
+    @Test
+    public void clearsRemoteValidatorsIfRemoteFileUrlChanges() throws Exception {
+        projectFileStorage.updateRemoteValidators(defaultProjectFile.getId(), "hash", "\"etag\"", "last-modified");
+        currentSession.clear();
+        ProjectFile changed = projectFileStorage.findById(defaultProjectFile.getId());
+        currentSession.evict(changed);
+        changed.setFile(null);
+        changed.setRemoteFileUrl("http://other/test-file.xml");
+
+        projectFileStorage.update(changed, testProjectEntry(2));
+        currentSession.clear();
+
+        ProjectFile file = projectFileStorage.findById(defaultProjectFile.getId());
+        assertThat(file.getRemoteFileUrl(), equalTo("http://other/test-file.xml"));
+        assertNull(file.getContentHash());
+        assertNull(file.getRemoteEtag());
+        assertNull(file.getRemoteLastModified());
+    }
+
+    @Test
+    public void keepsRemoteValidatorsIfRemoteFileUrlDoesNotChange() throws Exception {
+        projectFileStorage.updateRemoteValidators(defaultProjectFile.getId(), "hash", "\"etag\"", "last-modified");
+        currentSession.clear();
+        ProjectFile changed = projectFileStorage.findById(defaultProjectFile.getId());
+        currentSession.evict(changed);
+        changed.setFile(null);
+        changed.setTitle("Changed title");
+
+        projectFileStorage.update(changed, testProjectEntry(2));
+        currentSession.clear();
+
+        ProjectFile file = projectFileStorage.findById(defaultProjectFile.getId());
+        assertThat(file.getTitle(), equalTo("Changed title"));
+        assertThat(file.getContentHash(), equalTo("hash"));
+        assertThat(file.getRemoteEtag(), equalTo("\"etag\""));
+    }
+
     @Test(expected = LazyInitializationException.class)
     public void allFilesQueryDoesNotReturnFileContent() throws Exception {
         addOneFile("fileName1");
@@ -321,6 +391,35 @@ public class ProjectFileStorageImplTest {
         assertTrue(CollectionUtil.equals(files, persistedFiles, cmp));
     }
 
+    @Test
+    public void cleanInsertOfManyFilesIsSentInBatches() {
+        int filesCount = 500;
+        List<ProjectFile> files = new ArrayList<ProjectFile>();
+        for (int i = 0; i < filesCount; i++) {
+            ProjectFile file = projectFileWithFileType(FILE);
+            file.setFile(new UploadedFile("file" + i + ".xml", ("<file" + i + "/>").getBytes()));
+            files.add(file);
+        }
+        Statistics statistics = sessionFactory.getStatistics();
+        boolean statisticsEnabled = statistics.isStatisticsEnabled();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        try {
+            projectFileStorage.cleanInsert(projectEntry, files);
+
+            assertThat(statistics.getEntityInsertCount(), equalTo(2L * filesCount));
+            assertTrue("statements prepared: " + statistics.getPrepareStatementCount(),
+                    statistics.getPrepareStatementCount() < 10);
+        } finally {
+            statistics.setStatisticsEnabled(statisticsEnabled);
+        }
+        Set<Integer> ids = new HashSet<Integer>();
+        for (ProjectFile file : projectFileStorage.findAllFilesFor(projectEntry)) {
+            ids.add(file.getId());
+        }
+        assertThat(ids.size(), equalTo(filesCount));
+    }
+
     private void assertFieldsEquals(ProjectFile before, ProjectFile after) {
         assertThat(after.getTitle(), equalTo(before.getTitle()));
         assertThat(after.getXmlSchema(), equalTo(before.getXmlSchema()));
@@ -0,0 +1,345 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.dao;
+
+import configuration.ApplicationTestContextWithMockSession;
+import eionet.webq.dao.orm.ProjectEntry;
+import eionet.webq.dto.WebFormType;
+import eionet.webq.metrics.SqlMetrics;
+import eionet.webq.metrics.StatementMetrics;
+import eionet.webq.task.RemoveExpiredUserFilesTask;
+import org.hibernate.SessionFactory;
+import org.hibernate.jdbc.Work;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that SQL of frequent DAO queries is executed using indexes. SQL is captured with {@link SqlMetrics} while DAO
+ * method is called, so the plan is read for the statement Hibernate actually generates. {@link SqlMetrics} replaces
+ * literals with parameters and parameter lists with single parameter, so every test binds values for all parameters
+ * of captured statement. Plans are read with
+ * EXPLAIN from H2 by default or from MySQL, if tests are run with -Pqueryplan-mysql profile.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {ApplicationTestContextWithMockSession.class})
+@Transactional
+public class QueryPlanTest {
+    @Autowired
+    private SessionFactory sessionFactory;
+    @Autowired
+    private SqlMetrics sqlMetrics;
+    @Autowired
+    private UserFileStorage userFileStorage;
+    @Autowired
+    private ProjectFileStorage projectFileStorage;
+    @Autowired
+    private WebFormStorage webFormStorage;
+    @Autowired
+    private MergeModules mergeModules;
+    @Autowired
+    private RemoveExpiredUserFilesTask removeExpiredUserFilesTask;
+
+    @Before
+    public void setUp() throws Exception {
+        sessionFactory.getCurrentSession().doWork(new Work() {
+            @Override
+            public void execute(Connection connection) throws SQLException {
+                Statement statement = connection.createStatement();
+                try {
+                    for (int i = 0; i < 200; i++) {
+                        statement.addBatch("INSERT INTO user_xml (user_id, file_name, file_size_in_bytes, xml_schema, updated) VALUES ('user"
+                                + i % 50 + "', 'new_form_" + i + ".xml', 0, 'schema" + i % 10 + "', CURRENT_TIMESTAMP)");
+                        statement.addBatch("INSERT INTO project_file (project_id, file_name, file_size_in_bytes, file_type, active, "
+                                + "local_form, remote_form, xml_schema) VALUES (" + i % 20 + ", 'file" + i + ".xml', 0, '"
+                                + (i % 4 == 0 ? "WEBFORM" : "FILE") + "', " + (i % 8 == 0) + ", true, true, 'schema" + i % 10
+                                + "')");
+                        statement.addBatch("INSERT INTO merge_module (title, file_name, file_size_in_bytes) VALUES ('module" + i
+                                + "', 'module" + i + ".xsl', 0)");
+                        statement.addBatch("INSERT INTO merge_module_xml_schema (merge_module_id, xml_schema) VALUES ("
+                                + i % 20 + ", 'schema" + i + "')");
+                    }
+                    statement.executeBatch();
+                } finally {
+                    statement.close();
+                }
+            }
+        });
+    }
+
+    @Test
+    public void userFileIsFoundByPrimaryKey() throws Exception {
+        String sql = capturedSql("user_xml", new Runnable() {
+            @Override
+            public void run() {
+                userFileStorage.findFile(1, "user1");
+            }
+        });
+        assertUsesIndex(sql, "user_xml", null, 1, "user1");
+    }
+
+    @Test
+    public void userFilesAreListedByUserIndex() throws Exception {
+        String sql = capturedSql("user_xml", new Runnable() {
+            @Override
+            public void run() {
+                userFileStorage.findAllUserFiles("user1");
+            }
+        });
+        assertUsesIndex(sql, "user_xml", "ix_user_xml_user_updated", "user1");
+    }
+
+    @Test
+    public void userWebFormFileMaxNumberUsesUserSchemaFileIndex() throws Exception {
+        String sql = capturedSql("user_xml", new Runnable() {
+            @Override
+            public void run() {
+                userFileStorage.getUserWebFormFileMaxNum("user1", "schema1", "new_form.xml", '_', '.');
+            }
+        });
+        assertUsesIndex(sql, "user_xml", "ix_user_xml_user_schema_file", 10, 13, "user1", "schema1", "new_form_%.xml");
+    }
+
+    @Test
+    public void expiredUserFilesAreFoundByUpdatedIndex() throws Exception {
+        String sql = capturedSql("user_xml", new Runnable() {
+            @Override
+            public void run() {
+                removeExpiredUserFilesTask.removeExpiredUserFiles();
+            }
+        });
+        assertUsesIndex(sql, "user_xml", "ix_user_xml_updated", Timestamp.valueOf("2000-01-01 00:00:00"));
+    }
+
+    @Test
+    public void activeWebFormsAreFoundByWebFormIndex() throws Exception {
+        String sql = capturedSql("project_file", new Runnable() {
+            @Override
+            public void run() {
+                webFormStorage.getAllActiveWebForms(WebFormType.LOCAL);
+            }
+        });
+        assertUsesIndex(sql, "project_file", "ix_project_file_active_webform", "WEBFORM", true, true);
+    }
+
+    @Test
+    public void webFormsForSchemasAreFoundByWebFormIndex() throws Exception {
+        String sql = capturedSql("project_file", new Runnable() {
+            @Override
+            public void run() {
+                webFormStorage.findWebFormsForSchemas(WebFormType.LOCAL, Arrays.asList("schema1", "schema2"));
+            }
+        });
+        assertUsesIndex(sql, "project_file", "ix_project_file_active_webform", "WEBFORM", true, true, "schema1");
+    }
+
+    @Test
+    public void projectFilesAreFoundByProjectIndex() throws Exception {
+        final ProjectEntry project = new ProjectEntry();
+        project.setId(1);
+        String sql = capturedSql("project_file", new Runnable() {
+            @Override
+            public void run() {
+                projectFileStorage.findAllFilesFor(project);
+            }
+        });
+        assertUsesIndex(sql, "project_file", "ix_project_to_file_name", 1);
+    }
+
+    @Test
+    public void mergeModulesAreFoundBySchemaIndex() throws Exception {
+        String sql = capturedSql("merge_module_xml_schema", new Runnable() {
+            @Override
+            public void run() {
+                mergeModules.findByXmlSchemas(Arrays.asList("schema1", "schema2"));
+            }
+        });
+        assertUsesIndex(sql, "merge_module_xml_schema", "ix_merge_module_xml_schema", "schema1");
+    }
+
+    /**
+     * Calls DAO method and returns first SELECT statement it executed reading given table. Query cache is cleared, so
+     * cacheable queries are executed.
+     *
+     * @param table   table name
+     * @param daoCall DAO method call
+     * @return captured SQL with parameters in place of values
+     */
+    private String capturedSql(String table, Runnable daoCall) {
+        sessionFactory.getCache().evictQueryRegions();
+        sqlMetrics.reset();
+        daoCall.run();
+        for (StatementMetrics statement : sqlMetrics.getStatements()) {
+            String sql = statement.getSql().toLowerCase(Locale.ROOT);
+            if (sql.startsWith("select") && tableAlias(sql, table) != null) {
+                return statement.getSql().replace("?, ...", "?");
+            }
+        }
+        fail("No SELECT from " + table + " executed, statements: " + sqlMetrics.getDistinctStatementCount());
+        return null;
+    }
+
+    /**
+     * Asserts that table is read using index.
+     *
+     * @param sql        captured query
+     * @param table      table name
+     * @param index      expected index name or null if any index is expected
+     * @param parameters values bound to query parameters
+     */
+    private void assertUsesIndex(final String sql, final String table, final String index, final Object... parameters) {
+        assertThat(sql, countParameters(sql), equalTo(parameters.length));
+        sessionFactory.getCurrentSession().doWork(new Work() {
+            @Override
+            public void execute(Connection connection) throws SQLException {
+                if (connection.getMetaData().getDatabaseProductName().startsWith("MySQL")) {
+                    assertMySqlUsesIndex(connection, sql, table, index, parameters);
+                } else {
+                    assertH2UsesIndex(connection, sql, table, index, parameters);
+                }
+            }
+        });
+    }
+
+    /**
+     * Asserts H2 plan, which has index condition comment after table name, e.g. {@code USER_XML /* PUBLIC.IX: ... *\/}.
+     *
+     * @param connection connection
+     * @param sql        query
+     * @param table      table name
+     * @param index      expected index name or null if any index is expected
+     * @param parameters query parameters
+     * @throws SQLException if explain fails
+     */
+    private void assertH2UsesIndex(Connection connection, String sql, String table, String index, Object[] parameters)
+            throws SQLException {
+        PreparedStatement statement = explain(connection, sql, parameters);
+        try {
+            ResultSet result = statement.executeQuery();
+            result.next();
+            String plan = result.getString(1).toUpperCase(Locale.ROOT);
+            assertFalse(plan, plan.contains(table.toUpperCase(Locale.ROOT) + ".TABLESCAN"));
+            if (index != null) {
+                assertTrue(plan, plan.contains("PUBLIC." + index.toUpperCase(Locale.ROOT) + ":"));
+            }
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Asserts MySQL plan, which has key chosen for every table alias in query.
+     *
+     * @param connection connection
+     * @param sql        query
+     * @param table      table name
+     * @param index      expected index name or null if any index is expected
+     * @param parameters query parameters
+     * @throws SQLException if explain fails
+     */
+    private void assertMySqlUsesIndex(Connection connection, String sql, String table, String index, Object[] parameters)
+            throws SQLException {
+        String alias = tableAlias(sql.toLowerCase(Locale.ROOT), table);
+        PreparedStatement statement = explain(connection, sql, parameters);
+        try {
+            ResultSet plan = statement.executeQuery();
+            while (plan.next()) {
+                if (alias.equalsIgnoreCase(plan.getString("table"))) {
+                    String key = plan.getString("key");
+                    assertNotNull(sql + " reads " + plan.getString("type") + " rows", key);
+                    if (index != null) {
+                        assertThat(key, equalTo(index));
+                    }
+                    return;
+                }
+            }
+            fail("No plan row for " + table + " in " + sql);
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Prepares EXPLAIN statement for query.
+     *
+     * @param connection connection
+     * @param sql        query
+     * @param parameters query parameters
+     * @return prepared statement
+     * @throws SQLException if statement could not be prepared
+     */
+    private PreparedStatement explain(Connection connection, String sql, Object[] parameters) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql);
+        for (int i = 0; i < parameters.length; i++) {
+            statement.setObject(i + 1, parameters[i]);
+        }
+        return statement;
+    }
+
+    /**
+     * Finds alias of table in SQL generated by Hibernate, e.g. {@code this_} in {@code from user_xml this_}.
+     *
+     * @param sql   lower case SQL
+     * @param table table name
+     * @return alias or null if table is not read by query
+     */
+    private static String tableAlias(String sql, String table) {
+        Matcher matcher = Pattern.compile("(?:from|join) " + table + " (\\w+)").matcher(sql);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * Counts query parameters.
+     *
+     * @param sql query
+     * @return count of '?' characters
+     */
+    private static int countParameters(String sql) {
+        int count = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.dao;
+
+import configuration.ApplicationTestContextWithMockSession;
+import eionet.webq.dao.orm.KnownHost;
+import eionet.webq.dao.orm.ProjectEntry;
+import eionet.webq.dto.KnownHostAuthenticationMethod;
+import eionet.webq.metrics.HibernateStatistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Every DAO call runs in its own transaction, so entities and query results are read from second-level cache.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {ApplicationTestContextWithMockSession.class})
+public class SecondLevelCacheTest {
+    private static final String PROJECT_ID = "l2cache";
+    @Autowired
+    private ProjectFolders folders;
+    @Autowired
+    private KnownHosts knownHosts;
+    @Autowired
+    private HibernateStatistics hibernateStatistics;
+    @Autowired
+    private UserFileStorage userFileStorage;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    private int knownHostId;
+
+    @Before
+    public void setUp() throws Exception {
+        hibernateStatistics.evictSecondLevelCache();
+        hibernateStatistics.setStatisticsEnabled(true);
+        hibernateStatistics.clear();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        hibernateStatistics.setStatisticsEnabled(false);
+        if (folders.getByProjectId(PROJECT_ID) != null) {
+            folders.remove(PROJECT_ID);
+        }
+        if (knownHostId > 0) {
+            knownHosts.remove(knownHostId);
+        }
+    }
+
+    @Test
+    public void projectQueryResultIsCached() throws Exception {
+        folders.save(projectEntry("description"));
+
+        folders.getByProjectId(PROJECT_ID);
+        ProjectEntry project = folders.getByProjectId(PROJECT_ID);
+
+        assertThat(project.getDescription(), equalTo("description"));
+        assertThat(hibernateStatistics.getQueryCacheHitCount(), equalTo(1L));
+        assertTrue(hibernateStatistics.getSecondLevelCacheHitCount() > 0);
+    }
+
+    @Test
+    public void cachedProjectQueryResultIsInvalidatedOnUpdate() throws Exception {
+        folders.save(projectEntry("description"));
+        ProjectEntry project = folders.getByProjectId(PROJECT_ID);
+        project.setDescription("changed");
+
+        folders.update(project);
+
+        assertThat(folders.getByProjectId(PROJECT_ID).getDescription(), equalTo("changed"));
+    }
+
+    @Test
+    public void knownHostIsReadFromSecondLevelCache() throws Exception {
+        KnownHost host = new KnownHost();
+        host.setHostURL("http://l2cache.host");
+        host.setHostName("host");
+        host.setAuthenticationMethod(KnownHostAuthenticationMethod.BASIC);
+        host.setKey("key");
+        host.setTicket("ticket");
+        knownHostId = knownHosts.save(host);
+
+        knownHosts.findById(knownHostId).getHostURL();
+        long hits = hibernateStatistics.getSecondLevelCacheHitCount();
+
+        assertThat(knownHosts.findById(knownHostId).getHostURL(), equalTo("http://l2cache.host"));
+        assertThat(hibernateStatistics.getSecondLevelCacheHitCount(), equalTo(hits + 1));
+        assertTrue(hibernateStatistics.regionStatistics().containsKey(KnownHost.class.getName()));
+    }
+
+    @Test
+    public void webFormFileNumberAllocationDoesNotInvalidateQueryCache() throws Exception {
+        folders.save(projectEntry("description"));
+        folders.getByProjectId(PROJECT_ID);
+
+        new TransactionTemplate(transactionManager).execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                userFileStorage.nextWebFormFileNum("l2cache" + System.currentTimeMillis(), "schema", "new_form.xml", '_', '.');
+            }
+        });
+        folders.getByProjectId(PROJECT_ID);
+
+        assertThat(hibernateStatistics.getQueryCacheHitCount(), equalTo(1L));
+    }
+
+    private ProjectEntry projectEntry(String description) {
+        ProjectEntry project = new ProjectEntry();
+        project.setProjectId(PROJECT_ID);
+        project.setDescription(description);
+        return project;
+    }
+}
@@ -23,6 +23,7 @@ package eionet.webq.dao;
 import configuration.ApplicationTestContextWithMockSession;
 import eionet.webq.dao.orm.UploadedFile;
 import eionet.webq.dao.orm.UserFile;
+import eionet.webq.dto.UserFileAuthInfo;
 import eionet.webq.dto.UserFileIdUpdate;
 import org.hibernate.FlushMode;
 import org.hibernate.LazyInitializationException;
@@ -35,10 +36,12 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.util.AopTestUtils;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.validation.ConstraintViolationException;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 
 import static eionet.webq.dao.FileContentUtil.getFileContentRowsCount;
@@ -97,6 +100,23 @@ public class UserFileStorageImplTest {
         assertNotNull(fileFromDb.getUpdated());
     }
 
+    @Test
+    public void loadsAuthInfoOfUserFile() throws Exception {
+        UserFile userFile = fileWithContentAndXmlSchema("content".getBytes());
+        userFile.setAuthorized(true);
+        userFile.setAuthorization("Basic auth");
+        userFile.setCookies("cookie=value");
+        saveFileForUser(userId, userFile);
+
+        UserFileAuthInfo authInfo = storage.findAuthInfo(userFile.getId(), userId);
+
+        assertThat(authInfo.getUserId(), equalTo(userId));
+        assertThat(authInfo.isAuthorized(), equalTo(true));
+        assertThat(authInfo.getAuthorization(), equalTo("Basic auth"));
+        assertThat(authInfo.getCookies(), equalTo("cookie=value"));
+        assertNull(storage.findAuthInfo(userFile.getId(), otherUserId));
+    }
+
     @Test(expected = ConstraintViolationException.class)
     public void saveIgnoresId() throws Exception {
         UserFile userFile = new UserFile();
@@ -233,6 +253,20 @@ public class UserFileStorageImplTest {
         assertThat(storage.findAllUserFiles(userId).size(), equalTo(0));
     }
 
+    @Test
+    public void bulkRemovalCountsRemovedRowsAndFileContents() throws Exception {
+        saveFilesFor(userId, 2);
+        saveFilesFor(otherUserId, 1);
+        UserFileStorageImpl target = AopTestUtils.getUltimateTargetObject(storage);
+
+        AbstractDao.RemovedRows removed =
+                target.removeWhere("userId = :userId", Collections.singletonMap("userId", userId));
+
+        assertThat(removed.getEntities(), equalTo(2));
+        assertThat(removed.getFileContents(), equalTo(2));
+        assertThat(storage.findAllUserFiles(otherUserId).size(), equalTo(1));
+    }
+
     @Test
     public void getIdAfterSave() throws Exception {
         UserFile userFile =
@@ -280,6 +314,17 @@ public class UserFileStorageImplTest {
         assertThat(getFileContentRowsCount(sessionFactory), equalTo(0));
     }
 
+    @Test
+    public void fileOfOtherUserIsNotRemoved() throws Exception {
+        UserFile userFile = saveAndGetBackSavedFileForDefaultUser();
+
+        storage.remove(otherUserId, userFile.getId());
+        sessionFactory.getCurrentSession().clear();
+
+        assertNotNull(storage.findFile(userFile.getId(), userId));
+        assertThat(getFileContentRowsCount(sessionFactory), equalTo(1));
+    }
+
     @Test
     public void allowToUpdateUserIdForFiles() throws Exception {
         saveAndGetBackSavedFileForDefaultUser();
@@ -336,6 +381,38 @@ public class UserFileStorageImplTest {
         assertThat(storage.findAllUserFiles(otherUserId).size(), equalTo(0));
     }
 
+    @Test
+    public void webFormFileNumberContinuesFromExistingFiles() throws Exception {
+        UserFile file = fileWithContentAndXmlSchema("test-content".getBytes());
+        file.setName("new_form_3.xml");
+        saveFileForUser(userId, file);
+
+        assertThat(storage.nextWebFormFileNum(userId, "xml-schema", "new_form.xml", '_', '.'), equalTo(4L));
+        assertThat(storage.nextWebFormFileNum(userId, "xml-schema", "new_form.xml", '_', '.'), equalTo(5L));
+    }
+
+    @Test
+    public void webFormFileNumberIsCountedSeparatelyForUserSchemaAndFileName() throws Exception {
+        assertThat(storage.nextWebFormFileNum(userId, "xml-schema", "new_form.xml", '_', '.'), equalTo(1L));
+        assertThat(storage.nextWebFormFileNum(userId, "xml-schema", "new_form.xml", '_', '.'), equalTo(2L));
+
+        assertThat(storage.nextWebFormFileNum(otherUserId, "xml-schema", "new_form.xml", '_', '.'), equalTo(1L));
+        assertThat(storage.nextWebFormFileNum(userId, "other-schema", "new_form.xml", '_', '.'), equalTo(1L));
+        assertThat(storage.nextWebFormFileNum(userId, "xml-schema", "other_form.xml", '_', '.'), equalTo(1L));
+    }
+
+    @Test
+    public void removesFileNumberCountersOfUsersWithoutFiles() throws Exception {
+        uploadSingleFileFor(userId);
+        storage.nextWebFormFileNum(userId, "xml-schema", "new_form.xml", '_', '.');
+        storage.nextWebFormFileNum(otherUserId, "xml-schema", "new_form.xml", '_', '.');
+
+        storage.removeUnusedWebFormFileNumCounters();
+
+        assertThat(fileNumCountersCount(userId), equalTo(1));
+        assertThat(fileNumCountersCount(otherUserId), equalTo(0));
+    }
+
     private UserFileIdUpdate createUserFileIdUpdateData(String oldUserId, String newUserId, String userAgent) {
 
         if (userAgent == null){
@@ -391,6 +468,12 @@ public class UserFileStorageImplTest {
         return userFiles;
     }
 
+    private int fileNumCountersCount(String userId) {
+        return ((Number) sessionFactory.getCurrentSession()
+                .createSQLQuery("SELECT COUNT(*) FROM user_file_number WHERE user_id = :userId").setString("userId", userId)
+                .uniqueResult()).intValue();
+    }
+
     private String userId() {
         return Long.toString(System.currentTimeMillis());
     }
@@ -0,0 +1,92 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.metrics;
+
+import org.junit.Test;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+    private LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    public void emptyHistogramReportsZeros() throws Exception {
+        assertThat(histogram.getCount(), equalTo(0L));
+        assertThat(histogram.getPercentile(99), equalTo(0L));
+        assertThat(histogram.getMean(), equalTo(0L));
+        assertThat(histogram.getMax(), equalTo(0L));
+    }
+
+    @Test
+    public void smallValuesAreRecordedExactly() throws Exception {
+        for (int i = 1; i <= 10; i++) {
+            histogram.record(i);
+        }
+
+        assertThat(histogram.getCount(), equalTo(10L));
+        assertThat(histogram.getPercentile(50), equalTo(5L));
+        assertThat(histogram.getPercentile(90), equalTo(9L));
+        assertThat(histogram.getPercentile(100), equalTo(10L));
+        assertThat(histogram.getMean(), equalTo(5L));
+        assertThat(histogram.getMax(), equalTo(10L));
+    }
+
+    @Test
+    public void percentilesOfLargeValuesAreWithinBucketPrecision() throws Exception {
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        assertWithinPrecision(histogram.getPercentile(50), 500000);
+        assertWithinPrecision(histogram.getPercentile(99), 990000);
+        assertThat(histogram.getPercentile(100), equalTo(1000000L));
+    }
+
+    @Test
+    public void negativeValuesAreRecordedAsZero() throws Exception {
+        histogram.record(-5);
+
+        assertThat(histogram.getMax(), equalTo(0L));
+        assertThat(histogram.getPercentile(50), equalTo(0L));
+    }
+
+    @Test
+    public void hugeValuesAreRecordedIntoLastBucket() throws Exception {
+        histogram.record(Long.MAX_VALUE / 2);
+
+        assertThat(histogram.getCount(), equalTo(1L));
+        assertThat(histogram.getPercentile(50), equalTo(Long.MAX_VALUE / 2));
+    }
+
+    @Test
+    public void bucketLowerBoundIsInverseOfBucketIndex() throws Exception {
+        for (long value : new long[] {0, 15, 16, 31, 32, 33, 1000, 65535, 1L << 36}) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(LatencyHistogram.bucketLowerBound(index) <= value);
+            assertTrue(LatencyHistogram.bucketLowerBound(index + 1) > value);
+        }
+    }
+
+    private void assertWithinPrecision(long actual, long expected) {
+        assertTrue("actual=" + actual + ", expected=" + expected, Math.abs(actual - expected) <= expected / 16);
+    }
+}
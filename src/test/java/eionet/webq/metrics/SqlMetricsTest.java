@@ -0,0 +1,116 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.metrics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class SqlMetricsTest {
+    private SqlMetrics sqlMetrics = new SqlMetrics();
+
+    @Before
+    public void setUp() throws Exception {
+        sqlMetrics.slowQueryMillis = 100;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void redactsLiteralsAndCollapsesParameterLists() throws Exception {
+        assertThat(SqlMetrics.redact("select * from user_xml u0_ where u0_.user_id='secret' and u0_.id in (?, ?,?)"),
+                equalTo("select * from user_xml u0_ where u0_.user_id=? and u0_.id in (?, ...)"));
+        assertThat(SqlMetrics.redact("update project_file set file_version=12 where id=3.5 and title='it''s'"),
+                equalTo("update project_file set file_version=? where id=? and title=?"));
+    }
+
+    @Test
+    public void groupsStatementsDifferingOnlyInLiterals() throws Exception {
+        sqlMetrics.record("select * from known_host where id=1", 10, false);
+        sqlMetrics.record("select * from known_host where id=2", 30, true);
+
+        assertThat(sqlMetrics.getStatements().size(), equalTo(1));
+        StatementMetrics statement = sqlMetrics.getStatements().get(0);
+        assertThat(statement.getLatency().getCount(), equalTo(2L));
+        assertThat(statement.getLatency().getTotal(), equalTo(40L));
+        assertThat(statement.getErrorCount(), equalTo(1L));
+        assertThat(sqlMetrics.getErrorCount(), equalTo(1L));
+    }
+
+    @Test
+    public void sortsStatementsByTotalTime() throws Exception {
+        sqlMetrics.record("select 'fast'", 10, false);
+        sqlMetrics.record("select * from user_xml", 1000, false);
+
+        assertThat(sqlMetrics.getStatements().get(0).getSql(), equalTo("select * from user_xml"));
+    }
+
+    @Test
+    public void countsSlowStatements() throws Exception {
+        sqlMetrics.record("select 1", 99999, false);
+        sqlMetrics.record("select 1", 100000, false);
+
+        assertThat(sqlMetrics.getStatementCount(), equalTo(2L));
+        assertThat(sqlMetrics.getSlowStatementCount(), equalTo(1L));
+    }
+
+    @Test
+    public void countsStatementsOfCurrentRequest() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        sqlMetrics.record("select 1", 1, false);
+        sqlMetrics.record("select 2", 1, false);
+
+        AtomicInteger count = (AtomicInteger) request.getAttribute(SqlMetrics.REQUEST_STATEMENTS_ATTRIBUTE);
+        assertThat(count.get(), equalTo(2));
+    }
+
+    @Test
+    public void limitsDistinctStatements() throws Exception {
+        for (int i = 0; i <= SqlMetrics.MAX_STATEMENTS; i++) {
+            sqlMetrics.record("select * from table_" + i, 1, false);
+        }
+
+        assertThat(sqlMetrics.getDistinctStatementCount(), equalTo(SqlMetrics.MAX_STATEMENTS + 1));
+        assertThat(sqlMetrics.getStatementCount(), equalTo(SqlMetrics.MAX_STATEMENTS + 1L));
+    }
+
+    @Test
+    public void resetClearsMetrics() throws Exception {
+        sqlMetrics.record("select 1", 1, false);
+
+        sqlMetrics.reset();
+
+        assertThat(sqlMetrics.getStatementCount(), equalTo(0L));
+        assertThat(sqlMetrics.getStatements().size(), equalTo(0));
+    }
+}
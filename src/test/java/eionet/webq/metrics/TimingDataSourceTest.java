@@ -0,0 +1,107 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.metrics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TimingDataSourceTest {
+    private SqlMetrics sqlMetrics = new SqlMetrics();
+    private TimingDataSource dataSource;
+    private Connection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        sqlMetrics.slowQueryMillis = Long.MAX_VALUE;
+        dataSource = new TimingDataSource(new DriverManagerDataSource("jdbc:h2:mem:timing", "sa", ""));
+        dataSource.setSqlMetrics(sqlMetrics);
+        connection = dataSource.getConnection();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connection.close();
+    }
+
+    @Test
+    public void recordsPreparedStatementExecutions() throws Exception {
+        PreparedStatement statement = connection.prepareStatement("select ? from dual");
+        statement.setString(1, "secret");
+        statement.executeQuery().close();
+        statement.executeQuery().close();
+        statement.close();
+
+        assertThat(sqlMetrics.getStatementCount(), equalTo(2L));
+        assertThat(sqlMetrics.getStatements().get(0).getSql(), equalTo("select ? from dual"));
+    }
+
+    @Test
+    public void recordsPlainStatementExecutionsWithRedactedLiterals() throws Exception {
+        Statement statement = connection.createStatement();
+        statement.execute("select 'secret' from dual");
+        statement.close();
+
+        assertThat(sqlMetrics.getStatements().get(0).getSql(), equalTo("select ? from dual"));
+    }
+
+    @Test
+    public void recordsFailedExecutions() throws Exception {
+        Statement statement = connection.createStatement();
+        try {
+            statement.execute("select * from missing_table");
+            fail("Exception expected");
+        } catch (SQLException e) {
+            assertThat(sqlMetrics.getErrorCount(), equalTo(1L));
+        } finally {
+            statement.close();
+        }
+    }
+
+    @Test
+    public void proxiedStatementsKeepSpecificInterface() throws Exception {
+        assertTrue(connection.prepareStatement("select 1 from dual") instanceof PreparedStatement);
+        assertTrue(connection.prepareCall("call 1") instanceof java.sql.CallableStatement);
+    }
+
+    @Test
+    public void disabledDataSourceReturnsTargetConnection() throws Exception {
+        dataSource.setEnabled(false);
+        Connection target = dataSource.getConnection();
+        try {
+            target.createStatement().execute("select 1 from dual");
+
+            assertThat(sqlMetrics.getStatementCount(), equalTo(0L));
+        } finally {
+            target.close();
+        }
+    }
+}
@@ -61,6 +61,7 @@ import static org.mockito.Matchers.anyList;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -77,10 +78,15 @@ public class CDREnvelopeServiceImplTest {
     private RestOperations restOperations;
     @Mock
     private ConversionService conversionService;
+    @Mock
+    private UpstreamGuards upstreamGuards;
 
     @Before
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
+        cdrEnvelopeService.xmlFilesCacheTtlSeconds = 60;
+        cdrEnvelopeService.xmlFilesCacheMaxSize = 10;
+        cdrEnvelopeService.init();
     }
 
     @Test
@@ -142,6 +148,48 @@ public class CDREnvelopeServiceImplTest {
         cdrEnvelopeService.getXmlFiles(parametersWithUrl);
     }
 
+    @Test
+    public void cachesXmlFilesListingForSameEnvelopeAndIdentity() throws Exception {
+        cdrEnvelopeService.getXmlFiles(parametersWithUrl);
+        cdrEnvelopeService.getXmlFiles(createWebQMenuParameters(parametersWithUrl.getEnvelopeUrl() + "/"));
+
+        verify(xmlRpcClient, times(1)).execute(any(XmlRpcClientConfig.class), anyString(), anyList());
+    }
+
+    @Test
+    public void doesNotShareXmlFilesListingBetweenIdentities() throws Exception {
+        String envelope = parametersWithUrl.getEnvelopeUrl();
+        cdrEnvelopeService.getXmlFiles(parametersWithUrl);
+        cdrEnvelopeService.getXmlFiles(createWebQMenuParametersWithAuthorization(envelope, "username", "password"));
+        cdrEnvelopeService.getXmlFiles(createWebQMenuParametersWithAuthorization(envelope, "username", "other"));
+
+        verify(xmlRpcClient, times(3)).execute(any(XmlRpcClientConfig.class), anyString(), anyList());
+    }
+
+    @Test
+    public void doesNotCacheXmlFilesListingIfTtlIsZero() throws Exception {
+        cdrEnvelopeService.xmlFilesCacheTtlSeconds = 0;
+        cdrEnvelopeService.init();
+
+        cdrEnvelopeService.getXmlFiles(parametersWithUrl);
+        cdrEnvelopeService.getXmlFiles(parametersWithUrl);
+
+        verify(xmlRpcClient, times(2)).execute(any(XmlRpcClientConfig.class), anyString(), anyList());
+    }
+
+    @Test
+    public void savingXmlFileEvictsEnvelopeXmlFilesListing() throws Exception {
+        restOperationWillReturnResponseStringAndStatus(HttpStatus.OK);
+        cdrEnvelopeService.getXmlFiles(parametersWithUrl);
+
+        UserFile file = fileFromCdr();
+        file.setEnvelope(parametersWithUrl.getEnvelopeUrl());
+        cdrEnvelopeService.pushXmlFile(file);
+        cdrEnvelopeService.getXmlFiles(parametersWithUrl);
+
+        verify(xmlRpcClient, times(2)).execute(any(XmlRpcClientConfig.class), anyString(), anyList());
+    }
+
     @Test
     public void onSaveXmlUseEnvelopeUrlWithRemoteMethodName() throws Exception {
         restOperationWillReturnResponseStringAndStatus(HttpStatus.OK);
@@ -0,0 +1,251 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.service;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import eionet.webq.dao.CdrPushJobStorage;
+import eionet.webq.dao.UserFileStorage;
+import eionet.webq.dao.orm.CdrPushJob;
+import eionet.webq.dao.orm.CdrPushJobStatus;
+import eionet.webq.dao.orm.UploadedFile;
+import eionet.webq.dao.orm.UserFile;
+import eionet.webq.dto.XmlSaveResult;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CdrPushQueueServiceImplTest {
+    private static final String ENVELOPE = "http://cdr/envelope";
+    @InjectMocks
+    private CdrPushQueueServiceImpl service;
+    @Mock
+    private CdrPushJobStorage jobStorage;
+    @Mock
+    private UserFileStorage userFileStorage;
+    @Mock
+    private UserFileService userFileService;
+    @Mock
+    private CDREnvelopeService envelopeService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        service.maxAttempts = 3;
+        service.retryDelaySeconds = 10;
+        service.maxRetryDelaySeconds = 30;
+        service.claimTimeoutSeconds = 60;
+        service.executor = MoreExecutors.sameThreadExecutor();
+    }
+
+    @Test
+    public void storesContentAndQueuesNewJob() throws Exception {
+        UserFile file = cdrFile(1);
+        file.setConversionId("42");
+
+        XmlSaveResult result = service.enqueue(file);
+
+        verify(userFileService).updateContent(file);
+        ArgumentCaptor<CdrPushJob> job = ArgumentCaptor.forClass(CdrPushJob.class);
+        verify(jobStorage).save(job.capture());
+        assertThat(job.getValue().getUserFileId(), equalTo(1));
+        assertThat(job.getValue().getEnvelope(), equalTo(ENVELOPE));
+        assertThat(job.getValue().getConversionId(), equalTo("42"));
+        assertThat(job.getValue().getStatus(), equalTo(CdrPushJobStatus.QUEUED));
+        assertThat(result.getCode(), equalTo(1));
+    }
+
+    @Test
+    public void reusesQueuedJobOfSameFile() throws Exception {
+        CdrPushJob queued = job(5, 1, CdrPushJobStatus.QUEUED);
+        queued.setAttempts(2);
+        when(jobStorage.findQueuedForUserFile(1)).thenReturn(queued);
+
+        XmlSaveResult result = service.enqueue(cdrFile(1));
+
+        verify(jobStorage, never()).save(any(CdrPushJob.class));
+        verify(jobStorage).update(queued);
+        assertThat(queued.getAttempts(), equalTo(0));
+        assertThat(result.getPushJobId(), equalTo(5));
+    }
+
+    @Test
+    public void pushesDueJobAndMarksItDone() throws Exception {
+        CdrPushJob job = job(5, 1, CdrPushJobStatus.QUEUED);
+        job.setRestricted(true);
+        job.setApplyRestriction(true);
+        jobIsStored(job);
+        UserFile file = cdrFile(1);
+        when(userFileStorage.findFile(1)).thenReturn(file);
+        when(envelopeService.pushXmlFile(file)).thenReturn(XmlSaveResult.valueOfSuccess());
+
+        assertThat(service.dispatchDueJobs(), equalTo(1));
+
+        assertTrue(file.isRestricted());
+        assertTrue(file.isApplyRestriction());
+        assertThat(job.getStatus(), equalTo(CdrPushJobStatus.DONE));
+        assertThat(job.getAttempts(), equalTo(1));
+    }
+
+    @Test
+    public void failedPushIsRetriedLater() throws Exception {
+        CdrPushJob job = job(5, 1, CdrPushJobStatus.QUEUED);
+        jobIsStored(job);
+        when(userFileStorage.findFile(1)).thenReturn(cdrFile(1));
+        when(envelopeService.pushXmlFile(any(UserFile.class))).thenThrow(new IllegalStateException("CDR is down"));
+
+        service.dispatchDueJobs();
+
+        assertThat(job.getStatus(), equalTo(CdrPushJobStatus.QUEUED));
+        assertTrue(job.getNextAttempt().after(new Date()));
+        assertTrue(job.getMessage().contains("CDR is down"));
+
+        service.dispatchDueJobs();
+        verify(envelopeService, times(1)).pushXmlFile(any(UserFile.class));
+    }
+
+    @Test
+    public void givesUpAfterMaximumAttempts() throws Exception {
+        CdrPushJob job = job(5, 1, CdrPushJobStatus.QUEUED);
+        job.setAttempts(2);
+        jobIsStored(job);
+        when(userFileStorage.findFile(1)).thenReturn(cdrFile(1));
+        when(envelopeService.pushXmlFile(any(UserFile.class))).thenReturn(XmlSaveResult.valueOfError("Unauthorized"));
+
+        service.dispatchDueJobs();
+
+        assertThat(job.getStatus(), equalTo(CdrPushJobStatus.FAILED));
+        assertThat(job.getAttempts(), equalTo(3));
+    }
+
+    @Test
+    public void pushesOnlyOldestJobOfEnvelope() throws Exception {
+        CdrPushJob delayed = job(5, 1, CdrPushJobStatus.QUEUED);
+        delayed.setNextAttempt(new Date(System.currentTimeMillis() + 60000));
+        CdrPushJob next = job(6, 2, CdrPushJobStatus.QUEUED);
+        when(jobStorage.findUnfinished()).thenReturn(Arrays.asList(delayed, next));
+
+        assertThat(service.dispatchDueJobs(), equalTo(0));
+        verify(envelopeService, never()).pushXmlFile(any(UserFile.class));
+    }
+
+    @Test
+    public void jobClaimedByOtherNodeIsNotPushed() throws Exception {
+        CdrPushJob job = job(5, 1, CdrPushJobStatus.QUEUED);
+        when(jobStorage.findUnfinished()).thenReturn(Arrays.asList(job));
+        when(jobStorage.claim(eq(5), any(Date.class), any(Date.class))).thenReturn(false);
+
+        assertThat(service.dispatchDueJobs(), equalTo(0));
+        verify(envelopeService, never()).pushXmlFile(any(UserFile.class));
+        verify(jobStorage, never()).findJob(5);
+    }
+
+    @Test
+    public void jobInProgressIsNotClaimedUntilClaimIsStale() throws Exception {
+        CdrPushJob job = job(5, 1, CdrPushJobStatus.IN_PROGRESS);
+        job.setUpdated(new Date(System.currentTimeMillis() - 30000));
+        jobIsStored(job);
+
+        assertThat(service.dispatchDueJobs(), equalTo(0));
+        verify(jobStorage, never()).claim(anyInt(), any(Date.class), any(Date.class));
+
+        job.setUpdated(new Date(System.currentTimeMillis() - 120000));
+        when(userFileStorage.findFile(1)).thenReturn(cdrFile(1));
+        when(envelopeService.pushXmlFile(any(UserFile.class))).thenReturn(XmlSaveResult.valueOfSuccess());
+
+        assertThat(service.dispatchDueJobs(), equalTo(1));
+        assertThat(job.getStatus(), equalTo(CdrPushJobStatus.DONE));
+    }
+
+    @Test
+    public void retryDelayGrowsExponentiallyUpToMaximum() throws Exception {
+        assertThat(service.retryDelay(1), equalTo(10L));
+        assertThat(service.retryDelay(2), equalTo(20L));
+        assertThat(service.retryDelay(3), equalTo(30L));
+        assertThat(service.retryDelay(40), equalTo(30L));
+    }
+
+    @Test
+    public void statusIsNotAvailableIfFileDoesNotBelongToUser() throws Exception {
+        when(jobStorage.findJob(5)).thenReturn(job(5, 1, CdrPushJobStatus.DONE));
+
+        assertNull(service.getStatus(5));
+    }
+
+    @Test
+    public void returnsStatusOfUserFileJob() throws Exception {
+        when(jobStorage.findJob(5)).thenReturn(job(5, 1, CdrPushJobStatus.DONE));
+        when(userFileService.getById(1)).thenReturn(cdrFile(1));
+
+        assertThat(service.getStatus(5).getStatus(), equalTo("DONE"));
+    }
+
+    private void jobIsStored(final CdrPushJob job) {
+        when(jobStorage.findUnfinished()).thenReturn(Arrays.asList(job));
+        when(jobStorage.findJob(job.getId())).thenReturn(job);
+        when(jobStorage.claim(eq(job.getId()), any(Date.class), any(Date.class))).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                job.setStatus(CdrPushJobStatus.IN_PROGRESS);
+                return true;
+            }
+        });
+    }
+
+    private CdrPushJob job(int id, int userFileId, CdrPushJobStatus status) {
+        CdrPushJob job = new CdrPushJob();
+        job.setId(id);
+        job.setUserFileId(userFileId);
+        job.setEnvelope(ENVELOPE);
+        job.setStatus(status);
+        job.setNextAttempt(new Date(System.currentTimeMillis() - 1000));
+        return job;
+    }
+
+    private UserFile cdrFile(int id) {
+        UserFile file = new UserFile(new UploadedFile("file.xml", "<xml/>".getBytes()), "schema");
+        file.setId(id);
+        file.setFromCdr(true);
+        file.setEnvelope(ENVELOPE);
+        return file;
+    }
+}
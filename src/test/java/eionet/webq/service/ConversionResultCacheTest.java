@@ -0,0 +1,156 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.service;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+public class ConversionResultCacheTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private ConversionResultCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        cache = new ConversionResultCache();
+        cache.maxSizeMb = 1;
+        cache.ttlMinutes = 10;
+        cache.diskDir = "";
+        cache.diskMaxSizeMb = 10;
+        cache.init();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        cache.destroy();
+    }
+
+    @Test
+    public void keyDependsOnContentConversionAndFileName() throws Exception {
+        String key = ConversionResultCache.keyFor("content".getBytes(), "file.xml", "1");
+
+        assertThat(ConversionResultCache.keyFor("content".getBytes(), "file.xml", "1"), equalTo(key));
+        assertThat(ConversionResultCache.keyFor("other".getBytes(), "file.xml", "1").equals(key), equalTo(false));
+        assertThat(ConversionResultCache.keyFor("content".getBytes(), "file.xml", "2").equals(key), equalTo(false));
+        assertThat(ConversionResultCache.keyFor("content".getBytes(), "other.xml", "1").equals(key), equalTo(false));
+    }
+
+    @Test
+    public void preservesContentTypeAndContentDisposition() throws Exception {
+        cache.put("key", conversionResult(10));
+
+        ResponseEntity<byte[]> cached = cache.get("key");
+
+        assertThat(cached.getBody().length, equalTo(10));
+        assertThat(cached.getHeaders().getContentType(), equalTo(MediaType.TEXT_HTML));
+        assertThat(cached.getHeaders().getFirst("Content-Disposition"), equalTo("attachment; filename=\"report.html\""));
+    }
+
+    @Test
+    public void doesNotCacheFailedConversions() throws Exception {
+        cache.put("key", new ResponseEntity<byte[]>("error".getBytes(), HttpStatus.INTERNAL_SERVER_ERROR));
+
+        assertNull(cache.get("key"));
+    }
+
+    @Test
+    public void evictsResultsExceedingSizeLimit() throws Exception {
+        cache.put("first", conversionResult((int) FileUtils.ONE_MB / 2));
+        cache.put("second", conversionResult((int) FileUtils.ONE_MB / 2));
+        cache.put("third", conversionResult((int) FileUtils.ONE_MB / 2));
+
+        assertNull(cache.get("first"));
+        assertNotNull(cache.get("third"));
+    }
+
+    @Test
+    public void readsResultsEvictedFromMemoryFromDisk() throws Exception {
+        cache.diskDir = temporaryFolder.getRoot().getAbsolutePath();
+        cache.init();
+
+        cache.put("first", conversionResult((int) FileUtils.ONE_MB / 2));
+        cache.put("second", conversionResult((int) FileUtils.ONE_MB / 2));
+        cache.put("third", conversionResult((int) FileUtils.ONE_MB / 2));
+
+        cache.awaitSpills();
+
+        assertThat(temporaryFolder.getRoot().list().length, equalTo(2));
+        ResponseEntity<byte[]> spilled = cache.get("first");
+        assertThat(spilled.getBody().length, equalTo((int) FileUtils.ONE_MB / 2));
+        assertThat(spilled.getHeaders().getContentType(), equalTo(MediaType.TEXT_HTML));
+    }
+
+    @Test
+    public void resultWaitingToBeSpilledIsFound() throws Exception {
+        cache.diskDir = temporaryFolder.getRoot().getAbsolutePath();
+        cache.init();
+
+        cache.put("first", conversionResult((int) FileUtils.ONE_MB / 2));
+        cache.put("second", conversionResult((int) FileUtils.ONE_MB / 2));
+        cache.put("third", conversionResult((int) FileUtils.ONE_MB / 2));
+
+        assertNotNull(cache.get("first"));
+    }
+
+    @Test
+    public void clearRemovesSpilledResults() throws Exception {
+        cache.diskDir = temporaryFolder.getRoot().getAbsolutePath();
+        cache.init();
+        cache.put("first", conversionResult((int) FileUtils.ONE_MB / 2));
+        cache.put("second", conversionResult((int) FileUtils.ONE_MB / 2));
+        cache.put("third", conversionResult((int) FileUtils.ONE_MB / 2));
+
+        cache.clear();
+        cache.awaitSpills();
+
+        assertNull(cache.get("first"));
+        assertThat(temporaryFolder.getRoot().list().length, equalTo(0));
+    }
+
+    @Test
+    public void cacheIsDisabledIfMaxSizeIsZero() throws Exception {
+        cache.maxSizeMb = 0;
+        cache.init();
+
+        cache.put("key", conversionResult(10));
+
+        assertNull(cache.get("key"));
+    }
+
+    private ResponseEntity<byte[]> conversionResult(int size) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.TEXT_HTML);
+        headers.set("Content-Disposition", "attachment; filename=\"report.html\"");
+        return new ResponseEntity<byte[]>(new byte[size], headers, HttpStatus.OK);
+    }
+}
@@ -53,6 +53,7 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -65,12 +66,15 @@ public class ConversionServiceImplTest {
     private CacheCleaner cacheCleaner;
     @Autowired
     private RestOperations restOperations;
+    @Autowired
+    private ConversionResultCache conversionResultCache;
     private Cache conversionsCache;
     private final String xmlSchema = "schema.xsd";
 
     @Before
     public void prepare() throws Exception {
         conversionsCache = cacheCleaner.cleanConversionsCacheAndReturnIt();
+        conversionResultCache.clear();
     }
 
     @After
@@ -136,6 +140,39 @@ public class ConversionServiceImplTest {
         assertPostParametersAreCorrect((postParameters.getValue()), testContent, convertId);
     }
 
+    @Test
+    public void sameContentConversionIsTakenFromCacheWithHeaders() throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.TEXT_HTML);
+        headers.set("Content-Disposition", "attachment; filename=\"report.html\"");
+        when(restOperations.postForEntity(anyString(), any(), eq(byte[].class)))
+                .thenReturn(new ResponseEntity<byte[]>("response".getBytes(), headers, HttpStatus.OK));
+        UserFile userFile = new UserFile();
+        userFile.setContent("test content".getBytes());
+
+        conversionService.convert(userFile, "1");
+        ResponseEntity<byte[]> cached = conversionService.convert(userFile, "1");
+
+        verify(restOperations).postForEntity(anyString(), any(), eq(byte[].class));
+        assertThat(cached.getBody(), equalTo("response".getBytes()));
+        assertThat(cached.getHeaders().getContentType(), equalTo(MediaType.TEXT_HTML));
+        assertThat(cached.getHeaders().getFirst("Content-Disposition"), equalTo("attachment; filename=\"report.html\""));
+    }
+
+    @Test
+    public void differentContentIsConvertedAgain() throws Exception {
+        when(restOperations.postForEntity(anyString(), any(), eq(byte[].class)))
+                .thenReturn(new ResponseEntity<byte[]>("response".getBytes(), HttpStatus.OK));
+        UserFile userFile = new UserFile();
+        userFile.setContent("test content".getBytes());
+        conversionService.convert(userFile, "1");
+
+        userFile.setContent("changed content".getBytes());
+        conversionService.convert(userFile, "1");
+
+        verify(restOperations, times(2)).postForEntity(anyString(), any(), eq(byte[].class));
+    }
+
     @SuppressWarnings("unchecked")
     private void assertPostParametersAreCorrect(MultiValueMap<String, Object> postParameters, byte[] content, String convertId) {
         for (List<Object> objects : postParameters.values()) {
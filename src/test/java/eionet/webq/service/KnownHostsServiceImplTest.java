@@ -28,7 +28,13 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.util.Arrays;
+
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
 
 /**
  */
@@ -36,6 +42,8 @@ import static org.mockito.Mockito.verify;
 public class KnownHostsServiceImplTest {
     @Mock
     private KnownHosts knownHosts;
+    @Mock
+    private UpstreamGuards upstreamGuards;
     @InjectMocks
     private KnownHostsServiceImpl service;
 
@@ -75,4 +83,23 @@ public class KnownHostsServiceImplTest {
 
         verify(knownHosts).remove(1);
     }
+
+    @Test
+    public void whenKnownHostsChange_upstreamGuardsAreReconfigured() throws Exception {
+        service.update(new KnownHost());
+
+        verify(upstreamGuards).knownHostsChanged();
+    }
+
+    @Test
+    public void knownHostIsLookedUpFromStorage() throws Exception {
+        KnownHost other = new KnownHost();
+        other.setHostURL("http://other");
+        KnownHost host = new KnownHost();
+        host.setHostURL("http://host");
+        when(knownHosts.findAll()).thenReturn(Arrays.asList(other, host));
+
+        assertThat(service.getKnownHost("http://host/file.xml"), sameInstance(host));
+        verifyZeroInteractions(upstreamGuards);
+    }
 }
@@ -26,12 +26,14 @@ import eionet.webq.dao.orm.ProjectEntry;
 import eionet.webq.dao.orm.ProjectFile;
 import eionet.webq.dao.orm.ProjectFileType;
 import eionet.webq.dao.orm.UploadedFile;
+import eionet.webq.dto.RemoteFileContent;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.util.MultiValueMap;
 
 import java.util.Arrays;
@@ -66,6 +68,9 @@ public class ProjectFileServiceImplTest {
     @Mock
     private XmlSchemaExtractor xmlSchemaExtractor;
     
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    
     @InjectMocks
     private ProjectFileService service = new ProjectFileServiceImpl();
     
@@ -177,6 +182,21 @@ public class ProjectFileServiceImplTest {
         verify(projectFileStorage).findById(1);
         verify(projectFileStorage).update(testFile, testProject);
     }
+
+    @Test
+    public void savesRemoteContentWithValidatorsAndNotifiesListeners() throws Exception {
+        when(projectFileStorage.findById(1)).thenReturn(testFile);
+        byte[] content = "new-content".getBytes();
+        service.updateContent(1, RemoteFileContent.modified(content, "hash", "\"etag\"", "last-modified"), testProject);
+
+        verify(projectFileStorage).findById(1);
+        verify(projectFileStorage).update(testFile, testProject);
+        assertThat(testFile.getFileContent(), equalTo(content));
+        assertThat(testFile.getContentHash(), equalTo("hash"));
+        assertThat(testFile.getRemoteEtag(), equalTo("\"etag\""));
+        assertThat(testFile.getRemoteLastModified(), equalTo("last-modified"));
+        verify(eventPublisher).publishEvent(any(ProjectFileContentChangedEvent.class));
+    }
     
     @Test
     public void testExportProject() throws Exception {
@@ -0,0 +1,151 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestOperations;
+
+import java.net.URI;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ProxyResponseCacheTest {
+    private static final URI CODE_LIST = URI.create("http://dd.eionet.europa.eu/codelist.xml");
+    @InjectMocks
+    private ProxyResponseCache cache;
+    @Mock
+    private RestOperations restTemplate;
+    @Spy
+    private SingleFlight singleFlight = new SingleFlight();
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        cache.maxSizeMb = 1;
+        cache.maxHeuristicFreshnessSeconds = 300;
+        cache.init();
+    }
+
+    @Test
+    public void freshResponseIsServedFromCache() throws Exception {
+        upstreamWillReturn(response("codes", HttpStatus.OK, "Cache-Control", "public, max-age=600"));
+
+        assertThat(cache.get(CODE_LIST), equalTo("codes"));
+        assertThat(cache.get(CODE_LIST), equalTo("codes"));
+
+        verify(restTemplate, times(1)).exchange(eq(CODE_LIST), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class));
+    }
+
+    @Test
+    public void noStoreResponseIsNotCached() throws Exception {
+        upstreamWillReturn(response("codes", HttpStatus.OK, "Cache-Control", "no-store"));
+
+        cache.get(CODE_LIST);
+        cache.get(CODE_LIST);
+
+        verify(restTemplate, times(2)).exchange(eq(CODE_LIST), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class));
+    }
+
+    @Test
+    public void privateResponseIsNotCached() throws Exception {
+        upstreamWillReturn(response("codes", HttpStatus.OK, "Cache-Control", "private, max-age=600"));
+
+        cache.get(CODE_LIST);
+        cache.get(CODE_LIST);
+
+        verify(restTemplate, times(2)).exchange(eq(CODE_LIST), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class));
+    }
+
+    @Test
+    public void staleResponseIsRevalidatedWithEtag() throws Exception {
+        upstreamWillReturn(response("codes", HttpStatus.OK, "Cache-Control", "no-cache", "ETag", "\"v1\""),
+                response(null, HttpStatus.NOT_MODIFIED, "ETag", "\"v1\""));
+
+        cache.get(CODE_LIST);
+        String revalidated = cache.get(CODE_LIST);
+
+        assertThat(revalidated, equalTo("codes"));
+        ArgumentCaptor<HttpEntity> requests = ArgumentCaptor.forClass(HttpEntity.class);
+        verify(restTemplate, times(2)).exchange(eq(CODE_LIST), eq(HttpMethod.GET), requests.capture(), eq(String.class));
+        assertThat(requests.getAllValues().get(1).getHeaders().getIfNoneMatch().get(0), equalTo("\"v1\""));
+    }
+
+    @Test
+    public void changedResponseReplacesCachedOne() throws Exception {
+        upstreamWillReturn(response("codes", HttpStatus.OK, "Cache-Control", "max-age=0", "ETag", "\"v1\""),
+                response("new codes", HttpStatus.OK, "Cache-Control", "max-age=600", "ETag", "\"v2\""));
+
+        cache.get(CODE_LIST);
+
+        assertThat(cache.get(CODE_LIST), equalTo("new codes"));
+        assertThat(cache.get(CODE_LIST), equalTo("new codes"));
+        verify(restTemplate, times(2)).exchange(eq(CODE_LIST), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class));
+    }
+
+    @Test
+    public void responseWithoutFreshnessAndValidatorsIsNotCached() throws Exception {
+        upstreamWillReturn(response("codes", HttpStatus.OK));
+
+        cache.get(CODE_LIST);
+        cache.get(CODE_LIST);
+
+        verify(restTemplate, times(2)).exchange(eq(CODE_LIST), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class));
+    }
+
+    @Test
+    public void cacheIsBypassedIfDisabled() throws Exception {
+        cache.maxSizeMb = 0;
+        when(restTemplate.getForObject(CODE_LIST, String.class)).thenReturn("codes");
+
+        assertThat(cache.get(CODE_LIST), equalTo("codes"));
+        verify(restTemplate).getForObject(CODE_LIST, String.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void upstreamWillReturn(ResponseEntity<String> first, ResponseEntity<String>... next) {
+        when(restTemplate.exchange(eq(CODE_LIST), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(first, next);
+    }
+
+    private ResponseEntity<String> response(String body, HttpStatus status, String... headerNamesAndValues) {
+        HttpHeaders headers = new HttpHeaders();
+        for (int i = 0; i < headerNamesAndValues.length; i += 2) {
+            headers.add(headerNamesAndValues[i], headerNamesAndValues[i + 1]);
+        }
+        return new ResponseEntity<String>(body, headers, status);
+    }
+}
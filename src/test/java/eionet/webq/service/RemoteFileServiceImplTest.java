@@ -20,11 +20,17 @@
  */
 package eionet.webq.service;
 
+import eionet.webq.dto.RemoteFileContent;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.RestClientException;
@@ -34,12 +40,14 @@ import java.net.URI;
 import java.net.URL;
 
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class RemoteFileServiceImplTest {
@@ -115,6 +123,62 @@ public class RemoteFileServiceImplTest {
         remoteFileService.fileContent(localFileUrl);
     }
 
+    @Test
+    public void fetchWithoutValidatorsReturnsContentAndResponseValidators() throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag("\"v1\"");
+        headers.set(HttpHeaders.LAST_MODIFIED, "Wed, 21 Oct 2015 07:28:00 GMT");
+        when(restOperations.getForEntity(any(URI.class), eq(byte[].class)))
+                .thenReturn(new ResponseEntity<byte[]>(FILE_CONTENT_IN_RESPONSE, headers, HttpStatus.OK));
+
+        RemoteFileContent result = remoteFileService.fetchIfModified(url, null, null);
+
+        assertFalse(result.isNotModified());
+        assertThat(result.getContent(), equalTo(FILE_CONTENT_IN_RESPONSE));
+        assertThat(result.getContentHash(), equalTo(DigestUtils.sha256Hex(FILE_CONTENT_IN_RESPONSE)));
+        assertThat(result.getEtag(), equalTo("\"v1\""));
+        assertThat(result.getLastModified(), equalTo("Wed, 21 Oct 2015 07:28:00 GMT"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void sendsConditionalHeadersWhenValidatorsKnown() throws Exception {
+        when(restOperations.exchange(any(URI.class), eq(HttpMethod.GET), any(HttpEntity.class), eq(byte[].class)))
+                .thenReturn(new ResponseEntity<byte[]>(HttpStatus.NOT_MODIFIED));
+
+        RemoteFileContent result = remoteFileService.fetchIfModified(url, "\"v1\"", "Wed, 21 Oct 2015 07:28:00 GMT");
+
+        ArgumentCaptor<HttpEntity> request = ArgumentCaptor.forClass(HttpEntity.class);
+        verify(restOperations).exchange(eq(new URI(url)), eq(HttpMethod.GET), request.capture(), eq(byte[].class));
+        assertThat(request.getValue().getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH), equalTo("\"v1\""));
+        assertThat(request.getValue().getHeaders().getFirst(HttpHeaders.IF_MODIFIED_SINCE),
+                equalTo("Wed, 21 Oct 2015 07:28:00 GMT"));
+        assertTrue(result.isNotModified());
+        assertThat(result.getContent(), nullValue());
+        assertThat(result.getEtag(), equalTo("\"v1\""));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void conditionalFetchReturnsContentIfModified() throws Exception {
+        when(restOperations.exchange(any(URI.class), eq(HttpMethod.GET), any(HttpEntity.class), eq(byte[].class)))
+                .thenReturn(new ResponseEntity<byte[]>(FILE_CONTENT_IN_RESPONSE, HttpStatus.OK));
+
+        RemoteFileContent result = remoteFileService.fetchIfModified(url, "\"v1\"", null);
+
+        assertFalse(result.isNotModified());
+        assertThat(result.getContent(), equalTo(FILE_CONTENT_IN_RESPONSE));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test(expected = FileNotAvailableException.class)
+    public void conditionalFetchThrowsExceptionIfRemoteFailed() throws Exception {
+        when(restOperations.exchange(any(URI.class), eq(HttpMethod.GET), any(HttpEntity.class), eq(byte[].class)))
+                .thenThrow(new RestClientException("Download is not possible"));
+
+        remoteFileService.fetchIfModified(url, "\"v1\"", null);
+    }
+
     private void httpResponseWithBytes() {
         httpResponseWithBytes(FILE_CONTENT_IN_RESPONSE);
     }
@@ -0,0 +1,246 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.service;
+
+import eionet.webq.dao.ProjectFileStorage;
+import eionet.webq.dao.orm.ProjectEntry;
+import eionet.webq.dao.orm.ProjectFile;
+import eionet.webq.dto.RemoteFileCheckResult;
+import eionet.webq.dto.RemoteFileCheckResult.Status;
+import eionet.webq.dto.RemoteFileContent;
+import eionet.webq.dto.RemoteFileSyncReport;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RemoteFileUpdateServiceImplTest {
+    private static final byte[] LOCAL_CONTENT = "local content".getBytes();
+    private static final String LOCAL_HASH = DigestUtils.sha256Hex(LOCAL_CONTENT);
+    private static final String REMOTE_URL = "http://remote/file.xml";
+    @InjectMocks
+    private RemoteFileUpdateServiceImpl service;
+    @Mock
+    private RemoteFileService remoteFileService;
+    @Mock
+    private ProjectFileStorage projectFileStorage;
+    @Mock
+    private ProjectFileService projectFileService;
+    @Mock
+    private ProjectService projectService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        service.poolSize = 2;
+        service.maxRequestsPerHost = 1;
+        service.timeoutSeconds = 10;
+        service.init();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        service.destroy();
+    }
+
+    @Test
+    public void notModifiedResponseMeansFileIsUpToDate() throws Exception {
+        ProjectFile file = fileWithValidators(1);
+        when(remoteFileService.fetchIfModified(REMOTE_URL, "\"v1\"", null))
+                .thenReturn(RemoteFileContent.notModified("\"v1\"", null));
+
+        assertThat(service.checkForUpdates(file).getStatus(), equalTo(Status.UP_TO_DATE));
+        verify(projectFileStorage, never()).updateRemoteValidators(anyInt(), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    public void singleFileIsFetchedBeforeTransactionStoringValidatorsIsStarted() throws Exception {
+        ProjectFile file = fileWithValidators(1);
+        when(remoteFileService.fetchIfModified(REMOTE_URL, "\"v1\"", null))
+                .thenReturn(RemoteFileContent.modified(LOCAL_CONTENT, LOCAL_HASH, "\"v2\"", "yesterday"));
+
+        service.checkForUpdates(file);
+
+        InOrder order = inOrder(remoteFileService, transactionManager, projectFileStorage);
+        order.verify(remoteFileService).fetchIfModified(REMOTE_URL, "\"v1\"", null);
+        order.verify(transactionManager).getTransaction(any(TransactionDefinition.class));
+        order.verify(projectFileStorage).updateRemoteValidators(1, LOCAL_HASH, "\"v2\"", "yesterday");
+        verify(transactionManager, times(1)).getTransaction(any(TransactionDefinition.class));
+    }
+
+    @Test
+    public void sameContentHashMeansFileIsUpToDateAndValidatorsAreStored() throws Exception {
+        ProjectFile file = fileWithValidators(1);
+        when(remoteFileService.fetchIfModified(REMOTE_URL, "\"v1\"", null))
+                .thenReturn(RemoteFileContent.modified(LOCAL_CONTENT, LOCAL_HASH, "\"v2\"", "yesterday"));
+
+        assertThat(service.checkForUpdates(file).getStatus(), equalTo(Status.UP_TO_DATE));
+        verify(projectFileStorage).updateRemoteValidators(1, LOCAL_HASH, "\"v2\"", "yesterday");
+    }
+
+    @Test
+    public void differentContentHashMeansUpdateAvailable() throws Exception {
+        ProjectFile file = fileWithValidators(1);
+        byte[] remoteContent = "remote content".getBytes();
+        when(remoteFileService.fetchIfModified(REMOTE_URL, "\"v1\"", null))
+                .thenReturn(RemoteFileContent.modified(remoteContent, DigestUtils.sha256Hex(remoteContent), "\"v2\"", null));
+
+        assertThat(service.checkForUpdates(file).getStatus(), equalTo(Status.UPDATE_AVAILABLE));
+        verify(projectFileStorage, never()).updateRemoteValidators(anyInt(), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    public void calculatesContentHashIfNotStored() throws Exception {
+        ProjectFile file = fileWithValidators(1);
+        file.setContentHash(null);
+        file.setRemoteEtag(null);
+        when(projectFileStorage.findById(1)).thenReturn(file);
+        when(remoteFileService.fetchIfModified(REMOTE_URL, null, null))
+                .thenReturn(RemoteFileContent.modified(LOCAL_CONTENT, LOCAL_HASH, "\"v1\"", null));
+
+        assertThat(service.checkForUpdates(file).getStatus(), equalTo(Status.UP_TO_DATE));
+        verify(projectFileStorage).updateRemoteValidators(1, LOCAL_HASH, "\"v1\"", null);
+    }
+
+    @Test
+    public void storesCalculatedContentHashIfRemoteFileDiffers() throws Exception {
+        ProjectFile file = fileWithValidators(1);
+        file.setContentHash(null);
+        file.setRemoteEtag(null);
+        when(projectFileStorage.findById(1)).thenReturn(file);
+        byte[] remoteContent = "remote content".getBytes();
+        when(remoteFileService.fetchIfModified(REMOTE_URL, null, null))
+                .thenReturn(RemoteFileContent.modified(remoteContent, DigestUtils.sha256Hex(remoteContent), "\"v2\"", null));
+
+        assertThat(service.checkForUpdates(file).getStatus(), equalTo(Status.UPDATE_AVAILABLE));
+        verify(projectFileStorage).updateRemoteValidators(1, LOCAL_HASH, null, null);
+    }
+
+    @Test
+    public void checkingAllFilesDoesNotLoadContentIfHashIsStored() throws Exception {
+        ProjectEntry project = new ProjectEntry();
+        ProjectFile file = fileWithValidators(1);
+        when(projectFileStorage.findAllFilesFor(project)).thenReturn(Arrays.asList(file));
+        when(remoteFileService.fetchIfModified(REMOTE_URL, "\"v1\"", null))
+                .thenReturn(RemoteFileContent.modified(LOCAL_CONTENT, LOCAL_HASH, "\"v2\"", null));
+
+        List<RemoteFileCheckResult> results = service.checkAllForUpdates(project);
+
+        assertThat(results.get(0).getStatus(), equalTo(Status.UP_TO_DATE));
+        verify(projectFileStorage).updateRemoteValidators(1, LOCAL_HASH, "\"v2\"", null);
+        verify(projectFileStorage, never()).findById(anyInt());
+    }
+
+    @Test
+    public void notAvailableRemoteFile() throws Exception {
+        ProjectFile file = fileWithValidators(1);
+        when(remoteFileService.fetchIfModified(REMOTE_URL, "\"v1\"", null))
+                .thenThrow(new FileNotAvailableException("not available"));
+
+        assertThat(service.checkForUpdates(file).getStatus(), equalTo(Status.NOT_AVAILABLE));
+    }
+
+    @Test
+    public void checksAllFilesWithRemoteUrlInProjectFilesOrder() throws Exception {
+        ProjectEntry project = new ProjectEntry();
+        ProjectFile first = fileWithValidators(1);
+        ProjectFile withoutUrl = fileWithValidators(2);
+        withoutUrl.setRemoteFileUrl(null);
+        ProjectFile third = fileWithValidators(3);
+        third.setRemoteFileUrl(REMOTE_URL + "3");
+        when(projectFileStorage.findAllFilesFor(project)).thenReturn(Arrays.asList(first, withoutUrl, third));
+        when(remoteFileService.fetchIfModified(REMOTE_URL, "\"v1\"", null))
+                .thenReturn(RemoteFileContent.notModified("\"v1\"", null));
+        when(remoteFileService.fetchIfModified(REMOTE_URL + "3", "\"v1\"", null))
+                .thenThrow(new FileNotAvailableException("not available"));
+
+        List<RemoteFileCheckResult> results = service.checkAllForUpdates(project);
+
+        assertThat(results.size(), equalTo(2));
+        assertThat(results.get(0).getFileId(), equalTo(1));
+        assertThat(results.get(0).getStatus(), equalTo(Status.UP_TO_DATE));
+        assertThat(results.get(1).getFileId(), equalTo(3));
+        assertThat(results.get(1).getStatus(), equalTo(Status.NOT_AVAILABLE));
+    }
+
+    @Test
+    public void synchronizationUpdatesChangedFilesAndReportsSummary() throws Exception {
+        ProjectFile notModified = fileWithValidators(1);
+        ProjectFile changed = fileWithValidators(2);
+        changed.setRemoteFileUrl(REMOTE_URL + "2");
+        changed.setProjectId(5);
+        ProjectFile failing = fileWithValidators(3);
+        failing.setRemoteFileUrl(REMOTE_URL + "3");
+        when(projectFileStorage.findAllWithRemoteFileUrl()).thenReturn(Arrays.asList(notModified, changed, failing));
+        when(remoteFileService.fetchIfModified(REMOTE_URL, "\"v1\"", null))
+                .thenReturn(RemoteFileContent.notModified("\"v1\"", null));
+        byte[] remoteContent = "remote content".getBytes();
+        RemoteFileContent changedContent =
+                RemoteFileContent.modified(remoteContent, DigestUtils.sha256Hex(remoteContent), "\"v2\"", null);
+        when(remoteFileService.fetchIfModified(REMOTE_URL + "2", "\"v1\"", null)).thenReturn(changedContent);
+        when(remoteFileService.fetchIfModified(REMOTE_URL + "3", "\"v1\"", null))
+                .thenThrow(new FileNotAvailableException("not available"));
+        ProjectEntry project = new ProjectEntry();
+        when(projectService.getById(5)).thenReturn(project);
+
+        RemoteFileSyncReport report = service.synchronizeAll();
+
+        verify(projectFileService).updateContent(2, changedContent, project);
+        verify(projectFileService, never()).updateContent(eq(1), any(RemoteFileContent.class), any(ProjectEntry.class));
+        assertThat(report.getChecked(), equalTo(3));
+        assertThat(report.getNotModified(), equalTo(1));
+        assertThat(report.getUpdated(), equalTo(1));
+        assertThat(report.getFailed(), equalTo(1));
+    }
+
+    private ProjectFile fileWithValidators(int id) {
+        ProjectFile file = new ProjectFile();
+        file.setId(id);
+        file.setFileName("file" + id + ".xml");
+        file.setFileContent(LOCAL_CONTENT);
+        file.setContentHash(LOCAL_HASH);
+        file.setRemoteFileUrl(REMOTE_URL);
+        file.setRemoteEtag("\"v1\"");
+        return file;
+    }
+}
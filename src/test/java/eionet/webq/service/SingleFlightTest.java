@@ -0,0 +1,178 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SingleFlightTest {
+    private static final int CALLERS = 5;
+    private SingleFlight singleFlight;
+    private ExecutorService executor;
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws Exception {
+        singleFlight = new SingleFlight();
+        singleFlight.timeoutSeconds = 10;
+        executor = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentIdenticalCallsAreCollapsedIntoOne() throws Exception {
+        List<Future<String>> results = startCallers(new SingleFlight.Call<String, RuntimeException>() {
+            @Override
+            public String call() {
+                upstreamCalls.incrementAndGet();
+                awaitRelease();
+                return "result";
+            }
+        }, RuntimeException.class);
+        waitUntilCallersAreWaiting();
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS), equalTo("result"));
+        }
+        assertThat(upstreamCalls.get(), equalTo(1));
+        assertThat(singleFlight.getCoalescedCalls(), equalTo((long) CALLERS - 1));
+    }
+
+    @Test
+    public void failureIsPropagatedToAllWaitingCallers() throws Exception {
+        List<Future<String>> results = startCallers(new SingleFlight.Call<String, FileNotAvailableException>() {
+            @Override
+            public String call() throws FileNotAvailableException {
+                upstreamCalls.incrementAndGet();
+                awaitRelease();
+                throw new FileNotAvailableException("not found");
+            }
+        }, FileNotAvailableException.class);
+        waitUntilCallersAreWaiting();
+        release.countDown();
+
+        for (Future<String> result : results) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+                fail("Exception expected");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), instanceOf(FileNotAvailableException.class));
+            }
+        }
+        assertThat(upstreamCalls.get(), equalTo(1));
+    }
+
+    @Test(expected = SingleFlightTimeoutException.class)
+    public void waitingCallerTimesOut() throws Exception {
+        singleFlight.timeoutSeconds = 0;
+        executor.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                return singleFlight.execute("key", new SingleFlight.Call<String, RuntimeException>() {
+                    @Override
+                    public String call() {
+                        upstreamCalls.incrementAndGet();
+                        awaitRelease();
+                        return "result";
+                    }
+                }, RuntimeException.class);
+            }
+        });
+        while (upstreamCalls.get() == 0) {
+            Thread.sleep(10);
+        }
+
+        singleFlight.execute("key", new SingleFlight.Call<String, RuntimeException>() {
+            @Override
+            public String call() {
+                return "not expected";
+            }
+        }, RuntimeException.class);
+    }
+
+    @Test
+    public void sequentialCallsAreNotCollapsed() throws Exception {
+        SingleFlight.Call<Integer, RuntimeException> call = new SingleFlight.Call<Integer, RuntimeException>() {
+            @Override
+            public Integer call() {
+                return upstreamCalls.incrementAndGet();
+            }
+        };
+
+        assertThat(singleFlight.execute("key", call, RuntimeException.class), equalTo(1));
+        assertThat(singleFlight.execute("key", call, RuntimeException.class), equalTo(2));
+    }
+
+    private <E extends Exception> List<Future<String>> startCallers(final SingleFlight.Call<String, E> call,
+            final Class<E> exceptionType) {
+        List<Future<String>> results = new ArrayList<Future<String>>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return singleFlight.execute("key", call, exceptionType);
+                }
+            }));
+        }
+        return results;
+    }
+
+    private void waitUntilCallersAreWaiting() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (singleFlight.getExecutedCalls() + singleFlight.getCoalescedCalls() < CALLERS
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(singleFlight.getExecutedCalls() + singleFlight.getCoalescedCalls() >= CALLERS);
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
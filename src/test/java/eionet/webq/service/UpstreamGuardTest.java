@@ -0,0 +1,126 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.service;
+
+import com.google.common.base.Ticker;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class UpstreamGuardTest {
+    private long now;
+    private UpstreamGuard guard;
+
+    @Before
+    public void setUp() throws Exception {
+        guard = new UpstreamGuard("http://cdr", 2, 0, 3, 30, new Ticker() {
+            @Override
+            public long read() {
+                return now;
+            }
+        });
+    }
+
+    @Test
+    public void limitsConcurrentCalls() throws Exception {
+        guard.acquire();
+        guard.acquire();
+
+        assertRejected();
+        assertThat(guard.getActiveCalls(), equalTo(2));
+        assertThat(guard.getRejectedByBulkhead(), equalTo(1L));
+    }
+
+    @Test
+    public void releasedPermitFreesCallSlot() throws Exception {
+        guard.acquire();
+        UpstreamGuard.Permit permit = guard.acquire();
+        permit.release(true);
+        permit.release(true);
+
+        guard.acquire();
+        assertThat(guard.getActiveCalls(), equalTo(2));
+        assertThat(guard.getSuccessCount(), equalTo(1L));
+    }
+
+    @Test
+    public void opensAfterConsecutiveFailures() throws Exception {
+        failCalls(3);
+
+        assertThat(guard.getState(), equalTo(UpstreamGuard.State.OPEN));
+        assertRejected();
+        assertThat(guard.getRejectedByBreaker(), equalTo(1L));
+    }
+
+    @Test
+    public void successResetsConsecutiveFailures() throws Exception {
+        failCalls(2);
+        guard.acquire().release(true);
+        failCalls(2);
+
+        assertThat(guard.getState(), equalTo(UpstreamGuard.State.CLOSED));
+        assertThat(guard.getConsecutiveFailures(), equalTo(2));
+    }
+
+    @Test
+    public void letsSingleProbeThroughAfterOpenPeriod() throws Exception {
+        failCalls(3);
+        now += TimeUnit.SECONDS.toNanos(30);
+
+        assertThat(guard.getState(), equalTo(UpstreamGuard.State.HALF_OPEN));
+        UpstreamGuard.Permit probe = guard.acquire();
+        assertRejected();
+
+        probe.release(true);
+        assertThat(guard.getState(), equalTo(UpstreamGuard.State.CLOSED));
+        guard.acquire();
+    }
+
+    @Test
+    public void failedProbeOpensBreakerAgain() throws Exception {
+        failCalls(3);
+        now += TimeUnit.SECONDS.toNanos(30);
+
+        guard.acquire().release(false);
+
+        assertThat(guard.getState(), equalTo(UpstreamGuard.State.OPEN));
+        assertRejected();
+    }
+
+    private void failCalls(int times) {
+        for (int i = 0; i < times; i++) {
+            guard.acquire().release(false);
+        }
+    }
+
+    private void assertRejected() {
+        try {
+            guard.acquire();
+            fail("call must be rejected");
+        } catch (UpstreamUnavailableException e) {
+            // expected
+        }
+    }
+}
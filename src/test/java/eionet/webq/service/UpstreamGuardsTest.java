@@ -0,0 +1,203 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.service;
+
+import com.google.common.base.Ticker;
+import eionet.webq.dao.KnownHosts;
+import eionet.webq.dao.orm.KnownHost;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UpstreamGuardsTest {
+    @InjectMocks
+    private UpstreamGuards upstreamGuards;
+    @Mock
+    private KnownHosts knownHosts;
+    private long now;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        upstreamGuards.maxConcurrentCalls = 10;
+        upstreamGuards.maxWaitMillis = 0;
+        upstreamGuards.failureThreshold = 1;
+        upstreamGuards.openSeconds = 30;
+        upstreamGuards.ticker = new Ticker() {
+            @Override
+            public long read() {
+                return now;
+            }
+        };
+        when(knownHosts.findAll()).thenReturn(Collections.<KnownHost>emptyList());
+    }
+
+    @Test
+    public void sharesGuardBetweenUrlsOfSameHost() throws Exception {
+        UpstreamGuard guard = upstreamGuards.guardFor("http://CDR.eionet.europa.eu/envelope1");
+
+        assertThat(upstreamGuards.guardFor("http://cdr.eionet.europa.eu/envelope2"), sameInstance(guard));
+        assertThat(guard.getName(), equalTo("http://cdr.eionet.europa.eu"));
+        assertThat(guard.getMaxConcurrentCalls(), equalTo(10));
+    }
+
+    @Test
+    public void relativeUrlsAreNotGuarded() throws Exception {
+        assertThat(upstreamGuards.guardFor("/download/user_file?fileId=1"), nullValue());
+        assertThat(upstreamGuards.guardFor((String) null), nullValue());
+    }
+
+    @Test
+    public void usesLimitsOfMatchingKnownHost() throws Exception {
+        KnownHost host = new KnownHost();
+        host.setHostURL("http://converters.eionet.europa.eu/api");
+        host.setMaxConcurrentCalls(3);
+        when(knownHosts.findAll()).thenReturn(Arrays.asList(host));
+
+        UpstreamGuard guard = upstreamGuards.guardFor("http://converters.eionet.europa.eu/api/convert");
+
+        assertThat(guard.getName(), equalTo("http://converters.eionet.europa.eu/api"));
+        assertThat(guard.getMaxConcurrentCalls(), equalTo(3));
+    }
+
+    @Test
+    public void knownHostsAreReloadedAfterChange() throws Exception {
+        UpstreamGuard guard = upstreamGuards.guardFor("http://cdr.eionet.europa.eu");
+        upstreamGuards.guardFor("http://cdr.eionet.europa.eu");
+
+        upstreamGuards.knownHostsChanged();
+
+        assertThat(upstreamGuards.guardFor("http://cdr.eionet.europa.eu") == guard, equalTo(false));
+        verify(knownHosts, times(2)).findAll();
+    }
+
+    @Test
+    public void knownHostsChangedElsewhereAreReloadedAfterSnapshotExpires() throws Exception {
+        UpstreamGuard guard = upstreamGuards.guardFor("http://cdr.eionet.europa.eu/envelope");
+        KnownHost host = new KnownHost();
+        host.setHostURL("http://cdr.eionet.europa.eu");
+        host.setMaxConcurrentCalls(3);
+        when(knownHosts.findAll()).thenReturn(Arrays.asList(host));
+
+        assertThat(upstreamGuards.guardFor("http://cdr.eionet.europa.eu/envelope"), sameInstance(guard));
+        now += UpstreamGuards.KNOWN_HOSTS_RELOAD_NANOS;
+
+        UpstreamGuard reloaded = upstreamGuards.guardFor("http://cdr.eionet.europa.eu/envelope");
+        assertThat(reloaded.getMaxConcurrentCalls(), equalTo(3));
+        assertThat(upstreamGuards.guardFor("http://cdr.eionet.europa.eu/other"), sameInstance(reloaded));
+    }
+
+    @Test
+    public void guardedRequestFactoryCountsServerErrorsAsFailures() throws Exception {
+        ClientHttpRequestFactory delegate = mock(ClientHttpRequestFactory.class);
+        MockClientHttpRequest request = new MockClientHttpRequest();
+        request.setResponse(new MockClientHttpResponse(new byte[0], HttpStatus.BAD_GATEWAY));
+        when(delegate.createRequest(any(URI.class), any(HttpMethod.class))).thenReturn(request);
+        GuardedClientHttpRequestFactory factory = new GuardedClientHttpRequestFactory(upstreamGuards, delegate);
+        URI uri = new URI("http://converters.eionet.europa.eu/api");
+
+        ClientHttpRequest guardedRequest = factory.createRequest(uri, HttpMethod.GET);
+        guardedRequest.execute().close();
+
+        UpstreamGuard guard = upstreamGuards.guardFor(uri);
+        assertThat(guard.getFailureCount(), equalTo(1L));
+        assertThat(guard.getState(), equalTo(UpstreamGuard.State.OPEN));
+        try {
+            factory.createRequest(uri, HttpMethod.GET).execute();
+            fail("request must be rejected");
+        } catch (UpstreamUnavailableException e) {
+            assertThat(guard.getRejectedByBreaker(), equalTo(1L));
+        }
+    }
+
+    @Test
+    public void permitIsHeldUntilResponseIsClosed() throws Exception {
+        URI uri = new URI("http://converters.eionet.europa.eu/api");
+        GuardedClientHttpRequestFactory factory = guardedFactoryResponding(
+                new MockClientHttpResponse("content".getBytes(), HttpStatus.OK));
+
+        ClientHttpResponse response = factory.createRequest(uri, HttpMethod.GET).execute();
+        UpstreamGuard guard = upstreamGuards.guardFor(uri);
+        assertThat(guard.getActiveCalls(), equalTo(1));
+        StreamUtils.copyToByteArray(response.getBody());
+        response.close();
+
+        assertThat(guard.getActiveCalls(), equalTo(0));
+        assertThat(guard.getSuccessCount(), equalTo(1L));
+    }
+
+    @Test
+    public void bodyReadErrorIsCountedAsFailure() throws Exception {
+        URI uri = new URI("http://converters.eionet.europa.eu/api");
+        InputStream failingBody = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new SocketTimeoutException("Read timed out");
+            }
+        };
+        GuardedClientHttpRequestFactory factory = guardedFactoryResponding(new MockClientHttpResponse(failingBody, HttpStatus.OK));
+
+        ClientHttpResponse response = factory.createRequest(uri, HttpMethod.GET).execute();
+        try {
+            response.getBody().read();
+            fail("body read must fail");
+        } catch (SocketTimeoutException e) {
+            response.close();
+        }
+
+        assertThat(upstreamGuards.guardFor(uri).getFailureCount(), equalTo(1L));
+    }
+
+    private GuardedClientHttpRequestFactory guardedFactoryResponding(ClientHttpResponse response) throws IOException {
+        ClientHttpRequestFactory delegate = mock(ClientHttpRequestFactory.class);
+        MockClientHttpRequest request = new MockClientHttpRequest();
+        request.setResponse(response);
+        when(delegate.createRequest(any(URI.class), any(HttpMethod.class))).thenReturn(request);
+        return new GuardedClientHttpRequestFactory(upstreamGuards, delegate);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.service;
+
+import eionet.webq.dao.UserFileStorage;
+import eionet.webq.dto.UserFileAuthInfo;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UserFileAuthCacheTest {
+    private static final UserFileAuthInfo AUTH_INFO = new UserFileAuthInfo("user", true, "Basic auth", null);
+    private UserFileAuthCache cache;
+    private UserFileStorage storage;
+
+    @Before
+    public void setUp() throws Exception {
+        storage = mock(UserFileStorage.class);
+        cache = new UserFileAuthCache();
+        cache.storage = storage;
+        cache.maxSize = 10;
+        cache.ttlSeconds = 60;
+        cache.init();
+    }
+
+    @Test
+    public void loadsAuthInfoOnlyOnce() throws Exception {
+        when(storage.findAuthInfo(1, "user")).thenReturn(AUTH_INFO);
+
+        assertThat(cache.get(1, "user"), sameInstance(AUTH_INFO));
+        assertThat(cache.get(1, "user"), sameInstance(AUTH_INFO));
+
+        verify(storage, times(1)).findAuthInfo(1, "user");
+    }
+
+    @Test
+    public void cachedAuthInfoIsNotSharedWithOtherUser() throws Exception {
+        when(storage.findAuthInfo(1, "user")).thenReturn(AUTH_INFO);
+        cache.get(1, "user");
+
+        assertNull(cache.get(1, "other"));
+        verify(storage).findAuthInfo(1, "other");
+    }
+
+    @Test
+    public void missingFilesAreNotCached() throws Exception {
+        cache.get(1, "user");
+        cache.get(1, "user");
+
+        verify(storage, times(2)).findAuthInfo(1, "user");
+    }
+
+    @Test
+    public void reloadsAuthInfoAfterInvalidation() throws Exception {
+        UserFileAuthInfo updated = new UserFileAuthInfo("user", false, null, null);
+        when(storage.findAuthInfo(1, "user")).thenReturn(AUTH_INFO, updated);
+        cache.get(1, "user");
+
+        cache.invalidate(1, 2);
+
+        assertThat(cache.get(1, "user").isAuthorized(), equalTo(false));
+    }
+
+    @Test
+    public void zeroSizeDisablesCache() throws Exception {
+        cache.maxSize = 0;
+        cache.init();
+        when(storage.findAuthInfo(1, "user")).thenReturn(AUTH_INFO);
+
+        cache.get(1, "user");
+        cache.get(1, "user");
+
+        verify(storage, times(2)).findAuthInfo(1, "user");
+    }
+}
@@ -25,6 +25,7 @@ import eionet.webq.dao.UserFileDownload;
 import eionet.webq.dao.UserFileStorage;
 import eionet.webq.dao.orm.ProjectFile;
 import eionet.webq.dao.orm.UserFile;
+import eionet.webq.dto.UserFileAuthInfo;
 import eionet.webq.dto.UserFileIdUpdate;
 import org.junit.After;
 import org.junit.Before;
@@ -34,6 +35,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 
 import javax.servlet.http.HttpServletRequest;
 import java.sql.Timestamp;
@@ -59,6 +61,8 @@ public class UserFileServiceImplTest {
     private final String userId = "userId";
     private final String userAgentHeaderName = "user-agent";
     private final String expectedUserAgent = "IE 11";
+    @Spy
+    private SingleFlight singleFlight = new SingleFlight();
     @InjectMocks
     private UserFileServiceImpl service;
     @Mock
@@ -71,6 +75,8 @@ public class UserFileServiceImplTest {
     private UserIdProvider userIdProvider;
     @Mock
     private HttpServletRequest request;
+    @Mock
+    private UserFileAuthCache authCache;
 
     @Before
     public void prepare() {
@@ -141,6 +147,7 @@ public class UserFileServiceImplTest {
         service.update(fileToUpdate);
 
         verify(storage).update(fileToUpdate, userId);
+        verify(authCache).invalidate(fileToUpdate.getId());
         assertEquals(lastDate, fileToUpdate.getUpdated());
     }
 
@@ -150,6 +157,15 @@ public class UserFileServiceImplTest {
         service.removeFilesById(fileIds);
 
         verify(storage).remove(userId, fileIds);
+        verify(authCache).invalidate(fileIds);
+    }
+
+    @Test
+    public void authInfoIsLoadedForCurrentUser() throws Exception {
+        UserFileAuthInfo authInfo = new UserFileAuthInfo(userId, true, "Basic auth", null);
+        when(authCache.get(FILE_ID, userId)).thenReturn(authInfo);
+
+        assertThat(service.getAuthInfo(FILE_ID), equalTo(authInfo));
     }
 
     @Test
@@ -159,12 +175,11 @@ public class UserFileServiceImplTest {
         webForm.setEmptyInstanceUrl(url);
         byte[] fileContent = "remote-file-content".getBytes();
         when(remoteFileService.fileContent(url)).thenReturn(fileContent);
-        when(storage.getUserWebFormFileMaxNum(eq(userId), eq(webForm.getXmlSchema()), anyString(), eq('_'), eq('.'))).thenReturn(
-                new Integer(0));
+        when(storage.nextWebFormFileNum(eq(userId), eq(webForm.getXmlSchema()), anyString(), eq('_'), eq('.'))).thenReturn(1L);
         service.saveBasedOnWebForm(new UserFile(), webForm);
 
         ArgumentCaptor<UserFile> userFileArgument = ArgumentCaptor.forClass(UserFile.class);
-        verify(storage).getUserWebFormFileMaxNum(eq(userId), eq(webForm.getXmlSchema()), anyString(), eq('_'), eq('.'));
+        verify(storage).nextWebFormFileNum(eq(userId), eq(webForm.getXmlSchema()), anyString(), eq('_'), eq('.'));
         verify(storage).save(userFileArgument.capture(), anyString());
         assertThat(userFileArgument.getValue().getContent(), equalTo(fileContent));
     }
@@ -175,11 +190,10 @@ public class UserFileServiceImplTest {
         ProjectFile webForm = new ProjectFile();
         webForm.setNewXmlFileName(fileName);
         UserFile userFile = new UserFile();
-        when(storage.getUserWebFormFileMaxNum(eq(userId), eq(webForm.getXmlSchema()), anyString(), eq('_'), eq('.'))).thenReturn(
-                new Integer(0));
+        when(storage.nextWebFormFileNum(eq(userId), eq(webForm.getXmlSchema()), anyString(), eq('_'), eq('.'))).thenReturn(1L);
         service.saveBasedOnWebForm(userFile, webForm);
 
-        verify(storage).getUserWebFormFileMaxNum(eq(userId), eq(webForm.getXmlSchema()), anyString(), eq('_'), eq('.'));
+        verify(storage).nextWebFormFileNum(eq(userId), eq(webForm.getXmlSchema()), anyString(), eq('_'), eq('.'));
         verify(storage).save(eq(userFile), anyString());
         assertThat(userFile.getName(), equalTo(fileName + "_" + 1));
     }
@@ -189,22 +203,20 @@ public class UserFileServiceImplTest {
         String fileName = "multiple web form file name";
         ProjectFile webForm = new ProjectFile();
         webForm.setNewXmlFileName(fileName);
-        when(storage.getUserWebFormFileMaxNum(eq(userId), eq(webForm.getXmlSchema()), anyString(), eq('_'), eq('.'))).thenReturn(
-                new Integer(0));
+        when(storage.nextWebFormFileNum(eq(userId), eq(webForm.getXmlSchema()), anyString(), eq('_'), eq('.'))).thenReturn(1L);
         UserFile userFile = new UserFile();
         service.saveBasedOnWebForm(userFile, webForm);
         //check first file
         assertThat(userFile.getName(), equalTo(fileName + "_" + 1));
         verify(storage).save(eq(userFile), anyString());
 
-        when(storage.getUserWebFormFileMaxNum(eq(userId), eq(webForm.getXmlSchema()), anyString(), eq('_'), eq('.'))).thenReturn(
-                new Integer(1));
+        when(storage.nextWebFormFileNum(eq(userId), eq(webForm.getXmlSchema()), anyString(), eq('_'), eq('.'))).thenReturn(2L);
         userFile = new UserFile();
         service.saveBasedOnWebForm(userFile, webForm);
         //check second file
         assertThat(userFile.getName(), equalTo(fileName + "_" + 2));
 
-        verify(storage, times(2)).getUserWebFormFileMaxNum(eq(userId), eq(webForm.getXmlSchema()), anyString(), eq('_'), eq('.'));
+        verify(storage, times(2)).nextWebFormFileNum(eq(userId), eq(webForm.getXmlSchema()), anyString(), eq('_'), eq('.'));
         verify(storage).save(eq(userFile), anyString());
     }
 
@@ -214,22 +226,20 @@ public class UserFileServiceImplTest {
         String fileExtension = ".xml";
         ProjectFile webForm = new ProjectFile();
         webForm.setNewXmlFileName(fileName + fileExtension);
-        when(storage.getUserWebFormFileMaxNum(eq(userId), eq(webForm.getXmlSchema()), anyString(), eq('_'), eq('.'))).thenReturn(
-                new Integer(0));
+        when(storage.nextWebFormFileNum(eq(userId), eq(webForm.getXmlSchema()), anyString(), eq('_'), eq('.'))).thenReturn(1L);
         UserFile userFile = new UserFile();
         service.saveBasedOnWebForm(userFile, webForm);
         //check first file
         assertThat(userFile.getName(), equalTo(fileName + "_" + 1 + fileExtension));
         verify(storage).save(eq(userFile), anyString());
 
-        when(storage.getUserWebFormFileMaxNum(eq(userId), eq(webForm.getXmlSchema()), anyString(), eq('_'), eq('.'))).thenReturn(
-                new Integer(1));
+        when(storage.nextWebFormFileNum(eq(userId), eq(webForm.getXmlSchema()), anyString(), eq('_'), eq('.'))).thenReturn(2L);
         userFile = new UserFile();
         service.saveBasedOnWebForm(userFile, webForm);
         //check second file
         assertThat(userFile.getName(), equalTo(fileName + "_" + 2 + fileExtension));
 
-        verify(storage, times(2)).getUserWebFormFileMaxNum(eq(userId), eq(webForm.getXmlSchema()), anyString(), eq('_'), eq('.'));
+        verify(storage, times(2)).nextWebFormFileNum(eq(userId), eq(webForm.getXmlSchema()), anyString(), eq('_'), eq('.'));
         verify(storage).save(eq(userFile), anyString());
     }
 
@@ -239,14 +249,13 @@ public class UserFileServiceImplTest {
         String fileExtension = ".xml";
         ProjectFile webForm = new ProjectFile();
         webForm.setNewXmlFileName(fileName + fileExtension);
-        when(storage.getUserWebFormFileMaxNum(eq(userId), eq(webForm.getXmlSchema()), anyString(), eq('_'), eq('.'))).thenReturn(
-                null);
+        when(storage.nextWebFormFileNum(eq(userId), eq(webForm.getXmlSchema()), anyString(), eq('_'), eq('.'))).thenReturn(1L);
         UserFile userFile = new UserFile();
         service.saveBasedOnWebForm(userFile, webForm);
         //check file
         assertThat(userFile.getName(), equalTo(fileName + "_" + 1 + fileExtension));
         verify(storage).save(eq(userFile), anyString());
-        verify(storage).getUserWebFormFileMaxNum(eq(userId), eq(webForm.getXmlSchema()), anyString(), eq('_'), eq('.'));
+        verify(storage).nextWebFormFileNum(eq(userId), eq(webForm.getXmlSchema()), anyString(), eq('_'), eq('.'));
     }
 
     @Test
@@ -257,13 +266,12 @@ public class UserFileServiceImplTest {
         webForm.setEmptyInstanceUrl("empty.instance");
         UserFile userFile = new UserFile();
         when(remoteFileService.fileContent(anyString())).thenReturn(fileContent);
-        when(storage.getUserWebFormFileMaxNum(eq(userId), eq(webForm.getXmlSchema()), anyString(), eq('_'), eq('.'))).thenReturn(
-                new Integer(0));
+        when(storage.nextWebFormFileNum(eq(userId), eq(webForm.getXmlSchema()), anyString(), eq('_'), eq('.'))).thenReturn(1L);
         service.saveBasedOnWebForm(userFile, webForm);
 
         assertThat(userFile.getContent(), equalTo(fileContent));
         verify(remoteFileService).fileContent(webForm.getEmptyInstanceUrl());
-        verify(storage).getUserWebFormFileMaxNum(eq(userId), eq(webForm.getXmlSchema()), anyString(), eq('_'), eq('.'));
+        verify(storage).nextWebFormFileNum(eq(userId), eq(webForm.getXmlSchema()), anyString(), eq('_'), eq('.'));
         verify(storage).save(eq(userFile), anyString());
     }
 
@@ -0,0 +1,55 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.task;
+
+import eionet.webq.xforms.XFormsSessionGovernor;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ */
+public class EvictIdleXFormsSessionsTaskTest {
+    @Mock
+    private XFormsSessionGovernor sessionGovernor;
+
+    @InjectMocks
+    private EvictIdleXFormsSessionsTask task;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void evictsIdleSessionsAndMeasuresLiveOnes() throws Exception {
+        when(sessionGovernor.measureSessionSizes()).thenReturn(new XFormsSessionGovernor.SessionSizes(0, 0, 0, 0));
+
+        task.evictIdleSessions();
+
+        verify(sessionGovernor).evictIdleSessions();
+        verify(sessionGovernor).measureSessionSizes();
+    }
+}
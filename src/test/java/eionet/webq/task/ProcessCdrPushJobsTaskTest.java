@@ -0,0 +1,62 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.task;
+
+import eionet.webq.service.CdrPushQueueService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ */
+public class ProcessCdrPushJobsTaskTest {
+    @Mock
+    private CdrPushQueueService cdrPushQueueService;
+
+    @InjectMocks
+    private ProcessCdrPushJobsTask task;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void dispatchesJobsIfQueueEnabled() throws Exception {
+        when(cdrPushQueueService.isEnabled()).thenReturn(true);
+
+        task.processCdrPushJobs();
+
+        verify(cdrPushQueueService).dispatchDueJobs();
+    }
+
+    @Test
+    public void doesNothingIfQueueDisabled() throws Exception {
+        task.processCdrPushJobs();
+
+        verify(cdrPushQueueService, never()).dispatchDueJobs();
+    }
+}
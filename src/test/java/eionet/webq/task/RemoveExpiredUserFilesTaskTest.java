@@ -20,6 +20,7 @@
  */
 package eionet.webq.task;
 
+import eionet.webq.dao.UserFileStorage;
 import org.apache.commons.lang3.time.DateUtils;
 import org.hibernate.Criteria;
 import org.hibernate.Session;
@@ -53,6 +54,8 @@ public class RemoveExpiredUserFilesTaskTest {
     private Criteria criteria;
     @Mock
     private Properties properties;
+    @Mock
+    private UserFileStorage userFileStorage;
 
     private String expirationHours = "1";
 
@@ -81,4 +84,12 @@ public class RemoveExpiredUserFilesTaskTest {
         Timestamp date = (Timestamp) criterionCaptor.getValue().getValue();
         assertEquals(expectedDate.getTime(), date.getTime(), 1000);
     }
+
+    @Test
+    public void removesFileNumberCountersOfUsersWithoutFiles() throws Exception {
+        removeExpiredUserFilesTask.setExpirationHours("1");
+        removeExpiredUserFilesTask.removeExpiredUserFiles();
+
+        verify(userFileStorage).removeUnusedWebFormFileNumCounters();
+    }
 }
@@ -0,0 +1,80 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.task;
+
+import eionet.webq.dto.RemoteFileSyncReport;
+import eionet.webq.service.RemoteFileUpdateService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ */
+public class SynchronizeRemoteProjectFilesTaskTest {
+    @Mock
+    private RemoteFileUpdateService remoteFileUpdateService;
+
+    @InjectMocks
+    private SynchronizeRemoteProjectFilesTask task;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        task.enabled = true;
+    }
+
+    @Test
+    public void accumulatesSynchronizationMetrics() throws Exception {
+        RemoteFileSyncReport report = new RemoteFileSyncReport();
+        report.fileChecked();
+        report.fileChecked();
+        report.fileNotModified();
+        report.fileUpdated();
+        report.setDurationMillis(1500);
+        when(remoteFileUpdateService.synchronizeAll()).thenReturn(report);
+
+        task.synchronizeRemoteFiles();
+        task.synchronizeRemoteFiles();
+
+        assertEquals(2, task.getRuns());
+        assertEquals(4, task.getCheckedFiles());
+        assertEquals(2, task.getNotModifiedFiles());
+        assertEquals(2, task.getUpdatedFiles());
+        assertEquals(0, task.getFailedFiles());
+        assertSame(report, task.getLastReport());
+        assertEquals(1500, task.getLastDurationMillis());
+    }
+
+    @Test
+    public void doesNothingIfDisabled() throws Exception {
+        task.enabled = false;
+
+        task.synchronizeRemoteFiles();
+
+        verifyZeroInteractions(remoteFileUpdateService);
+    }
+}
@@ -24,6 +24,7 @@ import java.util.List;
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.fileUpload;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
@@ -46,7 +47,7 @@ public abstract class AbstractContextControllerTests {
      * @throws Exception
      */
     protected ResultActions request(RequestBuilder requestBuilder) throws Exception {
-        return mvc().perform(requestBuilder).andExpect(MockMvcResultMatchers.status().isOk());
+        return perform(requestBuilder).andExpect(MockMvcResultMatchers.status().isOk());
     }
     
     /**
@@ -56,7 +57,23 @@ public abstract class AbstractContextControllerTests {
      * @throws Exception 
      */
     protected ResultActions requestWithRedirect(RequestBuilder requestBuilder) throws Exception {
-        return mvc().perform(requestBuilder).andExpect(MockMvcResultMatchers.status().isFound());
+        return perform(requestBuilder).andExpect(MockMvcResultMatchers.status().isFound());
+    }
+
+    /**
+     * Performs request and, if request processing was started asynchronously, waits for result and dispatches it.
+     * @param requestBuilder request builder
+     * @return result actions of completed request
+     * @throws Exception
+     */
+    protected ResultActions perform(RequestBuilder requestBuilder) throws Exception {
+        MockMvc mvc = mvc();
+        ResultActions resultActions = mvc.perform(requestBuilder);
+        MvcResult result = resultActions.andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            return mvc.perform(asyncDispatch(result));
+        }
+        return resultActions;
     }
 
     protected MockMultipartFile createMockMultipartFile(String fileName, byte[] content) {
@@ -0,0 +1,55 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.web;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsAccessTest {
+    private final MetricsAccess access = new MetricsAccess();
+
+    @Test
+    public void noAddressIsAllowedByDefault() throws Exception {
+        access.allowedAddresses = "";
+        access.init();
+
+        assertFalse(access.isAllowed(requestFrom("127.0.0.1")));
+    }
+
+    @Test
+    public void allowsConfiguredAddressesAndSubnets() throws Exception {
+        access.allowedAddresses = "192.168.1.5, 10.0.0.0/8";
+        access.init();
+
+        assertTrue(access.isAllowed(requestFrom("192.168.1.5")));
+        assertTrue(access.isAllowed(requestFrom("10.1.2.3")));
+        assertFalse(access.isAllowed(requestFrom("192.168.1.6")));
+        assertFalse(access.isAllowed(requestFrom("127.0.0.1")));
+    }
+
+    private MockHttpServletRequest requestFrom(String address) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(address);
+        return request;
+    }
+}
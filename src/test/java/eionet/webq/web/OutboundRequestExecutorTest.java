@@ -0,0 +1,106 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.web;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OutboundRequestExecutorTest {
+    private OutboundRequestExecutor executor;
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws Exception {
+        executor = new OutboundRequestExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.initialize();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    public void exposesActiveAndQueuedTasks() throws Exception {
+        executor.submit(blockingTask());
+        executor.submit(blockingTask());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertThat(executor.getActiveCount(), equalTo(1));
+        assertThat(executor.getQueueSize(), equalTo(1));
+        assertThat(executor.getQueueCapacity(), equalTo(1));
+    }
+
+    @Test
+    public void rejectsAndCountsTasksWhenPoolAndQueueAreFull() throws Exception {
+        executor.submit(blockingTask());
+        executor.submit(blockingTask());
+        try {
+            executor.submit(blockingTask());
+            fail("task must be rejected");
+        } catch (TaskRejectedException e) {
+            assertThat(executor.getRejectedTaskCount(), equalTo(1L));
+        }
+    }
+
+    @Test
+    public void countsCompletedTasks() throws Exception {
+        release.countDown();
+        Future<?> first = executor.submit(blockingTask());
+        Future<?> second = executor.submit(blockingTask());
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+        executor.getThreadPoolExecutor().awaitTermination(5, TimeUnit.SECONDS);
+
+        assertThat(executor.getCompletedTaskCount(), equalTo(2L));
+        assertThat(executor.getRejectedTaskCount(), equalTo(0L));
+    }
+
+    private Runnable blockingTask() {
+        return new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+}
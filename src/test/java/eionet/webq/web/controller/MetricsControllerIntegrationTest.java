@@ -0,0 +1,90 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.web.controller;
+
+import eionet.webq.metrics.RequestMetrics;
+import eionet.webq.metrics.SqlMetrics;
+import eionet.webq.web.AbstractContextControllerTests;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.StringContains.containsString;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+public class MetricsControllerIntegrationTest extends AbstractContextControllerTests {
+    @Autowired
+    private RequestMetrics requestMetrics;
+    @Autowired
+    private SqlMetrics sqlMetrics;
+
+    @Test
+    public void rendersEndpointMetricsAsText() throws Exception {
+        requestMetrics.record("Test.endpoint", 1500, 500, false, 100, 3);
+
+        request(get("/metrics"))
+                .andExpect(content().contentTypeCompatibleWith("text/plain"))
+                .andExpect(content().string(containsString("webq_http_requests_total{endpoint=\"Test.endpoint\"} 1\n")))
+                .andExpect(content().string(containsString("webq_http_server_errors_total{endpoint=\"Test.endpoint\"} 1\n")))
+                .andExpect(content().string(containsString("webq_http_response_bytes_total{endpoint=\"Test.endpoint\"} 100\n")))
+                .andExpect(content().string(containsString(
+                        "webq_http_request_duration_seconds_max{endpoint=\"Test.endpoint\"} 0.001500\n")));
+    }
+
+    @Test
+    public void rendersAsyncExecutorMetrics() throws Exception {
+        request(get("/metrics"))
+                .andExpect(content().string(containsString("webq_async_executor_queue_capacity 200\n")))
+                .andExpect(content().string(containsString("webq_single_flight_coalesced_total ")));
+    }
+
+    @Test
+    public void rendersRemoteFileSyncMetrics() throws Exception {
+        request(get("/metrics"))
+                .andExpect(content().string(containsString("webq_remote_file_sync_enabled 0\n")))
+                .andExpect(content().string(containsString("webq_remote_file_sync_runs_total 0\n")))
+                .andExpect(content().string(containsString("webq_remote_file_sync_files_total{result=\"updated\"} 0\n")));
+    }
+
+    @Test
+    public void rendersSqlMetricsAsJson() throws Exception {
+        sqlMetrics.record("select * from known_host where id=42", 2000, false);
+
+        request(get("/metrics/sql").param("limit", "1000"))
+                .andExpect(content().contentTypeCompatibleWith("application/json"))
+                .andExpect(jsonPath("$.statements[?(@.sql == 'select * from known_host where id=?')]").exists())
+                .andExpect(jsonPath("$.hibernate.statisticsEnabled").value(equalTo(false)));
+    }
+
+    @Test
+    public void hibernateQueriesAreMeasured() throws Exception {
+        long before = sqlMetrics.getStatementCount();
+
+        request(get("/known_hosts"));
+
+        assertTrue(sqlMetrics.getStatementCount() > before);
+    }
+}
@@ -25,6 +25,7 @@ import eionet.webq.dao.orm.ProjectEntry;
 import eionet.webq.dao.orm.ProjectFile;
 import eionet.webq.dao.orm.ProjectFileType;
 import eionet.webq.dao.orm.UploadedFile;
+import eionet.webq.dto.RemoteFileCheckResult;
 import eionet.webq.service.ProjectFileService;
 import org.hamcrest.BaseMatcher;
 import org.hamcrest.Description;
@@ -49,8 +50,10 @@ import org.springframework.web.client.RestOperations;
 import java.net.URI;
 import java.security.Principal;
 import java.util.Collection;
+import java.util.List;
 
 import static eionet.webq.web.controller.ProjectsController.PROJECT_ENTRY_MODEL_ATTRIBUTE;
+import static eionet.webq.web.controller.ProjectsController.REMOTE_FILE_CHECK_RESULTS_ATTRIBUTE;
 import static eionet.webq.web.controller.ProjectsController.WEB_FORM_UPLOAD_ATTRIBUTE;
 import static java.lang.String.valueOf;
 import static org.hamcrest.core.IsEqual.equalTo;
@@ -306,6 +309,29 @@ public class ProjectsControllerIntegrationTest extends AbstractProjectsControlle
                         new Object[]{uploadedFile.getFileName()})));
     }
 
+    @Test
+    public void checksAllRemoteFilesOfProject() throws Exception {
+        uploadFilesForDefaultProject(1);
+        when(fileDownload.getForEntity(any(URI.class), eq(byte[].class)))
+                .thenReturn(new ResponseEntity<byte[]>("test-file-content".getBytes(), HttpStatus.OK));
+        final ProjectFile uploadedFile = theOnlyOneUploadedFile();
+
+        request(MockMvcRequestBuilders.get("/projects/remote/check/updates/" + DEFAULT_PROJECT_ID))
+                .andExpect(model().attribute(REMOTE_FILE_CHECK_RESULTS_ATTRIBUTE, new BaseMatcher<List<RemoteFileCheckResult>>() {
+                    @Override
+                    public boolean matches(Object o) {
+                        List<?> results = (List<?>) o;
+                        RemoteFileCheckResult result = (RemoteFileCheckResult) results.get(0);
+                        return results.size() == 1 && result.getFileId() == uploadedFile.getId()
+                                && result.getStatus() == RemoteFileCheckResult.Status.UPDATE_AVAILABLE;
+                    }
+
+                    @Override
+                    public void describeTo(Description description) {
+                    }
+                }));
+    }
+
     @Test
     public void allowsFileUpdateFromRemote() throws Exception {
         uploadFilesForDefaultProject(1);
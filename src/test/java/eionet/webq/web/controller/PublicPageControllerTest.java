@@ -26,10 +26,12 @@ import eionet.webq.dao.orm.ProjectFile;
 import eionet.webq.dao.orm.UploadedFile;
 import eionet.webq.dao.orm.UserFile;
 import eionet.webq.dto.UploadForm;
+import eionet.webq.dto.XmlSaveResult;
 import eionet.webq.service.*;
 import eionet.webq.web.controller.util.UserFileHelper;
 import eionet.webq.web.controller.util.UserFileList;
 import eionet.webq.web.controller.util.WebformUrlProvider;
+import eionet.webq.xforms.XFormsDocumentCache;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -40,6 +42,7 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
+import org.w3c.dom.Document;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.Arrays;
@@ -71,6 +74,8 @@ public class PublicPageControllerTest {
     @Mock
     private CDREnvelopeService envelopeService;
     @Mock
+    private CdrPushQueueService cdrPushQueueService;
+    @Mock
     private BindingResult bindingResult;
     @Mock
     private Model model;
@@ -84,6 +89,8 @@ public class PublicPageControllerTest {
     private RequestBasedUserIdProvider requestBasedUserIdProvider;
     @Mock
     private CookieValueManager cookieValueManager;
+    @Mock
+    private XFormsDocumentCache xformsDocumentCache;
 
     @Before
     public void setUp() throws Exception {
@@ -104,6 +111,22 @@ public class PublicPageControllerTest {
         verify(userFileService).saveBasedOnWebForm(any(UserFile.class), eq(projectFile));
     }
 
+    @Test
+    public void passesCachedWebFormDocumentToXFormsProcessor() throws Exception {
+        ProjectFile projectFile = new ProjectFile();
+        projectFile.setFileContent("<html/>".getBytes("UTF-8"));
+        Document document = mock(Document.class);
+        when(webFormService.findWebFormById(WEB_FORM_ID)).thenReturn(projectFile);
+        when(xformsDocumentCache.sessionCopy(projectFile)).thenReturn(document);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        publicPageController.startWebFormWriteFormToResponse(WEB_FORM_ID, request, response);
+
+        assertThat(request.getAttribute(XFormsDocumentCache.DOCUMENT_ATTRIBUTE), equalTo((Object) document));
+        assertThat(response.getContentAsString(), equalTo("<html/>"));
+    }
+
     @Test
     public void ifFileIsFromCdrSaveItToEnvelope() throws Exception {
         UserFile userFile = userFileServiceWillReturnUserFileFromCdr();
@@ -113,6 +136,28 @@ public class PublicPageControllerTest {
         verify(envelopeService).pushXmlFile(any(UserFile.class));
     }
 
+    @Test
+    public void ifFileIsFromCdrAndAsyncPushEnabledQueuePushInsteadOfPushingToEnvelope() throws Exception {
+        UserFile userFile = userFileServiceWillReturnUserFileFromCdr();
+        when(cdrPushQueueService.isEnabled()).thenReturn(true);
+        when(cdrPushQueueService.enqueue(userFile)).thenReturn(XmlSaveResult.valueOfQueued(7));
+
+        XmlSaveResult result = publicPageController.saveXml(userFile.getId(), requestWillHaveContent());
+
+        assertThat(result.getPushJobId(), equalTo(7));
+        verify(cdrPushQueueService).enqueue(userFile);
+        verify(envelopeService, never()).pushXmlFile(any(UserFile.class));
+    }
+
+    @Test
+    public void returnsNotFoundIfPushStatusIsNotAvailable() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        publicPageController.getSaveXmlPushStatus(1, response);
+
+        assertThat(response.getStatus(), equalTo(404));
+    }
+
     @Test
     public void onXmlSave_IfFileIsFromCdrAndRequestHasRestrictedParameterSetToTrue_SetUserFileRestrictionParametersToTrue() throws Exception {
         UserFile userFile = userFileServiceWillReturnUserFileFromCdr();
@@ -170,8 +215,7 @@ public class PublicPageControllerTest {
 
         publicPageController.upload(uploadForm, bindingResult, model);
 
-        verify(userFileService).save(file1);
-        verify(userFileService).save(file2);
+        verify(userFileService).save(Arrays.asList(file1, file2));
     }
 
     @Test
@@ -0,0 +1,195 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.web.controller;
+
+import eionet.webq.dao.orm.UserFile;
+import eionet.webq.service.CDREnvelopeService;
+import eionet.webq.service.KnownHostsService;
+import eionet.webq.service.RequestBasedUserIdProvider;
+import eionet.webq.service.SingleFlight;
+import eionet.webq.web.controller.util.LocalFileFetcher;
+import eionet.webq.web.controller.util.UserFileHelper;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.client.RestTemplate;
+
+import javax.servlet.http.HttpServletRequest;
+import java.net.URI;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.content;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class WebQProxyDelegationTest {
+    private static final String ENVELOPE = "http://cdr.eionet.europa.eu/envelope";
+    private static final byte[] CONTENT = {(byte) 0xC3, (byte) 0xA4, (byte) 0xFF, 0x00, 0x41};
+    @InjectMocks
+    private WebQProxyDelegation proxyDelegation;
+    @Mock
+    private UserFileHelper userFileHelper;
+    @Mock
+    private KnownHostsService knownHostsService;
+    @Mock
+    private CDREnvelopeService envelopeService;
+    @Mock
+    private LocalFileFetcher localFileFetcher;
+    @Mock
+    private RequestBasedUserIdProvider requestBasedUserIdProvider;
+    private MockRestServiceServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        RestTemplate restTemplate = new RestTemplate();
+        ReflectionTestUtils.setField(proxyDelegation, "restTemplate", restTemplate);
+        proxyDelegation.passthroughBufferSize = 2;
+        proxyDelegation.singleFlight = new SingleFlight();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+    }
+
+    @Test
+    public void streamsUpstreamBytesAndHeadersWithoutDecoding() throws Exception {
+        HttpHeaders upstreamHeaders = new HttpHeaders();
+        upstreamHeaders.setContentType(MediaType.parseMediaType("application/xml;charset=ISO-8859-1"));
+        upstreamHeaders.set("Content-Disposition", "attachment; filename=\"codes.xml\"");
+        server.expect(requestTo("http://dd.eionet.europa.eu/codes.xml")).andExpect(method(HttpMethod.GET))
+                .andRespond(withStatus(HttpStatus.OK).body(CONTENT).headers(upstreamHeaders));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        proxyDelegation.restProxyGetPassthrough("http://dd.eionet.europa.eu/codes.xml", null,
+                new MockHttpServletRequest(), response).call();
+
+        server.verify();
+        assertThat(response.getContentAsByteArray(), equalTo(CONTENT));
+        assertThat(response.getHeader("Content-Type"), equalTo("application/xml;charset=ISO-8859-1"));
+        assertThat(response.getHeader("Content-Disposition"), equalTo("attachment; filename=\"codes.xml\""));
+    }
+
+    @Test
+    public void usesEnvelopeAuthorisationForCdrFiles() throws Exception {
+        UserFile file = new UserFile();
+        file.setEnvelope(ENVELOPE);
+        when(userFileHelper.getUserFile(eq(1), any(HttpServletRequest.class))).thenReturn(file);
+        HttpHeaders authorization = new HttpHeaders();
+        authorization.add("Authorization", "Basic dXNlcjpwYXNz");
+        when(envelopeService.getAuthorizationHeader(file)).thenReturn(authorization);
+        server.expect(requestTo(ENVELOPE + "/file.xml")).andExpect(header("Authorization", "Basic dXNlcjpwYXNz"))
+                .andRespond(withStatus(HttpStatus.OK).body(CONTENT));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        proxyDelegation.restProxyGetPassthrough(ENVELOPE + "/file.xml", 1, new MockHttpServletRequest(), response).call();
+
+        server.verify();
+        assertThat(response.getContentAsByteArray(), equalTo(CONTENT));
+    }
+
+    @Test
+    public void streamsRequestBodyToUpstream() throws Exception {
+        server.expect(requestTo("http://converters/api")).andExpect(method(HttpMethod.POST))
+                .andExpect(content().bytes(CONTENT))
+                .andRespond(withStatus(HttpStatus.CREATED).body("created".getBytes()));
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/restProxy");
+        request.setContentType("application/octet-stream");
+        request.setContent(CONTENT);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        proxyDelegation.restProxyPostPassthrough("http://converters/api", null, request, response).call();
+
+        server.verify();
+        assertThat(response.getStatus(), equalTo(HttpStatus.CREATED.value()));
+        assertThat(response.getContentAsString(), equalTo("created"));
+    }
+
+    @Test
+    public void passthroughIsProcessedAsynchronously() throws Exception {
+        server.expect(requestTo("http://dd.eionet.europa.eu/codes.xml"))
+                .andRespond(withStatus(HttpStatus.OK).body(CONTENT).contentType(MediaType.APPLICATION_XML));
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(proxyDelegation).build();
+
+        MvcResult result = mvc.perform(get("/restProxy").param("uri", "http://dd.eionet.europa.eu/codes.xml")
+                .param("passthrough", "true")).andExpect(request().asyncStarted()).andReturn();
+
+        mvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+        server.verify();
+        // remote content is written to response of initial request
+        assertThat(result.getResponse().getContentAsByteArray(), equalTo(CONTENT));
+    }
+
+    @Test
+    public void fetchesXmlAndXsltForConversionWithConfiguredRestTemplate() throws Exception {
+        server.expect(requestTo("http://dd.eionet.europa.eu/codes.xml"))
+                .andRespond(withStatus(HttpStatus.OK).body("<a>b</a>").contentType(MediaType.APPLICATION_XML));
+        server.expect(requestTo("http://dd.eionet.europa.eu/codes.xsl"))
+                .andRespond(withStatus(HttpStatus.OK).contentType(MediaType.APPLICATION_XML)
+                        .body("<xsl:stylesheet xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\" version=\"1.0\">"
+                                + "<xsl:output method=\"text\"/><xsl:template match=\"/\"><xsl:value-of select=\"a\"/>"
+                                + "</xsl:template></xsl:stylesheet>"));
+
+        byte[] result = proxyDelegation.proxyXmlWithConversion("http://dd.eionet.europa.eu/codes.xml", 1,
+                "http://dd.eionet.europa.eu/codes.xsl", null, new MockHttpServletRequest(), new MockHttpServletResponse())
+                .call();
+
+        server.verify();
+        assertThat(new String(result, "UTF-8").trim(), equalTo("b"));
+    }
+
+    @Test
+    public void readsLocalFilesWithoutHttpRequest() throws Exception {
+        String uri = "/webq2/download/user_file?fileId=2";
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setContextPath("/webq2");
+        when(localFileFetcher.localPath(new URI(uri), "/webq2", null)).thenReturn("/download/user_file");
+        when(localFileFetcher.isSupported("/download/user_file")).thenReturn(true);
+        when(requestBasedUserIdProvider.getUserId(request)).thenReturn("user");
+        when(localFileFetcher.fetch("/download/user_file", new URI(uri), "user")).thenReturn("<a>\u00e4</a>".getBytes("UTF-8"));
+
+        String result = proxyDelegation.restProxyGetWithAuth(uri, 1, request).call();
+
+        assertThat(result, equalTo("<a>\u00e4</a>"));
+        server.verify();
+        verifyZeroInteractions(userFileHelper);
+    }
+}
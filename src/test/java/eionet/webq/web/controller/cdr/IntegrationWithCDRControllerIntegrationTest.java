@@ -26,6 +26,7 @@ import eionet.webq.dao.orm.ProjectFileType;
 import eionet.webq.dao.orm.UserFile;
 import eionet.webq.dto.CdrRequest;
 import eionet.webq.service.CDREnvelopeService.XmlFile;
+import eionet.webq.service.CDREnvelopeServiceImpl;
 import eionet.webq.service.ProjectFileService;
 import eionet.webq.service.UserFileService;
 import eionet.webq.web.AbstractContextControllerTests;
@@ -80,6 +81,8 @@ public class IntegrationWithCDRControllerIntegrationTest extends AbstractContext
     private UserFileService userFileService;
     @Autowired
     private MockHttpSession session;
+    @Autowired
+    private CDREnvelopeServiceImpl envelopeService;
 
     @Value("${cas.service}")
     private String webqUrl;
@@ -92,6 +95,7 @@ public class IntegrationWithCDRControllerIntegrationTest extends AbstractContext
     @Before
     public void setUp() throws Exception {
         Mockito.reset(xmlRpcClient);
+        envelopeService.clearXmlFilesCache();
     }
     
     @Test
@@ -174,7 +178,7 @@ public class IntegrationWithCDRControllerIntegrationTest extends AbstractContext
         saveAvailableWebFormWithSchema(XML_SCHEMA);
 
         MvcResult mvcResult =
-                mvc().perform(post("/WebQMenu").param("envelope", ENVELOPE_URL)).andExpect(status().isFound()).andReturn();
+                perform(post("/WebQMenu").param("envelope", ENVELOPE_URL)).andExpect(status().isFound()).andReturn();
 
         assertTrue(mvcResult.getResponse().getRedirectedUrl().startsWith(webqUrl + "/xform"));
     }
@@ -185,7 +189,7 @@ public class IntegrationWithCDRControllerIntegrationTest extends AbstractContext
         saveAvailableWebFormWithSchema(XML_SCHEMA);
 
         MvcResult mvcResult =
-                mvc().perform(post("/WebQMenu").param("envelope", ENVELOPE_URL).param("add", "true").param("schema", XML_SCHEMA))
+                perform(post("/WebQMenu").param("envelope", ENVELOPE_URL).param("add", "true").param("schema", XML_SCHEMA))
                         .andExpect(status().isFound()).andReturn();
 
         assertTrue(mvcResult.getResponse().getRedirectedUrl().startsWith(webqUrl + "/xform"));
@@ -193,7 +197,7 @@ public class IntegrationWithCDRControllerIntegrationTest extends AbstractContext
 
     @Test
     public void webQMenu_ifNoWebFormsAvailable_Error() throws Exception {
-        mvc().perform(post("/WebQMenu").param("envelope", ENVELOPE_URL))
+        perform(post("/WebQMenu").param("envelope", ENVELOPE_URL))
                 .andExpect(status().is(HttpStatus.INTERNAL_SERVER_ERROR.value()));
     }
 
@@ -99,7 +99,7 @@ public class IntegrationWithCDRControllerTest {
         when(webFormService.findWebFormsForSchemas(anyCollectionOf(String.class))).thenReturn(
                 Collections.<ProjectFile>emptyList());
 
-        controller.webQMenu(mockRequest, model);
+        controller.webQMenu(mockRequest, model).call();
     }
 
     @Test
@@ -146,7 +146,7 @@ public class IntegrationWithCDRControllerTest {
         thereWillBeWebFormsAmountOf(1);
         when(webFormService.findActiveWebFormById(anyInt())).thenReturn(new ProjectFile());
 
-        assertThat(controller.webQMenu(mockRequest, model), startsWith("redirect:/xform/"));
+        assertThat(controller.webQMenu(mockRequest, model).call(), startsWith("redirect:/xform/"));
     }
 
     @Test
@@ -156,7 +156,7 @@ public class IntegrationWithCDRControllerTest {
         when(webFormService.findActiveWebFormById(anyInt())).thenReturn(new ProjectFile());
         cdrRequest.setNewFormCreationAllowed(true);
 
-        assertThat(controller.webQMenu(mockRequest, model), startsWith("redirect:/xform"));
+        assertThat(controller.webQMenu(mockRequest, model).call(), startsWith("redirect:/xform"));
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -197,7 +197,7 @@ public class IntegrationWithCDRControllerTest {
 
         prepareRedirectToNewWebFormCase();
 
-        controller.webQMenu(mockRequest, model);
+        controller.webQMenu(mockRequest, model).call();
 
         ArgumentCaptor<UserFile> userFileArgument = ArgumentCaptor.forClass(UserFile.class);
         verify(userFileService).saveBasedOnWebForm(userFileArgument.capture(), any(ProjectFile.class));
@@ -261,8 +261,8 @@ public class IntegrationWithCDRControllerTest {
         when(webFormService.findWebFormsForSchemas(anyCollectionOf(String.class))).thenReturn(projectFiles);
     }
 
-    private void assertNoRedirectOnMenuCall() throws FileNotAvailableException {
-        assertThat(controller.webQMenu(mockRequest, model), equalTo("deliver_menu"));
+    private void assertNoRedirectOnMenuCall() throws Exception {
+        assertThat(controller.webQMenu(mockRequest, model).call(), equalTo("deliver_menu"));
     }
 
     private void getXmlFilesWillReturnFilesAmountOf(int amount) {
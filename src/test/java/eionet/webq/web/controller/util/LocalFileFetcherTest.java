@@ -0,0 +1,159 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.web.controller.util;
+
+import eionet.webq.converter.JsonXMLBidirectionalConverter;
+import eionet.webq.dao.orm.ProjectEntry;
+import eionet.webq.dao.orm.ProjectFile;
+import eionet.webq.dao.orm.UserFile;
+import eionet.webq.service.CDREnvelopeService;
+import eionet.webq.service.FileNotAvailableException;
+import eionet.webq.service.ProjectFileService;
+import eionet.webq.service.ProjectService;
+import eionet.webq.service.UserFileService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.net.URI;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LocalFileFetcherTest {
+    private static final String WEBQ_URL = "http://localhost:8080/webq2";
+    private static final byte[] CONTENT = "<a/>".getBytes();
+    @InjectMocks
+    private LocalFileFetcher fetcher;
+    @Mock
+    private UserFileService userFileService;
+    @Mock
+    private ProjectService projectService;
+    @Mock
+    private ProjectFileService projectFileService;
+    @Mock
+    private CDREnvelopeService envelopeService;
+    @Mock
+    private JsonXMLBidirectionalConverter jsonXMLConverter;
+
+    @Test
+    public void relativeUriIsResolvedAgainstContextPath() throws Exception {
+        assertThat(fetcher.localPath(new URI("/webq2/download/user_file?fileId=1"), "/webq2", WEBQ_URL),
+                equalTo("/download/user_file"));
+        assertThat(fetcher.localPath(new URI("download/user_file?fileId=1"), "/webq2", WEBQ_URL),
+                equalTo("/download/user_file"));
+    }
+
+    @Test
+    public void absoluteUriIsLocalOnlyIfItStartsWithApplicationUrl() throws Exception {
+        assertThat(fetcher.localPath(new URI(WEBQ_URL + "/webform/project/p1/file/codes.xml"), "/webq2", WEBQ_URL),
+                equalTo("/webform/project/p1/file/codes.xml"));
+        assertThat(fetcher.localPath(new URI("http://dd.eionet.europa.eu/webq2/download/user_file"), "/webq2", WEBQ_URL),
+                nullValue());
+        assertThat(fetcher.localPath(new URI("//localhost:8080/webq2/download/user_file"), "/webq2", WEBQ_URL), nullValue());
+    }
+
+    @Test
+    public void supportsOnlyFileDownloadPaths() {
+        assertTrue(fetcher.isSupported("/download/user_file"));
+        assertTrue(fetcher.isSupported("/download/project/p1/file/codes.xml"));
+        assertTrue(fetcher.isSupported("/webform/project/p1/file/form.xhtml"));
+        assertFalse(fetcher.isSupported("/download/converted_user_file"));
+        assertFalse(fetcher.isSupported("/saveXml"));
+        assertFalse(fetcher.isSupported(null));
+    }
+
+    @Test
+    public void readsUserFileOfGivenUser() throws Exception {
+        UserFile file = new UserFile();
+        file.setContent(CONTENT);
+        when(userFileService.getByIdAndUser(1, "user")).thenReturn(file);
+
+        assertThat(fetcher.fetch("/download/user_file", new URI("/download/user_file?fileId=1"), "user"), equalTo(CONTENT));
+    }
+
+    @Test
+    public void readsUserFileBySessionIdParameterIfNotFoundForUser() throws Exception {
+        UserFile file = new UserFile();
+        file.setContent(CONTENT);
+        when(userFileService.getByIdAndUser(1, "other")).thenReturn(file);
+
+        assertThat(fetcher.fetch("/download/user_file", new URI("/download/user_file?fileId=1&sessionid=other"), "user"),
+                equalTo(CONTENT));
+    }
+
+    @Test(expected = FileNotAvailableException.class)
+    public void throwsExceptionIfUserFileIsNotAvailable() throws Exception {
+        fetcher.fetch("/download/user_file", new URI("/download/user_file?fileId=1"), "user");
+    }
+
+    @Test
+    public void fetchesCdrFileContentIfNotStoredLocally() throws Exception {
+        UserFile file = new UserFile();
+        file.setFromCdr(true);
+        file.setEnvelope("http://cdr.eionet.europa.eu/envelope");
+        file.setName("file.xml");
+        when(userFileService.getByIdAndUser(1, "user")).thenReturn(file);
+        when(envelopeService.fetchFileFromCdr(file, "http://cdr.eionet.europa.eu/envelope/file.xml"))
+                .thenReturn(new ResponseEntity<byte[]>(CONTENT, HttpStatus.OK));
+
+        assertThat(fetcher.fetch("/download/user_file", new URI("/download/user_file?fileId=1"), "user"), equalTo(CONTENT));
+    }
+
+    @Test
+    public void readsProjectFile() throws Exception {
+        ProjectEntry project = new ProjectEntry();
+        ProjectFile projectFile = new ProjectFile();
+        projectFile.setFileContent(CONTENT);
+        when(projectService.getByProjectId("p1")).thenReturn(project);
+        when(projectFileService.fileContentBy("codes.xml", project)).thenReturn(projectFile);
+
+        assertThat(fetcher.fetch("/webform/project/p1/file/codes.xml",
+                new URI("/webform/project/p1/file/codes.xml"), "user"), equalTo(CONTENT));
+    }
+
+    @Test
+    public void convertsProjectFileToJsonIfRequested() throws Exception {
+        ProjectEntry project = new ProjectEntry();
+        ProjectFile projectFile = new ProjectFile();
+        projectFile.setFileContent(CONTENT);
+        byte[] json = "{\"a\":\"\"}".getBytes();
+        when(projectService.getByProjectId("p1")).thenReturn(project);
+        when(projectFileService.fileContentBy("codes.xml", project)).thenReturn(projectFile);
+        when(jsonXMLConverter.convertXmlToJson(CONTENT)).thenReturn(json);
+
+        assertThat(fetcher.fetch("/download/project/p1/file/codes.xml",
+                new URI("/download/project/p1/file/codes.xml?format=json"), "user"), equalTo(json));
+    }
+
+    @Test(expected = FileNotAvailableException.class)
+    public void throwsExceptionIfProjectIsNotFound() throws Exception {
+        fetcher.fetch("/download/project/p1/file/codes.xml", new URI("/download/project/p1/file/codes.xml"), "user");
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.web.filter;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServlet;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class ByteCountingFilterTest {
+    private MockHttpServletRequest request = new MockHttpServletRequest();
+    private MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @Test
+    public void countsBytesWrittenToOutputStream() throws Exception {
+        filter(new HttpServlet() {
+            @Override
+            public void service(ServletRequest req, ServletResponse res) throws ServletException, IOException {
+                res.getOutputStream().write(new byte[] {1, 2, 3});
+                res.getOutputStream().write(4);
+            }
+        });
+
+        assertThat(countedBytes(), equalTo(4L));
+        assertThat(response.getContentAsByteArray().length, equalTo(4));
+    }
+
+    @Test
+    public void countsEncodedLengthOfCharactersWrittenToWriter() throws Exception {
+        response.setCharacterEncoding("UTF-8");
+        filter(new HttpServlet() {
+            @Override
+            public void service(ServletRequest req, ServletResponse res) throws ServletException, IOException {
+                res.getWriter().print("õun");
+                res.getWriter().write('!');
+                res.getWriter().flush();
+            }
+        });
+
+        assertThat(countedBytes(), equalTo(5L));
+        assertThat(response.getContentAsString(), equalTo("õun!"));
+    }
+
+    @Test
+    public void asyncDispatchKeepsCountingIntoSameCounter() throws Exception {
+        AtomicLong counter = new AtomicLong(10);
+        request.setAttribute(ByteCountingFilter.BYTES_ATTRIBUTE, counter);
+
+        filter(new HttpServlet() {
+            @Override
+            public void service(ServletRequest req, ServletResponse res) throws ServletException, IOException {
+                res.getOutputStream().write(1);
+            }
+        });
+
+        assertThat(counter.get(), equalTo(11L));
+    }
+
+    private void filter(HttpServlet servlet) throws Exception {
+        new ByteCountingFilter().doFilter(request, response, new MockFilterChain(servlet));
+    }
+
+    private long countedBytes() {
+        return ((AtomicLong) request.getAttribute(ByteCountingFilter.BYTES_ATTRIBUTE)).get();
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.web.interceptor;
+
+import eionet.webq.metrics.EndpointMetrics;
+import eionet.webq.metrics.RequestMetrics;
+import eionet.webq.metrics.SqlMetrics;
+import eionet.webq.web.controller.KnownHostsController;
+import eionet.webq.web.filter.ByteCountingFilter;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.ui.Model;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class RequestMetricsInterceptorTest {
+    private RequestMetricsInterceptor interceptor = new RequestMetricsInterceptor();
+    private MockHttpServletRequest request = new MockHttpServletRequest();
+    private MockHttpServletResponse response = new MockHttpServletResponse();
+    private HandlerMethod handler;
+
+    @Before
+    public void setUp() throws Exception {
+        interceptor.requestMetrics = new RequestMetrics();
+        handler = new HandlerMethod(new KnownHostsController(),
+                KnownHostsController.class.getMethod("listKnownHosts", Model.class));
+    }
+
+    @Test
+    public void recordsCompletedRequestByHandlerMethod() throws Exception {
+        request.setAttribute(ByteCountingFilter.BYTES_ATTRIBUTE, new AtomicLong(42));
+
+        completeRequest(null);
+
+        EndpointMetrics metrics = onlyEndpoint();
+        assertThat(metrics.getName(), equalTo("KnownHostsController.listKnownHosts"));
+        assertThat(metrics.getRequestCount(), equalTo(1L));
+        assertThat(metrics.getErrorCount(), equalTo(0L));
+        assertThat(metrics.getResponseBytes(), equalTo(42L));
+    }
+
+    @Test
+    public void recordsSqlStatementsExecutedByRequest() throws Exception {
+        request.setAttribute(SqlMetrics.REQUEST_STATEMENTS_ATTRIBUTE, new AtomicInteger(7));
+        completeRequest(null);
+        request.setAttribute(SqlMetrics.REQUEST_STATEMENTS_ATTRIBUTE, new AtomicInteger(3));
+        completeRequest(null);
+
+        EndpointMetrics metrics = onlyEndpoint();
+        assertThat(metrics.getSqlStatements(), equalTo(10L));
+        assertThat(metrics.getMaxSqlStatements(), equalTo(7L));
+    }
+
+    @Test
+    public void countsServerAndClientErrors() throws Exception {
+        response.setStatus(404);
+        completeRequest(null);
+        response.setStatus(200);
+        completeRequest(new IllegalStateException());
+        response.setStatus(503);
+        completeRequest(null);
+
+        EndpointMetrics metrics = onlyEndpoint();
+        assertThat(metrics.getRequestCount(), equalTo(3L));
+        assertThat(metrics.getClientErrorCount(), equalTo(1L));
+        assertThat(metrics.getErrorCount(), equalTo(2L));
+    }
+
+    @Test
+    public void asyncRequestIsMeasuredFromFirstDispatch() throws Exception {
+        interceptor.preHandle(request, response, handler);
+        Long start = (Long) request.getAttribute(RequestMetricsInterceptor.START_ATTRIBUTE);
+        interceptor.afterConcurrentHandlingStarted(request, response, handler);
+
+        interceptor.preHandle(request, response, handler);
+
+        assertThat((Long) request.getAttribute(RequestMetricsInterceptor.START_ATTRIBUTE), equalTo(start));
+        interceptor.afterCompletion(request, response, handler, null);
+        assertThat(onlyEndpoint().getRequestCount(), equalTo(1L));
+    }
+
+    @Test
+    public void requestIsNotRecordedTwice() throws Exception {
+        completeRequest(null);
+        interceptor.afterCompletion(request, response, handler, null);
+
+        assertThat(onlyEndpoint().getRequestCount(), equalTo(1L));
+    }
+
+    @Test
+    public void staticResourcesAreGroupedUnderSingleEndpoint() throws Exception {
+        assertThat(RequestMetricsInterceptor.endpointName(new ResourceHttpRequestHandler()),
+                equalTo(RequestMetricsInterceptor.STATIC_RESOURCES));
+    }
+
+    private void completeRequest(Exception ex) throws Exception {
+        interceptor.preHandle(request, response, handler);
+        interceptor.afterCompletion(request, response, handler, ex);
+    }
+
+    private EndpointMetrics onlyEndpoint() {
+        assertThat(interceptor.requestMetrics.getEndpoints().size(), equalTo(1));
+        EndpointMetrics metrics = interceptor.requestMetrics.getEndpoints().iterator().next();
+        assertTrue(metrics.getMaxMicros() >= 0);
+        return metrics;
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.xforms;
+
+import de.betterform.connector.http.AbstractHTTPConnector;
+import de.betterform.xml.xforms.exception.XFormsInternalSubmitException;
+import de.betterform.xml.xforms.model.submission.RequestHeaders;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.ServletResponseWrapper;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class LocalRequestDispatcherTest {
+    private static final String APP_URL = "http://webq.eionet.europa.eu/webq";
+    private LocalRequestDispatcher localRequestDispatcher = new LocalRequestDispatcher();
+    private MockServletContext servletContext = new MockServletContext();
+    private MockHttpServletRequest currentRequest = new MockHttpServletRequest(servletContext);
+    private MockHttpServletResponse currentResponse = new MockHttpServletResponse();
+    private Map<Object, Object> context = new HashMap<Object, Object>();
+    private RecordingDispatcher dispatcher = new RecordingDispatcher();
+
+    @Before
+    public void setUp() throws Exception {
+        localRequestDispatcher.enabled = true;
+        localRequestDispatcher.setServletContext(servletContext);
+        servletContext.registerNamedDispatcher(LocalRequestDispatcher.DISPATCHER_SERVLET_NAME, dispatcher);
+        currentRequest.setContextPath("/webq");
+        currentRequest.addHeader("Cookie", "JSESSIONID=session; WebQCookie=user");
+        currentRequest.setAttribute("original", "value");
+        context.put(XFormsHTTPRequestAuthHandlerImpl.BF_REQUEST_URL_ATTRIBUTE, APP_URL + "/xform/?formId=1");
+        context.put(XFormsHTTPRequestAuthHandlerImpl.BF_HTTP_SESSION_ATTRIBUTE, currentRequest.getSession().getId());
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(currentRequest, currentResponse));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void dispatchesUserFileDownloadInProcess() throws Exception {
+        dispatcher.respond(200, "application/xml", "<reporting/>");
+
+        HttpResponse response = localRequestDispatcher.dispatch("GET", APP_URL + "/download/user_file?fileId=5",
+                null, null, null, context);
+
+        assertThat(response.getStatusLine().getStatusCode(), equalTo(200));
+        assertThat(EntityUtils.toString(response.getEntity()), equalTo("<reporting/>"));
+        assertThat(response.getFirstHeader("Content-Type").getValue(), equalTo("application/xml;charset=UTF-8"));
+        assertThat(dispatcher.request.getMethod(), equalTo("GET"));
+        assertThat(dispatcher.request.getRequestURI(), equalTo("/webq/download/user_file"));
+        assertThat(dispatcher.request.getServletPath(), equalTo("/download/user_file"));
+        assertThat(dispatcher.request.getParameter("fileId"), equalTo("5"));
+        assertThat(dispatcher.request.getHeader("Cookie"), equalTo("JSESSIONID=session; WebQCookie=user"));
+        assertThat(dispatcher.request.getSession(), equalTo(currentRequest.getSession()));
+    }
+
+    @Test
+    public void dispatchesSaveXmlWithBodyInProcess() throws Exception {
+        dispatcher.respond(200, "application/xml", "<XmlSaveResult/>");
+
+        localRequestDispatcher.dispatch("POST", APP_URL + "/saveXml?fileId=5", "<reporting>ä</reporting>",
+                "application/xml", "UTF-8", context);
+
+        assertThat(dispatcher.request.getMethod(), equalTo("POST"));
+        assertThat(dispatcher.request.getContentType(), equalTo("application/xml; charset=UTF-8"));
+        assertThat(dispatcher.body, equalTo("<reporting>ä</reporting>"));
+    }
+
+    @Test
+    public void passesXFormsRequestHeadersExceptConnectionSpecificOnes() throws Exception {
+        RequestHeaders headers = new RequestHeaders();
+        headers.addHeader("Accept", "application/xml");
+        headers.addHeader("Content-Length", "100");
+        headers.addHeader("Cookie", "JSESSIONID=other");
+        context.put(AbstractHTTPConnector.HTTP_REQUEST_HEADERS, headers);
+        dispatcher.respond(200, "application/xml", "<reporting/>");
+
+        localRequestDispatcher.dispatch("GET", APP_URL + "/download/user_file?fileId=5", null, null, null, context);
+
+        assertThat(dispatcher.request.getHeader("Accept"), equalTo("application/xml"));
+        assertNull(dispatcher.request.getHeader("Content-Length"));
+        assertThat(dispatcher.request.getHeader("Cookie"), equalTo("JSESSIONID=session; WebQCookie=user"));
+    }
+
+    @Test
+    public void dispatchedRequestDoesNotShareAttributesWithCurrentRequest() throws Exception {
+        dispatcher.respond(200, "application/xml", "<reporting/>");
+
+        localRequestDispatcher.dispatch("GET", APP_URL + "/webform/project/p1/file/labels.xml", null, null, null,
+                context);
+
+        assertNull(dispatcher.originalAttribute);
+        assertNull(currentRequest.getAttribute("dispatched"));
+        assertThat(currentRequest.getAttribute("original"), equalTo((Object) "value"));
+    }
+
+    @Test
+    public void dispatchedRequestReadsContainerAttributesFromCurrentRequest() throws Exception {
+        currentRequest.setAttribute("org.apache.catalina.core.DISPATCHER_TYPE", DispatcherType.FORWARD);
+        dispatcher.respond(200, "application/xml", "<reporting/>");
+
+        localRequestDispatcher.dispatch("GET", APP_URL + "/download/user_file?fileId=5", null, null, null, context);
+
+        assertThat(dispatcher.request.getAttribute("org.apache.catalina.core.DISPATCHER_TYPE"),
+                equalTo((Object) DispatcherType.FORWARD));
+        assertNull(dispatcher.request.getAttribute("original"));
+        assertThat(Collections.list(dispatcher.request.getAttributeNames()),
+                equalTo(Arrays.asList("dispatched", "org.apache.catalina.core.DISPATCHER_TYPE")));
+    }
+
+    @Test
+    public void dispatchedResponseWrapsCurrentResponseWithoutWritingToIt() throws Exception {
+        dispatcher.respond(201, "application/xml", "<reporting/>");
+
+        localRequestDispatcher.dispatch("GET", APP_URL + "/download/user_file?fileId=5", null, null, null, context);
+
+        assertSame(currentResponse, ((ServletResponseWrapper) dispatcher.response).getResponse());
+        assertThat(currentResponse.getStatus(), equalTo(200));
+        assertNull(currentResponse.getContentType());
+        assertThat(currentResponse.getContentAsString(), equalTo(""));
+    }
+
+    @Test
+    public void errorStatusFailsLikeHttpConnector() throws Exception {
+        dispatcher.respond(404, "text/plain", "not found");
+
+        try {
+            localRequestDispatcher.dispatch("GET", APP_URL + "/download/user_file?fileId=5", null, null, null, context);
+            fail("Expected error status to fail");
+        } catch (XFormsInternalSubmitException e) {
+            assertThat(e.getStatusCode(), equalTo(404));
+            assertThat(e.getResponseBodyAsString(), equalTo("not found"));
+        }
+    }
+
+    @Test
+    public void otherHostIsNotDispatched() throws Exception {
+        assertNotDispatched("GET", "http://cdr.eionet.europa.eu/webq/download/user_file?fileId=5");
+    }
+
+    @Test
+    public void otherPortIsNotDispatched() throws Exception {
+        assertNotDispatched("GET", "http://webq.eionet.europa.eu:8080/webq/download/user_file?fileId=5");
+    }
+
+    @Test
+    public void pathOutsideOfContextIsNotDispatched() throws Exception {
+        assertNotDispatched("GET", "http://webq.eionet.europa.eu/other/download/user_file?fileId=5");
+    }
+
+    @Test
+    public void notListedPathIsNotDispatched() throws Exception {
+        assertNotDispatched("GET", APP_URL + "/download/convert?fileId=5&conversionId=1");
+        assertNotDispatched("POST", APP_URL + "/download/user_file?fileId=5");
+    }
+
+    @Test
+    public void requestFromOtherSessionIsNotDispatched() throws Exception {
+        context.put(XFormsHTTPRequestAuthHandlerImpl.BF_HTTP_SESSION_ATTRIBUTE, "other-session");
+
+        assertNotDispatched("GET", APP_URL + "/download/user_file?fileId=5");
+    }
+
+    @Test
+    public void requestOutsideOfRequestProcessingIsNotDispatched() throws Exception {
+        RequestContextHolder.resetRequestAttributes();
+
+        assertNotDispatched("GET", APP_URL + "/download/user_file?fileId=5");
+    }
+
+    @Test
+    public void requestIsNotDispatchedIfCurrentResponseIsNotKnown() throws Exception {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(currentRequest));
+
+        assertNotDispatched("GET", APP_URL + "/download/user_file?fileId=5");
+    }
+
+    @Test
+    public void nothingIsDispatchedIfDisabled() throws Exception {
+        localRequestDispatcher.enabled = false;
+
+        assertNotDispatched("GET", APP_URL + "/download/user_file?fileId=5");
+    }
+
+    private void assertNotDispatched(String method, String uri) throws Exception {
+        assertNull(localRequestDispatcher.dispatch(method, uri, null, null, null, context));
+        assertNull(dispatcher.request);
+    }
+
+    private static class RecordingDispatcher implements RequestDispatcher {
+        private HttpServletRequest request;
+        private ServletResponse response;
+        private String body;
+        private Object originalAttribute;
+        private int status;
+        private String contentType;
+        private String content;
+
+        void respond(int status, String contentType, String content) {
+            this.status = status;
+            this.contentType = contentType;
+            this.content = content;
+        }
+
+        @Override
+        public void forward(ServletRequest servletRequest, ServletResponse servletResponse) throws IOException {
+            request = (HttpServletRequest) servletRequest;
+            body = IOUtils.toString(request.getInputStream(), "UTF-8");
+            originalAttribute = request.getAttribute("original");
+            request.setAttribute("dispatched", "value");
+            this.response = servletResponse;
+            HttpServletResponse response = (HttpServletResponse) servletResponse;
+            response.setStatus(status);
+            response.setContentType(contentType);
+            response.setCharacterEncoding("UTF-8");
+            response.getWriter().write(content);
+        }
+
+        @Override
+        public void include(ServletRequest servletRequest, ServletResponse servletResponse) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.xforms;
+
+import eionet.webq.dao.orm.ProjectFile;
+import eionet.webq.service.ProjectFileContentChangedEvent;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import java.util.Date;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+public class XFormsDocumentCacheTest {
+    private static final int FORM_ID = 3;
+    private XFormsDocumentCache cache = new XFormsDocumentCache();
+    private ProjectFile webForm;
+
+    @Before
+    public void setUp() throws Exception {
+        cache.maxSize = 10;
+        cache.init();
+        webForm = webForm("first", new Date(1000));
+    }
+
+    @Test
+    public void everySessionGetsOwnCopyOfDocument() throws Exception {
+        Document first = cache.sessionCopy(webForm);
+        first.getDocumentElement().setAttribute("modified", "true");
+
+        Document second = cache.sessionCopy(webForm);
+
+        assertThat(second, not(sameInstance(first)));
+        assertThat(second.getDocumentElement().getAttribute("modified"), equalTo(""));
+        assertThat(title(second), equalTo("first"));
+    }
+
+    @Test
+    public void keepsNamespacesOfParsedForm() throws Exception {
+        Document document = cache.sessionCopy(webForm);
+
+        assertThat(document.getDocumentElement().getNamespaceURI(), equalTo("http://www.w3.org/1999/xhtml"));
+        assertThat(document.getElementsByTagNameNS("http://www.w3.org/2002/xforms", "model").getLength(), equalTo(1));
+    }
+
+    @Test
+    public void sameFormVersionIsParsedOnce() throws Exception {
+        cache.sessionCopy(webForm);
+
+        Document document = cache.sessionCopy(webForm("second", new Date(1000)));
+
+        assertThat(title(document), equalTo("first"));
+    }
+
+    @Test
+    public void updatedFormIsParsedAgain() throws Exception {
+        cache.sessionCopy(webForm);
+
+        Document document = cache.sessionCopy(webForm("second", new Date(2000)));
+
+        assertThat(title(document), equalTo("second"));
+    }
+
+    @Test
+    public void contentChangeEventRemovesCachedForm() throws Exception {
+        cache.sessionCopy(webForm);
+
+        cache.onApplicationEvent(new ProjectFileContentChangedEvent(this, FORM_ID, "form.xhtml", 1));
+
+        assertThat(title(cache.sessionCopy(webForm("second", new Date(1000)))), equalTo("second"));
+    }
+
+    @Test
+    public void formIsParsedEveryTimeIfCacheIsDisabled() throws Exception {
+        cache.maxSize = 0;
+        cache.init();
+        cache.sessionCopy(webForm);
+
+        assertThat(title(cache.sessionCopy(webForm("second", new Date(1000)))), equalTo("second"));
+    }
+
+    @Test
+    public void returnsNullIfFormIsNotWellFormed() throws Exception {
+        webForm.setFileContent("<html><head>".getBytes("UTF-8"));
+
+        assertNull(cache.sessionCopy(webForm));
+    }
+
+    private String title(Document document) {
+        return document.getElementsByTagNameNS("http://www.w3.org/1999/xhtml", "title").item(0).getTextContent();
+    }
+
+    private ProjectFile webForm(String title, Date updated) throws Exception {
+        ProjectFile file = new ProjectFile();
+        file.setId(FORM_ID);
+        file.setUpdated(updated);
+        file.setFileContent(("<html xmlns=\"http://www.w3.org/1999/xhtml\" xmlns:xf=\"http://www.w3.org/2002/xforms\">"
+                + "<head><title>" + title + "</title><xf:model><xf:instance><data xmlns=\"\"/></xf:instance></xf:model>"
+                + "</head><body/></html>").getBytes("UTF-8"));
+        return file;
+    }
+}
@@ -26,8 +26,8 @@ import de.betterform.connector.http.AbstractHTTPConnector;
 import de.betterform.xml.xforms.model.submission.RequestHeader;
 import de.betterform.xml.xforms.model.submission.RequestHeaders;
 import eionet.webq.dao.orm.KnownHost;
-import eionet.webq.dao.orm.UserFile;
 import eionet.webq.dto.KnownHostAuthenticationMethod;
+import eionet.webq.dto.UserFileAuthInfo;
 import eionet.webq.service.KnownHostsService;
 import eionet.webq.service.UserFileService;
 import org.apache.http.client.methods.HttpGet;
@@ -95,18 +95,12 @@ public class XFormsHTTPRequestAuthHandlerImplTest {
         return host;
     }
 
-    static UserFile createUserFileWithAuth() {
-        UserFile userFile = createUserFile();
-        userFile.setAuthorization("Basic a2V5OnRpY2tldA==");
-        userFile.setAuthorized(true);
-        return userFile;
+    static UserFileAuthInfo createUserFileWithAuth() {
+        return new UserFileAuthInfo("12345", true, "Basic a2V5OnRpY2tldA==", null);
     }
 
-    static UserFile createUserFile() {
-        UserFile userFile = new UserFile();
-        userFile.setId(1);
-        userFile.setUserId("12345");
-        return userFile;
+    static UserFileAuthInfo createUserFile() {
+        return new UserFileAuthInfo("12345", false, null, null);
     }
 
     static Map<Object, Object> createBfContextMap() {
@@ -133,20 +127,20 @@ public class XFormsHTTPRequestAuthHandlerImplTest {
         HttpRequestBase httpRequest = new HttpGet(BASE_URI + "/resource");
 
         Map<Object, Object> context = createBfContextMap();
-        requestAuthHandler.addAuthToHttpRequest(httpRequest, context);
+        assertThat(requestAuthHandler.addAuthToHttpRequest(httpRequest, context), equalTo(RequestAuthScope.USER));
         assertThatRequestIsNotChanged(httpRequest, BASE_URI + "/resource");
         assertThatRequestHeaderContainsValidSessionId(context);
-        verify(userFileService, never()).getById(anyInt());
+        verify(userFileService, never()).getAuthInfo(anyInt());
     }
 
     @Test
     public void ignoreRequestsWithNoAuthInfoInUserFile() {
 
         HttpRequestBase httpRequest = new HttpGet(BASIC_AUTH_KNOWN_HOST_URL);
-        when(userFileService.getById(anyInt())).thenReturn(createUserFile());
+        when(userFileService.getAuthInfo(anyInt())).thenReturn(createUserFile());
         requestAuthHandler.addAuthToHttpRequest(httpRequest, createBfContextMap());
         assertThatRequestIsNotChanged(httpRequest, BASIC_AUTH_KNOWN_HOST_URL);
-        verify(userFileService, atLeastOnce()).getById(anyInt());
+        verify(userFileService, atLeastOnce()).getAuthInfo(anyInt());
     }
 
     @Test
@@ -154,11 +148,11 @@ public class XFormsHTTPRequestAuthHandlerImplTest {
         HttpRequestBase httpRequest = new HttpGet(BASIC_AUTH_KNOWN_HOST_URL + "/resource.xml");
         Map<Object, Object> context = createBfContextMap();
         context.put("instance", BASIC_AUTH_KNOWN_HOST_URL + "/instance.xml");
-        UserFile userFile = createUserFileWithAuth();
+        UserFileAuthInfo userFile = createUserFileWithAuth();
 
-        when(userFileService.getById(anyInt())).thenReturn(userFile);
+        when(userFileService.getAuthInfo(anyInt())).thenReturn(userFile);
         when(knownHostsService.getKnownHost(anyString())).thenReturn(createBasicAuthKnownHost());
-        requestAuthHandler.addAuthToHttpRequest(httpRequest, context);
+        assertThat(requestAuthHandler.addAuthToHttpRequest(httpRequest, context), equalTo(RequestAuthScope.HOST));
 
         assertThat(httpRequest.getURI().toString(), equalTo(BASIC_AUTH_KNOWN_HOST_URL + "/resource.xml"));
         assertThat(httpRequest.getHeaders("Authorization")[0].getValue().trim(), equalTo(userFile.getAuthorization()));
@@ -170,11 +164,11 @@ public class XFormsHTTPRequestAuthHandlerImplTest {
         HttpRequestBase httpRequest = new HttpGet(REQUEST_PARAM_KNOWN_HOST_URL + "/resource.xml");
         Map<Object, Object> context = createBfContextMap();
         context.put("instance", REQUEST_PARAM_KNOWN_HOST_URL + "/instance.xml");
-        UserFile userFile = createUserFileWithAuth();
+        UserFileAuthInfo userFile = createUserFileWithAuth();
 
-        when(userFileService.getById(anyInt())).thenReturn(userFile);
+        when(userFileService.getAuthInfo(anyInt())).thenReturn(userFile);
         when(knownHostsService.getKnownHost(anyString())).thenReturn(createRequestParamKnownHost());
-        requestAuthHandler.addAuthToHttpRequest(httpRequest, context);
+        assertThat(requestAuthHandler.addAuthToHttpRequest(httpRequest, context), equalTo(RequestAuthScope.HOST));
 
         assertThat(httpRequest.getURI().toString(), equalTo(REQUEST_PARAM_KNOWN_HOST_URL + "/resource.xml?key=ticket"));
     }
@@ -185,11 +179,11 @@ public class XFormsHTTPRequestAuthHandlerImplTest {
         HttpRequestBase httpRequest = new HttpGet(resourceUrl);
         Map<Object, Object> context = createBfContextMap();
         context.put("instance", REQUEST_PARAM_KNOWN_HOST_URL + "/instance.xml");
-        UserFile userFile = createUserFileWithAuth();
+        UserFileAuthInfo userFile = createUserFileWithAuth();
 
-        when(userFileService.getById(anyInt())).thenReturn(userFile);
+        when(userFileService.getAuthInfo(anyInt())).thenReturn(userFile);
         when(knownHostsService.getKnownHost(anyString())).thenReturn(null);
-        requestAuthHandler.addAuthToHttpRequest(httpRequest, context);
+        assertThat(requestAuthHandler.addAuthToHttpRequest(httpRequest, context), equalTo(RequestAuthScope.NONE));
 
         assertThat(httpRequest.getURI().toString(), equalTo(resourceUrl));
         assertThat(httpRequest.getHeaders("Authorization").length, equalTo(0));
@@ -206,7 +200,7 @@ public class XFormsHTTPRequestAuthHandlerImplTest {
         requestAuthHandler.addAuthToHttpRequest(httpRequest, context);
 
         assertThat((String) context.get("webqAuth"), equalTo("Basic auth"));
-        verify(userFileService, never()).getById(anyInt());
+        verify(userFileService, never()).getAuthInfo(anyInt());
     }
 
     @Test
@@ -275,4 +269,25 @@ public class XFormsHTTPRequestAuthHandlerImplTest {
         assertThat(httpRequest.getURI().toString(), startsWith(requestUri));
         assertThat(httpRequest.getHeaders("Authorization").length, equalTo(0));
     }
+
+    @Test
+    public void ignoreRequestsIfUserFileIsNotFound() {
+        HttpRequestBase httpRequest = new HttpGet(BASIC_AUTH_KNOWN_HOST_URL);
+        Map<Object, Object> context = createBfContextMap();
+        requestAuthHandler.addAuthToHttpRequest(httpRequest, context);
+
+        assertThatRequestIsNotChanged(httpRequest, BASIC_AUTH_KNOWN_HOST_URL);
+        assertThat(context.containsKey("webqAuth"), equalTo(true));
+    }
+
+    @Test
+    public void userAuthorisationIsAddedForInstanceUri() {
+        HttpRequestBase httpRequest = new HttpGet(BASIC_AUTH_KNOWN_HOST_URL + "/instance.xml");
+        Map<Object, Object> context = createBfContextMap();
+        context.put("instance", BASIC_AUTH_KNOWN_HOST_URL + "/instance.xml");
+        when(userFileService.getAuthInfo(anyInt())).thenReturn(createUserFileWithAuth());
+
+        assertThat(requestAuthHandler.addAuthToHttpRequest(httpRequest, context), equalTo(RequestAuthScope.USER));
+        assertThat(httpRequest.getHeaders("Authorization")[0].getValue().trim(), equalTo("Basic a2V5OnRpY2tldA=="));
+    }
 }
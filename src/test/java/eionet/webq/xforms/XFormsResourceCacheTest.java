@@ -0,0 +1,198 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.xforms;
+
+import de.betterform.xml.xforms.exception.XFormsInternalSubmitException;
+import eionet.webq.service.SingleFlight;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.util.EntityUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.ExpectedCount.times;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+
+public class XFormsResourceCacheTest {
+    private static final String CODE_LIST = "http://dd.eionet.europa.eu/codelist.xml";
+    private XFormsResourceCache cache;
+    private MockRestServiceServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        cache = new XFormsResourceCache();
+        cache.restOperations = restTemplate;
+        cache.singleFlight = new SingleFlight();
+        cache.maxSizeMb = 1;
+        cache.maxHeuristicFreshnessSeconds = 300;
+        cache.statisticsMaxSize = 10;
+        cache.init();
+    }
+
+    @Test
+    public void onlyGetRequestsWithoutUserCredentialsAreCacheable() throws Exception {
+        assertTrue(cache.isCacheable(new HttpGet(CODE_LIST), RequestAuthScope.NONE));
+        assertTrue(cache.isCacheable(new HttpGet(CODE_LIST), RequestAuthScope.HOST));
+        assertFalse(cache.isCacheable(new HttpGet(CODE_LIST), RequestAuthScope.USER));
+        assertFalse(cache.isCacheable(new HttpPost(CODE_LIST), RequestAuthScope.NONE));
+        assertFalse(cache.isCacheable(new HttpGet("file:///tmp/codelist.xml"), RequestAuthScope.NONE));
+    }
+
+    @Test
+    public void zeroSizeDisablesCache() throws Exception {
+        cache.maxSizeMb = 0;
+
+        assertFalse(cache.isCacheable(new HttpGet(CODE_LIST), RequestAuthScope.NONE));
+    }
+
+    @Test
+    public void freshResourceIsServedFromCache() throws Exception {
+        server.expect(once(), requestTo(CODE_LIST)).andExpect(method(HttpMethod.GET))
+                .andRespond(withStatus(HttpStatus.OK).body("<codes/>").contentType(MediaType.APPLICATION_XML)
+                        .headers(headers(HttpHeaders.CACHE_CONTROL, "public, max-age=600")));
+
+        assertThat(body(cache.get(new HttpGet(CODE_LIST), RequestAuthScope.NONE)), equalTo("<codes/>"));
+        HttpResponse cached = cache.get(new HttpGet(CODE_LIST), RequestAuthScope.NONE);
+
+        server.verify();
+        assertThat(body(cached), equalTo("<codes/>"));
+        assertThat(cached.getFirstHeader(HttpHeaders.CONTENT_TYPE).getValue(), equalTo("application/xml"));
+        XFormsResourceCache.ResourceStatistics statistics = cache.getStatistics().iterator().next();
+        assertThat(statistics.getUrl(), equalTo(CODE_LIST));
+        assertThat(statistics.getMisses(), equalTo(1L));
+        assertThat(statistics.getHits(), equalTo(1L));
+    }
+
+    @Test
+    public void privateResourceIsNotStored() throws Exception {
+        server.expect(times(2), requestTo(CODE_LIST))
+                .andRespond(withStatus(HttpStatus.OK).body("<codes/>")
+                        .headers(headers(HttpHeaders.CACHE_CONTROL, "private, max-age=600")));
+
+        cache.get(new HttpGet(CODE_LIST), RequestAuthScope.NONE);
+        cache.get(new HttpGet(CODE_LIST), RequestAuthScope.NONE);
+
+        server.verify();
+    }
+
+    @Test
+    public void staleResourceIsRevalidated() throws Exception {
+        server.expect(requestTo(CODE_LIST))
+                .andRespond(withStatus(HttpStatus.OK).body("<codes/>")
+                        .headers(headers(HttpHeaders.CACHE_CONTROL, "no-cache", HttpHeaders.ETAG, "\"v1\"")));
+        server.expect(requestTo(CODE_LIST)).andExpect(header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+                .andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+        cache.get(new HttpGet(CODE_LIST), RequestAuthScope.NONE);
+        HttpResponse revalidated = cache.get(new HttpGet(CODE_LIST), RequestAuthScope.NONE);
+
+        server.verify();
+        assertThat(body(revalidated), equalTo("<codes/>"));
+        assertThat(cache.getStatistics().iterator().next().getRevalidations(), equalTo(1L));
+    }
+
+    @Test
+    public void revalidatedResourceIsFreshForTimeEstimatedFromCachedLastModified() throws Exception {
+        HttpHeaders headers = headers(HttpHeaders.CACHE_CONTROL, "max-age=0", HttpHeaders.ETAG, "\"v1\"");
+        headers.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1));
+        server.expect(requestTo(CODE_LIST)).andRespond(withStatus(HttpStatus.OK).body("<codes/>").headers(headers));
+        server.expect(once(), requestTo(CODE_LIST)).andExpect(header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+                .andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+        cache.get(new HttpGet(CODE_LIST), RequestAuthScope.NONE);
+        cache.get(new HttpGet(CODE_LIST), RequestAuthScope.NONE);
+        HttpResponse cached = cache.get(new HttpGet(CODE_LIST), RequestAuthScope.NONE);
+
+        server.verify();
+        assertThat(body(cached), equalTo("<codes/>"));
+        assertThat(cache.getStatistics().iterator().next().getHits(), equalTo(1L));
+    }
+
+    @Test
+    public void resourceWithKnownHostCredentialsIsNotSharedWithAnonymousRequests() throws Exception {
+        server.expect(requestTo(CODE_LIST)).andExpect(header("Authorization", "Basic a2V5OnRpY2tldA=="))
+                .andRespond(withStatus(HttpStatus.OK).body("<all-codes/>")
+                        .headers(headers(HttpHeaders.CACHE_CONTROL, "max-age=600")));
+        server.expect(requestTo(CODE_LIST))
+                .andRespond(withStatus(HttpStatus.OK).body("<public-codes/>")
+                        .headers(headers(HttpHeaders.CACHE_CONTROL, "max-age=600")));
+        HttpGet authenticated = new HttpGet(CODE_LIST);
+        authenticated.addHeader("Authorization", "Basic a2V5OnRpY2tldA==");
+
+        assertThat(body(cache.get(authenticated, RequestAuthScope.HOST)), equalTo("<all-codes/>"));
+        assertThat(body(cache.get(new HttpGet(CODE_LIST), RequestAuthScope.NONE)), equalTo("<public-codes/>"));
+
+        server.verify();
+    }
+
+    @Test
+    public void errorResponseIsReportedAsSubmitException() throws Exception {
+        server.expect(requestTo(CODE_LIST)).andRespond(withStatus(HttpStatus.NOT_FOUND).body("missing"));
+
+        try {
+            cache.get(new HttpGet(CODE_LIST), RequestAuthScope.NONE);
+            fail("Exception expected");
+        } catch (XFormsInternalSubmitException e) {
+            assertThat(e.getStatusCode(), equalTo(404));
+            assertThat(e.getResponseBodyAsString(), equalTo("missing"));
+        }
+    }
+
+    @Test
+    public void statisticsUrlDoesNotContainQuery() throws Exception {
+        server.expect(requestTo(CODE_LIST + "?key=ticket")).andRespond(withStatus(HttpStatus.OK).body("<codes/>"));
+
+        cache.get(new HttpGet(CODE_LIST + "?key=ticket"), RequestAuthScope.HOST);
+
+        assertThat(cache.getStatistics().iterator().next().getUrl(), equalTo(CODE_LIST));
+    }
+
+    private static HttpHeaders headers(String... namesAndValues) {
+        HttpHeaders headers = new HttpHeaders();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            headers.add(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return headers;
+    }
+
+    private static String body(HttpResponse response) throws Exception {
+        return EntityUtils.toString(response.getEntity(), "UTF-8");
+    }
+}
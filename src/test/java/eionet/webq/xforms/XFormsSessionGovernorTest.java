@@ -0,0 +1,212 @@
+/*
+ * The contents of this file are subject to the Mozilla Public
+ * License Version 1.1 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of
+ * the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS
+ * IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * rights and limitations under the License.
+ *
+ * The Original Code is Web Questionnaires 2
+ *
+ * The Initial Owner of the Original Code is European Environment
+ * Agency. Portions created by TripleDev are Copyright
+ * (C) European Environment Agency.  All Rights Reserved.
+ *
+ * Contributor(s):
+ */
+package eionet.webq.xforms;
+
+import eionet.webq.service.RequestBasedUserIdProvider;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.HttpServletRequest;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class XFormsSessionGovernorTest {
+    @InjectMocks
+    private XFormsSessionGovernor governor;
+    @Mock
+    private RequestBasedUserIdProvider userIdProvider;
+    private CacheManager cacheManager;
+    private Ehcache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        Configuration configuration = new Configuration();
+        configuration.setName("xformsSessionGovernorTest");
+        configuration.addCache(new CacheConfiguration(XFormsSessionGovernor.SESSION_CACHE, 100));
+        cacheManager = new CacheManager(configuration);
+        cache = cacheManager.getEhcache(XFormsSessionGovernor.SESSION_CACHE);
+        governor.maxPerUser = 2;
+        governor.sizeSampleMax = 10;
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        when(userIdProvider.getUserId(any(HttpServletRequest.class))).thenReturn("user");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        RequestContextHolder.resetRequestAttributes();
+        governor.destroy();
+        cacheManager.shutdown();
+    }
+
+    @Test
+    public void appliesConfiguredLimitsToSessionCache() throws Exception {
+        governor.maxTotal = 20;
+        governor.idleSeconds = 600;
+        governor.init(cacheManager);
+
+        assertThat(cache.getCacheConfiguration().getMaxElementsInMemory(), equalTo(20));
+        assertThat(cache.getCacheConfiguration().getTimeToIdleSeconds(), equalTo(600L));
+    }
+
+    @Test
+    public void keepsCacheConfigurationIfLimitsNotSet() throws Exception {
+        governor.init(cacheManager);
+
+        assertThat(cache.getCacheConfiguration().getMaxElementsInMemory(), equalTo(100));
+        assertThat(cache.getCacheConfiguration().getTimeToIdleSeconds(), equalTo(0L));
+    }
+
+    @Test
+    public void refusesNewSessionOfUserAtLimitWithoutRemovingOpenSessions() throws Exception {
+        governor.init(cacheManager);
+        cache.put(new Element("session1", "form"));
+        cache.put(new Element("session2", "form"));
+
+        assertFalse(governor.mayOpenSession(new MockHttpServletRequest()));
+        assertTrue(cache.isKeyInCache("session1"));
+        assertTrue(cache.isKeyInCache("session2"));
+        assertThat(governor.getSessionCount("user"), equalTo(2));
+        assertThat(governor.getRefusedUserLimitSessions(), equalTo(1L));
+        assertThat(governor.getCreatedSessions(), equalTo(2L));
+    }
+
+    @Test
+    public void allowsSessionsIfLimitIsDisabled() throws Exception {
+        governor.maxPerUser = 0;
+        governor.init(cacheManager);
+        cache.put(new Element("session1", "form"));
+        cache.put(new Element("session2", "form"));
+        cache.put(new Element("session3", "form"));
+
+        assertTrue(governor.mayOpenSession(new MockHttpServletRequest()));
+        assertThat(governor.getSessionCount("user"), equalTo(3));
+    }
+
+    @Test
+    public void sessionsOfOtherUsersAreNotLimitedByUser() throws Exception {
+        governor.init(cacheManager);
+        cache.put(new Element("session1", "form"));
+        cache.put(new Element("session2", "form"));
+        when(userIdProvider.getUserId(any(HttpServletRequest.class))).thenReturn("other");
+
+        assertTrue(governor.mayOpenSession(new MockHttpServletRequest()));
+        cache.put(new Element("session3", "form"));
+
+        assertThat(cache.getSize(), equalTo(3));
+        assertThat(governor.getUserCount(), equalTo(2));
+    }
+
+    @Test
+    public void closedSessionsAreNotCountedForUser() throws Exception {
+        governor.init(cacheManager);
+        cache.put(new Element("session1", "form"));
+        cache.put(new Element("session2", "form"));
+        cache.remove("session1");
+
+        assertTrue(governor.mayOpenSession(new MockHttpServletRequest()));
+        assertThat(governor.getRefusedUserLimitSessions(), equalTo(0L));
+    }
+
+    @Test
+    public void sessionsCreatedOutsideRequestAreNotCountedForUser() throws Exception {
+        governor.init(cacheManager);
+        RequestContextHolder.resetRequestAttributes();
+        cache.put(new Element("session1", "form"));
+        cache.put(new Element("session2", "form"));
+        cache.put(new Element("session3", "form"));
+
+        assertThat(cache.getSize(), equalTo(3));
+        assertThat(governor.getUserCount(), equalTo(0));
+    }
+
+    @Test
+    public void evictsIdleSessions() throws Exception {
+        governor.init(cacheManager);
+        Element idle = new Element("session1", "form");
+        idle.setTimeToIdle(1);
+        cache.put(idle);
+        cache.put(new Element("session2", "form"));
+        Thread.sleep(1100);
+
+        assertThat(governor.evictIdleSessions(), equalTo(1L));
+        assertFalse(cache.isKeyInCache("session1"));
+        assertThat(governor.getSessionCount("user"), equalTo(1));
+    }
+
+    @Test
+    public void measuresSerializedSizeOfLiveSessions() throws Exception {
+        governor.maxPerUser = 0;
+        governor.init(cacheManager);
+        cache.put(new Element("session1", new byte[1000]));
+        cache.put(new Element("session2", new byte[3000]));
+        cache.put(new Element("session3", new Object()));
+
+        XFormsSessionGovernor.SessionSizes sizes = governor.measureSessionSizes();
+
+        assertNotNull(sizes);
+        assertThat(sizes.getCount(), equalTo(2));
+        assertThat(sizes.getNotSerializable(), equalTo(1));
+        assertTrue(sizes.getMaxBytes() >= 3000);
+        assertTrue(sizes.getTotalBytes() >= 4000);
+        assertThat(governor.getSessionSizes(), equalTo(sizes));
+    }
+
+    @Test
+    public void doesNotMeasureSessionsInUse() throws Exception {
+        governor.maxPerUser = 0;
+        governor.sizeSampleMinIdleSeconds = 60;
+        governor.init(cacheManager);
+        cache.put(new Element("session1", new byte[1000]));
+
+        XFormsSessionGovernor.SessionSizes sizes = governor.measureSessionSizes();
+
+        assertThat(sizes.getCount(), equalTo(0));
+        assertThat(sizes.getTotalBytes(), equalTo(0L));
+    }
+
+    @Test
+    public void sessionSizesAreNotMeasuredIfSamplingIsDisabled() throws Exception {
+        governor.sizeSampleMax = 0;
+        governor.init(cacheManager);
+        cache.put(new Element("session1", new byte[1000]));
+
+        assertThat(governor.measureSessionSizes().getCount(), equalTo(0));
+    }
+}